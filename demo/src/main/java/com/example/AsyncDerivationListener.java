@@ -0,0 +1,135 @@
+package com.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Delivers derivation events to a sink in batches, on a background thread.
+ *
+ * <p>The reasoning thread only enqueues the event. A daemon thread drains the queue
+ * and hands the sink lists of up to {@code batchSize} events, so a slow sink (a
+ * file, a socket, a message bus) never runs inside the derivation loop. When the
+ * queue is full the reasoning thread waits, so no event is lost. An interrupt during
+ * that wait does not drop the event; the interrupt flag is set again once it is queued.</p>
+ *
+ * <p>{@link #close()} delivers everything still queued and stops the thread. Every
+ * event accepted before or concurrently with {@code close()} is delivered; events
+ * offered afterwards are rejected.</p>
+ */
+public class AsyncDerivationListener implements DerivationListener {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncDerivationListener.class);
+
+    private final Consumer<List<DerivationEvent>> sink;
+    private final BlockingQueue<DerivationEvent> queue;
+    private final int batchSize;
+    private final Thread worker;
+    private volatile boolean closed = false;
+    // Producers hold the read lock from the closed check through the enqueue, so close()
+    // cannot slip in between and stop the thread before the event is queued
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    /**
+     * @param sink receives batches of events, in derivation order
+     * @param capacity maximum number of queued events
+     * @param batchSize maximum number of events per batch
+     */
+    public AsyncDerivationListener(Consumer<List<DerivationEvent>> sink, int capacity, int batchSize) {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("capacity and batchSize must be positive");
+        }
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.worker = new Thread(this::drainLoop, "derivation-listener");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void onDerivation(DerivationEvent event) {
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("listener is closed");
+            }
+            putUninterruptibly(event);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Enqueues the event even if the caller is interrupted while waiting for space, and
+     * restores the interrupt afterwards, so the event is never dropped.
+     */
+    private void putUninterruptibly(DerivationEvent event) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(event);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Delivers all queued events and stops the background thread.
+     */
+    @Override
+    public void close() {
+        // Waits for producers part way through an enqueue; the thread keeps draining meanwhile
+        closeLock.writeLock().lock();
+        try {
+            if (closed) return;
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        List<DerivationEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                DerivationEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && queue.isEmpty()) return;
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                deliver(batch);
+                batch = new ArrayList<>(batchSize);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void deliver(List<DerivationEvent> batch) {
+        try {
+            sink.accept(batch);
+        } catch (RuntimeException e) {
+            logger.warn("Derivation sink failed on a batch of {} events", batch.size(), e);
+        }
+    }
+}
@@ -10,6 +10,7 @@ public class Atom implements Serializable {
 
     private final String predicate;   // e.g. "popular", "Friends", "owns"
     private final List<String> args;  // e.g. ["Mary"], ["John","Dog"]
+    private transient int hash;       // cached, 0 = not computed yet
 
     public Atom(String predicate, List<String> args) {
         this.predicate = predicate;
@@ -33,7 +34,12 @@ public class Atom implements Serializable {
 
     @Override
     public int hashCode() {
-        return Objects.hash(predicate, args);
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(predicate, args);
+            hash = h;
+        }
+        return h;
     }
 
     public static Atom parse(String text) {
@@ -0,0 +1,109 @@
+package com.example;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mutable variable bindings for evaluating one {@link CompiledRule}.
+ *
+ * <p>Each rule variable owns a fixed slot holding a symbol id ({@link SymbolTable#UNKNOWN}
+ * means unbound). Binding a slot pushes it on a trail, so backtracking is just
+ * {@code undo(mark)} instead of copying the bindings for every candidate fact.
+ * A single frame is reused for the whole search of a rule body.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * BindingFrame frame = new BindingFrame(rule.slotCount());
+ * int mark = frame.mark();
+ * if (literal.match(fact, frame)) {
+ *     // ... continue with the next literal ...
+ * }
+ * frame.undo(mark);
+ * }</pre>
+ *
+ * <p>Not thread-safe; use one frame per thread.</p>
+ */
+public final class BindingFrame {
+    private final int[] slots;
+    private final int[] trail;
+    private int trailTop;
+
+    /**
+     * Creates a frame with all slots unbound.
+     *
+     * @param slotCount number of variables in the rule
+     */
+    public BindingFrame(int slotCount) {
+        this.slots = new int[slotCount];
+        this.trail = new int[slotCount];
+    }
+
+    public int size()               { return slots.length; }
+    public int get(int slot)        { return slots[slot]; }
+    public boolean isBound(int slot) { return slots[slot] != SymbolTable.UNKNOWN; }
+
+    /**
+     * Binds an unbound slot and records it on the trail.
+     *
+     * @param slot the slot
+     * @param value symbol id (must not be {@link SymbolTable#UNKNOWN})
+     */
+    public void bind(int slot, int value) {
+        slots[slot] = value;
+        trail[trailTop++] = slot;
+    }
+
+    /**
+     * Returns the current trail position, to be passed to {@link #undo(int)}.
+     */
+    public int mark() {
+        return trailTop;
+    }
+
+    /**
+     * Unbinds every slot bound since {@code mark}.
+     */
+    public void undo(int mark) {
+        while (trailTop > mark) {
+            slots[trail[--trailTop]] = SymbolTable.UNKNOWN;
+        }
+    }
+
+    /**
+     * Unbinds all slots.
+     */
+    public void clear() {
+        undo(0);
+    }
+
+    /**
+     * Copies the current bindings, e.g. to keep a complete match after backtracking.
+     */
+    public int[] snapshot() {
+        return slots.clone();
+    }
+
+    /**
+     * Materializes the bindings as a string substitution. Only called when a caller
+     * (e.g. provenance) actually needs the names; unbound slots are omitted.
+     *
+     * @param rule the rule that defines the slot names
+     * @param symbols symbol table used to decode values
+     * @return variable name to constant
+     */
+    public Map<String, String> toMap(CompiledRule rule, SymbolTable symbols) {
+        Map<String, String> result = new HashMap<>();
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != SymbolTable.UNKNOWN) {
+                result.put(rule.variable(i), symbols.symbol(slots[i]));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "BindingFrame" + Arrays.toString(slots);
+    }
+}
@@ -0,0 +1,383 @@
+package com.example;
+
+import java.util.*;
+
+/**
+ * A {@link Rule} compiled against a {@link SymbolTable} for fast evaluation.
+ *
+ * <p>Compilation happens once per rule. Every variable gets a slot number, every
+ * constant and predicate is interned, and the head becomes a template over slots
+ * and constant ids. Bodies are matched into a reusable {@link BindingFrame}, a
+ * complete match is an {@code int[]} indexed by slot (0 = unbound), and grounding
+ * the head is an array fill instead of re-parsing the rule text for every
+ * derivation.</p>
+ *
+ * <p>Variables follow the usual convention: an argument starting with a lowercase
+ * letter is a variable. A head variable that is not bound by any positive body
+ * literal is kept as a constant with its own name.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * CompiledRule cr = CompiledRule.compile(new Rule("atRisk(y) <- 1 disrupted(x), supplies(x,y)", "r1"), symbols);
+ * BindingFrame frame = cr.newFrame();
+ * if (cr.getBody().get(0).match(disrupted, frame) && cr.getBody().get(1).match(supplies, frame)) {
+ *     EncodedAtom head = cr.instantiateHead(frame.snapshot());
+ * }
+ * }</pre>
+ */
+public class CompiledRule {
+
+    private final Rule rule;
+    private final String[] variables;
+    private final List<CompiledLiteral> body;
+    private final int headPredicate;
+    private final int[] headArgs;
+
+    // Body atoms exactly as provenance has always reported them (Rule#getBodyAtoms)
+    private final Atom[] provenanceAtoms;
+    private final int[][] provenanceSlots;
+    private final boolean[] provenancePositive;
+
+    private CompiledRule(Rule rule, String[] variables, List<CompiledLiteral> body,
+                         int headPredicate, int[] headArgs, Atom[] provenanceAtoms,
+                         int[][] provenanceSlots, boolean[] provenancePositive) {
+        this.rule = rule;
+        this.variables = variables;
+        this.body = body;
+        this.headPredicate = headPredicate;
+        this.headArgs = headArgs;
+        this.provenanceAtoms = provenanceAtoms;
+        this.provenanceSlots = provenanceSlots;
+        this.provenancePositive = provenancePositive;
+    }
+
+    /**
+     * Compiles a rule, interning its predicates and constants.
+     *
+     * @param rule the rule to compile
+     * @param symbols symbol table shared with the facts the rule will be matched against
+     * @return compiled rule
+     */
+    public static CompiledRule compile(Rule rule, SymbolTable symbols) {
+        Map<String, Integer> slots = new LinkedHashMap<>();
+        Set<String> positiveVars = new HashSet<>();
+
+        List<CompiledLiteral> body = new ArrayList<>(rule.getBodyLiterals().size());
+        for (Literal lit : rule.getBodyLiterals()) {
+            Atom atom = lit.getAtom();
+            int[] args = new int[atom.arity()];
+            for (int i = 0; i < args.length; i++) {
+                String arg = atom.getArgs().get(i);
+                if (isVariable(arg)) {
+                    int slot = slots.computeIfAbsent(arg, k -> slots.size());
+                    args[i] = -(slot + 1);
+                    if (lit.isPositive()) {
+                        positiveVars.add(arg);
+                    }
+                } else {
+                    args[i] = symbols.intern(arg);
+                }
+            }
+            body.add(new CompiledLiteral(lit, symbols.intern(atom.getPredicate()), args));
+        }
+
+        Atom head = Atom.parse(rule.getHead());
+        int[] headArgs = new int[head.arity()];
+        for (int i = 0; i < headArgs.length; i++) {
+            String arg = head.getArgs().get(i);
+            headArgs[i] = (isVariable(arg) && positiveVars.contains(arg))
+                    ? -(slots.get(arg) + 1)
+                    : symbols.intern(arg);
+        }
+
+        List<String> bodyAtoms = rule.getBodyAtoms();
+        Atom[] provenanceAtoms = new Atom[bodyAtoms.size()];
+        int[][] provenanceSlots = new int[bodyAtoms.size()][];
+        boolean[] provenancePositive = new boolean[bodyAtoms.size()];
+        for (int a = 0; a < provenanceAtoms.length; a++) {
+            Atom atom = Atom.parse(bodyAtoms.get(a));
+            int[] argSlots = new int[atom.arity()];
+            for (int i = 0; i < argSlots.length; i++) {
+                Integer slot = slots.get(atom.getArgs().get(i));
+                argSlots[i] = (slot != null) ? slot : -1;
+            }
+            provenanceAtoms[a] = atom;
+            provenanceSlots[a] = argSlots;
+            provenancePositive[a] = a < body.size() && body.get(a).isPositive();
+        }
+
+        return new CompiledRule(rule, slots.keySet().toArray(new String[0]),
+                Collections.unmodifiableList(body), symbols.intern(head.getPredicate()),
+                headArgs, provenanceAtoms, provenanceSlots, provenancePositive);
+    }
+
+    /**
+     * Returns the slots bound by the positive literals written before body literal
+     * {@code index}.
+     *
+     * <p>Negation is read in written order, as in {@link Reasoner}: a variable of a
+     * negated literal that is not in this set is existential there, even if a later
+     * positive literal binds it.</p>
+     */
+    public boolean[] slotsBoundBefore(int index) {
+        boolean[] bound = new boolean[variables.length];
+        for (int j = 0; j < index; j++) {
+            CompiledLiteral literal = body.get(j);
+            if (!literal.isPositive()) continue;
+            for (int i = 0; i < literal.arity(); i++) {
+                int slot = literal.slotAt(i);
+                if (slot >= 0) bound[slot] = true;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Checks whether a rule argument is a variable (starts with a lowercase letter).
+     */
+    public static boolean isVariable(String s) {
+        return s.length() > 0 && Character.isLowerCase(s.charAt(0));
+    }
+
+    public Rule getRule()                   { return rule; }
+    public String getName()                 { return rule.getName(); }
+    public List<CompiledLiteral> getBody()  { return body; }
+    public int getHeadPredicate()           { return headPredicate; }
+    public int slotCount()                  { return variables.length; }
+
+    /**
+     * Gets the variable name for a slot.
+     */
+    public String variable(int slot) {
+        return variables[slot];
+    }
+
+    /**
+     * Gets the slot for a variable name, or -1 if the rule has no such variable.
+     */
+    public int slotOf(String variable) {
+        for (int i = 0; i < variables.length; i++) {
+            if (variables[i].equals(variable)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Creates an empty binding (all slots unbound).
+     */
+    public int[] newBinding() {
+        return new int[variables.length];
+    }
+
+    /**
+     * Creates a reusable binding frame sized for this rule.
+     */
+    public BindingFrame newFrame() {
+        return new BindingFrame(variables.length);
+    }
+
+    /**
+     * Grounds the head for a complete binding.
+     *
+     * @param binding slot values
+     * @return the derived atom
+     */
+    public EncodedAtom instantiateHead(int[] binding) {
+        int[] args = new int[headArgs.length];
+        for (int i = 0; i < args.length; i++) {
+            int a = headArgs[i];
+            args[i] = (a < 0) ? binding[-a - 1] : a;
+        }
+        return new EncodedAtom(headPredicate, args);
+    }
+
+    /**
+     * Matches the head template against a fact, binding the head's slots in the
+     * frame. Used to ask which body bindings could have derived a given fact.
+     *
+     * @param atom ground fact
+     * @param frame bindings (left unchanged on failure)
+     * @return true if this rule's head can produce the fact
+     */
+    public boolean matchHead(EncodedAtom atom, BindingFrame frame) {
+        if (atom.getPredicate() != headPredicate || atom.arity() != headArgs.length) return false;
+
+        int mark = frame.mark();
+        for (int i = 0; i < headArgs.length; i++) {
+            int a = headArgs[i];
+            int value = atom.arg(i);
+            if (a > 0) {
+                if (a != value) {
+                    frame.undo(mark);
+                    return false;
+                }
+            } else {
+                int slot = -a - 1;
+                int bound = frame.get(slot);
+                if (bound == SymbolTable.UNKNOWN) {
+                    frame.bind(slot, value);
+                } else if (bound != value) {
+                    frame.undo(mark);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Grounds every body atom for provenance, including negated ones.
+     *
+     * @param binding slot values
+     * @param time time at which the body was satisfied
+     * @param symbols symbol table used to decode bound values
+     * @return provenance sources in rule order
+     */
+    public List<Provenance.AtomTimeKey> groundSources(int[] binding, int time, SymbolTable symbols) {
+        return groundSources(binding, time, symbols, false);
+    }
+
+    /**
+     * Grounds only the positive body atoms for provenance.
+     *
+     * @param binding slot values
+     * @param time time at which the body was satisfied
+     * @param symbols symbol table used to decode bound values
+     * @return provenance sources in rule order
+     */
+    public List<Provenance.AtomTimeKey> groundPositiveSources(int[] binding, int time, SymbolTable symbols) {
+        return groundSources(binding, time, symbols, true);
+    }
+
+    private List<Provenance.AtomTimeKey> groundSources(int[] binding, int time, SymbolTable symbols,
+                                                       boolean positiveOnly) {
+        List<Provenance.AtomTimeKey> sources = new ArrayList<>(provenanceAtoms.length);
+        for (int a = 0; a < provenanceAtoms.length; a++) {
+            if (positiveOnly && !provenancePositive[a]) continue;
+            Atom atom = provenanceAtoms[a];
+            int[] argSlots = provenanceSlots[a];
+            List<String> args = new ArrayList<>(argSlots.length);
+            for (int i = 0; i < argSlots.length; i++) {
+                int slot = argSlots[i];
+                int value = (slot >= 0) ? binding[slot] : SymbolTable.UNKNOWN;
+                args.add(value != SymbolTable.UNKNOWN ? symbols.symbol(value) : atom.getArgs().get(i));
+            }
+            sources.add(new Provenance.AtomTimeKey(new Atom(atom.getPredicate(), args), time));
+        }
+        return sources;
+    }
+
+    /**
+     * Converts a binding to the string substitution used by {@link DerivationInfo}.
+     * Unbound slots are omitted.
+     */
+    public Map<String, String> decodeBinding(int[] binding, SymbolTable symbols) {
+        Map<String, String> decoded = new HashMap<>();
+        for (int i = 0; i < variables.length; i++) {
+            if (binding[i] != SymbolTable.UNKNOWN) {
+                decoded.put(variables[i], symbols.symbol(binding[i]));
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Converts a string substitution (e.g. from the GPU engine) to a binding.
+     * Variables that the rule does not use are ignored.
+     */
+    public int[] encodeBinding(Map<String, String> theta, SymbolTable symbols) {
+        int[] binding = newBinding();
+        for (Map.Entry<String, String> e : theta.entrySet()) {
+            int slot = slotOf(e.getKey());
+            if (slot >= 0) {
+                binding[slot] = symbols.intern(e.getValue());
+            }
+        }
+        return binding;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledRule{" + rule.getName() + ", slots=" + Arrays.toString(variables) + '}';
+    }
+
+    /**
+     * A body literal with its predicate and arguments resolved to ids.
+     *
+     * <p>Arguments are encoded as constant ids (&gt; 0) or slot references
+     * ({@code -(slot + 1)}).</p>
+     */
+    public static final class CompiledLiteral {
+        private final Literal source;
+        private final int predicate;
+        private final int[] args;
+
+        CompiledLiteral(Literal source, int predicate, int[] args) {
+            this.source = source;
+            this.predicate = predicate;
+            this.args = args;
+        }
+
+        public Literal getSource()    { return source; }
+        public int getPredicate()     { return predicate; }
+        public int arity()            { return args.length; }
+        public boolean isPositive()   { return source.isPositive(); }
+        public boolean isNegated()    { return source.isNegated(); }
+
+        /**
+         * Returns the slot referenced by argument {@code i}, or -1 if it is a constant.
+         */
+        public int slotAt(int i) {
+            return args[i] < 0 ? -args[i] - 1 : -1;
+        }
+
+        /**
+         * Returns the constant id at argument {@code i}, or 0 if it is a variable.
+         */
+        public int constantAt(int i) {
+            return args[i] > 0 ? args[i] : SymbolTable.UNKNOWN;
+        }
+
+        /**
+         * Matches this literal against a fact, binding unbound slots in the frame.
+         *
+         * <p>On success the new bindings stay on the frame's trail, so the caller
+         * undoes them with {@link BindingFrame#undo(int)} when backtracking. On
+         * failure the frame is left exactly as it was.</p>
+         *
+         * @param fact ground fact
+         * @param frame current bindings
+         * @return true if the fact matches
+         */
+        public boolean match(EncodedAtom fact, BindingFrame frame) {
+            if (fact.getPredicate() != predicate || fact.arity() != args.length) return false;
+
+            int mark = frame.mark();
+            for (int i = 0; i < args.length; i++) {
+                int a = args[i];
+                int value = fact.arg(i);
+                if (a > 0) {
+                    if (a != value) {
+                        frame.undo(mark);
+                        return false;
+                    }
+                } else {
+                    int slot = -a - 1;
+                    int bound = frame.get(slot);
+                    if (bound == SymbolTable.UNKNOWN) {
+                        frame.bind(slot, value);
+                    } else if (bound != value) {
+                        frame.undo(mark);
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return source.toString();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example;
+
+/**
+ * A fact newly derived by a rule, as reported to a {@link DerivationListener}.
+ *
+ * <p>The fact holds from {@link #getTime()} to {@link #getEndTime()} inclusive.
+ * Per-timestep reasoners report one event per timestep, so both are equal;
+ * timeline evaluation reports a whole run at once.</p>
+ */
+public final class DerivationEvent {
+    private final String ruleName;
+    private final Atom fact;
+    private final int time;
+    private final int endTime;
+    private final int iteration;
+
+    public DerivationEvent(String ruleName, Atom fact, int time, int endTime, int iteration) {
+        this.ruleName = ruleName;
+        this.fact = fact;
+        this.time = time;
+        this.endTime = endTime;
+        this.iteration = iteration;
+    }
+
+    public DerivationEvent(String ruleName, Atom fact, int time) {
+        this(ruleName, fact, time, time, 0);
+    }
+
+    public String getRuleName() { return ruleName; }
+    public Atom getFact()       { return fact; }
+    public int getTime()        { return time; }
+    public int getEndTime()     { return endTime; }
+
+    /**
+     * Gets the fixpoint iteration that produced the fact (1-based), or 0 if the
+     * evaluation does not count iterations.
+     */
+    public int getIteration()   { return iteration; }
+
+    @Override
+    public String toString() {
+        String when = endTime == time ? "t=" + time : "t=" + time + ".." + endTime;
+        String iter = iteration > 0 ? " (iter " + iteration + ")" : "";
+        return when + " inferred by " + ruleName + iter + ": " + fact;
+    }
+}
@@ -0,0 +1,236 @@
+package com.example;
+
+import java.util.*;
+
+/**
+ * The derivation history of one fact as a graph with one node per (atom, time).
+ *
+ * <p>A {@link DerivationTree} repeats a sub-derivation under every fact that uses it,
+ * so a supply chain with diamond-shaped dependencies produces exponentially many
+ * tree nodes. Here a fact used by several derivations is a single shared node.
+ * The graph is built breadth-first without recursion by
+ * {@link Provenance#getDerivationGraph}, within a budget on depth and node count.
+ * Nodes at the edge of the budget are kept but not expanded and report
+ * {@link Node#isTruncated()}.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * DerivationGraph graph = provenance.getDerivationGraph(atom, 20, 50, 1000);
+ * System.out.println(graph.size() + " facts, depth " + graph.getDepth());
+ * System.out.println(graph.toTreeString());
+ * }</pre>
+ */
+public class DerivationGraph {
+
+    /**
+     * A fact in the graph.
+     */
+    public static final class Node {
+        private final int id;
+        private final Atom atom;
+        private final int time;
+        private final DerivationInfo derivationInfo;  // null for base facts
+        private final int distance;
+        private final List<Node> children = new ArrayList<>();
+        private boolean expanded;
+
+        Node(int id, Atom atom, int time, DerivationInfo derivationInfo, int distance) {
+            this.id = id;
+            this.atom = atom;
+            this.time = time;
+            this.derivationInfo = derivationInfo;
+            this.distance = distance;
+        }
+
+        /** Position of this node in {@link DerivationGraph#getNodes()}. */
+        public int getId()                         { return id; }
+        public Atom getAtom()                      { return atom; }
+        public int getTime()                       { return time; }
+        /** How this fact was derived, or null for a base fact. */
+        public DerivationInfo getDerivationInfo()  { return derivationInfo; }
+        /** Number of hops on the shortest path from the root. */
+        public int getDistance()                   { return distance; }
+        public List<Node> getChildren()            { return Collections.unmodifiableList(children); }
+
+        public boolean isBaseFact() {
+            return derivationInfo == null;
+        }
+
+        /**
+         * Checks whether this derived fact was left unexpanded because the budget ran out.
+         */
+        public boolean isTruncated() {
+            return derivationInfo != null && !expanded;
+        }
+
+        /**
+         * Checks whether this derived fact has no recorded sources
+         * (see {@link ProvenanceLevel#RULE_ONLY}).
+         */
+        public boolean isRuleOnly() {
+            return expanded && derivationInfo != null && derivationInfo.getSourceFacts().isEmpty();
+        }
+
+        void expand(List<Node> sources) {
+            children.addAll(sources);
+            expanded = true;
+        }
+
+        @Override
+        public String toString() {
+            return "t=" + time + ": " + atom;
+        }
+    }
+
+    private final List<Node> nodes;
+    private final boolean truncated;
+
+    DerivationGraph(List<Node> nodes, boolean truncated) {
+        this.nodes = nodes;
+        this.truncated = truncated;
+    }
+
+    /**
+     * Gets the fact this graph explains.
+     */
+    public Node getRoot() {
+        return nodes.get(0);
+    }
+
+    /**
+     * Gets every node in breadth-first order, root first.
+     */
+    public List<Node> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Checks whether the budget stopped the graph before every source was reached.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Gets the number of nodes on the longest path from the root to a leaf, like
+     * {@link DerivationTree#getDepth()}. Edges that lead back to a node on the
+     * current path are ignored.
+     */
+    public int getDepth() {
+        int[] depth = new int[nodes.size()];          // 0 = not visited, -1 = on the path
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<Integer> next = new ArrayDeque<>();
+        stack.push(getRoot());
+        next.push(0);
+        depth[0] = -1;
+
+        while (!stack.isEmpty()) {
+            Node node = stack.peek();
+            int i = next.pop();
+            if (i < node.children.size()) {
+                next.push(i + 1);
+                Node child = node.children.get(i);
+                if (depth[child.id] == 0) {
+                    depth[child.id] = -1;
+                    stack.push(child);
+                    next.push(0);
+                }
+            } else {
+                stack.pop();
+                int max = 0;
+                for (Node child : node.children) {
+                    max = Math.max(max, depth[child.id]);
+                }
+                depth[node.id] = max + 1;
+            }
+        }
+        return depth[0];
+    }
+
+    /**
+     * Gets the base facts the root depends on (within the budget).
+     */
+    public Set<Provenance.AtomTimeKey> getBaseFacts() {
+        Set<Provenance.AtomTimeKey> baseFacts = new LinkedHashSet<>();
+        for (Node node : nodes) {
+            if (node.isBaseFact()) {
+                baseFacts.add(new Provenance.AtomTimeKey(node.atom, node.time));
+            }
+        }
+        return baseFacts;
+    }
+
+    /**
+     * Converts to a {@link DerivationTree}. Shared facts become shared subtrees,
+     * so the result is as large as this graph, not as large as the expanded tree.
+     */
+    public DerivationTree toTree() {
+        DerivationTree[] trees = new DerivationTree[nodes.size()];
+        for (Node node : nodes) {
+            trees[node.id] = new DerivationTree(node.atom, node.time, node.derivationInfo,
+                                                node.isTruncated());
+        }
+        for (Node node : nodes) {
+            for (Node child : node.children) {
+                trees[node.id].addChild(trees[child.id]);
+            }
+        }
+        return trees[0];
+    }
+
+    /**
+     * Displays the graph as an indented tree. A shared fact is expanded the first
+     * time it appears and marked {@code (see above)} after that.
+     *
+     * @return formatted tree string
+     */
+    public String toTreeString() {
+        StringBuilder sb = new StringBuilder();
+        boolean[] shown = new boolean[nodes.size()];
+        Deque<Node> stack = new ArrayDeque<>();
+        Deque<String> prefixes = new ArrayDeque<>();
+        Deque<Boolean> tails = new ArrayDeque<>();
+        stack.push(getRoot());
+        prefixes.push("");
+        tails.push(true);
+
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            String prefix = prefixes.pop();
+            boolean isTail = tails.pop();
+
+            sb.append(prefix).append(isTail ? "└── " : "├── ");
+            sb.append("t=").append(node.time).append(": ").append(node.atom);
+            if (node.derivationInfo != null) {
+                sb.append(" [").append(node.derivationInfo.getRuleName()).append("]");
+            }
+            if (shown[node.id] && !node.children.isEmpty()) {
+                sb.append(" (see above)\n");
+                continue;
+            }
+            shown[node.id] = true;
+            if (node.isTruncated()) {
+                sb.append(" ...");
+            }
+            sb.append("\n");
+
+            String childPrefix = prefix + (isTail ? "    " : "│   ");
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                stack.push(node.children.get(i));
+                prefixes.push(childPrefix);
+                tails.push(i == node.children.size() - 1);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DerivationGraph{root=%s, nodes=%d, truncated=%s}",
+                getRoot(), nodes.size(), truncated);
+    }
+}
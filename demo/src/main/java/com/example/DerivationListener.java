@@ -0,0 +1,78 @@
+package com.example;
+
+/**
+ * Receives the facts derived during reasoning.
+ *
+ * <p>Reasoners default to {@link #noOp()}, which costs nothing on the derivation
+ * path: they check {@link #isEnabled()} before building an event. Listeners are
+ * called on the reasoning thread, inside the derivation loop, so slow sinks should
+ * be wrapped in an {@link AsyncDerivationListener}.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * Reasoner reasoner = new Reasoner();
+ * reasoner.setDerivationListener(new SampledLoggingDerivationListener(1000));
+ *
+ * // Or ship every event to a sink off the reasoning thread, in batches
+ * AsyncDerivationListener async = new AsyncDerivationListener(batch -> sink.write(batch), 10_000, 500);
+ * reasoner.setDerivationListener(async);
+ * reasoner.reason(100);
+ * async.close();   // flushes
+ * }</pre>
+ */
+@FunctionalInterface
+public interface DerivationListener extends AutoCloseable {
+
+    /**
+     * Called once for every newly derived fact.
+     */
+    void onDerivation(DerivationEvent event);
+
+    /**
+     * Whether events should be built at all. Only the no-op listener returns false.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Flushes and releases resources. The default does nothing.
+     */
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Gets the listener that ignores every event (the default for all reasoners).
+     */
+    static DerivationListener noOp() {
+        return NoOp.INSTANCE;
+    }
+
+    /**
+     * Gets a listener that prints every event to stdout, in the format the
+     * reasoners used to print unconditionally. Meant for debugging small runs.
+     */
+    static DerivationListener console() {
+        return event -> System.out.println(event);
+    }
+
+    /**
+     * Singleton no-op listener.
+     */
+    final class NoOp implements DerivationListener {
+        private static final NoOp INSTANCE = new NoOp();
+
+        private NoOp() {
+        }
+
+        @Override
+        public void onDerivation(DerivationEvent event) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    }
+}
@@ -7,12 +7,18 @@ import java.util.*;
  *
  * <p>Each node in the tree represents a fact, and its children are the facts
  * that were used to derive it. Base facts (non-derived) are leaf nodes.</p>
+ *
+ * <p>Trees built by {@link Provenance#getDerivationTree} come from a
+ * {@link DerivationGraph}: a fact used by several derivations is one node that
+ * appears under each of them. The traversals below are iterative and visit each
+ * shared node once.</p>
  */
 public class DerivationTree {
     private final Atom atom;
     private final int time;
     private final DerivationInfo derivationInfo; // null for base facts
     private final List<DerivationTree> children;
+    private final boolean truncated;
 
     /**
      * Constructs a new DerivationTree node.
@@ -28,6 +34,20 @@ public class DerivationTree {
         this.time = time;
         this.derivationInfo = derivationInfo;
         this.children = new ArrayList<>(children);
+        this.truncated = false;
+    }
+
+    // Node of a tree built from a DerivationGraph; children are added afterwards
+    DerivationTree(Atom atom, int time, DerivationInfo derivationInfo, boolean truncated) {
+        this.atom = atom;
+        this.time = time;
+        this.derivationInfo = derivationInfo;
+        this.children = new ArrayList<>();
+        this.truncated = truncated;
+    }
+
+    void addChild(DerivationTree child) {
+        children.add(child);
     }
 
     /**
@@ -75,20 +95,51 @@ public class DerivationTree {
         return Collections.unmodifiableList(children);
     }
 
+    /**
+     * Checks whether this derived fact was not expanded because the
+     * derivation budget ran out (see {@link Provenance#getDerivationGraph}).
+     *
+     * @return true if the sources of this fact were cut off
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
     /**
      * Gets the depth of this tree (longest path to a leaf).
      *
      * @return tree depth
      */
     public int getDepth() {
-        if (children.isEmpty()) {
-            return 1;
-        }
-        int maxChildDepth = 0;
-        for (DerivationTree child : children) {
-            maxChildDepth = Math.max(maxChildDepth, child.getDepth());
+        // Post-order walk; 0 marks a node on the current path (its edge is ignored)
+        Map<DerivationTree, Integer> depths = new IdentityHashMap<>();
+        Deque<DerivationTree> stack = new ArrayDeque<>();
+        Deque<Integer> next = new ArrayDeque<>();
+        stack.push(this);
+        next.push(0);
+        depths.put(this, 0);
+
+        while (!stack.isEmpty()) {
+            DerivationTree node = stack.peek();
+            int i = next.pop();
+            if (i < node.children.size()) {
+                next.push(i + 1);
+                DerivationTree child = node.children.get(i);
+                if (!depths.containsKey(child)) {
+                    depths.put(child, 0);
+                    stack.push(child);
+                    next.push(0);
+                }
+            } else {
+                stack.pop();
+                int maxChildDepth = 0;
+                for (DerivationTree child : node.children) {
+                    maxChildDepth = Math.max(maxChildDepth, depths.get(child));
+                }
+                depths.put(node, 1 + maxChildDepth);
+            }
         }
-        return 1 + maxChildDepth;
+        return depths.get(this);
     }
 
     /**
@@ -98,46 +149,66 @@ public class DerivationTree {
      */
     public Set<Provenance.AtomTimeKey> getBaseFacts() {
         Set<Provenance.AtomTimeKey> baseFacts = new HashSet<>();
-        collectBaseFacts(baseFacts);
-        return baseFacts;
-    }
-
-    private void collectBaseFacts(Set<Provenance.AtomTimeKey> baseFacts) {
-        if (isBaseFact()) {
-            baseFacts.add(new Provenance.AtomTimeKey(atom, time));
-        } else {
-            for (DerivationTree child : children) {
-                child.collectBaseFacts(baseFacts);
+        Set<DerivationTree> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<DerivationTree> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            DerivationTree node = stack.pop();
+            if (!seen.add(node)) continue;
+            if (node.isBaseFact()) {
+                baseFacts.add(new Provenance.AtomTimeKey(node.atom, node.time));
+            }
+            for (DerivationTree child : node.children) {
+                stack.push(child);
             }
         }
+        return baseFacts;
     }
 
     /**
-     * Displays the tree in a human-readable format.
+     * Displays the tree in a human-readable format. A shared subtree is printed
+     * the first time it appears and marked {@code (see above)} after that.
      *
      * @return formatted tree string
      */
     public String toTreeString() {
         StringBuilder sb = new StringBuilder();
-        buildTreeString(sb, "", true);
-        return sb.toString();
-    }
+        Set<DerivationTree> shown = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<DerivationTree> stack = new ArrayDeque<>();
+        Deque<String> prefixes = new ArrayDeque<>();
+        Deque<Boolean> tails = new ArrayDeque<>();
+        stack.push(this);
+        prefixes.push("");
+        tails.push(true);
 
-    private void buildTreeString(StringBuilder sb, String prefix, boolean isTail) {
-        sb.append(prefix);
-        sb.append(isTail ? "└── " : "├── ");
-        sb.append("t=").append(time).append(": ").append(atom);
-        if (derivationInfo != null) {
-            sb.append(" [").append(derivationInfo.getRuleName()).append("]");
-        }
-        sb.append("\n");
+        while (!stack.isEmpty()) {
+            DerivationTree node = stack.pop();
+            String prefix = prefixes.pop();
+            boolean isTail = tails.pop();
 
-        for (int i = 0; i < children.size(); i++) {
-            boolean isLast = (i == children.size() - 1);
-            children.get(i).buildTreeString(sb,
-                    prefix + (isTail ? "    " : "│   "),
-                    isLast);
+            sb.append(prefix);
+            sb.append(isTail ? "└── " : "├── ");
+            sb.append("t=").append(node.time).append(": ").append(node.atom);
+            if (node.derivationInfo != null) {
+                sb.append(" [").append(node.derivationInfo.getRuleName()).append("]");
+            }
+            if (!shown.add(node) && !node.children.isEmpty()) {
+                sb.append(" (see above)\n");
+                continue;
+            }
+            if (node.truncated) {
+                sb.append(" ...");
+            }
+            sb.append("\n");
+
+            String childPrefix = prefix + (isTail ? "    " : "│   ");
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                stack.push(node.children.get(i));
+                prefixes.push(childPrefix);
+                tails.push(i == node.children.size() - 1);
+            }
         }
+        return sb.toString();
     }
 
     @Override
@@ -0,0 +1,54 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ * Integer-encoded ground atom used internally by the reasoners.
+ *
+ * <p>The predicate and every argument are ids from a {@link SymbolTable}, and the
+ * hash code is computed once at construction. Equality and hashing never touch
+ * strings, which keeps set probes and joins cheap on large fact bases.</p>
+ *
+ * <p>Instances are immutable. The argument array passed to the constructor is owned
+ * by the atom and must not be modified afterwards.</p>
+ */
+public final class EncodedAtom {
+    private static final int[] NO_ARGS = new int[0];
+
+    private final int predicate;
+    private final int[] args;
+    private final int hash;
+
+    /**
+     * Constructs a new EncodedAtom.
+     *
+     * @param predicate predicate id
+     * @param args argument ids (ownership is transferred to this atom)
+     */
+    public EncodedAtom(int predicate, int[] args) {
+        this.predicate = predicate;
+        this.args = args.length == 0 ? NO_ARGS : args;
+        this.hash = 31 * predicate + Arrays.hashCode(this.args);
+    }
+
+    public int getPredicate() { return predicate; }
+    public int arity()        { return args.length; }
+    public int arg(int i)     { return args[i]; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EncodedAtom a)) return false;
+        return hash == a.hash && predicate == a.predicate && Arrays.equals(args, a.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + predicate + Arrays.toString(args);
+    }
+}
@@ -50,7 +50,8 @@ public class ExplainabilityUI {
         sb.append("Why is ").append(atom).append(" true at t=").append(time).append("?\n");
         sb.append("=".repeat(70)).append("\n\n");
 
-        DerivationInfo info = provenance.getDerivation(atom, time);
+        DerivationGraph graph = provenance.getDerivationGraph(atom, time);
+        DerivationInfo info = graph.getRoot().getDerivationInfo();
 
         if (info == null) {
             sb.append("This is a BASE FACT (not derived, directly stated).\n");
@@ -63,14 +64,12 @@ public class ExplainabilityUI {
             sb.append("\nBecause the following facts were true:\n");
 
             int i = 1;
-            for (Provenance.AtomTimeKey source : info.getSourceFacts()) {
+            for (DerivationGraph.Node source : graph.getRoot().getChildren()) {
                 sb.append("  ").append(i++).append(". ");
                 sb.append(source.getAtom()).append(" at t=").append(source.getTime());
 
-                // Recursively explain sources
-                DerivationInfo sourceInfo = provenance.getDerivation(source.getAtom(), source.getTime());
-                if (sourceInfo != null) {
-                    sb.append(" [derived by ").append(sourceInfo.getRuleName()).append("]");
+                if (!source.isBaseFact()) {
+                    sb.append(" [derived by ").append(source.getDerivationInfo().getRuleName()).append("]");
                 } else {
                     sb.append(" [base fact]");
                 }
@@ -79,7 +78,8 @@ public class ExplainabilityUI {
 
             // Show full derivation tree
             sb.append("\n").append("Full Derivation Tree:\n");
-            sb.append(provenance.getDerivationTree(atom, time).toTreeString());
+            sb.append(graph.toTreeString());
+            appendBudgetNote(sb, graph);
         }
 
         return sb.toString();
@@ -149,7 +149,8 @@ public class ExplainabilityUI {
         html.append("<h2>").append(atom).append(" at t=").append(time).append("</h2>\n");
         html.append("</div>\n");
 
-        DerivationInfo info = provenance.getDerivation(atom, time);
+        DerivationGraph graph = provenance.getDerivationGraph(atom, time);
+        DerivationInfo info = graph.getRoot().getDerivationInfo();
 
         if (info == null) {
             html.append("<div class='fact'>\n");
@@ -169,12 +170,11 @@ public class ExplainabilityUI {
             }
 
             html.append("<p><b>Because these facts were true:</b></p>\n<ul>\n");
-            for (Provenance.AtomTimeKey source : info.getSourceFacts()) {
+            for (DerivationGraph.Node source : graph.getRoot().getChildren()) {
                 html.append("<li>").append(source.getAtom()).append(" at t=").append(source.getTime());
 
-                DerivationInfo sourceInfo = provenance.getDerivation(source.getAtom(), source.getTime());
-                if (sourceInfo != null) {
-                    html.append(" <span style='color: #7f8c8d;'>[via ").append(sourceInfo.getRuleName()).append("]</span>");
+                if (!source.isBaseFact()) {
+                    html.append(" <span style='color: #7f8c8d;'>[via ").append(source.getDerivationInfo().getRuleName()).append("]</span>");
                 } else {
                     html.append(" <span class='base-fact'>[base fact]</span>");
                 }
@@ -187,8 +187,13 @@ public class ExplainabilityUI {
             html.append("<div class='fact'>\n");
             html.append("<h3>Full Derivation Tree</h3>\n");
             html.append("<div class='tree'>");
-            html.append(escapeHtml(provenance.getDerivationTree(atom, time).toTreeString()));
+            html.append(escapeHtml(graph.toTreeString()));
             html.append("</div>\n");
+            if (graph.isTruncated()) {
+                StringBuilder note = new StringBuilder();
+                appendBudgetNote(note, graph);
+                html.append("<p>").append(escapeHtml(note.toString().trim())).append("</p>\n");
+            }
             html.append("</div>\n");
         }
 
@@ -210,7 +215,8 @@ public class ExplainabilityUI {
         json.append("  \"fact\": \"").append(escapeJson(atom.toString())).append("\",\n");
         json.append("  \"time\": ").append(time).append(",\n");
 
-        DerivationInfo info = provenance.getDerivation(atom, time);
+        DerivationGraph graph = provenance.getDerivationGraph(atom, time);
+        DerivationInfo info = graph.getRoot().getDerivationInfo();
 
         if (info == null) {
             json.append("  \"type\": \"base_fact\",\n");
@@ -232,7 +238,27 @@ public class ExplainabilityUI {
                 sources.add("    {\"atom\": \"" + escapeJson(source.getAtom().toString()) +
                            "\", \"time\": " + source.getTime() + "}");
             }
-            json.append(String.join(",\n", sources)).append("\n  ]\n");
+            json.append(String.join(",\n", sources)).append("\n  ],\n");
+
+            // The whole derivation as a graph: shared facts appear once, edges point to sources
+            json.append("  \"nodes\": [\n");
+            List<String> nodes = new ArrayList<>();
+            List<String> edges = new ArrayList<>();
+            for (DerivationGraph.Node node : graph.getNodes()) {
+                String derivedBy = node.isBaseFact() ? "null"
+                        : "\"" + escapeJson(node.getDerivationInfo().getRuleName()) + "\"";
+                nodes.add("    {\"id\": " + node.getId() +
+                          ", \"atom\": \"" + escapeJson(node.getAtom().toString()) +
+                          "\", \"time\": " + node.getTime() +
+                          ", \"derivedBy\": " + derivedBy +
+                          ", \"truncated\": " + node.isTruncated() + "}");
+                for (DerivationGraph.Node child : node.getChildren()) {
+                    edges.add("[" + node.getId() + ", " + child.getId() + "]");
+                }
+            }
+            json.append(String.join(",\n", nodes)).append("\n  ],\n");
+            json.append("  \"edges\": [").append(String.join(", ", edges)).append("],\n");
+            json.append("  \"truncated\": ").append(graph.isTruncated()).append("\n");
         }
 
         json.append("}");
@@ -255,20 +281,20 @@ public class ExplainabilityUI {
         sb.append("Comparing Derivations\n");
         sb.append("=".repeat(70)).append("\n\n");
 
-        DerivationTree tree1 = provenance.getDerivationTree(atom1, time1);
-        DerivationTree tree2 = provenance.getDerivationTree(atom2, time2);
+        DerivationGraph graph1 = provenance.getDerivationGraph(atom1, time1);
+        DerivationGraph graph2 = provenance.getDerivationGraph(atom2, time2);
 
         sb.append("Fact 1: ").append(atom1).append(" at t=").append(time1).append("\n");
-        sb.append("  Depth: ").append(tree1.getDepth()).append("\n");
-        sb.append("  Base facts: ").append(tree1.getBaseFacts().size()).append("\n\n");
+        sb.append("  Depth: ").append(graph1.getDepth()).append("\n");
+        sb.append("  Base facts: ").append(graph1.getBaseFacts().size()).append("\n\n");
 
         sb.append("Fact 2: ").append(atom2).append(" at t=").append(time2).append("\n");
-        sb.append("  Depth: ").append(tree2.getDepth()).append("\n");
-        sb.append("  Base facts: ").append(tree2.getBaseFacts().size()).append("\n\n");
+        sb.append("  Depth: ").append(graph2.getDepth()).append("\n");
+        sb.append("  Base facts: ").append(graph2.getBaseFacts().size()).append("\n\n");
 
         // Find common base facts
-        Set<Provenance.AtomTimeKey> baseFacts1 = tree1.getBaseFacts();
-        Set<Provenance.AtomTimeKey> baseFacts2 = tree2.getBaseFacts();
+        Set<Provenance.AtomTimeKey> baseFacts1 = graph1.getBaseFacts();
+        Set<Provenance.AtomTimeKey> baseFacts2 = graph2.getBaseFacts();
 
         Set<Provenance.AtomTimeKey> common = new HashSet<>(baseFacts1);
         common.retainAll(baseFacts2);
@@ -318,6 +344,13 @@ public class ExplainabilityUI {
 
     // Helper methods
 
+    private void appendBudgetNote(StringBuilder sb, DerivationGraph graph) {
+        if (graph.isTruncated()) {
+            sb.append("(derivation truncated at ").append(graph.size())
+              .append(" facts; entries marked ... were not expanded)\n");
+        }
+    }
+
     private String escapeHtml(String text) {
         return text.replace("&", "&amp;")
                    .replace("<", "&lt;")
@@ -0,0 +1,190 @@
+package com.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Set of encoded facts indexed by predicate, with optional argument indexes.
+ *
+ * <p>The primary index maps a predicate id to its facts. Secondary indexes map
+ * (predicate, argument position, constant) to facts; each one is built the first
+ * time a rule probes that position and is kept current by {@link #add} and
+ * {@link #remove} afterwards.</p>
+ *
+ * <p>Each predicate also keeps an order-independent hash of its facts, so two
+ * buckets can be compared cheaply before comparing their contents.</p>
+ *
+ * <p>All maps are concurrent, so readers may iterate while another thread adds
+ * (iterators are weakly consistent).</p>
+ */
+public class FactIndex {
+    private final Map<Integer, Set<EncodedAtom>> byPredicate = new ConcurrentHashMap<>();
+    private final Map<Long, Map<Integer, Set<EncodedAtom>>> byArgument = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> contentHashes = new ConcurrentHashMap<>();
+    private final Set<EncodedAtom> view = new AbstractSet<>() {
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof EncodedAtom atom && FactIndex.this.contains(atom);
+        }
+
+        @Override
+        public Iterator<EncodedAtom> iterator() {
+            return byPredicate.values().stream().flatMap(Set::stream).iterator();
+        }
+
+        @Override
+        public int size() {
+            return FactIndex.this.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return FactIndex.this.isEmpty();
+        }
+    };
+
+    /**
+     * Adds a fact.
+     *
+     * @param atom the fact
+     * @return true if the fact was not already present
+     */
+    public boolean add(EncodedAtom atom) {
+        boolean added = byPredicate.computeIfAbsent(atom.getPredicate(), k -> ConcurrentHashMap.newKeySet())
+                .add(atom);
+        if (added) {
+            contentHashes.computeIfAbsent(atom.getPredicate(), k -> new LongAdder()).add(atom.hashCode());
+        }
+        if (added && !byArgument.isEmpty()) {
+            for (int pos = 0; pos < atom.arity(); pos++) {
+                Map<Integer, Set<EncodedAtom>> index = byArgument.get(argumentKey(atom.getPredicate(), pos));
+                if (index != null) {
+                    index.computeIfAbsent(atom.arg(pos), k -> ConcurrentHashMap.newKeySet()).add(atom);
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes a fact (from the argument indexes too).
+     *
+     * @param atom the fact
+     * @return true if the fact was present
+     */
+    public boolean remove(EncodedAtom atom) {
+        Set<EncodedAtom> atoms = byPredicate.get(atom.getPredicate());
+        if (atoms == null || !atoms.remove(atom)) {
+            return false;
+        }
+        contentHashes.get(atom.getPredicate()).add(-atom.hashCode());
+        if (!byArgument.isEmpty()) {
+            for (int pos = 0; pos < atom.arity(); pos++) {
+                Map<Integer, Set<EncodedAtom>> index = byArgument.get(argumentKey(atom.getPredicate(), pos));
+                if (index != null) {
+                    Set<EncodedAtom> bucket = index.get(atom.arg(pos));
+                    if (bucket != null) bucket.remove(atom);
+                }
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(EncodedAtom atom) {
+        Set<EncodedAtom> atoms = byPredicate.get(atom.getPredicate());
+        return atoms != null && atoms.contains(atom);
+    }
+
+    /**
+     * Gets the facts of a predicate (live, unmodifiable by contract).
+     */
+    public Set<EncodedAtom> get(int predicate) {
+        return byPredicate.getOrDefault(predicate, Collections.emptySet());
+    }
+
+    /**
+     * Checks whether this index holds exactly the same facts of a predicate as another index.
+     */
+    public boolean samePredicateFacts(int predicate, FactIndex other) {
+        Set<EncodedAtom> mine = get(predicate);
+        Set<EncodedAtom> theirs = other.get(predicate);
+        if (mine.size() != theirs.size()) return false;
+        if (mine.isEmpty()) return true;
+        if (contentHash(predicate) != other.contentHash(predicate)) return false;
+        return mine.containsAll(theirs);
+    }
+
+    private long contentHash(int predicate) {
+        LongAdder hash = contentHashes.get(predicate);
+        return hash != null ? hash.sum() : 0;
+    }
+
+    /**
+     * Like {@link #get(int)}, but creates the bucket if needed so the returned
+     * set also sees facts of this predicate that are added later.
+     */
+    public Set<EncodedAtom> bucket(int predicate) {
+        return byPredicate.computeIfAbsent(predicate, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    /**
+     * Gets facts of a predicate whose argument at {@code position} is {@code value}.
+     */
+    public Set<EncodedAtom> get(int predicate, int position, int value) {
+        Map<Integer, Set<EncodedAtom>> index = byArgument.computeIfAbsent(
+                argumentKey(predicate, position), k -> buildArgumentIndex(predicate, position));
+        return index.getOrDefault(value, Collections.emptySet());
+    }
+
+    /**
+     * Counts the distinct values at an argument position of a predicate
+     * (builds the argument index if needed).
+     */
+    public int distinctValues(int predicate, int position) {
+        return byArgument.computeIfAbsent(
+                argumentKey(predicate, position), k -> buildArgumentIndex(predicate, position)).size();
+    }
+
+    /**
+     * Gets a live read-only view of every fact in this index.
+     */
+    public Set<EncodedAtom> asSet() {
+        return view;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Set<EncodedAtom> atoms : byPredicate.values()) {
+            size += atoms.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        for (Set<EncodedAtom> atoms : byPredicate.values()) {
+            if (!atoms.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    public void clear() {
+        byPredicate.clear();
+        byArgument.clear();
+        contentHashes.clear();
+    }
+
+    private Map<Integer, Set<EncodedAtom>> buildArgumentIndex(int predicate, int position) {
+        Map<Integer, Set<EncodedAtom>> index = new ConcurrentHashMap<>();
+        for (EncodedAtom atom : get(predicate)) {
+            if (position < atom.arity()) {
+                index.computeIfAbsent(atom.arg(position), k -> ConcurrentHashMap.newKeySet()).add(atom);
+            }
+        }
+        return index;
+    }
+
+    private static long argumentKey(int predicate, int position) {
+        return ((long) predicate << 32) | position;
+    }
+}
@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * Supports incremental reasoning - adding new facts and re-reasoning efficiently.
@@ -11,6 +12,16 @@ import java.util.*;
  * <p>Instead of re-running the entire reasoning process from scratch,
  * incremental reasoning only processes new facts and their consequences.</p>
  *
+ * <p>Facts are kept in a {@link SparseFactStorage} and rules are joined with a
+ * {@link RuleEvaluator}. Strata come from {@link RuleScheduler#acrossTime}, so each
+ * stratum is complete at every timestep before a later stratum reads (or negates)
+ * it. {@link #reason(int)} joins every rule in full once; after that, and for every
+ * {@link #incrementalReason()}, each rule is joined only against the facts that are
+ * new at a timestep (see {@link RuleEvaluator#evaluateDelta}), until nothing new is
+ * derived. A new fact that a rule negates removes what relied on its absence
+ * through {@link RetractionPropagator#invalidate}. Rules that negate a predicate
+ * they recursively depend on are re-reasoned in full with {@link Reasoner}.</p>
+ *
  * <h2>Example:</h2>
  * <pre>{@code
  * IncrementalReasoner reasoner = new IncrementalReasoner();
@@ -24,19 +35,32 @@ import java.util.*;
  * // Add new fact and incrementally update
  * reasoner.addFact(new TimedFact(...));
  * ReasoningInterpretation result2 = reasoner.incrementalReason();
+ *
+ * // Retract a fact; only its consequences are removed
+ * ReasoningInterpretation result3 = reasoner.retract(fact);
  * }</pre>
  */
 public class IncrementalReasoner {
     private static final Logger logger = LoggerFactory.getLogger(IncrementalReasoner.class);
 
     private final List<Rule> rules = new ArrayList<>();
+    private final List<CompiledRule> compiledRules = new ArrayList<>();
     private final List<TimedFact> allFacts = new ArrayList<>();
     private final Set<TimedFact> newFacts = new HashSet<>();
-    private final Provenance provenance = new Provenance();
+    private final SymbolTable symbols = new SymbolTable();
+    private final SparseFactStorage storage = new SparseFactStorage();
+    private final RuleEvaluator evaluator = new RuleEvaluator(storage);
 
-    private List<Set<Atom>> currentFactsByTime = new ArrayList<>();
+    // Timesteps at which each atom is a base fact that has been reasoned over
+    private final Map<EncodedAtom, IntervalSet> baseFacts = new HashMap<>();
+
+    private Provenance provenance = new Provenance();
+    private RuleScheduler schedule = null;
+    private RetractionPropagator propagator = null;
     private int maxTimesteps = 0;
     private boolean hasReasoned = false;
+    private ProvenanceLevel provenanceLevel = ProvenanceLevel.FULL;
+    private Predicate<Atom> provenanceSampler = null;
 
     /**
      * Adds a rule to the reasoner.
@@ -45,6 +69,9 @@ public class IncrementalReasoner {
      */
     public void addRule(Rule rule) {
         rules.add(rule);
+        compiledRules.add(CompiledRule.compile(rule, symbols));
+        schedule = null;
+        propagator = null;
     }
 
     /**
@@ -57,6 +84,23 @@ public class IncrementalReasoner {
         newFacts.add(fact);
     }
 
+    /**
+     * Sets how much provenance is recorded for derived facts (default: FULL).
+     */
+    public void setProvenanceLevel(ProvenanceLevel level) {
+        provenance.setLevel(level);
+        this.provenanceLevel = level;
+    }
+
+    /**
+     * Records full provenance for facts accepted by {@code sampler} even when the
+     * level is lower, so they can still be explained (null to disable).
+     */
+    public void setProvenanceSampler(Predicate<Atom> sampler) {
+        provenance.setFullCaptureSampler(sampler);
+        this.provenanceSampler = sampler;
+    }
+
     /**
      * Performs initial complete reasoning.
      *
@@ -67,26 +111,39 @@ public class IncrementalReasoner {
         maxTimesteps = timesteps;
         hasReasoned = true;
         newFacts.clear();
-
-        // Delegate to standard reasoner
-        Reasoner standardReasoner = new Reasoner();
-        for (Rule rule : rules) {
-            standardReasoner.addRule(rule);
+        storage.clear();
+        evaluator.getPlanner().clear();
+        baseFacts.clear();
+        propagator = null;
+        provenance = new Provenance();
+        provenance.setLevel(provenanceLevel);
+        provenance.setFullCaptureSampler(provenanceSampler);
+
+        if (!schedule().isStratified()) {
+            return reasonUnstratified(timesteps);
         }
+
         for (TimedFact fact : allFacts) {
-            standardReasoner.addFact(fact);
+            EncodedAtom atom = symbols.encode(fact.getAtom());
+            IntervalSet when = IntervalSet.of(fact.getIntervals()).clip(0, timesteps);
+            baseFacts.computeIfAbsent(atom, k -> new IntervalSet()).addAll(when);
         }
-
-        ReasoningInterpretation result = standardReasoner.reason(timesteps);
-
-        // Cache the results
-        currentFactsByTime = new ArrayList<>();
-        for (int t = 0; t <= timesteps; t++) {
-            currentFactsByTime.add(new HashSet<>(result.getFactsAt(t)));
+        for (Map.Entry<EncodedAtom, IntervalSet> e : baseFacts.entrySet()) {
+            IntervalSet when = e.getValue();
+            if (when.cardinality() == timesteps + 1) {
+                storage.addStatic(e.getKey());
+            } else {
+                for (int i = 0; i < when.runCount(); i++) {
+                    for (int t = when.runStart(i); t <= when.runEnd(i); t++) {
+                        storage.addDynamic(e.getKey(), t);
+                    }
+                }
+            }
         }
+        propagate(null);
 
         logger.info("Initial reasoning completed with {} facts", allFacts.size());
-        return result;
+        return toInterpretation();
     }
 
     /**
@@ -103,103 +160,118 @@ public class IncrementalReasoner {
 
         if (newFacts.isEmpty()) {
             logger.info("No new facts to process incrementally");
-            return new ReasoningInterpretation(currentFactsByTime, provenance);
+            return toInterpretation();
+        }
+        if (!schedule().isStratified()) {
+            logger.info("Rules are not stratified across time; performing full re-reasoning");
+            return reason(maxTimesteps);
         }
 
         logger.info("Starting incremental reasoning with {} new facts", newFacts.size());
 
-        // Add new base facts to the current state
+        // The new base facts are the first delta
+        NavigableMap<Integer, FactIndex> inserted = new TreeMap<>();
         for (TimedFact newFact : newFacts) {
-            for (Interval iv : newFact.getIntervals()) {
-                int start = Math.max(0, iv.getStart());
-                int end = Math.min(maxTimesteps, iv.getEnd());
-                for (int t = start; t <= end; t++) {
-                    currentFactsByTime.get(t).add(newFact.getAtom());
+            EncodedAtom atom = symbols.encode(newFact.getAtom());
+            IntervalSet when = IntervalSet.of(newFact.getIntervals()).clip(0, maxTimesteps);
+            baseFacts.computeIfAbsent(atom, k -> new IntervalSet()).addAll(when);
+            for (int i = 0; i < when.runCount(); i++) {
+                for (int t = when.runStart(i); t <= when.runEnd(i); t++) {
+                    if (storage.addDynamic(atom, t)) {
+                        inserted.computeIfAbsent(t, k -> new FactIndex()).add(atom);
+                    }
                 }
             }
         }
+        newFacts.clear();
 
-        // Track which timesteps have changed
-        Set<Integer> changedTimesteps = new HashSet<>();
-        for (TimedFact newFact : newFacts) {
-            for (Interval iv : newFact.getIntervals()) {
-                int start = Math.max(0, iv.getStart());
-                int end = Math.min(maxTimesteps, iv.getEnd());
-                for (int t = start; t <= end; t++) {
-                    changedTimesteps.add(t);
-                }
+        propagate(inserted);
+
+        // New facts that a rule negates can invalidate earlier derivations
+        Set<Integer> negated = new HashSet<>();
+        for (CompiledRule cr : compiledRules) {
+            for (CompiledRule.CompiledLiteral literal : cr.getBody()) {
+                if (literal.isNegated()) negated.add(literal.getPredicate());
             }
         }
-
-        // Propagate changes forward in time
-        boolean changed = true;
-        int iteration = 0;
-        while (changed && iteration < 100) { // Safety limit
-            changed = false;
-            iteration++;
-
-            for (int t : new ArrayList<>(changedTimesteps)) {
-                for (Rule r : rules) {
-                    if (!r.isActiveAt(t)) continue;
-                    int baseTime = t + r.getDelay();
-                    if (baseTime > maxTimesteps) continue;
-
-                    List<Map<String, String>> subsList =
-                        findAllSubstitutionsWithNegation(r.getBodyLiterals(), currentFactsByTime.get(t));
-
-                    for (Map<String, String> theta : subsList) {
-                        Atom headPattern = Atom.parse(r.getHead());
-                        Atom headGrounded = applySubstitution(headPattern, theta);
-                        int startOffset = r.getHeadStartOffset();
-                        int endOffset = r.getHeadEndOffset();
-
-                        for (int dt = startOffset; dt <= endOffset; dt++) {
-                            int tt = baseTime + dt;
-                            if (tt < 0 || tt > maxTimesteps) continue;
-
-                            if (currentFactsByTime.get(tt).add(headGrounded)) {
-                                changed = true;
-                                changedTimesteps.add(tt);
-
-                                // Record provenance
-                                List<Provenance.AtomTimeKey> sources = new ArrayList<>();
-                                for (Literal lit : r.getBodyLiterals()) {
-                                    if (lit.isPositive()) {
-                                        Atom bodyGrounded = applySubstitution(lit.getAtom(), theta);
-                                        sources.add(new Provenance.AtomTimeKey(bodyGrounded, t));
-                                    }
-                                }
-                                DerivationInfo derivInfo = new DerivationInfo(r.getName(), sources, theta);
-                                provenance.record(headGrounded, tt, derivInfo);
-                            }
-                        }
-                    }
+        Map<EncodedAtom, IntervalSet> asserted = new HashMap<>();
+        long added = 0;
+        for (Map.Entry<Integer, FactIndex> e : inserted.entrySet()) {
+            added += e.getValue().size();
+            for (int predicate : negated) {
+                for (EncodedAtom atom : e.getValue().get(predicate)) {
+                    asserted.computeIfAbsent(atom, k -> new IntervalSet()).add(e.getKey(), e.getKey());
                 }
             }
         }
+        if (!asserted.isEmpty()) {
+            RetractionPropagator.Result result = propagator()
+                    .invalidate(asserted, RetractionPropagator.FactStore.of(evaluator, maxTimesteps, baseFacts));
+            logger.debug("New facts invalidated negated conditions: {}", result);
+        }
 
-        newFacts.clear();
-        logger.info("Incremental reasoning completed in {} iterations, {} timesteps affected",
-            iteration, changedTimesteps.size());
+        logger.info("Incremental reasoning completed, {} facts added over {} timesteps",
+            added, inserted.size());
 
-        return new ReasoningInterpretation(currentFactsByTime, provenance);
+        return toInterpretation();
     }
 
     /**
      * Retracts a fact from the knowledge base and updates reasoning.
      *
-     * <p>Note: This requires full re-reasoning as retraction can have
-     * cascading effects that are hard to track incrementally.</p>
-     *
      * @param fact the fact to retract
      * @return updated reasoning result
+     * @see #retract(TimedFact)
      */
     public ReasoningInterpretation retractFact(TimedFact fact) {
-        allFacts.remove(fact);
-        newFacts.remove(fact);
+        return retract(fact);
+    }
+
+    /**
+     * Retracts a fact and removes only the facts that depended on it.
+     *
+     * <p>Uses {@link RetractionPropagator}: derivation counting for non-recursive
+     * strata and delete-and-rederive for recursive ones, so only the affected facts
+     * are touched. The fact's timesteps are removed from every base fact with the
+     * same atom, so the argument need not be the instance that was added. If the
+     * rules negate a predicate they recursively depend on, this falls back to
+     * full re-reasoning.</p>
+     *
+     * @param fact the fact to retract
+     * @return updated reasoning result
+     */
+    public ReasoningInterpretation retract(TimedFact fact) {
+        boolean applied = removeTimesteps(fact);
+        if (!applied && hasReasoned) {
+            return toInterpretation();  // only pending facts were affected
+        }
+        if (!hasReasoned || !schedule().isStratified()) {
+            logger.info("Fact retracted, rules are not stratified across time; performing full re-reasoning");
+            return reason(maxTimesteps);
+        }
+
+        EncodedAtom atom = symbols.encode(fact.getAtom());
+        IntervalSet before = baseFacts.getOrDefault(atom, new IntervalSet());
+        IntervalSet after = new IntervalSet();
+        for (TimedFact remaining : allFacts) {
+            if (remaining.getAtom().equals(fact.getAtom()) && !newFacts.contains(remaining)) {
+                after.addAll(IntervalSet.of(remaining.getIntervals()).clip(0, maxTimesteps));
+            }
+        }
+        IntervalSet removed = before.minus(after);
+        if (after.isEmpty()) {
+            baseFacts.remove(atom);
+        } else {
+            baseFacts.put(atom, after);
+        }
+        if (removed.isEmpty()) {
+            return toInterpretation();
+        }
 
-        logger.info("Fact retracted, performing full re-reasoning");
-        return reason(maxTimesteps);
+        RetractionPropagator.Result result = propagator()
+                .retract(Map.of(atom, removed), RetractionPropagator.FactStore.of(evaluator, maxTimesteps, baseFacts));
+        logger.info("Fact retracted incrementally: {}", result);
+        return toInterpretation();
     }
 
     /**
@@ -211,7 +283,7 @@ public class IncrementalReasoner {
         if (!hasReasoned) {
             throw new IllegalStateException("No reasoning has been performed yet");
         }
-        return new ReasoningInterpretation(currentFactsByTime, provenance);
+        return toInterpretation();
     }
 
     /**
@@ -220,90 +292,172 @@ public class IncrementalReasoner {
     public void reset() {
         allFacts.clear();
         newFacts.clear();
-        currentFactsByTime.clear();
+        storage.clear();
+        evaluator.getPlanner().clear();
+        baseFacts.clear();
         hasReasoned = false;
         maxTimesteps = 0;
     }
 
-    // --- Unification helpers (copied from Reasoner) ---
-
-    private List<Map<String, String>> findAllSubstitutionsWithNegation(
-            List<Literal> bodyLiterals, Set<Atom> factsAtTime) {
-        List<Map<String, String>> results = new ArrayList<>();
-        backtrackWithNegation(bodyLiterals, 0, factsAtTime, new HashMap<>(), results);
-        return results;
-    }
+    /**
+     * Derives the consequences of new facts, one stratum at a time. Within a
+     * stratum, timesteps are taken in order from a worklist of deltas; a recursive
+     * stratum puts what it derives back on the worklist until nothing new appears.
+     *
+     * @param inserted new facts by timestep (receives the facts derived here), or
+     *                 null to join every rule in full first
+     */
+    private void propagate(NavigableMap<Integer, FactIndex> inserted) {
+        for (RuleScheduler.Stratum stratum : schedule().getStrata()) {
+            NavigableMap<Integer, FactIndex> work = new TreeMap<>();
+            NavigableMap<Integer, FactIndex> feedback = stratum.isRecursive() ? work : null;
+
+            if (inserted == null) {
+                for (int t = 0; t <= maxTimesteps; t++) {
+                    for (CompiledRule cr : stratum.getRules()) {
+                        if (isApplicable(cr, t)) {
+                            applyDerivations(cr, t, evaluator.evaluate(cr, t), feedback, null);
+                        }
+                    }
+                }
+            } else {
+                for (Map.Entry<Integer, FactIndex> e : inserted.entrySet()) {
+                    FactIndex delta = new FactIndex();
+                    for (EncodedAtom atom : e.getValue().asSet()) {
+                        delta.add(atom);
+                    }
+                    work.put(e.getKey(), delta);
+                }
+            }
 
-    private void backtrackWithNegation(List<Literal> body,
-                                       int idx,
-                                       Set<Atom> factsAtTime,
-                                       Map<String, String> current,
-                                       List<Map<String, String>> results) {
-        if (idx == body.size()) {
-            results.add(new HashMap<>(current));
-            return;
+            while (!work.isEmpty()) {
+                Map.Entry<Integer, FactIndex> next = work.pollFirstEntry();
+                int t = next.getKey();
+                FactIndex delta = next.getValue();
+                for (CompiledRule cr : stratum.getRules()) {
+                    if (!isApplicable(cr, t) || !RuleEvaluator.touchesDelta(cr, delta)) continue;
+                    applyDerivations(cr, t, evaluator.evaluateDelta(cr, t, delta), feedback, inserted);
+                }
+            }
         }
+    }
 
-        Literal literal = body.get(idx);
-        Atom pattern = applySubstitution(literal.getAtom(), current);
+    private boolean isApplicable(CompiledRule cr, int t) {
+        Rule r = cr.getRule();
+        return r.isActiveAt(t) && t + r.getDelay() <= maxTimesteps;
+    }
 
-        if (literal.isPositive()) {
-            for (Atom fact : factsAtTime) {
-                Map<String, String> newSubst = unify(pattern, fact, current);
-                if (newSubst != null) {
-                    backtrackWithNegation(body, idx + 1, factsAtTime, newSubst, results);
+    /**
+     * Adds the head facts for the bindings of one rule evaluated at time t, and records provenance.
+     *
+     * @param work receives new facts to join again in this stratum (may be null)
+     * @param inserted receives every new fact (may be null)
+     */
+    private void applyDerivations(CompiledRule cr, int t, List<int[]> subsList,
+                                  NavigableMap<Integer, FactIndex> work, NavigableMap<Integer, FactIndex> inserted) {
+        Rule r = cr.getRule();
+        int baseTime = t + r.getDelay();
+
+        for (int[] theta : subsList) {
+            EncodedAtom headGrounded = cr.instantiateHead(theta);
+            for (int dt = r.getHeadStartOffset(); dt <= r.getHeadEndOffset(); dt++) {
+                int tt = baseTime + dt;
+                if (tt < 0 || tt > maxTimesteps || !storage.addDynamic(headGrounded, tt)) continue;
+
+                if (work != null) {
+                    work.computeIfAbsent(tt, k -> new FactIndex()).add(headGrounded);
                 }
-            }
-        } else {
-            boolean unifiesWithAny = false;
-            for (Atom fact : factsAtTime) {
-                if (unify(pattern, fact, current) != null) {
-                    unifiesWithAny = true;
-                    break;
+                if (inserted != null) {
+                    inserted.computeIfAbsent(tt, k -> new FactIndex()).add(headGrounded);
                 }
-            }
-            if (!unifiesWithAny) {
-                backtrackWithNegation(body, idx + 1, factsAtTime, current, results);
+
+                // Record provenance
+                if (!provenance.isRecording()) continue;
+                provenance.record(symbols.decode(headGrounded), tt, r.getName(),
+                        () -> new DerivationInfo(r.getName(), cr.groundSources(theta, t, symbols),
+                                                 cr.decodeBinding(theta, symbols)));
             }
         }
     }
 
-    private Map<String, String> unify(Atom pattern, Atom fact, Map<String, String> subst) {
-        if (!pattern.getPredicate().equals(fact.getPredicate())) return null;
-        if (pattern.arity() != fact.arity()) return null;
-
-        Map<String, String> result = new HashMap<>(subst);
-        for (int i = 0; i < pattern.arity(); i++) {
-            String pArg = pattern.getArgs().get(i);
-            String fArg = fact.getArgs().get(i);
-
-            if (isVariable(pArg)) {
-                String existing = result.get(pArg);
-                if (existing == null) {
-                    result.put(pArg, fArg);
-                } else if (!existing.equals(fArg)) {
-                    return null;
-                }
-            } else {
-                if (!pArg.equals(fArg)) return null;
+    /**
+     * Reasons with the per-timestep {@link Reasoner}, for rules that negate a
+     * predicate they recursively depend on, and stores the result.
+     */
+    private ReasoningInterpretation reasonUnstratified(int timesteps) {
+        Reasoner standardReasoner = new Reasoner();
+        standardReasoner.setProvenanceLevel(provenanceLevel);
+        standardReasoner.setProvenanceSampler(provenanceSampler);
+        for (Rule rule : rules) {
+            standardReasoner.addRule(rule);
+        }
+        for (TimedFact fact : allFacts) {
+            standardReasoner.addFact(fact);
+        }
+
+        ReasoningInterpretation result = standardReasoner.reason(timesteps);
+        for (int t = 0; t <= timesteps; t++) {
+            for (Atom atom : result.getFactsAt(t)) {
+                storage.addDynamic(symbols.encode(atom), t);
             }
         }
+        logger.info("Rules are not stratified across time; reasoned in full with {} facts", allFacts.size());
         return result;
     }
 
-    private boolean isVariable(String s) {
-        return s.length() > 0 && Character.isLowerCase(s.charAt(0));
+    private RuleScheduler schedule() {
+        if (schedule == null) {
+            schedule = RuleScheduler.acrossTime(compiledRules);
+        }
+        return schedule;
+    }
+
+    private RetractionPropagator propagator() {
+        if (propagator == null) {
+            propagator = new RetractionPropagator(compiledRules, symbols, provenance, maxTimesteps);
+        }
+        return propagator;
     }
 
-    private Atom applySubstitution(Atom atom, Map<String, String> subst) {
-        List<String> newArgs = new ArrayList<>();
-        for (String arg : atom.getArgs()) {
-            if (isVariable(arg) && subst.containsKey(arg)) {
-                newArgs.add(subst.get(arg));
+    /**
+     * Decodes the stored facts into an interpretation.
+     */
+    private ReasoningInterpretation toInterpretation() {
+        List<Set<Atom>> factsByTime = new ArrayList<>(maxTimesteps + 1);
+        for (int t = 0; t <= maxTimesteps; t++) {
+            factsByTime.add(symbols.decodeAll(storage.getAllAt(t)));
+        }
+        return new ReasoningInterpretation(factsByTime, provenance);
+    }
+
+    /**
+     * Removes the retracted fact's timesteps from every base fact with the same atom.
+     * Facts left without timesteps are dropped, the others are replaced by trimmed copies.
+     *
+     * @return true if a fact that was already reasoned over changed
+     */
+    private boolean removeTimesteps(TimedFact retracted) {
+        IntervalSet gone = IntervalSet.of(retracted.getIntervals());
+        boolean applied = false;
+        for (int i = allFacts.size() - 1; i >= 0; i--) {
+            TimedFact fact = allFacts.get(i);
+            if (!fact.getAtom().equals(retracted.getAtom())) continue;
+            IntervalSet when = IntervalSet.of(fact.getIntervals());
+            IntervalSet left = when.minus(gone);
+            if (left.equals(when)) continue;
+
+            boolean pending = newFacts.remove(fact);
+            applied |= !pending;
+            if (left.isEmpty()) {
+                allFacts.remove(i);
             } else {
-                newArgs.add(arg);
+                TimedFact trimmed = new TimedFact(fact.getAtom(), fact.getName(), left.toIntervals());
+                allFacts.set(i, trimmed);
+                if (pending) {
+                    newFacts.add(trimmed);
+                }
             }
         }
-        return new Atom(atom.getPredicate(), newArgs);
+        return applied;
     }
 }
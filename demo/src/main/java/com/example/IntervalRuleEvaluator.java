@@ -0,0 +1,154 @@
+package com.example;
+
+import java.util.*;
+
+/**
+ * Joins {@link CompiledRule} bodies over a {@link TimelineStorage}, once for all timesteps.
+ *
+ * <p>Instead of matching the body separately at every timestep, each partial match
+ * carries the set of timesteps at which it still holds. Matching a positive literal
+ * intersects that set with the fact's timeline; a negated literal subtracts the
+ * timelines of the facts it matches. Matches whose set becomes empty are dropped
+ * immediately, so a binding is found once however many timesteps it holds for.</p>
+ *
+ * <p>Literals are matched in written order, like {@link Reasoner}, so a variable that
+ * only occurs in a negated literal is existential.</p>
+ */
+public class IntervalRuleEvaluator {
+
+    /**
+     * A complete binding and the body timesteps at which it holds.
+     */
+    public static final class Match {
+        private final int[] binding;
+        private final IntervalSet when;
+
+        Match(int[] binding, IntervalSet when) {
+            this.binding = binding;
+            this.when = when;
+        }
+
+        public int[] getBinding()    { return binding; }
+        public IntervalSet getWhen() { return when; }
+    }
+
+    private final TimelineStorage storage;
+
+    public IntervalRuleEvaluator(TimelineStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Evaluates a rule body over a window of body timesteps.
+     *
+     * @param rule compiled rule
+     * @param window timesteps at which the body may be evaluated
+     * @return matches with non-empty timestep sets
+     */
+    public List<Match> evaluate(CompiledRule rule, IntervalSet window) {
+        List<Match> results = new ArrayList<>();
+        RuleEvaluator.Source[] sources = new RuleEvaluator.Source[rule.getBody().size()];
+        Arrays.fill(sources, RuleEvaluator.Source.FULL);
+        join(rule.getBody(), sources, null, 0, window, rule.newFrame(), results);
+        return results;
+    }
+
+    /**
+     * Evaluates only the matches that use at least one run from {@code delta}, the
+     * interval counterpart of {@link RuleEvaluator#evaluateDelta}. A recursive stratum
+     * then joins each pass against the runs the previous pass added instead of
+     * against every timeline again.
+     *
+     * @param rule compiled rule
+     * @param window timesteps at which the body may be evaluated
+     * @param delta runs that are new since the previous pass; they must already be in
+     *              this evaluator's storage
+     * @return matches with non-empty timestep sets (each timestep of a binding at most once)
+     */
+    public List<Match> evaluateDelta(CompiledRule rule, IntervalSet window, TimelineStorage delta) {
+        List<Match> results = new ArrayList<>();
+        List<CompiledRule.CompiledLiteral> body = rule.getBody();
+        BindingFrame frame = rule.newFrame();
+        RuleEvaluator.Source[] sources = new RuleEvaluator.Source[body.size()];
+
+        for (int i = 0; i < body.size(); i++) {
+            CompiledRule.CompiledLiteral deltaLiteral = body.get(i);
+            if (!deltaLiteral.isPositive() || delta.getByPredicate(deltaLiteral.getPredicate()).isEmpty()) continue;
+
+            for (int j = 0; j < body.size(); j++) {
+                if (j == i) {
+                    sources[j] = RuleEvaluator.Source.DELTA;
+                } else if (j < i && body.get(j).isPositive()) {
+                    sources[j] = RuleEvaluator.Source.FULL_MINUS_DELTA;
+                } else {
+                    sources[j] = RuleEvaluator.Source.FULL;
+                }
+            }
+            join(body, sources, delta, 0, window, frame, results);
+        }
+        return results;
+    }
+
+    private void join(List<CompiledRule.CompiledLiteral> body, RuleEvaluator.Source[] sources,
+                      TimelineStorage delta, int idx, IntervalSet when, BindingFrame frame, List<Match> results) {
+        if (when.isEmpty()) return;
+        if (idx == body.size()) {
+            results.add(new Match(frame.snapshot(), when));
+            return;
+        }
+
+        CompiledRule.CompiledLiteral literal = body.get(idx);
+        RuleEvaluator.Source source = sources[idx];
+        TimelineStorage from = source == RuleEvaluator.Source.DELTA ? delta : storage;
+        int mark = frame.mark();
+        Set<EncodedAtom> candidates = candidatesFor(literal, frame, from);
+
+        if (literal.isPositive()) {
+            for (EncodedAtom fact : candidates) {
+                if (literal.match(fact, frame)) {
+                    IntervalSet timeline = from.timeline(fact);
+                    if (source == RuleEvaluator.Source.FULL_MINUS_DELTA) {
+                        timeline = timeline.minus(delta.timeline(fact));
+                    }
+                    join(body, sources, delta, idx + 1, when.intersect(timeline), frame, results);
+                    frame.undo(mark);
+                }
+            }
+        } else {
+            // Negation as failure: drop the timesteps at which any matching fact holds
+            IntervalSet remaining = when;
+            for (EncodedAtom fact : candidates) {
+                if (literal.match(fact, frame)) {
+                    frame.undo(mark);
+                    remaining = remaining.minus(storage.timeline(fact));
+                    if (remaining.isEmpty()) return;
+                }
+            }
+            join(body, sources, delta, idx + 1, remaining, frame, results);
+        }
+    }
+
+    /**
+     * Picks the smallest argument bucket of {@code from} for a literal under the current bindings.
+     */
+    private static Set<EncodedAtom> candidatesFor(CompiledRule.CompiledLiteral literal, BindingFrame frame,
+                                                  TimelineStorage from) {
+        int predicate = literal.getPredicate();
+        Set<EncodedAtom> best = null;
+
+        for (int i = 0; i < literal.arity(); i++) {
+            int value = literal.constantAt(i);
+            if (value == SymbolTable.UNKNOWN) {
+                value = frame.get(literal.slotAt(i));
+            }
+            if (value == SymbolTable.UNKNOWN) continue;
+
+            Set<EncodedAtom> bucket = from.getByArgument(predicate, i, value);
+            if (best == null || bucket.size() < best.size()) {
+                best = bucket;
+                if (best.isEmpty()) break;
+            }
+        }
+        return best != null ? best : from.getByPredicate(predicate);
+    }
+}
@@ -0,0 +1,326 @@
+package com.example;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of timesteps stored as sorted, non-overlapping, non-adjacent runs.
+ *
+ * <p>A fact true from t=0 to t=9,999 is one run (two ints) instead of 10,000
+ * per-timestep entries. Adjacent and overlapping runs are coalesced on every
+ * update, so {@code [0,4] + [5,9]} is stored as {@code [0,9]}.</p>
+ *
+ * <p>Instances are mutable. The set operations ({@link #intersect}, {@link #minus},
+ * {@link #shift}, ...) return new sets and leave their inputs unchanged.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * IntervalSet a = IntervalSet.of(0, 9);
+ * IntervalSet b = IntervalSet.of(5, 20);
+ * a.intersect(b);          // [5,9]
+ * a.shift(1).clip(0, 9);   // [1,9]
+ * }</pre>
+ */
+public class IntervalSet implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // starts[i]..ends[i] inclusive, for i < runs; sorted and separated by at least one timestep
+    private int[] starts;
+    private int[] ends;
+    private int runs;
+
+    public IntervalSet() {
+        this.starts = new int[2];
+        this.ends = new int[2];
+    }
+
+    private IntervalSet(int[] starts, int[] ends, int runs) {
+        this.starts = starts;
+        this.ends = ends;
+        this.runs = runs;
+    }
+
+    /**
+     * Creates a set containing {@code start..end} (inclusive), or an empty set if {@code end < start}.
+     */
+    public static IntervalSet of(int start, int end) {
+        IntervalSet set = new IntervalSet();
+        set.add(start, end);
+        return set;
+    }
+
+    /**
+     * Creates a set from intervals (which may overlap).
+     */
+    public static IntervalSet of(List<Interval> intervals) {
+        IntervalSet set = new IntervalSet();
+        for (Interval iv : intervals) {
+            set.add(iv.getStart(), iv.getEnd());
+        }
+        return set;
+    }
+
+    /**
+     * Adds {@code start..end} (inclusive).
+     *
+     * @return true if the set changed
+     */
+    public boolean add(int start, int end) {
+        if (end < start) return false;
+
+        // First run that ends at or after start - 1 (it may touch or overlap the new run)
+        int lo = firstRunEndingAtOrAfter(start == Integer.MIN_VALUE ? start : start - 1);
+        // Runs lo..hi-1 overlap or touch [start, end]; the bound is widened to long so
+        // that end = Integer.MAX_VALUE (a static fact) does not wrap
+        int hi = lo;
+        while (hi < runs && starts[hi] <= (long) end + 1) {
+            hi++;
+        }
+
+        if (hi == lo) {
+            insertRun(lo, start, end);
+            return true;
+        }
+
+        int newStart = Math.min(start, starts[lo]);
+        int newEnd = Math.max(end, ends[hi - 1]);
+        if (hi - lo == 1 && newStart == starts[lo] && newEnd == ends[lo]) {
+            return false;  // already covered
+        }
+
+        starts[lo] = newStart;
+        ends[lo] = newEnd;
+        int removed = hi - lo - 1;
+        if (removed > 0) {
+            System.arraycopy(starts, hi, starts, lo + 1, runs - hi);
+            System.arraycopy(ends, hi, ends, lo + 1, runs - hi);
+            runs -= removed;
+        }
+        return true;
+    }
+
+    /**
+     * Adds a single timestep.
+     *
+     * @return true if the set changed
+     */
+    public boolean add(int t) {
+        return add(t, t);
+    }
+
+    /**
+     * Adds every timestep of another set.
+     *
+     * @return the timesteps that were not already in this set
+     */
+    public IntervalSet addAll(IntervalSet other) {
+        IntervalSet added = other.minus(this);
+        for (int i = 0; i < other.runs; i++) {
+            add(other.starts[i], other.ends[i]);
+        }
+        return added;
+    }
+
+    public boolean contains(int t) {
+        int i = firstRunEndingAtOrAfter(t);
+        return i < runs && starts[i] <= t;
+    }
+
+    public boolean isEmpty() {
+        return runs == 0;
+    }
+
+    /**
+     * Gets the number of runs (the storage cost of this set).
+     */
+    public int runCount() {
+        return runs;
+    }
+
+    /**
+     * Gets the number of timesteps in this set.
+     */
+    public long cardinality() {
+        long total = 0;
+        for (int i = 0; i < runs; i++) {
+            total += (long) ends[i] - starts[i] + 1;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the first timestep, or -1 if empty.
+     */
+    public int first() {
+        return runs == 0 ? -1 : starts[0];
+    }
+
+    public int runStart(int i) { return starts[i]; }
+    public int runEnd(int i)   { return ends[i]; }
+
+    /**
+     * Returns the timesteps in both sets.
+     */
+    public IntervalSet intersect(IntervalSet other) {
+        IntervalSet result = new IntervalSet();
+        int i = 0;
+        int j = 0;
+        while (i < runs && j < other.runs) {
+            int s = Math.max(starts[i], other.starts[j]);
+            int e = Math.min(ends[i], other.ends[j]);
+            if (s <= e) {
+                result.appendRun(s, e);
+            }
+            if (ends[i] < other.ends[j]) i++; else j++;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the timesteps in this set that are not in {@code other}.
+     */
+    public IntervalSet minus(IntervalSet other) {
+        IntervalSet result = new IntervalSet();
+        int j = 0;
+        for (int i = 0; i < runs; i++) {
+            int s = starts[i];
+            int e = ends[i];
+            while (j < other.runs && other.ends[j] < s) j++;
+            int k = j;
+            boolean covered = false;
+            while (k < other.runs && other.starts[k] <= e) {
+                if (other.starts[k] > s) {
+                    result.appendRun(s, other.starts[k] - 1);
+                }
+                // Checked before ends[k] + 1, which would wrap at Integer.MAX_VALUE
+                if (other.ends[k] >= e) {
+                    covered = true;
+                    break;
+                }
+                s = Math.max(s, other.ends[k] + 1);
+                k++;
+            }
+            if (!covered) {
+                result.appendRun(s, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns this set moved by {@code delta} timesteps.
+     */
+    public IntervalSet shift(int delta) {
+        IntervalSet result = copy();
+        for (int i = 0; i < runs; i++) {
+            result.starts[i] += delta;
+            result.ends[i] += delta;
+        }
+        return result;
+    }
+
+    /**
+     * Returns this set widened so that every timestep {@code t} becomes
+     * {@code t+from .. t+to}. Used for rule heads that hold over an interval.
+     */
+    public IntervalSet spread(int from, int to) {
+        IntervalSet result = new IntervalSet();
+        for (int i = 0; i < runs; i++) {
+            result.add(starts[i] + from, ends[i] + to);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the timesteps within {@code min..max}.
+     */
+    public IntervalSet clip(int min, int max) {
+        return intersect(of(min, max));
+    }
+
+    public IntervalSet copy() {
+        return new IntervalSet(Arrays.copyOf(starts, Math.max(2, runs)), Arrays.copyOf(ends, Math.max(2, runs)), runs);
+    }
+
+    /**
+     * Converts to intervals, one per run.
+     */
+    public List<Interval> toIntervals() {
+        List<Interval> intervals = new ArrayList<>(runs);
+        for (int i = 0; i < runs; i++) {
+            intervals.add(new Interval(starts[i], ends[i]));
+        }
+        return intervals;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntervalSet)) return false;
+        IntervalSet other = (IntervalSet) o;
+        return runs == other.runs
+                && Arrays.equals(starts, 0, runs, other.starts, 0, runs)
+                && Arrays.equals(ends, 0, runs, other.ends, 0, runs);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = runs;
+        for (int i = 0; i < runs; i++) {
+            h = 31 * h + starts[i];
+            h = 31 * h + ends[i];
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < runs; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('[').append(starts[i]).append(',').append(ends[i]).append(']');
+        }
+        return sb.append('}').toString();
+    }
+
+    private int firstRunEndingAtOrAfter(int t) {
+        int lo = 0;
+        int hi = runs;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ends[mid] < t) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private void insertRun(int index, int start, int end) {
+        ensureCapacity(runs + 1);
+        System.arraycopy(starts, index, starts, index + 1, runs - index);
+        System.arraycopy(ends, index, ends, index + 1, runs - index);
+        starts[index] = start;
+        ends[index] = end;
+        runs++;
+    }
+
+    // Appends a run known to start after the current last run
+    private void appendRun(int start, int end) {
+        if (runs > 0 && (long) ends[runs - 1] + 1 >= start) {
+            ends[runs - 1] = Math.max(ends[runs - 1], end);
+            return;
+        }
+        ensureCapacity(runs + 1);
+        starts[runs] = start;
+        ends[runs] = end;
+        runs++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > starts.length) {
+            int size = Math.max(capacity, starts.length * 2);
+            starts = Arrays.copyOf(starts, size);
+            ends = Arrays.copyOf(ends, size);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Chooses the order in which {@link RuleEvaluator} joins the literals of a rule body.
+ *
+ * <p>Rules are written for readability, not for evaluation. In
+ * {@code atRisk(x) <- supplies(y,x), disrupted(y)} the left-to-right order scans
+ * every {@code supplies} fact and probes {@code disrupted} for each one, while
+ * starting from the handful of {@code disrupted} facts turns {@code supplies} into
+ * an index lookup.</p>
+ *
+ * <p><b>Planning:</b> greedy, one literal at a time. The next positive literal is
+ * the one with the smallest estimated result size: its cardinality at the timestep,
+ * scaled by the selectivity of each argument that is a constant (exact count from
+ * the argument index) or an already-bound variable (1 / distinct values). Ties keep
+ * the written order. Negation keeps its written-order meaning: a variable of a
+ * negated literal that no positive literal written before it binds is existential,
+ * as in {@link Reasoner}. So a negated literal is placed as soon as the variables
+ * bound before it in the written order are bound, which filters as early as
+ * possible, and a positive literal that would bind one of its existential
+ * variables waits until it has been placed.</p>
+ *
+ * <p><b>Caching:</b> a plan is kept per rule and per delta literal, together with the
+ * cardinalities it was computed from. It is reused until one of those cardinalities
+ * drifts by more than {@link #DRIFT_FACTOR}, then the rule is re-planned.</p>
+ *
+ * <p>Plans only change evaluation order. Bindings are indexed by slot, so heads and
+ * provenance (which follows {@link Rule#getBodyAtoms()}) are unaffected.</p>
+ */
+public class JoinPlanner {
+
+    /**
+     * A cached plan is reused while every literal's cardinality stays within this
+     * factor of the value it was planned with.
+     */
+    public static final double DRIFT_FACTOR = 2.0;
+
+    private final SparseFactStorage storage;
+    private final Map<CompiledRule, Plan[]> plans = new ConcurrentHashMap<>();
+    private long planCount = 0;
+
+    public JoinPlanner(SparseFactStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Gets the join order for a full evaluation of a rule at a timestep.
+     *
+     * @return literal indexes in evaluation order
+     */
+    public int[] plan(CompiledRule rule, int time) {
+        return plan(rule, time, -1, null);
+    }
+
+    /**
+     * Gets the join order for a rule at a timestep.
+     *
+     * @param deltaLiteral index of the literal that reads {@code delta}, or -1
+     * @param delta delta facts (ignored when {@code deltaLiteral} is -1)
+     * @return literal indexes in evaluation order
+     */
+    public int[] plan(CompiledRule rule, int time, int deltaLiteral, FactIndex delta) {
+        List<CompiledRule.CompiledLiteral> body = rule.getBody();
+        long[] cardinalities = new long[body.size()];
+        for (int i = 0; i < body.size(); i++) {
+            cardinalities[i] = cardinality(body.get(i), i, time, deltaLiteral, delta);
+        }
+
+        return cachedOrder(rule, deltaLiteral + 1, cardinalities,
+                () -> computeOrder(rule, time, deltaLiteral, delta, cardinalities, new boolean[rule.slotCount()], -1));
+    }
+
+    /**
+     * Gets the join order for a rule whose frame already holds some bindings, as when
+     * a materialized result is maintained (see {@link RuleEvaluator#evaluateFrom}).
+     *
+     * <p>The plan is cached per rule and {@code pinned}, so callers must seed the same
+     * slots for the same {@code pinned} every time.</p>
+     *
+     * @param seed bindings the join starts from
+     * @param pinned literal already matched into {@code seed}, placed first; or -1
+     * @return literal indexes in evaluation order
+     */
+    public int[] plan(CompiledRule rule, int time, BindingFrame seed, int pinned) {
+        List<CompiledRule.CompiledLiteral> body = rule.getBody();
+        long[] cardinalities = new long[body.size()];
+        for (int i = 0; i < body.size(); i++) {
+            cardinalities[i] = cardinality(body.get(i), i, time, -1, null);
+        }
+        boolean[] bound = new boolean[rule.slotCount()];
+        for (int slot = 0; slot < bound.length; slot++) {
+            bound[slot] = seed.isBound(slot);
+        }
+        return cachedOrder(rule, body.size() + 2 + pinned, cardinalities,
+                () -> computeOrder(rule, time, -1, null, cardinalities, bound, pinned));
+    }
+
+    /**
+     * Plans are cached per rule under {@code 0..n} for delta literals (0 = full
+     * evaluation) and {@code n+1..2n+1} for seeded joins by pinned literal.
+     */
+    private int[] cachedOrder(CompiledRule rule, int key, long[] cardinalities,
+                              Supplier<int[]> planner) {
+        Plan[] rulePlans = plans.computeIfAbsent(rule, k -> new Plan[2 * (rule.getBody().size() + 1)]);
+        Plan cached = rulePlans[key];
+        if (cached != null && !cached.hasDrifted(cardinalities)) {
+            return cached.order;
+        }
+
+        int[] order = planner.get();
+        rulePlans[key] = new Plan(order, cardinalities);
+        synchronized (this) {
+            planCount++;
+        }
+        return order;
+    }
+
+    /**
+     * Gets the number of plans computed so far (first plans and re-plans).
+     */
+    public synchronized long getPlanCount() {
+        return planCount;
+    }
+
+    /**
+     * Drops every cached plan.
+     */
+    public void clear() {
+        plans.clear();
+    }
+
+    /**
+     * @param bound slots bound before the join starts (updated as literals are placed)
+     * @param pinned literal that is already matched and goes first, or -1
+     */
+    private int[] computeOrder(CompiledRule rule, int time, int deltaLiteral, FactIndex delta,
+                               long[] cardinalities, boolean[] bound, int pinned) {
+        List<CompiledRule.CompiledLiteral> body = rule.getBody();
+        int n = body.size();
+
+        // For each negated literal, the slots positive literals written before it bind:
+        // it waits for these, and the rest of its slots must stay unbound until it is placed
+        boolean[][] boundBefore = new boolean[n][];
+        for (int j = 0; j < n; j++) {
+            if (body.get(j).isNegated()) {
+                boundBefore[j] = rule.slotsBoundBefore(j);
+            }
+        }
+
+        boolean[] placed = new boolean[n];
+        int[] order = new int[n];
+        int next = 0;
+        if (pinned >= 0) {
+            placed[pinned] = true;
+            order[next++] = pinned;
+        }
+
+        while (next < n) {
+            // Negated literals go in as soon as they can be checked
+            for (int j = 0; j < n; j++) {
+                if (!placed[j] && body.get(j).isNegated() && ready(body.get(j), bound, boundBefore[j])) {
+                    placed[j] = true;
+                    order[next++] = j;
+                }
+            }
+            if (next == n) break;
+
+            int best = -1;
+            double bestCost = Double.MAX_VALUE;
+            for (int j = 0; j < n; j++) {
+                if (placed[j] || !body.get(j).isPositive()) continue;
+                if (bindsExistential(body.get(j), body, placed, boundBefore)) continue;
+                double cost = estimate(body.get(j), j, time, deltaLiteral, delta, cardinalities[j], bound);
+                if (cost < bestCost) {
+                    best = j;
+                    bestCost = cost;
+                }
+            }
+            if (best < 0) {
+                // Unreachable: the first unplaced literal in written order can always go next
+                for (int j = 0; j < n; j++) {
+                    if (!placed[j]) {
+                        placed[j] = true;
+                        order[next++] = j;
+                    }
+                }
+                break;
+            }
+
+            placed[best] = true;
+            order[next++] = best;
+            CompiledRule.CompiledLiteral literal = body.get(best);
+            for (int i = 0; i < literal.arity(); i++) {
+                int slot = literal.slotAt(i);
+                if (slot >= 0) bound[slot] = true;
+            }
+        }
+        return order;
+    }
+
+    private static boolean ready(CompiledRule.CompiledLiteral literal, boolean[] bound, boolean[] boundBefore) {
+        for (int i = 0; i < literal.arity(); i++) {
+            int slot = literal.slotAt(i);
+            if (slot >= 0 && boundBefore[slot] && !bound[slot]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether placing {@code literal} now would bind a variable that an unplaced
+     * negated literal treats as existential.
+     */
+    private static boolean bindsExistential(CompiledRule.CompiledLiteral literal,
+                                            List<CompiledRule.CompiledLiteral> body,
+                                            boolean[] placed, boolean[][] boundBefore) {
+        for (int j = 0; j < body.size(); j++) {
+            if (placed[j] || !body.get(j).isNegated()) continue;
+            CompiledRule.CompiledLiteral negated = body.get(j);
+            for (int i = 0; i < negated.arity(); i++) {
+                int slot = negated.slotAt(i);
+                if (slot >= 0 && !boundBefore[j][slot] && usesSlot(literal, slot)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean usesSlot(CompiledRule.CompiledLiteral literal, int slot) {
+        for (int i = 0; i < literal.arity(); i++) {
+            if (literal.slotAt(i) == slot) return true;
+        }
+        return false;
+    }
+
+    private double estimate(CompiledRule.CompiledLiteral literal, int index, int time, int deltaLiteral,
+                            FactIndex delta, long cardinality, boolean[] bound) {
+        if (cardinality == 0) return 0;
+        boolean fromDelta = index == deltaLiteral;
+        int predicate = literal.getPredicate();
+        double cost = cardinality;
+
+        for (int i = 0; i < literal.arity(); i++) {
+            int constant = literal.constantAt(i);
+            if (constant != SymbolTable.UNKNOWN) {
+                long matching = fromDelta
+                    ? delta.get(predicate, i, constant).size()
+                    : storage.countByArgument(predicate, i, constant, time);
+                cost *= (double) matching / cardinality;
+            } else if (bound[literal.slotAt(i)]) {
+                int distinct = fromDelta
+                    ? delta.distinctValues(predicate, i)
+                    : storage.distinctByArgument(predicate, i, time);
+                cost /= Math.max(1, distinct);
+            }
+        }
+        return cost;
+    }
+
+    private long cardinality(CompiledRule.CompiledLiteral literal, int index, int time,
+                             int deltaLiteral, FactIndex delta) {
+        if (index == deltaLiteral) {
+            return delta.get(literal.getPredicate()).size();
+        }
+        return storage.countByPredicate(literal.getPredicate(), time);
+    }
+
+    /**
+     * A join order and the cardinalities it was computed from.
+     */
+    private static final class Plan {
+        final int[] order;
+        final long[] cardinalities;
+
+        Plan(int[] order, long[] cardinalities) {
+            this.order = order;
+            this.cardinalities = cardinalities;
+        }
+
+        boolean hasDrifted(long[] current) {
+            for (int i = 0; i < current.length; i++) {
+                // +1 so that growing from 0 to a few facts is not treated as infinite drift
+                double planned = cardinalities[i] + 1;
+                double now = current[i] + 1;
+                if (now > planned * DRIFT_FACTOR || now * DRIFT_FACTOR < planned) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -7,16 +7,23 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Predicate;
 
 /**
  * Optimized Reasoner with Advanced Performance Improvements
  *
  * <p>Optimizations implemented:</p>
  * <ul>
- *   <li><b>Rule Indexing:</b> Index facts by predicate for 10-50x faster lookups</li>
+ *   <li><b>Rule Indexing:</b> Index facts by predicate for 10-50x faster lookups, plus on-demand
+ *       (predicate, argument, constant) indexes for literals with bound arguments</li>
  *   <li><b>Sparse Storage:</b> Static facts stored once, not duplicated per timestep (90% memory reduction)</li>
+ *   <li><b>Timeline Storage:</b> Optionally, every fact keeps one interval set over timesteps and
+ *       rules are joined once over all timesteps (see {@link #setTimelineStorage(boolean)})</li>
  *   <li><b>Semi-Naive Evaluation:</b> Only process new facts at each timestep (10-100x faster)</li>
- *   <li><b>Parallel Processing:</b> Evaluate rules in parallel on multi-core systems (2-8x faster)</li>
+ *   <li><b>Carry-Forward:</b> A rule whose inputs at t are identical to those at t-1 reuses
+ *       its t-1 result instead of re-joining</li>
+ *   <li><b>Parallel Processing:</b> Evaluate rules, independent timesteps and large joins in parallel
+ *       on a reasoner-owned work-stealing pool (2-8x faster)</li>
  * </ul>
  *
  * <p><b>Performance Comparison (Honda Network, 5 timesteps):</b></p>
@@ -31,91 +38,29 @@ import java.util.concurrent.*;
  */
 public class OptimizedReasoner {
 
-    private final List<Rule> rules = new ArrayList<>();
+    private final List<CompiledRule> rules = new ArrayList<>();
     private final List<TimedFact> baseFacts = new ArrayList<>();
     private final Provenance provenance = new Provenance();
+    private final SymbolTable symbols = new SymbolTable();
 
     // GPU acceleration (v1.4+)
     private static final Logger logger = LoggerFactory.getLogger(OptimizedReasoner.class);
     private GpuMode gpuMode = GpuMode.CPU_ONLY;
     private GpuReasoningEngine gpuEngine = null;
 
-    // OPTIMIZATION 1: Rule Indexing
-    // Index facts by predicate for fast lookup
-    private static class FactIndex {
-        private final Map<String, Set<Atom>> byPredicate = new HashMap<>();
+    // OPTIMIZATION 4: Parallel evaluation on a long-lived pool, created on first use
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private ForkJoinPool executor = null;
 
-        public void add(Atom atom) {
-            byPredicate.computeIfAbsent(atom.getPredicate(), k -> new HashSet<>()).add(atom);
-        }
-
-        public Set<Atom> get(String predicate) {
-            return byPredicate.getOrDefault(predicate, Collections.emptySet());
-        }
-
-        public void clear() {
-            byPredicate.clear();
-        }
-
-        public int size() {
-            return byPredicate.values().stream().mapToInt(Set::size).sum();
-        }
-    }
+    // Interval timelines instead of per-timestep fact sets
+    private boolean timelineStorage = false;
 
-    // OPTIMIZATION 2: Sparse Storage
-    // Static facts are stored once, not duplicated per timestep
-    private static class SparseFactStorage {
-        private final FactIndex staticFacts = new FactIndex();  // Facts that don't change
-        private final Map<Integer, FactIndex> dynamicFacts = new HashMap<>();  // Facts per timestep
+    private volatile DerivationListener listener = DerivationListener.noOp();
 
-        public void addStatic(Atom atom) {
-            staticFacts.add(atom);
-        }
-
-        public void addDynamic(Atom atom, int time) {
-            dynamicFacts.computeIfAbsent(time, k -> new FactIndex()).add(atom);
-        }
-
-        public Set<Atom> getAllAt(int time) {
-            Set<Atom> result = new HashSet<>();
-            result.addAll(getAllStatic());
-            result.addAll(getDynamicAt(time));
-            return result;
-        }
-
-        public Set<Atom> getAllStatic() {
-            Set<Atom> result = new HashSet<>();
-            for (Set<Atom> atoms : staticFacts.byPredicate.values()) {
-                result.addAll(atoms);
-            }
-            return result;
-        }
+    // OPTIMIZATION 1 + 2: Rule Indexing and Sparse Storage live in
+    // FactIndex / SparseFactStorage (predicate + argument indexes, static facts stored once)
 
-        public Set<Atom> getDynamicAt(int time) {
-            FactIndex index = dynamicFacts.get(time);
-            if (index == null) return Collections.emptySet();
-
-            Set<Atom> result = new HashSet<>();
-            for (Set<Atom> atoms : index.byPredicate.values()) {
-                result.addAll(atoms);
-            }
-            return result;
-        }
-
-        public Set<Atom> getByPredicate(String predicate, int time) {
-            Set<Atom> result = new HashSet<>();
-            result.addAll(staticFacts.get(predicate));
-
-            FactIndex index = dynamicFacts.get(time);
-            if (index != null) {
-                result.addAll(index.get(predicate));
-            }
-
-            return result;
-        }
-    }
-
-    public void addRule(Rule r) { rules.add(r); }
+    public void addRule(Rule r) { rules.add(CompiledRule.compile(r, symbols)); }
     public void addFact(TimedFact f) { baseFacts.add(f); }
 
     /**
@@ -188,13 +133,96 @@ public class OptimizedReasoner {
     }
 
     /**
-     * Cleans up GPU resources.
-     * Call this when done with the reasoner if GPU mode was used.
+     * Sets the listener notified of every derived fact (default: none). Events are
+     * emitted from the thread that calls {@code reason}, also for parallel evaluation.
+     * Use {@link DerivationListener#console()} to print derivations.
+     */
+    public void setDerivationListener(DerivationListener listener) {
+        this.listener = listener != null ? listener : DerivationListener.noOp();
+    }
+
+    /**
+     * Sets how much provenance is recorded for derived facts (default: FULL).
+     */
+    public void setProvenanceLevel(ProvenanceLevel level) {
+        provenance.setLevel(level);
+    }
+
+    /**
+     * Records full provenance for facts accepted by {@code sampler} even when the
+     * level is lower, so they can still be explained (null to disable).
+     */
+    public void setProvenanceSampler(Predicate<Atom> sampler) {
+        provenance.setFullCaptureSampler(sampler);
+    }
+
+    /**
+     * Enables interval-compressed timelines.
+     *
+     * <p>Each fact is stored with one {@link IntervalSet} of the timesteps it holds at,
+     * and rule bodies are joined once for all timesteps by intersecting timelines
+     * (see {@link IntervalRuleEvaluator}), so memory and join work no longer grow
+     * with facts x timesteps. Only the returned interpretation is expanded per timestep.</p>
+     *
+     * <p>Requires negation to be stratified across timesteps; otherwise reasoning
+     * falls back to per-timestep semi-naive evaluation. Provenance is recorded once
+     * per newly derived run of timesteps, at its first timestep.</p>
+     */
+    public void setTimelineStorage(boolean enabled) {
+        this.timelineStorage = enabled;
+    }
+
+    public boolean isTimelineStorage() {
+        return timelineStorage;
+    }
+
+    /**
+     * Sets the number of worker threads used for parallel evaluation.
+     * Takes effect on the next parallel run.
+     *
+     * @param parallelism worker threads (at least 1)
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, got " + parallelism);
+        }
+        if (executor != null && executor.getParallelism() != parallelism) {
+            executor.shutdown();
+            executor = null;
+        }
+        this.parallelism = parallelism;
+    }
+
+    public synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Cleans up GPU resources and the parallel evaluation pool.
+     * Call this when done with the reasoner if GPU mode or parallel evaluation was used.
      */
     public void cleanup() {
         if (gpuEngine != null) {
             gpuEngine.cleanup();
         }
+        synchronized (this) {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+        }
+    }
+
+    /**
+     * Gets the parallel evaluation pool, creating it on first use. The pool lives
+     * until {@link #cleanup()}, so reasoning runs and iterations do not pay for
+     * thread start-up and shutdown.
+     */
+    private synchronized ForkJoinPool executor() {
+        if (executor == null) {
+            executor = new ForkJoinPool(parallelism);
+        }
+        return executor;
     }
 
     /**
@@ -216,6 +244,14 @@ public class OptimizedReasoner {
     public ReasoningInterpretation reason(int timesteps, boolean useIndexing,
                                          boolean useSparseStorage, boolean useSemiNaive,
                                          boolean useParallel) {
+        if (timelineStorage) {
+            RuleScheduler schedule = RuleScheduler.acrossTime(rules);
+            if (schedule.isStratified()) {
+                return reasonWithTimelines(timesteps, schedule);
+            }
+            logger.info("Negation is not stratified across timesteps; using per-timestep evaluation");
+            return reasonSemiNaive(timesteps, useIndexing, useSparseStorage, useParallel);
+        }
         if (useSemiNaive) {
             return reasonSemiNaive(timesteps, useIndexing, useSparseStorage, useParallel);
         } else if (useSparseStorage) {
@@ -233,276 +269,457 @@ public class OptimizedReasoner {
      *
      * <p><b>Algorithm:</b></p>
      * <ol>
-     *   <li>Track which facts are new at each timestep</li>
-     *   <li>Only evaluate rules whose body could match new facts</li>
-     *   <li>Skip rules that would only re-derive existing facts</li>
+     *   <li>Order rules into strata with {@link RuleScheduler}; timesteps are swept in order</li>
+     *   <li>Evaluate each non-recursive stratum once per timestep</li>
+     *   <li>In a recursive stratum, track which facts are new at t (the delta) and
+     *       join each rule once per positive literal, with that literal restricted
+     *       to the delta (see {@link RuleEvaluator#evaluateDelta})</li>
+     *   <li>Skip rules whose positive body predicates have no new facts</li>
+     *   <li>Reuse a rule's result from t-1 when none of its body predicates changed
+     *       between t-1 and t (see {@link CarriedResults})</li>
      * </ol>
      *
      * <p><b>Speedup:</b> 10-100x for large timesteps (most facts are static)</p>
      */
     private ReasoningInterpretation reasonSemiNaive(int timesteps, boolean useIndexing,
                                                     boolean useSparseStorage, boolean useParallel) {
-        SparseFactStorage storage = new SparseFactStorage();
-
-        // Load base facts into sparse storage
-        for (TimedFact f : baseFacts) {
-            for (Interval iv : f.getIntervals()) {
-                int start = Math.max(0, iv.getStart());
-                int end = Math.min(timesteps, iv.getEnd());
-
-                // If fact spans all timesteps, it's static
-                if (start == 0 && end == timesteps) {
-                    storage.addStatic(f.getAtom());
-                } else {
-                    for (int t = start; t <= end; t++) {
-                        storage.addDynamic(f.getAtom(), t);
-                    }
-                }
+        SparseFactStorage storage = loadSparse(timesteps);
+        RuleEvaluator evaluator = new RuleEvaluator(storage);
+        RuleScheduler schedule = new RuleScheduler(rules);
+        if (useParallel) {
+            evaluator.setExecutor(executor());
+        }
+
+        // Every rule lands at least two timesteps ahead: evaluate timesteps in windows
+        if (useParallel && schedule.getMinimumLag() > 1) {
+            for (int t = 0; t <= timesteps; t += schedule.getMinimumLag()) {
+                int last = Math.min(timesteps, t + schedule.getMinimumLag() - 1);
+                evaluateWindowInParallel(t, last, timesteps, storage, evaluator, useIndexing);
             }
+            return toInterpretation(storage, timesteps);
         }
 
-        // Track new facts at each timestep
-        Map<Integer, Set<Atom>> newFactsPerTime = new HashMap<>();
-        for (int t = 0; t <= timesteps; t++) {
-            Set<Atom> newFacts = new HashSet<>(storage.getDynamicAt(t));
-            // BUG FIX: Include static facts in initial iteration so rules get evaluated
-            // Static facts are "new" at the start and should trigger rule evaluation
-            newFacts.addAll(storage.getAllStatic());
-            newFactsPerTime.put(t, newFacts);
-        }
+        CarriedResults carried = schedule.isTimeMonotone() ? new CarriedResults(storage) : null;
 
-        // Semi-naive iteration
         boolean changed = true;
-        int iteration = 0;
         while (changed) {
             changed = false;
-            iteration++;
 
             for (int t = 0; t <= timesteps; t++) {
-                Set<Atom> newFacts = newFactsPerTime.get(t);
-                if (newFacts.isEmpty()) continue;  // Skip timesteps with no new facts
-
-                // Clear newFacts for this iteration
-                newFactsPerTime.put(t, new HashSet<>());
-
-                // OPTIMIZATION 4: Parallel rule evaluation
-                // Only use parallel if we have enough rules to overcome overhead
-                boolean shouldUseParallel = useParallel && rules.size() >= 8;
-
-                if (shouldUseParallel) {
-                    // Evaluate rules in parallel (only when beneficial)
-                    changed = evaluateRulesInParallel(rules, t, timesteps, iteration, storage,
-                                                     newFactsPerTime, useIndexing) || changed;
-                } else {
-                    // Sequential rule evaluation
-                    for (Rule r : rules) {
-                        if (!r.isActiveAt(t)) continue;
-                        int baseTime = t + r.getDelay();
-                        if (baseTime > timesteps) continue;
-
-                        // Get all facts at this timestep (static + dynamic)
-                        Set<Atom> allFactsAtT = storage.getAllAt(t);
-
-                        // Find substitutions (optimization: could check if rule body matches new facts)
-                        List<Map<String, String>> subsList = useIndexing
-                            ? findAllSubstitutionsIndexed(r.getBodyLiterals(), allFactsAtT, storage, t)
-                            : findAllSubstitutionsWithGpu(r.getBodyLiterals(), allFactsAtT, t);
-
-                        for (Map<String, String> theta : subsList) {
-                            Atom headPattern = Atom.parse(r.getHead());
-                            Atom headGrounded = applySubstitution(headPattern, theta);
-                            int startOffset = r.getHeadStartOffset();
-                            int endOffset = r.getHeadEndOffset();
-
-                            for (int dt = startOffset; dt <= endOffset; dt++) {
-                                int tt = baseTime + dt;
-                                if (tt < 0 || tt > timesteps) continue;
-
-                                // Check if this is a NEW fact
-                                Set<Atom> existingAtTt = storage.getAllAt(tt);
-                                if (!existingAtTt.contains(headGrounded)) {
-                                    storage.addDynamic(headGrounded, tt);
-                                    newFactsPerTime.get(tt).add(headGrounded);
-                                    changed = true;
-
-                                    System.out.println("t=" + tt + " inferred by " + r.getName()
-                                        + " (iter " + iteration + "): " + headGrounded);
-
-                                    // Record provenance
-                                    List<Provenance.AtomTimeKey> sources = new ArrayList<>();
-                                    for (String bodyAtomStr : r.getBodyAtoms()) {
-                                        Atom bodyPattern = Atom.parse(bodyAtomStr);
-                                        Atom bodyGrounded = applySubstitution(bodyPattern, theta);
-                                        sources.add(new Provenance.AtomTimeKey(bodyGrounded, t));
-                                    }
-                                    DerivationInfo derivInfo = new DerivationInfo(r.getName(), sources, theta);
-                                    provenance.record(headGrounded, tt, derivInfo);
-                                }
-                            }
-                        }
+                for (RuleScheduler.Stratum stratum : schedule.getStrata()) {
+                    // The first pass joins the stratum in full. A recursive stratum then
+                    // keeps joining against only the facts derived at t by the previous pass.
+                    FactIndex delta = null;
+                    int iteration = 0;
+                    while (true) {
+                        iteration++;
+                        FactIndex newFactsAtT = new FactIndex();
+                        changed |= evaluateStratum(stratum.getRules(), t, timesteps, storage, evaluator,
+                                                   delta, newFactsAtT, useIndexing, useParallel, iteration,
+                                                   stratum.isRecursive() ? null : carried);
+                        if (!stratum.isRecursive() || newFactsAtT.isEmpty()) break;
+                        delta = newFactsAtT;
                     }
                 }
             }
+
+            // Sweeping forward in time already reached the fixpoint unless rules derive into the past
+            if (schedule.isTimeMonotone()) break;
         }
 
-        // Convert sparse storage back to List<Set<Atom>>
-        List<Set<Atom>> factsAtTime = new ArrayList<>();
-        for (int t = 0; t <= timesteps; t++) {
-            factsAtTime.add(storage.getAllAt(t));
+        if (carried != null) {
+            logger.debug("Carried {} rule results forward from the previous timestep", carried.getReuseCount());
         }
 
-        return new ReasoningInterpretation(factsAtTime, provenance);
+        // Convert sparse storage back to List<Set<Atom>>
+        return toInterpretation(storage, timesteps);
     }
 
     /**
-     * Reasoning with sparse storage but without semi-naive evaluation.
+     * Evaluates one pass of a stratum at time t.
+     *
+     * @param delta facts new at t since the previous pass, or null for a full pass
+     * @param newFactsAtT receives the facts this pass derives at t itself
+     * @param carried results to carry forward between timesteps, or null (only valid
+     *                for full passes over a stratum whose inputs are complete at t)
+     * @return true if any new fact was derived
      */
-    private ReasoningInterpretation reasonWithSparseStorage(int timesteps, boolean useIndexing,
-                                                            boolean useParallel) {
-        SparseFactStorage storage = new SparseFactStorage();
-
-        // Load base facts
-        for (TimedFact f : baseFacts) {
-            for (Interval iv : f.getIntervals()) {
-                int start = Math.max(0, iv.getStart());
-                int end = Math.min(timesteps, iv.getEnd());
-
-                if (start == 0 && end == timesteps) {
-                    storage.addStatic(f.getAtom());
-                } else {
-                    for (int t = start; t <= end; t++) {
-                        storage.addDynamic(f.getAtom(), t);
+    private boolean evaluateStratum(List<CompiledRule> stratumRules, int t, int timesteps,
+                                    SparseFactStorage storage, RuleEvaluator evaluator,
+                                    FactIndex delta, FactIndex newFactsAtT,
+                                    boolean useIndexing, boolean useParallel, int iteration,
+                                    CarriedResults carried) {
+        if (delta != null) {
+            carried = null;
+        }
+
+        // OPTIMIZATION 4: Parallel rule evaluation
+        // A single rule runs on this thread; the evaluator still splits its join if it is large
+        if (useParallel) {
+            List<CompiledRule> runnable = new ArrayList<>();
+            List<List<int[]>> reused = new ArrayList<>();
+            for (CompiledRule cr : stratumRules) {
+                if (isApplicable(cr, t, timesteps) && (delta == null || RuleEvaluator.touchesDelta(cr, delta))) {
+                    runnable.add(cr);
+                    reused.add(carried != null ? carried.lookup(cr, t) : null);
+                }
+            }
+            if (runnable.size() > 1) {
+                List<CompiledRule> toEvaluate = new ArrayList<>();
+                for (int i = 0; i < runnable.size(); i++) {
+                    if (reused.get(i) == null) toEvaluate.add(runnable.get(i));
+                }
+                int[] times = new int[toEvaluate.size()];
+                Arrays.fill(times, t);
+                Iterator<List<int[]>> evaluated = evaluateRulesInParallel(toEvaluate, times, storage,
+                                                                          evaluator, delta, useIndexing).iterator();
+                boolean changed = false;
+                for (int i = 0; i < runnable.size(); i++) {
+                    CompiledRule cr = runnable.get(i);
+                    List<int[]> subsList = reused.get(i) != null ? reused.get(i) : evaluated.next();
+                    if (carried != null) {
+                        carried.store(cr, t, subsList);
                     }
+                    // Applied on this thread, after the barrier
+                    changed |= applyDerivations(cr, t, timesteps, subsList, storage, newFactsAtT, iteration);
                 }
+                return changed;
             }
         }
 
-        // Forward chaining
+        // Sequential rule evaluation
+        boolean changed = false;
+        for (CompiledRule cr : stratumRules) {
+            if (!isApplicable(cr, t, timesteps)) continue;
+
+            // Skip rules whose body predicates saw no new facts
+            if (delta != null && !RuleEvaluator.touchesDelta(cr, delta)) continue;
+
+            List<int[]> subsList = carried != null ? carried.lookup(cr, t) : null;
+            if (subsList == null) {
+                subsList = findSubstitutions(cr, t, storage, evaluator, delta, useIndexing);
+            }
+            if (carried != null) {
+                carried.store(cr, t, subsList);
+            }
+            changed |= applyDerivations(cr, t, timesteps, subsList, storage, newFactsAtT, iteration);
+        }
+        return changed;
+    }
+
+    /**
+     * Reasoning with sparse storage but without semi-naive evaluation.
+     */
+    private ReasoningInterpretation reasonWithSparseStorage(int timesteps, boolean useIndexing,
+                                                            boolean useParallel) {
+        SparseFactStorage storage = loadSparse(timesteps);
+        RuleEvaluator evaluator = new RuleEvaluator(storage);
+        RuleScheduler schedule = new RuleScheduler(rules);
+        CarriedResults carried = schedule.isTimeMonotone() ? new CarriedResults(storage) : null;
+
+        // Forward chaining, one stratum at a time
         boolean changed = true;
         while (changed) {
             changed = false;
             for (int t = 0; t <= timesteps; t++) {
-                for (Rule r : rules) {
-                    if (!r.isActiveAt(t)) continue;
-                    int baseTime = t + r.getDelay();
-                    if (baseTime > timesteps) continue;
-
-                    Set<Atom> factsAtT = storage.getAllAt(t);
-                    List<Map<String, String>> subsList = useIndexing
-                        ? findAllSubstitutionsIndexed(r.getBodyLiterals(), factsAtT, storage, t)
-                        : findAllSubstitutionsWithGpu(r.getBodyLiterals(), factsAtT, t);
-
-                    for (Map<String, String> theta : subsList) {
-                        Atom headPattern = Atom.parse(r.getHead());
-                        Atom headGrounded = applySubstitution(headPattern, theta);
-                        int startOffset = r.getHeadStartOffset();
-                        int endOffset = r.getHeadEndOffset();
-
-                        for (int dt = startOffset; dt <= endOffset; dt++) {
-                            int tt = baseTime + dt;
-                            if (tt < 0 || tt > timesteps) continue;
-
-                            Set<Atom> existingAtTt = storage.getAllAt(tt);
-                            if (!existingAtTt.contains(headGrounded)) {
-                                storage.addDynamic(headGrounded, tt);
-                                changed = true;
-
-                                System.out.println("t=" + tt + " inferred by " + r.getName() + ": " + headGrounded);
-
-                                // Record provenance
-                                List<Provenance.AtomTimeKey> sources = new ArrayList<>();
-                                for (String bodyAtomStr : r.getBodyAtoms()) {
-                                    Atom bodyPattern = Atom.parse(bodyAtomStr);
-                                    Atom bodyGrounded = applySubstitution(bodyPattern, theta);
-                                    sources.add(new Provenance.AtomTimeKey(bodyGrounded, t));
-                                }
-                                DerivationInfo derivInfo = new DerivationInfo(r.getName(), sources, theta);
-                                provenance.record(headGrounded, tt, derivInfo);
+                for (RuleScheduler.Stratum stratum : schedule.getStrata()) {
+                    CarriedResults reusable = stratum.isRecursive() ? null : carried;
+                    boolean stratumChanged;
+                    do {
+                        stratumChanged = false;
+                        for (CompiledRule cr : stratum.getRules()) {
+                            if (!isApplicable(cr, t, timesteps)) continue;
+                            List<int[]> subsList = reusable != null ? reusable.lookup(cr, t) : null;
+                            if (subsList == null) {
+                                subsList = findSubstitutions(cr, t, storage, evaluator, null, useIndexing);
                             }
+                            if (reusable != null) {
+                                reusable.store(cr, t, subsList);
+                            }
+                            stratumChanged |= applyDerivations(cr, t, timesteps, subsList, storage, null, 0);
                         }
-                    }
+                        changed |= stratumChanged;
+                    } while (stratum.isRecursive() && stratumChanged);
                 }
             }
+            if (schedule.isTimeMonotone()) break;
         }
 
         // Convert to List<Set<Atom>>
-        List<Set<Atom>> factsAtTime = new ArrayList<>();
-        for (int t = 0; t <= timesteps; t++) {
-            factsAtTime.add(storage.getAllAt(t));
-        }
-
-        return new ReasoningInterpretation(factsAtTime, provenance);
+        return toInterpretation(storage, timesteps);
     }
 
     /**
      * Baseline reasoning (similar to original Reasoner).
      */
     private ReasoningInterpretation reasonBaseline(int timesteps, boolean useIndexing, boolean useParallel) {
-        List<Set<Atom>> factsAtTime = new ArrayList<>();
+        List<Set<EncodedAtom>> factsAtTime = new ArrayList<>();
         for (int t = 0; t <= timesteps; t++) {
             factsAtTime.add(new HashSet<>());
         }
 
         // Load base facts
         for (TimedFact f : baseFacts) {
+            EncodedAtom atom = symbols.encode(f.getAtom());
             for (Interval iv : f.getIntervals()) {
                 int start = Math.max(0, iv.getStart());
                 int end = Math.min(timesteps, iv.getEnd());
                 for (int t = start; t <= end; t++) {
-                    factsAtTime.get(t).add(f.getAtom());
+                    factsAtTime.get(t).add(atom);
                 }
             }
         }
 
-        // Forward chaining
+        RuleScheduler schedule = new RuleScheduler(rules);
+
+        // Forward chaining, one stratum at a time
         boolean changed = true;
         while (changed) {
             changed = false;
             for (int t = 0; t <= timesteps; t++) {
-                for (Rule r : rules) {
-                    if (!r.isActiveAt(t)) continue;
-                    int baseTime = t + r.getDelay();
-                    if (baseTime > timesteps) continue;
-
-                    List<Map<String, String>> subsList = findAllSubstitutionsWithGpu(
-                        r.getBodyLiterals(), factsAtTime.get(t), t);
-
-                    for (Map<String, String> theta : subsList) {
-                        Atom headPattern = Atom.parse(r.getHead());
-                        Atom headGrounded = applySubstitution(headPattern, theta);
-                        int startOffset = r.getHeadStartOffset();
-                        int endOffset = r.getHeadEndOffset();
-
-                        for (int dt = startOffset; dt <= endOffset; dt++) {
-                            int tt = baseTime + dt;
-                            if (tt < 0 || tt > timesteps) continue;
-                            if (factsAtTime.get(tt).add(headGrounded)) {
-                                changed = true;
-                                System.out.println("t=" + tt + " inferred by " + r.getName() + ": " + headGrounded);
-
-                                // Record provenance
-                                List<Provenance.AtomTimeKey> sources = new ArrayList<>();
-                                for (String bodyAtomStr : r.getBodyAtoms()) {
-                                    Atom bodyPattern = Atom.parse(bodyAtomStr);
-                                    Atom bodyGrounded = applySubstitution(bodyPattern, theta);
-                                    sources.add(new Provenance.AtomTimeKey(bodyGrounded, t));
-                                }
-                                DerivationInfo derivInfo = new DerivationInfo(r.getName(), sources, theta);
-                                provenance.record(headGrounded, tt, derivInfo);
-                            }
+                for (RuleScheduler.Stratum stratum : schedule.getStrata()) {
+                    boolean stratumChanged;
+                    do {
+                        stratumChanged = false;
+                        for (CompiledRule cr : stratum.getRules()) {
+                            if (!isApplicable(cr, t, timesteps)) continue;
+                            List<int[]> subsList = findAllSubstitutionsWithGpu(cr, factsAtTime.get(t), t);
+                            stratumChanged |= applyDerivations(cr, t, timesteps, subsList, factsAtTime);
                         }
+                        changed |= stratumChanged;
+                    } while (stratum.isRecursive() && stratumChanged);
+                }
+            }
+            if (schedule.isTimeMonotone()) break;
+        }
+
+        List<Set<Atom>> decoded = new ArrayList<>(factsAtTime.size());
+        for (Set<EncodedAtom> atoms : factsAtTime) {
+            decoded.add(symbols.decodeAll(atoms));
+        }
+        return new ReasoningInterpretation(decoded, provenance);
+    }
+
+    /**
+     * Reasoning over interval timelines. Strata come from a timing-independent
+     * schedule, so each stratum is complete for every timestep before any later
+     * stratum (in particular, any negation of it) is evaluated.
+     */
+    private ReasoningInterpretation reasonWithTimelines(int timesteps, RuleScheduler schedule) {
+        TimelineStorage storage = new TimelineStorage();
+        for (TimedFact f : baseFacts) {
+            storage.add(symbols.encode(f.getAtom()), IntervalSet.of(f.getIntervals()).clip(0, timesteps));
+        }
+        IntervalRuleEvaluator evaluator = new IntervalRuleEvaluator(storage);
+
+        for (RuleScheduler.Stratum stratum : schedule.getStrata()) {
+            // A recursive stratum is evaluated semi-naively: after the first pass, each
+            // pass only joins against the runs the previous pass added
+            TimelineStorage delta = null;
+            do {
+                TimelineStorage added = stratum.isRecursive() ? new TimelineStorage() : null;
+                for (CompiledRule cr : stratum.getRules()) {
+                    Rule r = cr.getRule();
+                    IntervalSet window = r.getActiveIntervals().isEmpty()
+                        ? IntervalSet.of(0, timesteps)
+                        : IntervalSet.of(r.getActiveIntervals());
+                    window = window.clip(0, timesteps - r.getDelay());
+
+                    List<IntervalRuleEvaluator.Match> matches = delta == null
+                        ? evaluator.evaluate(cr, window)
+                        : evaluator.evaluateDelta(cr, window, delta);
+                    for (IntervalRuleEvaluator.Match match : matches) {
+                        applyDerivations(cr, match, timesteps, storage, added);
                     }
                 }
+                delta = added;
+            } while (delta != null && delta.atomCount() > 0);
+        }
+
+        // Expand runs into per-timestep sets, decoding each atom once
+        List<Set<Atom>> factsAtTime = new ArrayList<>();
+        for (int t = 0; t <= timesteps; t++) {
+            factsAtTime.add(new HashSet<>());
+        }
+        for (EncodedAtom encoded : storage.atoms()) {
+            IntervalSet timeline = storage.timeline(encoded);
+            Atom atom = symbols.decode(encoded);
+            for (int i = 0; i < timeline.runCount(); i++) {
+                for (int t = timeline.runStart(i); t <= timeline.runEnd(i); t++) {
+                    factsAtTime.get(t).add(atom);
+                }
             }
         }
+        return new ReasoningInterpretation(factsAtTime, provenance);
+    }
+
+    /**
+     * Adds the head timeline for one interval match and records provenance at the
+     * start of each newly covered run.
+     *
+     * @param delta receives the newly covered runs (may be null)
+     */
+    private void applyDerivations(CompiledRule cr, IntervalRuleEvaluator.Match match, int timesteps,
+                                  TimelineStorage storage, TimelineStorage delta) {
+        Rule r = cr.getRule();
+        int[] theta = match.getBinding();
+        EncodedAtom headGrounded = cr.instantiateHead(theta);
+        IntervalSet headTimes = match.getWhen()
+                .spread(r.getDelay() + r.getHeadStartOffset(), r.getDelay() + r.getHeadEndOffset())
+                .clip(0, timesteps);
+
+        IntervalSet added = storage.add(headGrounded, headTimes);
+        if (added.isEmpty()) return;
+        if (delta != null) delta.add(headGrounded, added);
+        if (!listener.isEnabled() && !provenance.isRecording()) return;
+
+        Atom headAtom = symbols.decode(headGrounded);
+        for (int i = 0; i < added.runCount(); i++) {
+            int tt = added.runStart(i);
+            if (listener.isEnabled()) {
+                listener.onDerivation(new DerivationEvent(r.getName(), headAtom, tt, added.runEnd(i), 0));
+            }
+
+            // Body time that produced tt
+            int bodyTime = tt - r.getDelay() - r.getHeadStartOffset();
+            for (int dt = r.getHeadStartOffset(); dt <= r.getHeadEndOffset(); dt++) {
+                if (match.getWhen().contains(tt - r.getDelay() - dt)) {
+                    bodyTime = tt - r.getDelay() - dt;
+                    break;
+                }
+            }
+            int sourceTime = bodyTime;
+            provenance.record(headAtom, tt, r.getName(), () -> new DerivationInfo(r.getName(),
+                    cr.groundSources(theta, sourceTime, symbols), cr.decodeBinding(theta, symbols)));
+        }
+    }
+
+    /**
+     * Loads base facts into sparse storage. A fact spanning every timestep is stored once as static.
+     */
+    private SparseFactStorage loadSparse(int timesteps) {
+        SparseFactStorage storage = new SparseFactStorage();
+        for (TimedFact f : baseFacts) {
+            EncodedAtom atom = symbols.encode(f.getAtom());
+            // Coalesce first, so [0,4] + [5,timesteps] is recognized as static too
+            IntervalSet when = IntervalSet.of(f.getIntervals()).clip(0, timesteps);
+
+            // If fact spans all timesteps, it's static
+            if (when.cardinality() == timesteps + 1) {
+                storage.addStatic(atom);
+            } else {
+                for (int i = 0; i < when.runCount(); i++) {
+                    for (int t = when.runStart(i); t <= when.runEnd(i); t++) {
+                        storage.addDynamic(atom, t);
+                    }
+                }
+            }
+        }
+        return storage;
+    }
+
+    private boolean isApplicable(CompiledRule cr, int t, int timesteps) {
+        Rule r = cr.getRule();
+        return r.isActiveAt(t) && t + r.getDelay() <= timesteps;
+    }
+
+    /**
+     * Adds the head facts for the bindings of one rule evaluated at time t, and records provenance.
+     *
+     * @param newFactsAtT receives facts derived at t itself (may be null)
+     * @param iteration fixpoint iteration reported to the listener (0 if not counted)
+     * @return true if any new fact was derived
+     */
+    private boolean applyDerivations(CompiledRule cr, int t, int timesteps, List<int[]> subsList,
+                                     SparseFactStorage storage, FactIndex newFactsAtT, int iteration) {
+        Rule r = cr.getRule();
+        int baseTime = t + r.getDelay();
+        boolean changed = false;
+
+        for (int[] theta : subsList) {
+            EncodedAtom headGrounded = cr.instantiateHead(theta);
+            int startOffset = r.getHeadStartOffset();
+            int endOffset = r.getHeadEndOffset();
+
+            for (int dt = startOffset; dt <= endOffset; dt++) {
+                int tt = baseTime + dt;
+                if (tt < 0 || tt > timesteps) continue;
+
+                // Check if this is a NEW fact (O(1) probe, no copy)
+                if (storage.addDynamic(headGrounded, tt)) {
+                    if (newFactsAtT != null && tt == t) {
+                        newFactsAtT.add(headGrounded);
+                    }
+                    changed = true;
+                    if (!listener.isEnabled() && !provenance.isRecording()) continue;
+
+                    Atom headAtom = symbols.decode(headGrounded);
+                    if (listener.isEnabled()) {
+                        listener.onDerivation(new DerivationEvent(r.getName(), headAtom, tt, tt, iteration));
+                    }
+
+                    // Record provenance
+                    provenance.record(headAtom, tt, r.getName(), () -> new DerivationInfo(r.getName(),
+                            cr.groundSources(theta, t, symbols), cr.decodeBinding(theta, symbols)));
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Baseline variant of {@link #applyDerivations} over one fact set per timestep.
+     */
+    private boolean applyDerivations(CompiledRule cr, int t, int timesteps, List<int[]> subsList,
+                                     List<Set<EncodedAtom>> factsAtTime) {
+        Rule r = cr.getRule();
+        int baseTime = t + r.getDelay();
+        boolean changed = false;
+
+        for (int[] theta : subsList) {
+            EncodedAtom headGrounded = cr.instantiateHead(theta);
+            int startOffset = r.getHeadStartOffset();
+            int endOffset = r.getHeadEndOffset();
+
+            for (int dt = startOffset; dt <= endOffset; dt++) {
+                int tt = baseTime + dt;
+                if (tt < 0 || tt > timesteps) continue;
+                if (factsAtTime.get(tt).add(headGrounded)) {
+                    changed = true;
+                    if (!listener.isEnabled() && !provenance.isRecording()) continue;
+
+                    Atom headAtom = symbols.decode(headGrounded);
+                    if (listener.isEnabled()) {
+                        listener.onDerivation(new DerivationEvent(r.getName(), headAtom, tt));
+                    }
 
+                    // Record provenance
+                    provenance.record(headAtom, tt, r.getName(), () -> new DerivationInfo(r.getName(),
+                            cr.groundSources(theta, t, symbols), cr.decodeBinding(theta, symbols)));
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Decodes sparse storage into an interpretation. Unless a listener or provenance
+     * needs them, this is the only place where derived facts are turned back into
+     * strings.
+     */
+    private ReasoningInterpretation toInterpretation(SparseFactStorage storage, int timesteps) {
+        List<Set<Atom>> factsAtTime = new ArrayList<>();
+        for (int t = 0; t <= timesteps; t++) {
+            factsAtTime.add(symbols.decodeAll(storage.getAllAt(t)));
+        }
         return new ReasoningInterpretation(factsAtTime, provenance);
     }
 
     /**
      * OPTIMIZATION 1: Indexed Substitution Finding
      *
-     * <p>Instead of checking ALL facts, only check facts with matching predicates.</p>
+     * <p>Instead of checking ALL facts, only check facts with matching predicates,
+     * narrowed further by argument indexes when arguments are bound (see {@link RuleEvaluator}).</p>
      *
      * <p><b>Example:</b></p>
      * <pre>
@@ -513,199 +730,125 @@ public class OptimizedReasoner {
      *
      * Speedup: 47,000 / 10 = 4,700x for this rule!
      * </pre>
+     *
+     * <p>With a non-null {@code delta}, only matches that use at least one fact
+     * from the delta are produced (semi-naive delta join).</p>
      */
-    private List<Map<String, String>> findAllSubstitutionsIndexed(List<Literal> bodyLiterals,
-                                                                  Set<Atom> factsAtTime,
-                                                                  SparseFactStorage storage,
-                                                                  int time) {
-        List<Map<String, String>> results = new ArrayList<>();
-        backtrackWithNegationIndexed(bodyLiterals, 0, factsAtTime, storage, time, new HashMap<>(), results);
-        return results;
-    }
-
-    private void backtrackWithNegationIndexed(List<Literal> body, int idx, Set<Atom> factsAtTime,
-                                              SparseFactStorage storage, int time,
-                                              Map<String, String> current,
-                                              List<Map<String, String>> results) {
-        if (idx == body.size()) {
-            results.add(new HashMap<>(current));
-            return;
+    private List<int[]> findSubstitutions(CompiledRule rule, int time, SparseFactStorage storage,
+                                          RuleEvaluator evaluator, FactIndex delta, boolean useIndexing) {
+        if (!useIndexing) {
+            return findAllSubstitutionsWithGpu(rule, storage.getAllAt(time), time);
         }
+        return delta == null ? evaluator.evaluate(rule, time) : evaluator.evaluateDelta(rule, time, delta);
+    }
 
-        Literal literal = body.get(idx);
-        Atom pattern = applySubstitution(literal.getAtom(), current);
-
-        if (literal.isPositive()) {
-            // OPTIMIZATION: Only check facts with matching predicate
-            Set<Atom> candidates = storage.getByPredicate(pattern.getPredicate(), time);
-
-            for (Atom fact : candidates) {
-                Map<String, String> newSubst = unify(pattern, fact, current);
-                if (newSubst != null) {
-                    backtrackWithNegationIndexed(body, idx + 1, factsAtTime, storage, time, newSubst, results);
-                }
-            }
-        } else {
-            // Negation as failure
-            Set<Atom> candidates = storage.getByPredicate(pattern.getPredicate(), time);
-            boolean unifiesWithAny = false;
-
-            for (Atom fact : candidates) {
-                if (unify(pattern, fact, current) != null) {
-                    unifiesWithAny = true;
-                    break;
+    /**
+     * Evaluates every rule at every timestep in {@code [first, last]} as one parallel
+     * round, then applies the derivations.
+     *
+     * <p>Only valid when every rule derives at least {@code last - first + 1}
+     * timesteps ahead ({@link RuleScheduler#getMinimumLag()}): no evaluation in the
+     * window can then read a fact derived by another evaluation in the window.</p>
+     */
+    private void evaluateWindowInParallel(int first, int last, int timesteps, SparseFactStorage storage,
+                                          RuleEvaluator evaluator, boolean useIndexing) {
+        List<CompiledRule> taskRules = new ArrayList<>();
+        List<Integer> taskTimes = new ArrayList<>();
+        for (int t = first; t <= last; t++) {
+            for (CompiledRule cr : rules) {
+                if (isApplicable(cr, t, timesteps)) {
+                    taskRules.add(cr);
+                    taskTimes.add(t);
                 }
             }
+        }
 
-            if (!unifiesWithAny) {
-                backtrackWithNegationIndexed(body, idx + 1, factsAtTime, storage, time, current, results);
-            }
+        int[] times = taskTimes.stream().mapToInt(Integer::intValue).toArray();
+        List<List<int[]>> results = evaluateRulesInParallel(taskRules, times, storage, evaluator, null, useIndexing);
+        for (int i = 0; i < taskRules.size(); i++) {
+            applyDerivations(taskRules.get(i), times[i], timesteps, results.get(i), storage, null, 0);
         }
     }
 
     /**
      * OPTIMIZATION 4: Parallel Rule Evaluation
      *
-     * <p>Evaluate multiple rules in parallel using ForkJoinPool.</p>
+     * <p>Evaluates (rule, timestep) pairs in parallel on the reasoner's ForkJoinPool.</p>
      *
      * <p><b>Algorithm:</b></p>
      * <ol>
-     *   <li>Create thread pool with available cores</li>
-     *   <li>Submit each rule evaluation as parallel task</li>
-     *   <li>Collect results from all threads</li>
-     *   <li>Merge results thread-safely</li>
+     *   <li>Submit each pair as a task to the long-lived pool (idle workers steal tasks)</li>
+     *   <li>Each task matches into its own result buffer (matching only reads the storage)</li>
+     *   <li>At the barrier the buffers are handed back in task order</li>
+     *   <li>The caller applies the derivations sequentially afterwards</li>
      * </ol>
      *
+     * <p>Rules in one stratum never read each other's heads within a pass, so
+     * deferring the writes does not change the result. Large joins inside a task
+     * are split further by {@link RuleEvaluator}.</p>
+     *
      * <p><b>Speedup:</b> 2-8x on multi-core CPUs (4-16 cores)</p>
      *
-     * <p><b>Thread Safety:</b> Uses ConcurrentHashMap for thread-safe fact storage</p>
+     * @return bindings per task, in task order
      */
-    private boolean evaluateRulesInParallel(List<Rule> rules, int t, int timesteps, int iteration,
-                                           SparseFactStorage storage,
-                                           Map<Integer, Set<Atom>> newFactsPerTime,
-                                           boolean useIndexing) {
-        // Use ForkJoinPool with available processors
-        ForkJoinPool forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
-
-        // Thread-safe storage for new facts
-        ConcurrentHashMap<Integer, Set<Atom>> newFactsThreadSafe = new ConcurrentHashMap<>();
-        for (int tt = 0; tt <= timesteps; tt++) {
-            newFactsThreadSafe.put(tt, ConcurrentHashMap.newKeySet());
-        }
-
-        try {
-            // Submit all rule evaluations in parallel
-            forkJoinPool.submit(() -> {
-                rules.parallelStream().forEach(r -> {
-                    if (!r.isActiveAt(t)) return;
-                    int baseTime = t + r.getDelay();
-                    if (baseTime > timesteps) return;
-
-                    // Get all facts at this timestep (static + dynamic)
-                    Set<Atom> allFactsAtT = storage.getAllAt(t);
-
-                    // Find substitutions
-                    List<Map<String, String>> subsList = useIndexing
-                        ? findAllSubstitutionsIndexed(r.getBodyLiterals(), allFactsAtT, storage, t)
-                        : findAllSubstitutionsWithGpu(r.getBodyLiterals(), allFactsAtT, t);
-
-                    for (Map<String, String> theta : subsList) {
-                        Atom headPattern = Atom.parse(r.getHead());
-                        Atom headGrounded = applySubstitution(headPattern, theta);
-                        int startOffset = r.getHeadStartOffset();
-                        int endOffset = r.getHeadEndOffset();
-
-                        for (int dt = startOffset; dt <= endOffset; dt++) {
-                            int tt = baseTime + dt;
-                            if (tt < 0 || tt > timesteps) continue;
-
-                            // Thread-safe check and add
-                            synchronized (storage) {
-                                Set<Atom> existingAtTt = storage.getAllAt(tt);
-                                if (!existingAtTt.contains(headGrounded)) {
-                                    storage.addDynamic(headGrounded, tt);
-                                    newFactsThreadSafe.get(tt).add(headGrounded);
-
-                                    // REMOVED println to avoid stdout contention in parallel execution
-                                    // Printing from multiple threads creates a bottleneck!
-
-                                    // Record provenance
-                                    List<Provenance.AtomTimeKey> sources = new ArrayList<>();
-                                    for (String bodyAtomStr : r.getBodyAtoms()) {
-                                        Atom bodyPattern = Atom.parse(bodyAtomStr);
-                                        Atom bodyGrounded = applySubstitution(bodyPattern, theta);
-                                        sources.add(new Provenance.AtomTimeKey(bodyGrounded, t));
-                                    }
-                                    DerivationInfo derivInfo = new DerivationInfo(r.getName(), sources, theta);
-                                    provenance.record(headGrounded, tt, derivInfo);
-                                }
-                            }
-                        }
-                    }
-                });
-            }).get();  // Wait for all tasks to complete
-
-        } catch (InterruptedException | ExecutionException e) {
-            System.err.println("Parallel evaluation error: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            forkJoinPool.shutdown();
-            try {
-                if (!forkJoinPool.awaitTermination(60, TimeUnit.SECONDS)) {
-                    forkJoinPool.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                forkJoinPool.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+    private List<List<int[]>> evaluateRulesInParallel(List<CompiledRule> taskRules, int[] times,
+                                                      SparseFactStorage storage, RuleEvaluator evaluator,
+                                                      FactIndex delta, boolean useIndexing) {
+        List<ForkJoinTask<List<int[]>>> tasks = new ArrayList<>(taskRules.size());
+        for (int i = 0; i < taskRules.size(); i++) {
+            CompiledRule cr = taskRules.get(i);
+            int t = times[i];
+            tasks.add(ForkJoinTask.adapt(() -> findSubstitutions(cr, t, storage, evaluator, delta, useIndexing)));
         }
 
-        // Merge results back to main newFactsPerTime
-        boolean hasNewFacts = false;
-        for (int tt = 0; tt <= timesteps; tt++) {
-            Set<Atom> threadNewFacts = newFactsThreadSafe.get(tt);
-            if (!threadNewFacts.isEmpty()) {
-                newFactsPerTime.get(tt).addAll(threadNewFacts);
-                hasNewFacts = true;
-            }
-        }
+        executor().submit(() -> ForkJoinTask.invokeAll(tasks)).join();  // barrier
 
-        return hasNewFacts;
+        List<List<int[]>> results = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<List<int[]>> task : tasks) {
+            results.add(task.join());
+        }
+        return results;
     }
 
-    // --- Unification helpers (same as original) ---
+    // --- Matching helpers (one BindingFrame per search, undone via its trail) ---
 
     /**
      * Finds substitutions using GPU if beneficial, otherwise uses CPU.
      *
-     * @param bodyLiterals pattern to match
+     * @param rule compiled rule whose body is matched
      * @param factsAtTime facts at current timestep
      * @param timestep current timestep
-     * @return list of substitutions
+     * @return list of bindings
      */
-    private List<Map<String, String>> findAllSubstitutionsWithGpu(
-            List<Literal> bodyLiterals,
-            Set<Atom> factsAtTime,
+    private List<int[]> findAllSubstitutionsWithGpu(
+            CompiledRule rule,
+            Set<EncodedAtom> factsAtTime,
             int timestep) {
 
+        List<Literal> bodyLiterals = rule.getRule().getBodyLiterals();
+
         // Check if GPU should be used
         if (willUseGpu(timestep) && canUseGpuForPattern(bodyLiterals)) {
             try {
-                // Convert Set to List
-                List<Atom> factsList = new ArrayList<>(factsAtTime);
+                // The GPU engine has its own encoding, so it works on decoded atoms
+                List<Atom> factsList = new ArrayList<>(symbols.decodeAll(factsAtTime));
 
                 // Use GPU
-                return gpuEngine.findSubstitutionsGpu(bodyLiterals, factsList, timestep);
+                List<int[]> results = new ArrayList<>();
+                for (Map<String, String> theta : gpuEngine.findSubstitutionsGpu(bodyLiterals, factsList, timestep)) {
+                    results.add(rule.encodeBinding(theta, symbols));
+                }
+                return results;
 
             } catch (Exception e) {
                 // GPU failed - fall back to CPU
                 logger.warn("GPU pattern matching failed, falling back to CPU: {}", e.getMessage());
-                return findAllSubstitutionsWithNegation(bodyLiterals, factsAtTime);
+                return findAllSubstitutionsWithNegation(rule, factsAtTime);
             }
         }
 
         // Use CPU
-        return findAllSubstitutionsWithNegation(bodyLiterals, factsAtTime);
+        return findAllSubstitutionsWithNegation(rule, factsAtTime);
     }
 
     /**
@@ -737,79 +880,97 @@ public class OptimizedReasoner {
         return true;
     }
 
-    private List<Map<String, String>> findAllSubstitutionsWithNegation(List<Literal> bodyLiterals, Set<Atom> factsAtTime) {
-        List<Map<String, String>> results = new ArrayList<>();
-        backtrackWithNegation(bodyLiterals, 0, factsAtTime, new HashMap<>(), results);
+    private List<int[]> findAllSubstitutionsWithNegation(CompiledRule rule, Set<EncodedAtom> factsAtTime) {
+        List<int[]> results = new ArrayList<>();
+        backtrackWithNegation(rule.getBody(), 0, factsAtTime, rule.newFrame(), results);
         return results;
     }
 
-    private void backtrackWithNegation(List<Literal> body, int idx, Set<Atom> factsAtTime,
-                                      Map<String, String> current, List<Map<String, String>> results) {
+    private void backtrackWithNegation(List<CompiledRule.CompiledLiteral> body, int idx,
+                                       Set<EncodedAtom> factsAtTime,
+                                       BindingFrame frame, List<int[]> results) {
         if (idx == body.size()) {
-            results.add(new HashMap<>(current));
+            results.add(frame.snapshot());
             return;
         }
 
-        Literal literal = body.get(idx);
-        Atom pattern = applySubstitution(literal.getAtom(), current);
+        CompiledRule.CompiledLiteral literal = body.get(idx);
+        int mark = frame.mark();
 
         if (literal.isPositive()) {
-            for (Atom fact : factsAtTime) {
-                Map<String, String> newSubst = unify(pattern, fact, current);
-                if (newSubst != null) {
-                    backtrackWithNegation(body, idx + 1, factsAtTime, newSubst, results);
+            for (EncodedAtom fact : factsAtTime) {
+                if (literal.match(fact, frame)) {
+                    backtrackWithNegation(body, idx + 1, factsAtTime, frame, results);
+                    frame.undo(mark);
                 }
             }
         } else {
             boolean unifiesWithAny = false;
-            for (Atom fact : factsAtTime) {
-                if (unify(pattern, fact, current) != null) {
+            for (EncodedAtom fact : factsAtTime) {
+                if (literal.match(fact, frame)) {
+                    frame.undo(mark);
                     unifiesWithAny = true;
                     break;
                 }
             }
             if (!unifiesWithAny) {
-                backtrackWithNegation(body, idx + 1, factsAtTime, current, results);
+                backtrackWithNegation(body, idx + 1, factsAtTime, frame, results);
             }
         }
     }
 
-    private Map<String, String> unify(Atom pattern, Atom fact, Map<String, String> subst) {
-        if (!pattern.getPredicate().equals(fact.getPredicate())) return null;
-        if (pattern.arity() != fact.arity()) return null;
-
-        Map<String, String> result = new HashMap<>(subst);
-        for (int i = 0; i < pattern.arity(); i++) {
-            String pArg = pattern.getArgs().get(i);
-            String fArg = fact.getArgs().get(i);
-
-            if (isVariable(pArg)) {
-                String existing = result.get(pArg);
-                if (existing == null) {
-                    result.put(pArg, fArg);
-                } else if (!existing.equals(fArg)) {
-                    return null;
-                }
-            } else {
-                if (!pArg.equals(fArg)) return null;
+    /**
+     * Results of the last full evaluation of each rule, keyed by timestep, so a rule
+     * whose inputs did not change since t-1 can reuse its t-1 bindings at t.
+     *
+     * <p>Static facts are shared by every timestep, so a rule's inputs are unchanged
+     * when each of its body predicates (positive or negated) has the same per-timestep
+     * facts at t as at t-1. This is only sound when those facts are final when the
+     * rule runs, i.e. for non-recursive strata of a time-monotone schedule; callers
+     * pass null otherwise. The reused list is shared, not copied.</p>
+     */
+    private static final class CarriedResults {
+        private final SparseFactStorage storage;
+        private final Map<CompiledRule, Integer> times = new HashMap<>();
+        private final Map<CompiledRule, List<int[]>> results = new HashMap<>();
+
+        // Per-timestep memo of "predicate unchanged since t-1"
+        private int checkedTime = -1;
+        private final Map<Integer, Boolean> unchanged = new HashMap<>();
+        private long reuseCount = 0;
+
+        CarriedResults(SparseFactStorage storage) {
+            this.storage = storage;
+        }
+
+        /**
+         * Gets the rule's result from t-1 if its inputs are unchanged at t, else null.
+         */
+        synchronized List<int[]> lookup(CompiledRule rule, int t) {
+            Integer last = times.get(rule);
+            if (last == null || last != t - 1 || !rule.getRule().isActiveAt(t - 1)) {
+                return null;
             }
+            if (checkedTime != t) {
+                checkedTime = t;
+                unchanged.clear();
+            }
+            for (CompiledRule.CompiledLiteral literal : rule.getBody()) {
+                boolean same = unchanged.computeIfAbsent(literal.getPredicate(),
+                        p -> storage.samePredicateFacts(p, t, t - 1));
+                if (!same) return null;
+            }
+            reuseCount++;
+            return results.get(rule);
         }
-        return result;
-    }
 
-    private boolean isVariable(String s) {
-        return s.length() > 0 && Character.isLowerCase(s.charAt(0));
-    }
+        synchronized void store(CompiledRule rule, int t, List<int[]> subsList) {
+            times.put(rule, t);
+            results.put(rule, subsList);
+        }
 
-    private Atom applySubstitution(Atom atom, Map<String, String> subst) {
-        List<String> newArgs = new ArrayList<>();
-        for (String arg : atom.getArgs()) {
-            if (isVariable(arg) && subst.containsKey(arg)) {
-                newArgs.add(subst.get(arg));
-            } else {
-                newArgs.add(arg);
-            }
+        synchronized long getReuseCount() {
+            return reuseCount;
         }
-        return new Atom(atom.getPredicate(), newArgs);
     }
 }
@@ -1,6 +1,8 @@
 package com.example;
 
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Tracks the provenance (derivation history) of derived facts.
@@ -8,6 +10,18 @@ import java.util.*;
  * <p>Provenance records how each fact was derived, including which rule was applied,
  * what facts were used in the derivation, and the variable substitutions.</p>
  *
+ * <p>Storage is columnar: atoms, rule names and substitution strings are interned to
+ * int ids, each derivation is one row of parallel int arrays, and the sources and
+ * bindings of all rows share two flat int arrays. {@link DerivationInfo} objects and
+ * derivation trees are only built when asked for.</p>
+ *
+ * <p>The {@link ProvenanceLevel} controls what is recorded. Facts accepted by the
+ * sampler set with {@link #setFullCaptureSampler} are always recorded in full, so
+ * {@link #explain} keeps working for them when the level is turned down.</p>
+ *
+ * <p>Methods synchronize on the instance, so a reasoner can keep recording on one
+ * thread while others explain facts.</p>
+ *
  * <h2>Example:</h2>
  * <pre>{@code
  * Provenance prov = ...;
@@ -17,8 +31,110 @@ import java.util.*;
  * }</pre>
  */
 public class Provenance {
-    // Key: (Atom, time) -> DerivationInfo
-    private final Map<AtomTimeKey, DerivationInfo> derivations = new HashMap<>();
+    private static final int NO_DETAILS = -1;
+
+    /** Default budget for {@link #getDerivationGraph(Atom, int)}: hops from the explained fact. */
+    public static final int DEFAULT_MAX_DEPTH = 1_000;
+    /** Default budget for {@link #getDerivationGraph(Atom, int)}: facts in the graph. */
+    public static final int DEFAULT_MAX_NODES = 10_000;
+
+    private ProvenanceLevel level = ProvenanceLevel.FULL;
+    private Predicate<Atom> fullCaptureSampler = null;
+    // Whether record() can store anything; read without the lock on the derivation path
+    private volatile boolean recording = true;
+
+    // Interned atoms and strings (rule names, variable names, values)
+    private final Map<Atom, Integer> atomIds = new HashMap<>();
+    private final List<Atom> atoms = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+
+    // (atom id, time) -> row
+    private final LongIntMap rowsByKey = new LongIntMap();
+
+    // One row per derivation
+    private int rows = 0;
+    private int forgotten = 0;   // rows dropped by forget(); they stay in the arrays
+    private int[] rowAtom = new int[16];
+    private int[] rowTime = new int[16];
+    private int[] rowRule = new int[16];
+    private int[] rowSourceStart = new int[16];   // NO_DETAILS if only the rule was recorded
+    private int[] rowSourceCount = new int[16];
+    private int[] rowBindingStart = new int[16];
+    private int[] rowBindingCount = new int[16];
+
+    // Shared columns for sources (atom id, time) and bindings (variable id, value id)
+    private IntColumn sourceAtoms = new IntColumn();
+    private IntColumn sourceTimes = new IntColumn();
+    private IntColumn bindingVars = new IntColumn();
+    private IntColumn bindingValues = new IntColumn();
+
+    /**
+     * Sets what is recorded for derivations from now on.
+     */
+    public synchronized void setLevel(ProvenanceLevel level) {
+        this.level = Objects.requireNonNull(level);
+        this.recording = level != ProvenanceLevel.NONE || fullCaptureSampler != null;
+    }
+
+    public synchronized ProvenanceLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets a sampler whose accepted facts are recorded at {@link ProvenanceLevel#FULL}
+     * whatever the level (null to disable). Source facts of a sampled fact are
+     * recorded at the level that applies to them.
+     */
+    public synchronized void setFullCaptureSampler(Predicate<Atom> sampler) {
+        this.fullCaptureSampler = sampler;
+        this.recording = level != ProvenanceLevel.NONE || sampler != null;
+    }
+
+    /**
+     * Checks, without locking, whether {@link #record} may store anything. Reasoners
+     * use it to skip decoding derived facts when provenance is off.
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+
+    /**
+     * Checks whether derivations of a fact are recorded with sources and substitution.
+     */
+    public synchronized boolean capturesDetails(Atom atom) {
+        return level == ProvenanceLevel.FULL
+                || (fullCaptureSampler != null && fullCaptureSampler.test(atom));
+    }
+
+    /**
+     * Checks whether anything at all is recorded for a fact.
+     */
+    public synchronized boolean captures(Atom atom) {
+        return level != ProvenanceLevel.NONE || capturesDetails(atom);
+    }
+
+    /**
+     * Records how a fact was derived, building the details only if they are captured.
+     * This is what reasoners call on the derivation path.
+     *
+     * @param atom the derived fact
+     * @param time the timestep where it was derived
+     * @param ruleName the rule that derived it
+     * @param details supplies sources and substitution; not called unless captured
+     */
+    public synchronized void record(Atom atom, int time, String ruleName,
+                       Supplier<DerivationInfo> details) {
+        if (capturesDetails(atom)) {
+            record(atom, time, details.get());
+        } else if (level == ProvenanceLevel.RULE_ONLY) {
+            int row = row(atom, time, ruleName);
+            rowSourceStart[row] = NO_DETAILS;
+            rowSourceCount[row] = 0;
+            rowBindingStart[row] = 0;
+            rowBindingCount[row] = 0;
+        }
+    }
 
     /**
      * Records how a fact was derived.
@@ -27,19 +143,52 @@ public class Provenance {
      * @param time the timestep where it was derived
      * @param info the derivation information
      */
-    public void record(Atom atom, int time, DerivationInfo info) {
-        derivations.put(new AtomTimeKey(atom, time), info);
+    public synchronized void record(Atom atom, int time, DerivationInfo info) {
+        int row = row(atom, time, info.getRuleName());
+
+        rowSourceStart[row] = sourceAtoms.size();
+        rowSourceCount[row] = info.getSourceFacts().size();
+        for (AtomTimeKey source : info.getSourceFacts()) {
+            sourceAtoms.add(atomId(source.atom));
+            sourceTimes.add(source.time);
+        }
+
+        rowBindingStart[row] = bindingVars.size();
+        rowBindingCount[row] = info.getSubstitution().size();
+        for (Map.Entry<String, String> e : info.getSubstitution().entrySet()) {
+            bindingVars.add(stringId(e.getKey()));
+            bindingValues.add(stringId(e.getValue()));
+        }
+    }
+
+    /**
+     * Forgets how a fact was derived, e.g. because it was retracted. The fact
+     * reads as not derived until it is recorded again.
+     *
+     * @param atom the fact
+     * @param time the timestep
+     */
+    public synchronized void forget(Atom atom, int time) {
+        Integer id = atomIds.get(atom);
+        if (id != null && rowsByKey.get(key(id, time)) >= 0) {
+            rowsByKey.put(key(id, time), -1);
+            forgotten++;
+        }
     }
 
     /**
      * Gets the derivation information for a fact at a specific time.
      *
+     * <p>With {@link ProvenanceLevel#RULE_ONLY}, the returned info has the rule name
+     * and no sources or substitution.</p>
+     *
      * @param atom the fact to query
      * @param time the timestep
      * @return derivation info, or null if not found or is a base fact
      */
-    public DerivationInfo getDerivation(Atom atom, int time) {
-        return derivations.get(new AtomTimeKey(atom, time));
+    public synchronized DerivationInfo getDerivation(Atom atom, int time) {
+        int row = findRow(atom, time);
+        return row < 0 ? null : toInfo(row);
     }
 
     /**
@@ -49,30 +198,115 @@ public class Provenance {
      * @param time the timestep
      * @return true if the fact was derived by a rule
      */
-    public boolean isDerived(Atom atom, int time) {
-        return derivations.containsKey(new AtomTimeKey(atom, time));
+    public synchronized boolean isDerived(Atom atom, int time) {
+        return findRow(atom, time) >= 0;
+    }
+
+    /**
+     * Checks whether the sources of a derived fact were recorded.
+     */
+    public synchronized boolean hasDetails(Atom atom, int time) {
+        int row = findRow(atom, time);
+        return row >= 0 && rowSourceStart[row] != NO_DETAILS;
+    }
+
+    /**
+     * Gets the number of recorded derivations.
+     */
+    public synchronized int size() {
+        return rows - forgotten;
     }
 
     /**
      * Gets the full derivation tree (all facts used to derive this fact recursively).
      *
+     * <p>The tree is built from {@link #getDerivationGraph(Atom, int)}, so facts used
+     * by several derivations are shared subtrees and the default budget applies.</p>
+     *
      * @param atom the fact to trace
      * @param time the timestep
      * @return derivation tree
      */
     public DerivationTree getDerivationTree(Atom atom, int time) {
-        DerivationInfo info = getDerivation(atom, time);
-        if (info == null) {
-            // Base fact
-            return new DerivationTree(atom, time, null, new ArrayList<>());
-        }
+        return getDerivationGraph(atom, time).toTree();
+    }
 
-        List<DerivationTree> children = new ArrayList<>();
-        for (AtomTimeKey source : info.getSourceFacts()) {
-            children.add(getDerivationTree(source.atom, source.time));
+    /**
+     * Gets the derivation graph of a fact within the default budget.
+     *
+     * @param atom the fact to trace
+     * @param time the timestep
+     * @return derivation graph rooted at the fact
+     */
+    public DerivationGraph getDerivationGraph(Atom atom, int time) {
+        return getDerivationGraph(atom, time, DEFAULT_MAX_DEPTH, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * Gets the derivation graph of a fact, with one node per (atom, time).
+     *
+     * <p>The graph is built breadth-first. Facts more than {@code maxDepth} hops from
+     * the root, or whose sources would take the graph past {@code maxNodes} nodes,
+     * are included but not expanded.</p>
+     *
+     * @param atom the fact to trace
+     * @param time the timestep
+     * @param maxDepth maximum number of hops to expand from the root
+     * @param maxNodes maximum number of nodes in the graph
+     * @return derivation graph rooted at the fact
+     */
+    public synchronized DerivationGraph getDerivationGraph(Atom atom, int time, int maxDepth, int maxNodes) {
+        List<DerivationGraph.Node> nodes = new ArrayList<>();
+        int root = findRow(atom, time);
+        nodes.add(new DerivationGraph.Node(0, atom, time, root < 0 ? null : toInfo(root), 0));
+        if (root < 0) {
+            return new DerivationGraph(nodes, false);
         }
 
-        return new DerivationTree(atom, time, info, children);
+        LongIntMap nodeIds = new LongIntMap();
+        nodeIds.put(key(rowAtom[root], time), 0);
+        IntColumn rowOf = new IntColumn();
+        rowOf.add(root);
+        boolean truncated = false;
+
+        List<DerivationGraph.Node> sources = new ArrayList<>();
+        for (int n = 0; n < nodes.size(); n++) {
+            DerivationGraph.Node node = nodes.get(n);
+            int row = rowOf.get(n);
+            if (row < 0) continue;  // base fact
+            if (node.getDistance() >= maxDepth) {
+                truncated = true;
+                continue;
+            }
+
+            int start = rowSourceStart[row];
+            int count = start == NO_DETAILS ? 0 : rowSourceCount[row];
+            int added = 0;
+            for (int i = start; i < start + count; i++) {
+                if (nodeIds.get(key(sourceAtoms.get(i), sourceTimes.get(i))) < 0) added++;
+            }
+            if (nodes.size() + added > maxNodes) {
+                truncated = true;
+                continue;
+            }
+
+            sources.clear();
+            for (int i = start; i < start + count; i++) {
+                long k = key(sourceAtoms.get(i), sourceTimes.get(i));
+                int id = nodeIds.get(k);
+                if (id < 0) {
+                    id = nodes.size();
+                    nodeIds.put(k, id);
+                    int sourceRow = rowsByKey.get(k);
+                    nodes.add(new DerivationGraph.Node(id, atoms.get(sourceAtoms.get(i)), sourceTimes.get(i),
+                            sourceRow < 0 ? null : toInfo(sourceRow), node.getDistance() + 1));
+                    rowOf.add(sourceRow);
+                }
+                sources.add(nodes.get(id));
+            }
+            node.expand(sources);
+        }
+        return new DerivationGraph(nodes, truncated);
     }
 
     /**
@@ -82,38 +316,49 @@ public class Provenance {
      * @param time the timestep
      * @return explanation string
      */
-    public String explain(Atom atom, int time) {
+    public synchronized String explain(Atom atom, int time) {
         StringBuilder sb = new StringBuilder();
-        explainRecursive(atom, time, 0, sb, new HashSet<>());
-        return sb.toString();
-    }
+        Set<AtomTimeKey> visited = new HashSet<>();
+        // Pending (fact, indentation depth) pairs; sources are pushed in reverse to keep their order
+        Deque<AtomTimeKey> stack = new ArrayDeque<>();
+        Deque<Integer> depths = new ArrayDeque<>();
+        stack.push(new AtomTimeKey(atom, time));
+        depths.push(0);
 
-    private void explainRecursive(Atom atom, int time, int depth, StringBuilder sb,
-                                  Set<AtomTimeKey> visited) {
-        AtomTimeKey key = new AtomTimeKey(atom, time);
+        while (!stack.isEmpty()) {
+            AtomTimeKey key = stack.pop();
+            int depth = depths.pop();
 
-        String indent = "  ".repeat(depth);
-        sb.append(indent).append("t=").append(time).append(": ").append(atom);
+            String indent = "  ".repeat(depth);
+            sb.append(indent).append("t=").append(key.time).append(": ").append(key.atom);
 
-        if (visited.contains(key)) {
-            sb.append(" (already explained)\n");
-            return;
-        }
-        visited.add(key);
+            if (!visited.add(key)) {
+                sb.append(" (already explained)\n");
+                continue;
+            }
 
-        DerivationInfo info = getDerivation(atom, time);
-        if (info == null) {
-            sb.append(" [base fact]\n");
-            return;
-        }
+            int row = findRow(key.atom, key.time);
+            if (row < 0) {
+                sb.append(" [base fact]\n");
+                continue;
+            }
 
-        sb.append(" [derived by rule: ").append(info.getRuleName()).append("]\n");
-        sb.append(indent).append("  with substitution: ").append(info.getSubstitution()).append("\n");
-        sb.append(indent).append("  from:\n");
+            DerivationInfo info = toInfo(row);
+            sb.append(" [derived by rule: ").append(info.getRuleName()).append("]\n");
+            if (rowSourceStart[row] == NO_DETAILS) {
+                sb.append(indent).append("  (sources not recorded)\n");
+                continue;
+            }
+            sb.append(indent).append("  with substitution: ").append(info.getSubstitution()).append("\n");
+            sb.append(indent).append("  from:\n");
 
-        for (AtomTimeKey source : info.getSourceFacts()) {
-            explainRecursive(source.atom, source.time, depth + 2, sb, visited);
+            List<AtomTimeKey> sources = info.getSourceFacts();
+            for (int i = sources.size() - 1; i >= 0; i--) {
+                stack.push(sources.get(i));
+                depths.push(depth + 2);
+            }
         }
+        return sb.toString();
     }
 
     /**
@@ -122,11 +367,13 @@ public class Provenance {
      * @param ruleName the rule name to filter by
      * @return list of (atom, time) pairs derived by this rule
      */
-    public List<AtomTimeKey> getFactsDeriveredByRule(String ruleName) {
+    public synchronized List<AtomTimeKey> getFactsDeriveredByRule(String ruleName) {
         List<AtomTimeKey> result = new ArrayList<>();
-        for (Map.Entry<AtomTimeKey, DerivationInfo> entry : derivations.entrySet()) {
-            if (entry.getValue().getRuleName().equals(ruleName)) {
-                result.add(entry.getKey());
+        Integer rule = stringIds.get(ruleName);
+        if (rule == null) return result;
+        for (int row = 0; row < rows; row++) {
+            if (rowRule[row] == rule && isLive(row)) {
+                result.add(new AtomTimeKey(atoms.get(rowAtom[row]), rowTime[row]));
             }
         }
         return result;
@@ -137,14 +384,175 @@ public class Provenance {
      *
      * @return map of rule names to count of facts derived
      */
-    public Map<String, Integer> getDerivationStats() {
+    public synchronized Map<String, Integer> getDerivationStats() {
         Map<String, Integer> stats = new HashMap<>();
-        for (DerivationInfo info : derivations.values()) {
-            stats.merge(info.getRuleName(), 1, Integer::sum);
+        for (int row = 0; row < rows; row++) {
+            if (isLive(row)) {
+                stats.merge(strings.get(rowRule[row]), 1, Integer::sum);
+            }
         }
         return stats;
     }
 
+    // --- Columnar storage ---
+
+    private int findRow(Atom atom, int time) {
+        Integer id = atomIds.get(atom);
+        return id == null ? -1 : rowsByKey.get(key(id, time));
+    }
+
+    // False for rows dropped by forget()
+    private boolean isLive(int row) {
+        return forgotten == 0 || rowsByKey.get(key(rowAtom[row], rowTime[row])) == row;
+    }
+
+    // Finds or appends the row for (atom, time) and sets its rule
+    private int row(Atom atom, int time, String ruleName) {
+        long key = key(atomId(atom), time);
+        int row = rowsByKey.get(key);
+        if (row < 0) {
+            row = rows++;
+            ensureRowCapacity(rows);
+            rowsByKey.put(key, row);
+            rowAtom[row] = (int) (key >>> 32);
+            rowTime[row] = time;
+        }
+        rowRule[row] = stringId(ruleName);
+        return row;
+    }
+
+    private DerivationInfo toInfo(int row) {
+        List<AtomTimeKey> sources = new ArrayList<>();
+        Map<String, String> substitution = new HashMap<>();
+        if (rowSourceStart[row] != NO_DETAILS) {
+            int start = rowSourceStart[row];
+            for (int i = start; i < start + rowSourceCount[row]; i++) {
+                sources.add(new AtomTimeKey(atoms.get(sourceAtoms.get(i)), sourceTimes.get(i)));
+            }
+            start = rowBindingStart[row];
+            for (int i = start; i < start + rowBindingCount[row]; i++) {
+                substitution.put(strings.get(bindingVars.get(i)), strings.get(bindingValues.get(i)));
+            }
+        }
+        return new DerivationInfo(strings.get(rowRule[row]), sources, substitution);
+    }
+
+    private int atomId(Atom atom) {
+        Integer id = atomIds.get(atom);
+        if (id == null) {
+            id = atoms.size();
+            atoms.add(atom);
+            atomIds.put(atom, id);
+        }
+        return id;
+    }
+
+    private int stringId(String s) {
+        Integer id = stringIds.get(s);
+        if (id == null) {
+            id = strings.size();
+            strings.add(s);
+            stringIds.put(s, id);
+        }
+        return id;
+    }
+
+    private static long key(int atomId, int time) {
+        return ((long) atomId << 32) | (time & 0xffffffffL);
+    }
+
+    private void ensureRowCapacity(int capacity) {
+        if (capacity <= rowAtom.length) return;
+        int size = Math.max(capacity, rowAtom.length * 2);
+        rowAtom = Arrays.copyOf(rowAtom, size);
+        rowTime = Arrays.copyOf(rowTime, size);
+        rowRule = Arrays.copyOf(rowRule, size);
+        rowSourceStart = Arrays.copyOf(rowSourceStart, size);
+        rowSourceCount = Arrays.copyOf(rowSourceCount, size);
+        rowBindingStart = Arrays.copyOf(rowBindingStart, size);
+        rowBindingCount = Arrays.copyOf(rowBindingCount, size);
+    }
+
+    /**
+     * Growable int array.
+     */
+    private static final class IntColumn {
+        private int[] values = new int[64];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int i)  { return values[i]; }
+        int size()      { return size; }
+    }
+
+    /**
+     * Open-addressing map from non-negative long keys to int values (-1 = absent).
+     */
+    private static final class LongIntMap {
+        private static final long EMPTY = -1L;
+
+        private long[] keys = newKeys(64);
+        private int[] values = new int[64];
+        private int size = 0;
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+                if (keys[i] == EMPTY) return -1;
+            }
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                if (keys[i] == EMPTY) {
+                    keys[i] = key;
+                    values[i] = value;
+                    size++;
+                    return;
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(capacity);
+            values = new int[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+
+        private static long[] newKeys(int capacity) {
+            long[] k = new long[capacity];
+            Arrays.fill(k, EMPTY);
+            return k;
+        }
+    }
+
     /**
      * Key for indexing facts by atom and time.
      */
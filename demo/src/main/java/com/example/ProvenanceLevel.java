@@ -0,0 +1,13 @@
+package com.example;
+
+/**
+ * How much provenance a reasoner records for each derived fact.
+ */
+public enum ProvenanceLevel {
+    /** Nothing is recorded; {@link Provenance#isDerived} is false for every fact. */
+    NONE,
+    /** Only the rule that derived each fact. */
+    RULE_ONLY,
+    /** The rule, the source facts and the variable substitution (the default). */
+    FULL
+}
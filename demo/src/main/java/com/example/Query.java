@@ -3,11 +3,20 @@ package com.example;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Query language for flexible querying of facts and rules in JavaSense.
  *
- * <p>Supports pattern matching with variables, time constraints, and filters.</p>
+ * <p>Supports pattern matching with variables, time constraints, and filters.
+ * A pattern may be a conjunction of atoms ({@code "supplies(x,y), atRisk(y)"});
+ * shared variables join the atoms.</p>
+ *
+ * <p>Queries run against the indexes of {@link ReasoningInterpretation}: each atom is
+ * looked up by the most selective constant or already-bound argument (including
+ * variables fixed with {@link #withVariable}), so a point query does not scan the
+ * interpretation. Atoms are matched most-bound first.</p>
  *
  * <h2>Example Usage:</h2>
  * <pre>{@code
@@ -20,25 +29,43 @@ import java.util.stream.Collectors;
  * Query q = Query.parse("friends(x, y)")
  *     .inTimeRange(0, 10)
  *     .withVariable("x", "Alice");
+ *
+ * // Conjunctive query: suppliers of at-risk parts
+ * Query q = Query.parse("supplies(x, y), atRisk(y)").atTime(5);
  * }</pre>
  */
 public class Query {
-    private Atom pattern;
+    private List<Atom> patterns;
     private Integer exactTime;
     private Integer minTime;
     private Integer maxTime;
     private Map<String, String> bindings = new HashMap<>();
     private List<Predicate<QueryResult>> filters = new ArrayList<>();
+    private QueryCursor cursor;
 
     /**
      * Creates a query from a pattern string.
      *
-     * @param patternStr the pattern to match (e.g., "popular(x)")
+     * @param patternStr the pattern to match (e.g., "popular(x)" or "supplies(x,y), atRisk(y)")
      * @return a new Query object
      */
     public static Query parse(String patternStr) {
+        List<Atom> atoms = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < patternStr.length(); i++) {
+            char c = patternStr.charAt(i);
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+            else if (c == ',' && depth == 0) {
+                atoms.add(Atom.parse(patternStr.substring(start, i)));
+                start = i + 1;
+            }
+        }
+        atoms.add(Atom.parse(patternStr.substring(start)));
+
         Query q = new Query();
-        q.pattern = Atom.parse(patternStr);
+        q.patterns = atoms;
         return q;
     }
 
@@ -97,86 +124,365 @@ public class Query {
      */
     public List<QueryResult> execute(ReasoningInterpretation interpretation) {
         List<QueryResult> results = new ArrayList<>();
+        iterator(interpretation).forEachRemaining(results::add);
+        return results;
+    }
+
+    /**
+     * Counts matching results without collecting them.
+     *
+     * @param interpretation the reasoning result to query
+     * @return number of matches
+     */
+    public long count(ReasoningInterpretation interpretation) {
+        long count = 0;
+        for (Iterator<QueryResult> it = iterator(interpretation); it.hasNext(); it.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the distinct values bound to a variable, without collecting results.
+     *
+     * @param interpretation the reasoning result to query
+     * @param variable the variable name
+     * @return set of unique values
+     */
+    public Set<String> uniqueBindings(ReasoningInterpretation interpretation, String variable) {
+        Set<String> values = new HashSet<>();
+        iterator(interpretation).forEachRemaining(result -> {
+            String value = result.getBinding(variable);
+            if (value != null) values.add(value);
+        });
+        return values;
+    }
+
+    /**
+     * Counts matches grouped by the value of a variable, without collecting results.
+     *
+     * @param interpretation the reasoning result to query
+     * @param variable the variable to group by
+     * @return map of values to counts
+     */
+    public Map<String, Long> countBy(ReasoningInterpretation interpretation, String variable) {
+        Map<String, Long> counts = new HashMap<>();
+        iterator(interpretation).forEachRemaining(result -> {
+            String value = result.getBinding(variable);
+            if (value != null) counts.merge(value, 1L, Long::sum);
+        });
+        return counts;
+    }
+
+    /**
+     * Returns the results as a lazy stream. Matches are found as the stream is
+     * consumed, so {@code stream(result).limit(50)} stops after 50 matches.
+     *
+     * @param interpretation the reasoning result to query
+     * @return ordered, sequential stream of results
+     */
+    public Stream<QueryResult> stream(ReasoningInterpretation interpretation) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(interpretation),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Returns a lazy iterator over the results, in time order. Memory use does not
+     * grow with the number of results.
+     *
+     * @param interpretation the reasoning result to query
+     * @return iterator over results
+     */
+    public Iterator<QueryResult> iterator(ReasoningInterpretation interpretation) {
+        return new ResultIterator(interpretation);
+    }
+
+    /**
+     * Resumes the query after a result from an earlier page.
+     *
+     * @param cursor position after which results start (null to start at the beginning)
+     * @return this query for chaining
+     */
+    public Query after(QueryCursor cursor) {
+        this.cursor = cursor;
+        return this;
+    }
+
+    /**
+     * Gets the next page of at most {@code pageSize} results, starting after the
+     * cursor set with {@link #after}. Pass {@link QueryPage#getNextCursor()} to
+     * {@link #after} to fetch the following page.
+     *
+     * @param interpretation the reasoning result to query
+     * @param pageSize maximum number of results
+     * @return the page
+     */
+    public QueryPage page(ReasoningInterpretation interpretation, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        ResultIterator it = new ResultIterator(interpretation);
+        List<QueryResult> results = new ArrayList<>(Math.min(pageSize, 1024));
+        while (results.size() < pageSize && it.hasNext()) {
+            results.add(it.next());
+        }
+        if (results.size() < pageSize) {
+            return new QueryPage(results, null);
+        }
+        // Taken before hasNext() moves the iterator past the last result
+        QueryCursor next = it.position();
+        return new QueryPage(results, it.hasNext() ? next : null);
+    }
 
-        int startTime = (exactTime != null) ? exactTime : (minTime != null ? minTime : 0);
-        int endTime = (exactTime != null) ? exactTime :
+    /**
+     * Pull-based join over the query atoms. Each level of the explicit stack holds
+     * the pattern matched at that depth (most-bound first), its candidate facts and
+     * the variables it bound, so the next result is produced only when asked for.
+     * A cursor is resumed by rebuilding this stack at the cursor's result rather than
+     * by replaying the join up to it.
+     */
+    private final class ResultIterator implements Iterator<QueryResult> {
+        private final ReasoningInterpretation interpretation;
+        private final int endTime;
+        private final Map<String, String> binding = new HashMap<>();
+        private final int n = patterns.size();
+        private final Atom[] matched = new Atom[n];
+        private final boolean[] done = new boolean[n];
+        private final int[] order = new int[n];
+        private final int[] pos = new int[n];
+        private final List<List<Atom>> candidates = new ArrayList<>(n);
+        private final List<List<String>> added = new ArrayList<>(n);
+
+        private int t;
+        private int depth = -1;          // -1: the current timestep has not been opened
+        private boolean timeOpen = false;
+        private QueryResult next;
+
+        ResultIterator(ReasoningInterpretation interpretation) {
+            this.interpretation = interpretation;
+            int startTime = (exactTime != null) ? exactTime : (minTime != null ? minTime : 0);
+            int end = (exactTime != null) ? exactTime :
                       (maxTime != null ? maxTime : interpretation.getMaxTime());
+            this.t = Math.max(startTime, 0);
+            this.endTime = Math.min(end, interpretation.getMaxTime());
 
-        for (int t = startTime; t <= endTime; t++) {
-            Set<Atom> factsAtTime = interpretation.getFactsAt(t);
-            if (factsAtTime == null) continue;
-
-            for (Atom fact : factsAtTime) {
-                Map<String, String> substitution = unify(pattern, fact);
-                if (substitution != null) {
-                    // Check if pre-bound variables match
-                    boolean matches = true;
-                    for (Map.Entry<String, String> binding : bindings.entrySet()) {
-                        String boundValue = substitution.get(binding.getKey());
-                        if (boundValue != null && !boundValue.equals(binding.getValue())) {
-                            matches = false;
-                            break;
-                        }
-                    }
+            // Pre-bound variables are pushed into the lookups; ones the pattern does not use are ignored
+            for (Map.Entry<String, String> e : bindings.entrySet()) {
+                if (usesVariable(e.getKey())) {
+                    binding.put(e.getKey(), e.getValue());
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                candidates.add(List.of());
+                added.add(new ArrayList<>());
+            }
+            if (cursor != null && cursor.getTime() >= t) {
+                resume(cursor);
+            }
+        }
 
-                    if (matches) {
-                        QueryResult result = new QueryResult(fact, t, substitution);
-
-                        // Apply custom filters
-                        boolean passesFilters = true;
-                        for (Predicate<QueryResult> filter : filters) {
-                            if (!filter.test(result)) {
-                                passesFilters = false;
-                                break;
-                            }
-                        }
-
-                        if (passesFilters) {
-                            results.add(result);
-                        }
+        /**
+         * Rebuilds the join stack so that the next candidate tried is the one after the
+         * cursor's result. Each level finds its fact at the recorded offset, or by a
+         * lookup in its candidate list when the interpretation has changed. If the
+         * result is gone, the cursor's timestep is produced in full.
+         */
+        private void resume(QueryCursor cursor) {
+            t = cursor.getTime();
+            List<Atom> facts = cursor.getFacts();
+            if (t > endTime || facts.size() != n) return;
+
+            for (int level = 0; level < n; level++) {
+                open(level);
+                int idx = order[level];
+                Atom fact = facts.get(idx);
+                List<Atom> found = candidates.get(level);
+                int at = cursor.offset(idx);
+                if (at < 0 || at >= found.size() || !found.get(at).equals(fact)) {
+                    at = found.indexOf(fact);
+                }
+                if (at < 0 || !unify(patterns.get(idx), fact, binding, added.get(level))) {
+                    for (int l = level; l >= 0; l--) {
+                        undo(l);
+                        done[order[l]] = false;
                     }
+                    return;
                 }
+                matched[idx] = fact;
+                pos[level] = at + 1;
             }
+            depth = n - 1;
+            timeOpen = true;
         }
 
-        return results;
+        /**
+         * Position just after the result last returned by {@link #next()}. Only valid
+         * before {@link #hasNext()} is called again.
+         */
+        QueryCursor position() {
+            int[] offsets = new int[n];
+            for (int level = 0; level < n; level++) {
+                offsets[order[level]] = pos[level] - 1;
+            }
+            return new QueryCursor(t, Arrays.asList(matched.clone()), offsets);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public QueryResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            QueryResult result = next;
+            next = null;
+            return result;
+        }
+
+        private QueryResult advance() {
+            while (true) {
+                if (!timeOpen) {
+                    if (t > endTime) return null;
+                    open(0);
+                    depth = 0;
+                    timeOpen = true;
+                }
+                if (depth < 0) {
+                    t++;
+                    timeOpen = false;
+                    continue;
+                }
+
+                undo(depth);
+                if (pos[depth] >= candidates.get(depth).size()) {
+                    done[order[depth]] = false;
+                    depth--;
+                    continue;
+                }
+                Atom pattern = patterns.get(order[depth]);
+                Atom fact = candidates.get(depth).get(pos[depth]++);
+                if (!unify(pattern, fact, binding, added.get(depth))) {
+                    continue;
+                }
+                matched[order[depth]] = fact;
+                if (depth + 1 < n) {
+                    depth++;
+                    open(depth);
+                    continue;
+                }
+
+                QueryResult result = n == 1
+                        ? new QueryResult(matched[0], t, new HashMap<>(binding))
+                        : new QueryResult(Arrays.asList(matched.clone()), t, new HashMap<>(binding));
+                if (passesFilters(result)) {
+                    return result;
+                }
+            }
+        }
+
+        private void open(int level) {
+            int idx = mostBoundPattern(done, binding);
+            order[level] = idx;
+            done[idx] = true;
+            candidates.set(level, candidates(interpretation, t, patterns.get(idx), binding));
+            pos[level] = 0;
+            added.get(level).clear();
+        }
+
+        private void undo(int level) {
+            List<String> bound = added.get(level);
+            for (String variable : bound) {
+                binding.remove(variable);
+            }
+            bound.clear();
+        }
+    }
+
+    private boolean passesFilters(QueryResult result) {
+        for (Predicate<QueryResult> filter : filters) {
+            if (!filter.test(result)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int mostBoundPattern(boolean[] done, Map<String, String> binding) {
+        int best = -1;
+        int bestBound = -1;
+        for (int i = 0; i < patterns.size(); i++) {
+            if (done[i]) continue;
+            int bound = 0;
+            for (String arg : patterns.get(i).getArgs()) {
+                if (!isVariable(arg) || binding.containsKey(arg)) bound++;
+            }
+            if (bound > bestBound) {
+                best = i;
+                bestBound = bound;
+            }
+        }
+        return best;
     }
 
     /**
-     * Unifies a pattern with a fact, returning variable bindings if successful.
-     *
-     * @param pattern the query pattern with variables
-     * @param fact the ground fact
-     * @return map of variable bindings, or null if unification fails
+     * Picks the smallest index bucket over the pattern's constant and bound arguments.
      */
-    private Map<String, String> unify(Atom pattern, Atom fact) {
-        if (!pattern.getPredicate().equals(fact.getPredicate())) {
-            return null;
-        }
-        if (pattern.arity() != fact.arity()) {
-            return null;
+    private List<Atom> candidates(ReasoningInterpretation interpretation, int t, Atom pattern,
+                                  Map<String, String> binding) {
+        List<Atom> best = null;
+        List<String> args = pattern.getArgs();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            String value = isVariable(arg) ? binding.get(arg) : arg;
+            if (value == null) continue;
+
+            List<Atom> bucket = interpretation.getFactsByArgument(t, pattern.getPredicate(), i, value);
+            if (best == null || bucket.size() < best.size()) {
+                best = bucket;
+                if (best.isEmpty()) break;
+            }
         }
+        return best != null ? best : interpretation.getFactsByPredicate(t, pattern.getPredicate());
+    }
 
-        Map<String, String> substitution = new HashMap<>();
+    /**
+     * Unifies a pattern with a fact under the current bindings, recording newly bound
+     * variables in {@code added}. On failure the caller undoes {@code added}.
+     */
+    private boolean unify(Atom pattern, Atom fact, Map<String, String> binding, List<String> added) {
+        if (!pattern.getPredicate().equals(fact.getPredicate()) || pattern.arity() != fact.arity()) {
+            return false;
+        }
         for (int i = 0; i < pattern.arity(); i++) {
             String pArg = pattern.getArgs().get(i);
             String fArg = fact.getArgs().get(i);
 
             if (isVariable(pArg)) {
-                String existing = substitution.get(pArg);
+                String existing = binding.get(pArg);
                 if (existing == null) {
-                    substitution.put(pArg, fArg);
+                    binding.put(pArg, fArg);
+                    added.add(pArg);
                 } else if (!existing.equals(fArg)) {
-                    return null;
-                }
-            } else {
-                if (!pArg.equals(fArg)) {
-                    return null;
+                    return false;
                 }
+            } else if (!pArg.equals(fArg)) {
+                return false;
             }
         }
+        return true;
+    }
 
-        return substitution;
+    private boolean usesVariable(String variable) {
+        for (Atom pattern : patterns) {
+            if (pattern.getArgs().contains(variable)) return true;
+        }
+        return false;
     }
 
     private boolean isVariable(String s) {
@@ -0,0 +1,90 @@
+package com.example;
+
+import java.util.List;
+
+/**
+ * Position in the results of a {@link Query}, given by the timestep and facts of
+ * the last result a caller has seen.
+ *
+ * <p>Cursors from {@link QueryPage#getNextCursor()} also record where each fact sat
+ * in the query's candidate lists, so a query resumed with {@link Query#after} picks
+ * up the join right after this result instead of producing the earlier ones again.
+ * A cursor built from a result alone finds the facts by lookup. If the result no
+ * longer exists, the timestep is returned in full.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * QueryPage page = Query.parse("atRisk(x)").page(result, 50);
+ * while (page.hasMore()) {
+ *     page = Query.parse("atRisk(x)").after(page.getNextCursor()).page(result, 50);
+ * }
+ * }</pre>
+ */
+public class QueryCursor {
+    private final int time;
+    private final List<Atom> facts;
+    private final int[] offsets;     // candidate offset per query atom, or null if unknown
+
+    /**
+     * Constructs a new QueryCursor.
+     *
+     * @param time the timestep of the last seen result
+     * @param facts the facts of the last seen result, one per query atom
+     */
+    public QueryCursor(int time, List<Atom> facts) {
+        this(time, facts, null);
+    }
+
+    QueryCursor(int time, List<Atom> facts, int[] offsets) {
+        this.time = time;
+        this.facts = List.copyOf(facts);
+        this.offsets = offsets;
+    }
+
+    /**
+     * Creates a cursor positioned after a result.
+     *
+     * @param result the last result seen
+     * @return cursor after that result
+     */
+    public static QueryCursor after(QueryResult result) {
+        return new QueryCursor(result.getTime(), result.getFacts());
+    }
+
+    public int getTime() {
+        return time;
+    }
+
+    public List<Atom> getFacts() {
+        return facts;
+    }
+
+    /**
+     * Offset of a fact in its candidate list when the cursor was taken, used as a
+     * hint when resuming.
+     *
+     * @param atomIndex index of the query atom
+     * @return the offset, or -1 if not recorded
+     */
+    int offset(int atomIndex) {
+        return offsets != null && atomIndex < offsets.length ? offsets[atomIndex] : -1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        QueryCursor that = (QueryCursor) o;
+        return time == that.time && facts.equals(that.facts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * facts.hashCode() + time;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("after t=%d: %s", time, facts);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of {@link Query} results and the cursor for the next page.
+ *
+ * @see Query#page(ReasoningInterpretation, int)
+ */
+public class QueryPage {
+    private final List<QueryResult> results;
+    private final QueryCursor nextCursor;
+
+    /**
+     * Constructs a new QueryPage.
+     *
+     * @param results the results on this page
+     * @param nextCursor cursor for the next page, or null if this is the last page
+     */
+    public QueryPage(List<QueryResult> results, QueryCursor nextCursor) {
+        this.results = results;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the results on this page.
+     *
+     * @return results, in query order
+     */
+    public List<QueryResult> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Gets the cursor to pass to {@link Query#after} for the next page.
+     *
+     * @return next cursor, or null if there are no more results
+     */
+    public QueryCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QueryPage{results=%d, hasMore=%s}", results.size(), hasMore());
+    }
+}
@@ -1,12 +1,14 @@
 package com.example;
 
+import java.util.List;
 import java.util.Map;
 
 /**
  * Represents a single query result with fact, time, and variable bindings.
  *
  * <p>QueryResult encapsulates a matched fact along with the timestep where it was
- * found and the variable substitutions that made the match successful.</p>
+ * found and the variable substitutions that made the match successful. For a
+ * conjunctive query, {@link #getFacts()} holds one fact per query atom.</p>
  *
  * <h2>Example:</h2>
  * <pre>{@code
@@ -21,6 +23,7 @@ import java.util.Map;
  */
 public class QueryResult {
     private final Atom fact;
+    private final List<Atom> facts;
     private final int time;
     private final Map<String, String> bindings;
 
@@ -33,6 +36,21 @@ public class QueryResult {
      */
     public QueryResult(Atom fact, int time, Map<String, String> bindings) {
         this.fact = fact;
+        this.facts = List.of(fact);
+        this.time = time;
+        this.bindings = bindings;
+    }
+
+    /**
+     * Constructs a result of a conjunctive query.
+     *
+     * @param facts the matched facts, in the order of the query atoms
+     * @param time the timestep where the facts were found
+     * @param bindings variable substitutions for this match
+     */
+    public QueryResult(List<Atom> facts, int time, Map<String, String> bindings) {
+        this.fact = facts.get(0);
+        this.facts = List.copyOf(facts);
         this.time = time;
         this.bindings = bindings;
     }
@@ -46,6 +64,15 @@ public class QueryResult {
         return fact;
     }
 
+    /**
+     * Gets all matched facts, one per query atom.
+     *
+     * @return the matched atoms
+     */
+    public List<Atom> getFacts() {
+        return facts;
+    }
+
     /**
      * Gets the timestep where this fact was found.
      *
@@ -76,7 +103,8 @@ public class QueryResult {
 
     @Override
     public String toString() {
-        return String.format("t=%d: %s with bindings %s", time, fact, bindings);
+        return String.format("t=%d: %s with bindings %s", time,
+                facts.size() == 1 ? fact : facts, bindings);
     }
 
     @Override
@@ -85,13 +113,13 @@ public class QueryResult {
         if (o == null || getClass() != o.getClass()) return false;
         QueryResult that = (QueryResult) o;
         return time == that.time &&
-               fact.equals(that.fact) &&
+               facts.equals(that.facts) &&
                bindings.equals(that.bindings);
     }
 
     @Override
     public int hashCode() {
-        int result = fact.hashCode();
+        int result = facts.hashCode();
         result = 31 * result + time;
         result = 31 * result + bindings.hashCode();
         return result;
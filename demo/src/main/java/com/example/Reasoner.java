@@ -1,19 +1,45 @@
 package com.example;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 public class Reasoner {
 
-    private final List<Rule> rules = new ArrayList<>();
+    private final List<CompiledRule> rules = new ArrayList<>();
     private final List<TimedFact> baseFacts = new ArrayList<>();
     private final Provenance provenance = new Provenance();
+    private final SymbolTable symbols = new SymbolTable();
+    private DerivationListener listener = DerivationListener.noOp();
 
-    public void addRule(Rule r)  { rules.add(r); }
+    public void addRule(Rule r)  { rules.add(CompiledRule.compile(r, symbols)); }
     public void addFact(TimedFact f) { baseFacts.add(f); }
 
+    /**
+     * Sets the listener notified of every derived fact (default: none).
+     * Use {@link DerivationListener#console()} to print derivations.
+     */
+    public void setDerivationListener(DerivationListener listener) {
+        this.listener = listener != null ? listener : DerivationListener.noOp();
+    }
+
+    /**
+     * Sets how much provenance is recorded for derived facts (default: FULL).
+     */
+    public void setProvenanceLevel(ProvenanceLevel level) {
+        provenance.setLevel(level);
+    }
+
+    /**
+     * Records full provenance for facts accepted by {@code sampler} even when the
+     * level is lower, so they can still be explained (null to disable).
+     */
+    public void setProvenanceSampler(Predicate<Atom> sampler) {
+        provenance.setFullCaptureSampler(sampler);
+    }
+
     public ReasoningInterpretation reason(int timesteps) {
         // factsAtTime[t] = all atoms true at time t
-        List<Set<Atom>> factsAtTime = new ArrayList<>();
+        List<Set<EncodedAtom>> factsAtTime = new ArrayList<>();
         for (int t = 0; t <= timesteps; t++) {
             factsAtTime.add(new HashSet<>());
         }
@@ -25,109 +51,127 @@ public class Reasoner {
             }
         }*/
        for (TimedFact f : baseFacts) {
+    EncodedAtom atom = symbols.encode(f.getAtom());
     for (Interval iv : f.getIntervals()) {
         int start = Math.max(0, iv.getStart());
         int end   = Math.min(timesteps, iv.getEnd());
         for (int t = start; t <= end; t++) {
-            factsAtTime.get(t).add(f.getAtom());
+            factsAtTime.get(t).add(atom);
         }
     }
 }
 
-        // 2) Forward chaining across time
+        // 2) Forward chaining across time, one stratum at a time
+        RuleScheduler schedule = new RuleScheduler(rules);
         boolean changed = true;
         while (changed) {
             changed = false;
             for (int t = 0; t <= timesteps; t++) {
-                for (Rule r : rules) {
-                    if (!r.isActiveAt(t)) continue;
-                    int baseTime = t + r.getDelay();
-                    if (baseTime > timesteps) continue;
-
-                    List<Map<String,String>> subsList =
-                            findAllSubstitutionsWithNegation(r.getBodyLiterals(), factsAtTime.get(t));
-
-                    for (Map<String,String> theta : subsList) {
-                        Atom headPattern = Atom.parse(r.getHead());
-                        Atom headGrounded = applySubstitution(headPattern, theta);
-                        int startOffset = r.getHeadStartOffset();
-                        int endOffset   = r.getHeadEndOffset();
-
-                        for (int dt = startOffset; dt <= endOffset; dt++) {
-                            int tt = baseTime + dt;             // actual time where head is true
-                        if (tt < 0 || tt > timesteps) continue;
-                            if (factsAtTime.get(tt).add(headGrounded)) {
-                            changed = true;
-                            System.out.println("t=" + tt
-                                    + " inferred by " + r.getName()
-                                    + ": " + headGrounded);
-
-                            // Record provenance
-                            List<Provenance.AtomTimeKey> sources = new ArrayList<>();
-                            for (String bodyAtomStr : r.getBodyAtoms()) {
-                                Atom bodyPattern = Atom.parse(bodyAtomStr);
-                                Atom bodyGrounded = applySubstitution(bodyPattern, theta);
-                                sources.add(new Provenance.AtomTimeKey(bodyGrounded, t));
-                            }
-                            DerivationInfo derivInfo = new DerivationInfo(r.getName(), sources, theta);
-                            provenance.record(headGrounded, tt, derivInfo);
+                for (RuleScheduler.Stratum stratum : schedule.getStrata()) {
+                    // Non-recursive strata only need one pass; recursive ones run to a fixpoint
+                    boolean stratumChanged;
+                    do {
+                        stratumChanged = false;
+                        for (CompiledRule cr : stratum.getRules()) {
+                            stratumChanged |= applyRule(cr, t, timesteps, factsAtTime);
                         }
-                    }
-                    }
+                        changed |= stratumChanged;
+                    } while (stratum.isRecursive() && stratumChanged);
                 }
             }
+            // Sweeping forward in time already reached the fixpoint unless rules derive into the past
+            if (schedule.isTimeMonotone()) break;
         }
 
-        return new ReasoningInterpretation(factsAtTime, provenance);
+        // Strings are decoded only once, at the interpretation boundary
+        List<Set<Atom>> decoded = new ArrayList<>(factsAtTime.size());
+        for (Set<EncodedAtom> atoms : factsAtTime) {
+            decoded.add(symbols.decodeAll(atoms));
+        }
+        return new ReasoningInterpretation(decoded, provenance);
     }
 
-    // --- unification helpers (variables = lowercase) ---
-
     /**
-     * Finds all substitutions that satisfy the body literals (with negation support).
+     * Evaluates one rule at time t and adds its new head facts.
+     *
+     * @return true if any new fact was derived
      */
-    private List<Map<String,String>> findAllSubstitutionsWithNegation(List<Literal> bodyLiterals, Set<Atom> factsAtTime) {
-        List<Map<String,String>> results = new ArrayList<>();
-        backtrackWithNegation(bodyLiterals, 0, factsAtTime, new HashMap<>(), results);
-        return results;
+    private boolean applyRule(CompiledRule cr, int t, int timesteps, List<Set<EncodedAtom>> factsAtTime) {
+        Rule r = cr.getRule();
+        if (!r.isActiveAt(t)) return false;
+        int baseTime = t + r.getDelay();
+        if (baseTime > timesteps) return false;
+
+        boolean changed = false;
+        List<int[]> subsList = findAllSubstitutionsWithNegation(cr, factsAtTime.get(t));
+
+        for (int[] theta : subsList) {
+            EncodedAtom headGrounded = cr.instantiateHead(theta);
+            int startOffset = r.getHeadStartOffset();
+            int endOffset   = r.getHeadEndOffset();
+
+            for (int dt = startOffset; dt <= endOffset; dt++) {
+                int tt = baseTime + dt;             // actual time where head is true
+                if (tt < 0 || tt > timesteps) continue;
+                if (factsAtTime.get(tt).add(headGrounded)) {
+                    changed = true;
+                    if (!listener.isEnabled() && !provenance.isRecording()) continue;
+
+                    Atom headAtom = symbols.decode(headGrounded);
+                    if (listener.isEnabled()) {
+                        listener.onDerivation(new DerivationEvent(r.getName(), headAtom, tt));
+                    }
+
+                    // Record provenance
+                    provenance.record(headAtom, tt, r.getName(), () -> new DerivationInfo(r.getName(),
+                            cr.groundSources(theta, t, symbols), cr.decodeBinding(theta, symbols)));
+                }
+            }
+        }
+        return changed;
     }
 
-    private List<Map<String,String>> findAllSubstitutions(List<String> bodyStrs, Set<Atom> factsAtTime) {
-        List<Atom> body = bodyStrs.stream().map(Atom::parse).toList();
-        List<Map<String,String>> results = new ArrayList<>();
-        backtrack(body, 0, factsAtTime, new HashMap<>(), results);
+    // --- matching helpers (one BindingFrame per search, undone via its trail) ---
+
+    /**
+     * Finds all bindings that satisfy the body literals (with negation support).
+     */
+    private List<int[]> findAllSubstitutionsWithNegation(CompiledRule rule, Set<EncodedAtom> factsAtTime) {
+        List<int[]> results = new ArrayList<>();
+        backtrackWithNegation(rule.getBody(), 0, factsAtTime, rule.newFrame(), results);
         return results;
     }
 
     /**
      * Backtracking with support for negated literals (Negation as Failure).
      */
-    private void backtrackWithNegation(List<Literal> body,
+    private void backtrackWithNegation(List<CompiledRule.CompiledLiteral> body,
                                        int idx,
-                                       Set<Atom> factsAtTime,
-                                       Map<String,String> current,
-                                       List<Map<String,String>> results) {
+                                       Set<EncodedAtom> factsAtTime,
+                                       BindingFrame frame,
+                                       List<int[]> results) {
         if (idx == body.size()) {
-            results.add(new HashMap<>(current));
+            results.add(frame.snapshot());
             return;
         }
 
-        Literal literal = body.get(idx);
-        Atom pattern = applySubstitution(literal.getAtom(), current);
+        CompiledRule.CompiledLiteral literal = body.get(idx);
+        int mark = frame.mark();
 
         if (literal.isPositive()) {
             // Positive literal: must unify with at least one fact
-            for (Atom fact : factsAtTime) {
-                Map<String,String> newSubst = unify(pattern, fact, current);
-                if (newSubst != null) {
-                    backtrackWithNegation(body, idx + 1, factsAtTime, newSubst, results);
+            for (EncodedAtom fact : factsAtTime) {
+                if (literal.match(fact, frame)) {
+                    backtrackWithNegation(body, idx + 1, factsAtTime, frame, results);
+                    frame.undo(mark);
                 }
             }
         } else {
             // Negative literal (Negation as Failure): must NOT unify with any fact
             boolean unifiesWithAny = false;
-            for (Atom fact : factsAtTime) {
-                if (unify(pattern, fact, current) != null) {
+            for (EncodedAtom fact : factsAtTime) {
+                if (literal.match(fact, frame)) {
+                    frame.undo(mark);
                     unifiesWithAny = true;
                     break;
                 }
@@ -135,69 +179,9 @@ public class Reasoner {
 
             // If it doesn't unify with any fact, the negation succeeds
             if (!unifiesWithAny) {
-                backtrackWithNegation(body, idx + 1, factsAtTime, current, results);
+                backtrackWithNegation(body, idx + 1, factsAtTime, frame, results);
             }
             // Otherwise, negation fails, don't continue this branch
         }
     }
-
-    private void backtrack(List<Atom> body,
-                           int idx,
-                           Set<Atom> factsAtTime,
-                           Map<String,String> current,
-                           List<Map<String,String>> results) {
-        if (idx == body.size()) {
-            results.add(new HashMap<>(current));
-            return;
-        }
-
-        Atom pattern = applySubstitution(body.get(idx), current);
-
-        for (Atom fact : factsAtTime) {
-            Map<String,String> newSubst = unify(pattern, fact, current);
-            if (newSubst != null) {
-                backtrack(body, idx + 1, factsAtTime, newSubst, results);
-            }
-        }
-    }
-
-    private Map<String,String> unify(Atom pattern, Atom fact, Map<String,String> subst) {
-        if (!pattern.getPredicate().equals(fact.getPredicate())) return null;
-        if (pattern.arity() != fact.arity()) return null;
-
-        Map<String,String> result = new HashMap<>(subst);
-        for (int i = 0; i < pattern.arity(); i++) {
-            String pArg = pattern.getArgs().get(i);
-            String fArg = fact.getArgs().get(i);
-
-            if (isVariable(pArg)) {
-                String existing = result.get(pArg);
-                if (existing == null) {
-                    result.put(pArg, fArg);
-                } else if (!existing.equals(fArg)) {
-                    return null; // conflicting substitution
-                }
-            } else {
-                if (!pArg.equals(fArg)) return null; // constant mismatch
-            }
-        }
-        return result;
-    }
-
-    private boolean isVariable(String s) {
-        return s.length() > 0 && Character.isLowerCase(s.charAt(0)); // x,y,z,...
-    }
-
-    private Atom applySubstitution(Atom atom, Map<String,String> subst) {
-        List<String> newArgs = new ArrayList<>();
-        for (String arg : atom.getArgs()) {
-            if (isVariable(arg) && subst.containsKey(arg)) {
-                newArgs.add(subst.get(arg));
-            } else {
-                newArgs.add(arg);
-            }
-        }
-        return new Atom(atom.getPredicate(), newArgs);
-    }
 }
-
@@ -1,7 +1,8 @@
 package com.example;
 
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Stores the results of temporal reasoning across multiple timesteps.
@@ -9,6 +10,12 @@ import java.util.Set;
  * <p>A ReasoningInterpretation organizes derived facts by timestep, allowing
  * queries for facts that are true at specific points in time.</p>
  *
+ * <p>Lookups by predicate and by argument ({@link #getFactsByPredicate},
+ * {@link #getFactsByArgument}) use indexes that are built the first time a
+ * timestep, predicate or argument position is asked for, so a {@link Query} can
+ * go straight to the matching facts. The indexes assume the fact sets are not
+ * modified after the interpretation is created.</p>
+ *
  * <p>Example usage:</p>
  * <pre>{@code
  * ReasoningInterpretation result = JavaSense.reason(graph, 10);
@@ -26,6 +33,7 @@ import java.util.Set;
 public class ReasoningInterpretation {
     private final List<Set<Atom>> factsByTime; // index = timestep
     private final Provenance provenance;
+    private final Map<Integer, TimeIndex> indexes = new ConcurrentHashMap<>();
 
     /**
      * Constructs a new ReasoningInterpretation.
@@ -59,6 +67,33 @@ public class ReasoningInterpretation {
         return factsByTime.get(t);
     }
 
+    /**
+     * Gets the facts of one predicate at a timestep.
+     *
+     * @param t the timestep (out-of-range timesteps have no facts)
+     * @param predicate the predicate name
+     * @return matching facts (unmodifiable)
+     */
+    public List<Atom> getFactsByPredicate(int t, String predicate) {
+        TimeIndex index = indexAt(t);
+        return index == null ? List.of() : index.byPredicate(predicate);
+    }
+
+    /**
+     * Gets the facts of one predicate at a timestep whose argument at
+     * {@code position} equals {@code value}.
+     *
+     * @param t the timestep (out-of-range timesteps have no facts)
+     * @param predicate the predicate name
+     * @param position zero-based argument position
+     * @param value the argument value
+     * @return matching facts (unmodifiable)
+     */
+    public List<Atom> getFactsByArgument(int t, String predicate, int position, String value) {
+        TimeIndex index = indexAt(t);
+        return index == null ? List.of() : index.byArgument(predicate, position, value);
+    }
+
     /**
      * Returns the maximum timestep in this interpretation.
      *
@@ -148,5 +183,65 @@ public class ReasoningInterpretation {
             }
         }
     }
-}
 
+    private TimeIndex indexAt(int t) {
+        if (t < 0 || t >= factsByTime.size() || factsByTime.get(t) == null) {
+            return null;
+        }
+        return indexes.computeIfAbsent(t, k -> new TimeIndex(factsByTime.get(k)));
+    }
+
+    /**
+     * Facts of one timestep grouped by predicate; argument buckets are built per
+     * (predicate, position) on first use.
+     */
+    private static final class TimeIndex {
+        private final Map<String, List<Atom>> byPredicate = new HashMap<>();
+        private final Map<String, AtomicReferenceArray<Map<String, List<Atom>>>> byArgument =
+                new ConcurrentHashMap<>();
+
+        TimeIndex(Set<Atom> facts) {
+            for (Atom fact : facts) {
+                byPredicate.computeIfAbsent(fact.getPredicate(), k -> new ArrayList<>()).add(fact);
+            }
+            byPredicate.replaceAll((k, v) -> Collections.unmodifiableList(v));
+        }
+
+        List<Atom> byPredicate(String predicate) {
+            return byPredicate.getOrDefault(predicate, List.of());
+        }
+
+        List<Atom> byArgument(String predicate, int position, String value) {
+            List<Atom> facts = byPredicate(predicate);
+            if (facts.isEmpty() || position < 0) return List.of();
+
+            AtomicReferenceArray<Map<String, List<Atom>>> positions =
+                    byArgument.computeIfAbsent(predicate, k -> new AtomicReferenceArray<>(maxArity(facts)));
+            if (position >= positions.length()) return List.of();
+
+            Map<String, List<Atom>> buckets = positions.get(position);
+            if (buckets == null) {
+                // Concurrent callers may both build the bucket; either copy is correct
+                buckets = new HashMap<>();
+                for (Atom fact : facts) {
+                    if (position < fact.arity()) {
+                        buckets.computeIfAbsent(fact.getArgs().get(position), k -> new ArrayList<>()).add(fact);
+                    }
+                }
+                if (!positions.compareAndSet(position, null, buckets)) {
+                    buckets = positions.get(position);
+                }
+            }
+            List<Atom> bucket = buckets.get(value);
+            return bucket == null ? List.of() : Collections.unmodifiableList(bucket);
+        }
+
+        private static int maxArity(List<Atom> facts) {
+            int max = 0;
+            for (Atom fact : facts) {
+                max = Math.max(max, fact.arity());
+            }
+            return max;
+        }
+    }
+}
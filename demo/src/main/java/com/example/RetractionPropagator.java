@@ -0,0 +1,680 @@
+package com.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Removes base facts from a materialized result and updates only the facts that
+ * depend on them.
+ *
+ * <p>Strata come from {@link RuleScheduler#acrossTime}, so a stratum only reads
+ * predicates finished by earlier strata (at any timestep) or by itself. They are
+ * processed in order, each one seeing the facts that earlier strata deleted or
+ * inserted:</p>
+ * <ul>
+ *   <li><b>Non-recursive strata (counting):</b> a fact whose derivation used a
+ *       deleted fact is kept only if it still has at least one derivation. Its
+ *       derivations are counted on demand from the current facts, instead of
+ *       keeping a count for every fact of the result.</li>
+ *   <li><b>Recursive strata (DRed):</b> everything reachable from the deleted facts
+ *       inside the stratum is over-deleted first, since counts cannot tell a real
+ *       derivation from a cyclic one. Then each over-deleted fact that can still be
+ *       derived from the remaining facts is put back, until nothing changes.</li>
+ *   <li><b>Negation:</b> a deleted fact can make {@code not p(...)} true, so rules
+ *       of later strata that negate it are re-evaluated at that timestep and may
+ *       insert facts. Those insertions can in turn invalidate derivations that
+ *       negate them further up.</li>
+ * </ul>
+ *
+ * <p>Candidates are found by matching rules with one body literal pinned to a
+ * changed fact, against the facts as they were before the change. Negation is
+ * ignored at that step, which can only add candidates; every candidate is then
+ * checked against the current facts, joining from its head bindings. All matching
+ * goes through the store's {@link RuleEvaluator} ({@link RuleEvaluator#evaluateFrom}),
+ * so it uses the same join order, argument indexes and negation semantics as
+ * forward evaluation. If the program is not stratified across time
+ * ({@link #isSupported()} is false), callers must re-reason instead.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * RetractionPropagator propagator = new RetractionPropagator(rules, symbols, provenance, maxTimesteps);
+ * if (propagator.isSupported()) {
+ *     RetractionPropagator.Result result = propagator.retract(Map.of(atom, IntervalSet.of(3, 9)), store);
+ *     result.getRemoved();   // base and derived facts that no longer hold
+ * }
+ * }</pre>
+ */
+public class RetractionPropagator {
+    private static final Logger logger = LoggerFactory.getLogger(RetractionPropagator.class);
+
+    /**
+     * The materialized facts a retraction reads and updates.
+     */
+    public interface FactStore {
+        /** Facts of a predicate at a timestep. The propagator does not modify the store while iterating. */
+        Collection<EncodedAtom> getByPredicate(int predicate, int time);
+
+        boolean contains(EncodedAtom atom, int time);
+
+        /** @return true if the fact was not already present */
+        boolean add(EncodedAtom atom, int time);
+
+        /** @return true if the fact was present */
+        boolean remove(EncodedAtom atom, int time);
+
+        /** Checks whether the fact is (still) stated as a base fact at this timestep. */
+        boolean isBase(EncodedAtom atom, int time);
+
+        /** Evaluator that joins rule bodies over this store's facts. */
+        RuleEvaluator evaluator();
+
+        /**
+         * Views a sparse storage as a fact store. A static fact that is removed at one
+         * timestep is first spread over {@code 0..horizon} as dynamic facts.
+         *
+         * @param base timesteps at which each atom is a base fact (read live)
+         */
+        static FactStore of(SparseFactStorage storage, int horizon, Map<EncodedAtom, IntervalSet> base) {
+            return of(new RuleEvaluator(storage), horizon, base);
+        }
+
+        /**
+         * Views the storage of an evaluator as a fact store, sharing the evaluator's
+         * join plans with forward evaluation.
+         *
+         * @param base timesteps at which each atom is a base fact (read live)
+         */
+        static FactStore of(RuleEvaluator evaluator, int horizon, Map<EncodedAtom, IntervalSet> base) {
+            SparseFactStorage storage = evaluator.getStorage();
+            return new FactStore() {
+                @Override
+                public Collection<EncodedAtom> getByPredicate(int predicate, int time) {
+                    return storage.getByPredicate(predicate, time);
+                }
+
+                @Override
+                public boolean contains(EncodedAtom atom, int time) {
+                    return storage.contains(atom, time);
+                }
+
+                @Override
+                public boolean add(EncodedAtom atom, int time) {
+                    return storage.addDynamic(atom, time);
+                }
+
+                @Override
+                public boolean remove(EncodedAtom atom, int time) {
+                    storage.makeDynamic(atom, 0, horizon);
+                    return storage.removeDynamic(atom, time);
+                }
+
+                @Override
+                public boolean isBase(EncodedAtom atom, int time) {
+                    IntervalSet when = base.get(atom);
+                    return when != null && when.contains(time);
+                }
+
+                @Override
+                public RuleEvaluator evaluator() {
+                    return evaluator;
+                }
+            };
+        }
+    }
+
+    /**
+     * Net effect of one retraction.
+     */
+    public static final class Result {
+        private final List<Provenance.AtomTimeKey> removed;
+        private final List<Provenance.AtomTimeKey> added;
+        private final int rederived;
+
+        Result(List<Provenance.AtomTimeKey> removed, List<Provenance.AtomTimeKey> added, int rederived) {
+            this.removed = removed;
+            this.added = added;
+            this.rederived = rederived;
+        }
+
+        /** Facts that held before and no longer hold (base and derived). */
+        public List<Provenance.AtomTimeKey> getRemoved() { return removed; }
+
+        /** Facts that now hold because a negated condition became true. */
+        public List<Provenance.AtomTimeKey> getAdded()   { return added; }
+
+        /** Over-deleted facts of recursive strata that were derived again. */
+        public int getRederivedCount()                   { return rederived; }
+
+        @Override
+        public String toString() {
+            return String.format("Retraction{removed=%d, added=%d, rederived=%d}",
+                    removed.size(), added.size(), rederived);
+        }
+    }
+
+    private final RuleScheduler scheduler;
+    private final Map<Integer, RuleScheduler.Stratum> stratumOfPredicate = new HashMap<>();
+    // Slots findSupport may seed from a head: those no negated literal treats as existential
+    private final Map<CompiledRule, boolean[]> seedable = new HashMap<>();
+    private final SymbolTable symbols;
+    private final Provenance provenance;
+    private final int horizon;
+
+    /**
+     * Creates a propagator for one rule set.
+     *
+     * @param rules compiled rules that produced the store's contents
+     * @param symbols symbol table the rules and facts are encoded with
+     * @param provenance provenance to update (removed facts are forgotten, new ones recorded)
+     * @param horizon last timestep of the result
+     */
+    public RetractionPropagator(List<CompiledRule> rules, SymbolTable symbols,
+                                Provenance provenance, int horizon) {
+        this.scheduler = RuleScheduler.acrossTime(rules);
+        this.symbols = symbols;
+        this.provenance = provenance;
+        this.horizon = horizon;
+        for (RuleScheduler.Stratum stratum : scheduler.getStrata()) {
+            for (CompiledRule cr : stratum.getRules()) {
+                stratumOfPredicate.put(cr.getHeadPredicate(), stratum);
+            }
+        }
+        for (CompiledRule cr : rules) {
+            boolean[] slots = new boolean[cr.slotCount()];
+            Arrays.fill(slots, true);
+            List<CompiledRule.CompiledLiteral> body = cr.getBody();
+            for (int j = 0; j < body.size(); j++) {
+                if (!body.get(j).isNegated()) continue;
+                boolean[] before = cr.slotsBoundBefore(j);
+                for (int i = 0; i < body.get(j).arity(); i++) {
+                    int slot = body.get(j).slotAt(i);
+                    if (slot >= 0 && !before[slot]) slots[slot] = false;
+                }
+            }
+            seedable.put(cr, slots);
+        }
+    }
+
+    /**
+     * Checks whether retractions can be propagated incrementally, i.e. no predicate
+     * depends negatively on itself across time.
+     */
+    public boolean isSupported() {
+        return scheduler.isStratified();
+    }
+
+    /**
+     * Retracts base facts and updates the store.
+     *
+     * <p>The store's {@link FactStore#isBase} must already reflect the retraction;
+     * the retracted facts themselves must still be in the store. A retracted fact
+     * that is also derivable stays.</p>
+     *
+     * @param removedBase timesteps at which each atom stopped being a base fact
+     * @param store materialized facts
+     * @return the facts removed and added
+     * @throws IllegalStateException if the rules are not stratified across time
+     */
+    public Result retract(Map<EncodedAtom, IntervalSet> removedBase, FactStore store) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Rules negate a predicate they recursively depend on; re-reason instead");
+        }
+        Change change = new Change(store);
+
+        List<RuleScheduler.Stratum> strata = scheduler.getStrata();
+        List<Set<TimedAtom>> candidates = new ArrayList<>(strata.size());
+        for (int i = 0; i < strata.size(); i++) {
+            candidates.add(new LinkedHashSet<>());
+        }
+
+        for (Map.Entry<EncodedAtom, IntervalSet> e : removedBase.entrySet()) {
+            EncodedAtom atom = e.getKey();
+            IntervalSet when = e.getValue().clip(0, horizon);
+            RuleScheduler.Stratum stratum = stratumOfPredicate.get(atom.getPredicate());
+            for (int i = 0; i < when.runCount(); i++) {
+                for (int t = when.runStart(i); t <= when.runEnd(i); t++) {
+                    if (!store.contains(atom, t) || store.isBase(atom, t)) continue;
+                    if (stratum == null) {
+                        store.remove(atom, t);
+                        change.deleted(new TimedAtom(atom, t));   // no rule derives it
+                    } else {
+                        candidates.get(stratum.getIndex()).add(new TimedAtom(atom, t));
+                    }
+                }
+            }
+        }
+
+        Result result = propagate(change, candidates);
+        logger.debug("Retraction of {} atoms: {}", removedBase.size(), result);
+        return result;
+    }
+
+    /**
+     * Removes derived facts that relied on the absence of facts that have since
+     * been added.
+     *
+     * <p>Adding facts is monotone except through negation: a derivation that used
+     * {@code not p(...)} loses its support once a matching {@code p(...)} holds.
+     * The caller adds the new facts and their positive consequences to the store
+     * first; this then deletes what is no longer supported and inserts whatever
+     * those deletions enable in turn.</p>
+     *
+     * @param asserted timesteps at which each atom became true (already in the store)
+     * @param store materialized facts
+     * @return the facts removed and added (the asserted facts themselves are not reported)
+     * @throws IllegalStateException if the rules are not stratified across time
+     */
+    public Result invalidate(Map<EncodedAtom, IntervalSet> asserted, FactStore store) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Rules negate a predicate they recursively depend on; re-reason instead");
+        }
+        Change change = new Change(store);
+        for (Map.Entry<EncodedAtom, IntervalSet> e : asserted.entrySet()) {
+            IntervalSet when = e.getValue().clip(0, horizon);
+            for (int i = 0; i < when.runCount(); i++) {
+                for (int t = when.runStart(i); t <= when.runEnd(i); t++) {
+                    change.asserted(new TimedAtom(e.getKey(), t));
+                }
+            }
+        }
+
+        List<Set<TimedAtom>> candidates = new ArrayList<>();
+        for (int i = 0; i < scheduler.getStrata().size(); i++) {
+            candidates.add(new LinkedHashSet<>());
+        }
+        Result result = propagate(change, candidates);
+        logger.debug("Invalidation by {} atoms: {}", asserted.size(), result);
+        return result;
+    }
+
+    /**
+     * Runs every stratum in order: deletes unsupported facts, then inserts enabled ones.
+     */
+    private Result propagate(Change change, List<Set<TimedAtom>> candidates) {
+        for (RuleScheduler.Stratum stratum : scheduler.getStrata()) {
+            Set<TimedAtom> affected = candidates.get(stratum.getIndex());
+            collectAffected(stratum, change, affected);
+            if (stratum.isRecursive()) {
+                deleteAndRederive(stratum, affected, change);
+            } else {
+                deleteUnsupported(affected, change);
+            }
+            insertEnabled(stratum, change);
+        }
+        return change.toResult();
+    }
+
+    // --- Phases ---
+
+    /**
+     * Adds the facts of a stratum that were derived using a deleted fact, or
+     * while a newly inserted fact was absent.
+     */
+    private void collectAffected(RuleScheduler.Stratum stratum, Change change, Set<TimedAtom> affected) {
+        for (CompiledRule cr : stratum.getRules()) {
+            List<CompiledRule.CompiledLiteral> body = cr.getBody();
+            for (int i = 0; i < body.size(); i++) {
+                CompiledRule.CompiledLiteral literal = body.get(i);
+                if (literal.isPositive()) {
+                    for (TimedAtom fact : change.deletedOf(literal.getPredicate())) {
+                        headsUsing(cr, i, fact, change, affected);
+                    }
+                } else {
+                    for (TimedAtom fact : change.insertedOf(literal.getPredicate())) {
+                        headsUsing(cr, i, fact, change, affected);
+                    }
+                    for (TimedAtom fact : change.assertedOf(literal.getPredicate())) {
+                        headsUsing(cr, i, fact, change, affected);
+                    }
+                }
+            }
+        }
+    }
+
+    private void deleteUnsupported(Set<TimedAtom> affected, Change change) {
+        for (TimedAtom fact : affected) {
+            if (!change.store.contains(fact.atom, fact.time) || change.store.isBase(fact.atom, fact.time)) continue;
+            Support support = findSupport(fact, change);
+            if (support == null) {
+                change.store.remove(fact.atom, fact.time);
+                change.deleted(fact);
+            } else if (!provenance.isDerived(symbols.decode(fact.atom), fact.time)) {
+                record(fact, support);   // a retracted base fact that is still derivable
+            }
+        }
+    }
+
+    private void deleteAndRederive(RuleScheduler.Stratum stratum, Set<TimedAtom> affected, Change change) {
+        // Over-delete: everything in this stratum reachable from the affected facts
+        Set<TimedAtom> overdeleted = new LinkedHashSet<>();
+        Deque<TimedAtom> work = new ArrayDeque<>(affected);
+        while (!work.isEmpty()) {
+            TimedAtom fact = work.pop();
+            if (overdeleted.contains(fact) || !change.store.contains(fact.atom, fact.time)
+                    || change.store.isBase(fact.atom, fact.time)) {
+                continue;
+            }
+            overdeleted.add(fact);
+
+            Set<TimedAtom> heads = new LinkedHashSet<>();
+            for (CompiledRule cr : stratum.getRules()) {
+                List<CompiledRule.CompiledLiteral> body = cr.getBody();
+                for (int i = 0; i < body.size(); i++) {
+                    if (body.get(i).isPositive() && body.get(i).getPredicate() == fact.atom.getPredicate()) {
+                        headsUsing(cr, i, fact, change, heads);
+                    }
+                }
+            }
+            work.addAll(heads);
+        }
+        for (TimedAtom fact : overdeleted) {
+            change.store.remove(fact.atom, fact.time);
+        }
+
+        // Rederive: put back what the remaining facts still support
+        boolean progress = true;
+        while (progress) {
+            progress = false;
+            for (Iterator<TimedAtom> it = overdeleted.iterator(); it.hasNext(); ) {
+                TimedAtom fact = it.next();
+                Support support = findSupport(fact, change);
+                if (support != null) {
+                    change.store.add(fact.atom, fact.time);
+                    record(fact, support);
+                    change.rederived++;
+                    it.remove();
+                    progress = true;
+                }
+            }
+        }
+        for (TimedAtom fact : overdeleted) {
+            change.deleted(fact);
+        }
+    }
+
+    /**
+     * Inserts the derivations of a stratum that a deleted negated fact or an inserted
+     * positive fact enables. Each is found by a join pinned to the changed literal,
+     * so only rule instances that use the change are visited.
+     */
+    private void insertEnabled(RuleScheduler.Stratum stratum, Change change) {
+        Deque<Pinned> work = new ArrayDeque<>();
+        for (CompiledRule cr : stratum.getRules()) {
+            List<CompiledRule.CompiledLiteral> body = cr.getBody();
+            for (int i = 0; i < body.size(); i++) {
+                CompiledRule.CompiledLiteral literal = body.get(i);
+                List<TimedAtom> changed = literal.isNegated()
+                        ? change.deletedOf(literal.getPredicate())
+                        : change.insertedOf(literal.getPredicate());
+                for (TimedAtom fact : changed) {
+                    work.add(new Pinned(cr, i, fact));
+                }
+            }
+        }
+
+        while (!work.isEmpty()) {
+            Pinned item = work.poll();
+            CompiledRule cr = item.rule;
+            Rule r = cr.getRule();
+            int t = item.fact.time;
+            if (!r.isActiveAt(t) || t + r.getDelay() > horizon) continue;
+
+            BindingFrame frame = cr.newFrame();
+            if (!pin(cr, item.literal, item.fact.atom, frame)) continue;
+            // Collected first: the store is updated below
+            List<int[]> bindings = new ArrayList<>();
+            change.store.evaluator().evaluateFrom(cr, t, frame, item.literal, null, bindings::add);
+
+            for (int[] binding : bindings) {
+                EncodedAtom head = cr.instantiateHead(binding);
+                for (int dt = r.getHeadStartOffset(); dt <= r.getHeadEndOffset(); dt++) {
+                    int tt = t + r.getDelay() + dt;
+                    if (tt < 0 || tt > horizon || !change.store.add(head, tt)) continue;
+
+                    TimedAtom fact = new TimedAtom(head, tt);
+                    record(fact, new Support(cr, binding, t));
+                    change.inserted(fact);
+
+                    if (stratum.isRecursive()) {
+                        for (CompiledRule next : stratum.getRules()) {
+                            List<CompiledRule.CompiledLiteral> body = next.getBody();
+                            for (int i = 0; i < body.size(); i++) {
+                                if (body.get(i).isPositive() && body.get(i).getPredicate() == head.getPredicate()) {
+                                    work.add(new Pinned(next, i, fact));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // --- Matching ---
+
+    /**
+     * Collects the heads of derivations of {@code cr} that match body literal
+     * {@code pinned} to {@code fact}, over the facts before the change.
+     */
+    private void headsUsing(CompiledRule cr, int pinned, TimedAtom fact, Change change, Set<TimedAtom> out) {
+        Rule r = cr.getRule();
+        if (!r.isActiveAt(fact.time)) return;
+        BindingFrame frame = cr.newFrame();
+        if (!pin(cr, pinned, fact.atom, frame)) return;
+
+        change.store.evaluator().evaluateFrom(cr, fact.time, frame, pinned, change.removedAt(fact.time), binding -> {
+            EncodedAtom head = cr.instantiateHead(binding);
+            for (int dt = r.getHeadStartOffset(); dt <= r.getHeadEndOffset(); dt++) {
+                int tt = fact.time + r.getDelay() + dt;
+                if (tt >= 0 && tt <= horizon) {
+                    out.add(new TimedAtom(head, tt));
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Binds the slots body literal {@code pinned} takes from {@code atom}. A negated
+     * literal only passes on the variables bound before it in the written order; the
+     * others are existential in it and say nothing about the rest of the body.
+     */
+    private static boolean pin(CompiledRule cr, int pinned, EncodedAtom atom, BindingFrame frame) {
+        CompiledRule.CompiledLiteral literal = cr.getBody().get(pinned);
+        if (literal.isPositive()) {
+            return literal.match(atom, frame);
+        }
+        BindingFrame matched = cr.newFrame();
+        if (!literal.match(atom, matched)) return false;
+        boolean[] before = cr.slotsBoundBefore(pinned);
+        for (int i = 0; i < literal.arity(); i++) {
+            int slot = literal.slotAt(i);
+            if (slot >= 0 && before[slot] && !frame.isBound(slot)) {
+                frame.bind(slot, matched.get(slot));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds one derivation of a fact from the current facts, or null if it has none.
+     */
+    private Support findSupport(TimedAtom fact, Change change) {
+        RuleScheduler.Stratum stratum = stratumOfPredicate.get(fact.atom.getPredicate());
+        if (stratum == null) return null;
+
+        for (CompiledRule cr : stratum.getRules()) {
+            BindingFrame target = cr.newFrame();
+            if (!cr.matchHead(fact.atom, target)) continue;
+
+            // Join from the head's bindings. Variables a negated literal treats as
+            // existential must stay unbound until it is checked, so they are only
+            // compared with the head once the match is complete
+            boolean[] seed = seedable.get(cr);
+            BindingFrame frame = cr.newFrame();
+            boolean partial = false;
+            for (int slot = 0; slot < frame.size(); slot++) {
+                if (!target.isBound(slot)) continue;
+                if (seed[slot]) {
+                    frame.bind(slot, target.get(slot));
+                } else {
+                    partial = true;
+                }
+            }
+            boolean checkHead = partial;
+
+            Rule r = cr.getRule();
+            for (int dt = r.getHeadStartOffset(); dt <= r.getHeadEndOffset(); dt++) {
+                int t = fact.time - r.getDelay() - dt;
+                if (t < 0 || t > horizon || !r.isActiveAt(t)) continue;
+
+                int[][] found = new int[1][];
+                change.store.evaluator().evaluateFrom(cr, t, frame, -1, null, binding -> {
+                    if (checkHead && !agrees(binding, target)) return true;
+                    found[0] = binding;
+                    return false;
+                });
+                if (found[0] != null) {
+                    return new Support(cr, found[0], t);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean agrees(int[] binding, BindingFrame target) {
+        for (int slot = 0; slot < binding.length; slot++) {
+            int expected = target.get(slot);
+            if (expected != SymbolTable.UNKNOWN && binding[slot] != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void record(TimedAtom fact, Support support) {
+        if (!provenance.isRecording()) return;
+        CompiledRule cr = support.rule;
+        provenance.record(symbols.decode(fact.atom), fact.time, cr.getName(),
+                () -> new DerivationInfo(cr.getName(), cr.groundSources(support.binding, support.time, symbols),
+                                         cr.decodeBinding(support.binding, symbols)));
+    }
+
+    // --- State of one retraction ---
+
+    private final class Change {
+        final FactStore store;
+        final Set<TimedAtom> deleted = new LinkedHashSet<>();
+        final Set<TimedAtom> inserted = new LinkedHashSet<>();
+        final Map<Integer, List<TimedAtom>> deletedByPredicate = new HashMap<>();
+        final Map<Integer, List<TimedAtom>> insertedByPredicate = new HashMap<>();
+        final Map<Integer, List<TimedAtom>> assertedByPredicate = new HashMap<>();
+        final Map<Integer, FactIndex> removedByTime = new HashMap<>();
+        final FactIndex noneRemoved = new FactIndex();
+        int rederived = 0;
+
+        Change(FactStore store) {
+            this.store = store;
+        }
+
+        // Registers a fact the caller already removed from the store
+        void deleted(TimedAtom fact) {
+            if (!deleted.add(fact)) return;
+            deletedByPredicate.computeIfAbsent(fact.atom.getPredicate(), k -> new ArrayList<>()).add(fact);
+            removedByTime.computeIfAbsent(fact.time, k -> new FactIndex()).add(fact.atom);
+            provenance.forget(symbols.decode(fact.atom), fact.time);
+        }
+
+        void inserted(TimedAtom fact) {
+            if (!inserted.add(fact)) return;
+            insertedByPredicate.computeIfAbsent(fact.atom.getPredicate(), k -> new ArrayList<>()).add(fact);
+        }
+
+        // Registers a fact the caller added before this change; only negation reacts to it
+        void asserted(TimedAtom fact) {
+            assertedByPredicate.computeIfAbsent(fact.atom.getPredicate(), k -> new ArrayList<>()).add(fact);
+        }
+
+        List<TimedAtom> deletedOf(int predicate) {
+            return deletedByPredicate.getOrDefault(predicate, List.of());
+        }
+
+        List<TimedAtom> insertedOf(int predicate) {
+            return insertedByPredicate.getOrDefault(predicate, List.of());
+        }
+
+        List<TimedAtom> assertedOf(int predicate) {
+            return assertedByPredicate.getOrDefault(predicate, List.of());
+        }
+
+        FactIndex removedAt(int time) {
+            return removedByTime.getOrDefault(time, noneRemoved);
+        }
+
+        Result toResult() {
+            List<Provenance.AtomTimeKey> removed = new ArrayList<>();
+            for (TimedAtom fact : deleted) {
+                if (!inserted.contains(fact)) removed.add(fact.decode(symbols));
+            }
+            List<Provenance.AtomTimeKey> added = new ArrayList<>();
+            for (TimedAtom fact : inserted) {
+                if (!deleted.contains(fact)) added.add(fact.decode(symbols));
+            }
+            return new Result(removed, added, rederived);
+        }
+    }
+
+    private static final class Support {
+        final CompiledRule rule;
+        final int[] binding;
+        final int time;
+
+        Support(CompiledRule rule, int[] binding, int time) {
+            this.rule = rule;
+            this.binding = binding;
+            this.time = time;
+        }
+    }
+
+    private static final class TimedAtom {
+        final EncodedAtom atom;
+        final int time;
+
+        TimedAtom(EncodedAtom atom, int time) {
+            this.atom = atom;
+            this.time = time;
+        }
+
+        Provenance.AtomTimeKey decode(SymbolTable symbols) {
+            return new Provenance.AtomTimeKey(symbols.decode(atom), time);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TimedAtom)) return false;
+            TimedAtom other = (TimedAtom) o;
+            return time == other.time && atom.equals(other.atom);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * atom.hashCode() + time;
+        }
+    }
+
+    /** A body literal of a rule matched to a changed fact. */
+    private static final class Pinned {
+        final CompiledRule rule;
+        final int literal;
+        final TimedAtom fact;
+
+        Pinned(CompiledRule rule, int literal, TimedAtom fact) {
+            this.rule = rule;
+            this.literal = literal;
+            this.fact = fact;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.example;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+
+/**
+ * Indexed join evaluation of {@link CompiledRule} bodies over a {@link SparseFactStorage}.
+ *
+ * <p>Supports both a full join and semi-naive delta joins. For a delta join the
+ * rule is evaluated once per positive body literal {@code i}: literal {@code i}
+ * reads only the delta (facts new since the previous iteration), literals before
+ * it read the full relation minus the delta, and literals after it read the full
+ * relation. Every match that uses at least one new fact is then produced exactly
+ * once, and a rule whose body predicates saw no new facts is skipped entirely.</p>
+ *
+ * <p>Negated literals always check the full relation.</p>
+ *
+ * <p>{@link #evaluateFrom} serves maintenance of a materialized result (see
+ * {@link RetractionPropagator}): it joins from bindings the caller already has, such
+ * as a pinned body literal or the head of a fact to re-derive, and can match
+ * against the facts as they were before a removal.</p>
+ *
+ * <p>Literals are joined in the order chosen by a {@link JoinPlanner}, not
+ * necessarily the order they are written in.</p>
+ *
+ * <p>With an executor set, a join whose first literal has at least
+ * {@link #PARALLEL_JOIN_THRESHOLD} candidates is split into chunks of those
+ * candidates. Each chunk joins into its own frame and result buffer, and the
+ * buffers are concatenated once every chunk is done.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * RuleEvaluator evaluator = new RuleEvaluator(storage);
+ * List<int[]> all = evaluator.evaluate(rule, t);                // first pass
+ * if (RuleEvaluator.touchesDelta(rule, delta)) {
+ *     List<int[]> fresh = evaluator.evaluateDelta(rule, t, delta); // later passes
+ * }
+ * }</pre>
+ */
+public class RuleEvaluator {
+
+    /**
+     * Which slice of a relation a body literal reads in one join variant.
+     */
+    public enum Source {
+        /** Every fact true at the timestep. */
+        FULL,
+        /** Only facts in the delta. */
+        DELTA,
+        /** Facts true at the timestep that are not in the delta. */
+        FULL_MINUS_DELTA,
+        /** Facts true at the timestep and the facts in the delta. */
+        FULL_PLUS_DELTA,
+        /** Not matched: already bound by the caller, or a negation that is not checked. */
+        NONE
+    }
+
+    /**
+     * Minimum number of candidates for the first literal before a join is split.
+     */
+    public static final int PARALLEL_JOIN_THRESHOLD = 2048;
+
+    private final SparseFactStorage storage;
+    private final JoinPlanner planner;
+    private volatile ForkJoinPool executor;
+
+    public RuleEvaluator(SparseFactStorage storage) {
+        this(storage, new JoinPlanner(storage));
+    }
+
+    public RuleEvaluator(SparseFactStorage storage, JoinPlanner planner) {
+        this.storage = storage;
+        this.planner = planner;
+    }
+
+    public SparseFactStorage getStorage() {
+        return storage;
+    }
+
+    public JoinPlanner getPlanner() {
+        return planner;
+    }
+
+    /**
+     * Sets the pool used to split large joins, or null to always join on the calling thread.
+     * The evaluator does not own the pool.
+     */
+    public void setExecutor(ForkJoinPool executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Evaluates a rule body against every fact true at {@code time}.
+     *
+     * @param rule compiled rule
+     * @param time timestep at which the body is evaluated
+     * @return complete bindings
+     */
+    public List<int[]> evaluate(CompiledRule rule, int time) {
+        List<int[]> results = new ArrayList<>();
+        Source[] sources = new Source[rule.getBody().size()];
+        Arrays.fill(sources, Source.FULL);
+        join(rule.getBody(), planner.plan(rule, time), sources, 0, time, null, rule.newFrame(), results::add);
+        return results;
+    }
+
+    /**
+     * Evaluates only the matches that use at least one fact from {@code delta}.
+     *
+     * @param rule compiled rule
+     * @param time timestep at which the body is evaluated
+     * @param delta facts at {@code time} that are new since the previous iteration
+     * @return complete bindings (each match at most once)
+     */
+    public List<int[]> evaluateDelta(CompiledRule rule, int time, FactIndex delta) {
+        List<int[]> results = new ArrayList<>();
+        List<CompiledRule.CompiledLiteral> body = rule.getBody();
+        BindingFrame frame = rule.newFrame();
+        Source[] sources = new Source[body.size()];
+
+        for (int i = 0; i < body.size(); i++) {
+            CompiledRule.CompiledLiteral deltaLiteral = body.get(i);
+            if (!deltaLiteral.isPositive() || delta.get(deltaLiteral.getPredicate()).isEmpty()) continue;
+
+            for (int j = 0; j < body.size(); j++) {
+                if (j == i) {
+                    sources[j] = Source.DELTA;
+                } else if (j < i && body.get(j).isPositive()) {
+                    sources[j] = Source.FULL_MINUS_DELTA;
+                } else {
+                    sources[j] = Source.FULL;
+                }
+            }
+            join(body, planner.plan(rule, time, i, delta), sources, 0, time, delta, frame, results::add);
+        }
+        return results;
+    }
+
+    /**
+     * Finds the matches of a rule body at {@code time} that extend the bindings in
+     * {@code frame}, stopping as soon as {@code sink} declines more.
+     *
+     * <p>Bound arguments are answered from the argument indexes, so a frame seeded
+     * with a head or a pinned literal only visits facts that can join with it. The
+     * caller must seed the same slots for the same {@code pinned} each time (see
+     * {@link JoinPlanner#plan(CompiledRule, int, BindingFrame, int)}).</p>
+     *
+     * @param time timestep at which the body is evaluated
+     * @param frame bindings to start from; restored when this returns
+     * @param pinned body literal already matched into {@code frame}, or -1. A pinned
+     *               negated literal has only the slots bound before it seeded and is
+     *               still checked, unless {@code removed} is given
+     * @param removed if non-null, match against the facts before these were removed:
+     *                positive literals read them too, and negated literals are not
+     *                checked (which can only add matches)
+     * @param sink receives complete bindings; returns false to stop
+     * @return false if the sink stopped the search
+     */
+    public boolean evaluateFrom(CompiledRule rule, int time, BindingFrame frame, int pinned,
+                                FactIndex removed, Predicate<int[]> sink) {
+        List<CompiledRule.CompiledLiteral> body = rule.getBody();
+        Source[] sources = new Source[body.size()];
+        for (int j = 0; j < body.size(); j++) {
+            boolean positive = body.get(j).isPositive();
+            if ((j == pinned && positive) || (removed != null && !positive)) {
+                sources[j] = Source.NONE;
+            } else {
+                sources[j] = removed != null ? Source.FULL_PLUS_DELTA : Source.FULL;
+            }
+        }
+        return join(body, planner.plan(rule, time, frame, pinned), sources, 0, time, removed, frame, sink);
+    }
+
+    /**
+     * Checks whether any positive body literal of a rule has facts in the delta.
+     */
+    public static boolean touchesDelta(CompiledRule rule, FactIndex delta) {
+        for (CompiledRule.CompiledLiteral literal : rule.getBody()) {
+            if (literal.isPositive() && !delta.get(literal.getPredicate()).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Joins the body literals in plan order; {@code idx} is a position in {@code order}.
+     *
+     * @return false if the sink stopped the search
+     */
+    private boolean join(List<CompiledRule.CompiledLiteral> body, int[] order, Source[] sources, int idx,
+                         int time, FactIndex delta, BindingFrame frame, Predicate<int[]> sink) {
+        if (idx == order.length) {
+            return sink.test(frame.snapshot());
+        }
+
+        CompiledRule.CompiledLiteral literal = body.get(order[idx]);
+        Source source = sources[order[idx]];
+        int mark = frame.mark();
+
+        if (source == Source.NONE) {
+            return join(body, order, sources, idx + 1, time, delta, frame, sink);
+        }
+        if (source == Source.FULL_PLUS_DELTA) {
+            return joinEach(body, order, sources, idx, time, delta, candidatesFor(literal, frame, time, null), frame, sink)
+                && joinEach(body, order, sources, idx, time, delta, candidatesFor(literal, frame, time, delta), frame, sink);
+        }
+
+        Set<EncodedAtom> candidates = candidatesFor(literal, frame, time, source == Source.DELTA ? delta : null);
+
+        if (literal.isPositive()) {
+            ForkJoinPool pool = executor;
+            // Each chunk starts from a fresh frame, so only unseeded joins are split
+            if (idx == 0 && frame.mark() == 0 && pool != null && candidates.size() >= PARALLEL_JOIN_THRESHOLD) {
+                return joinSplit(body, order, sources, time, delta, new ArrayList<>(candidates), frame.size(), pool, sink);
+            }
+            return joinEach(body, order, sources, idx, time, delta, candidates, frame, sink);
+        } else {
+            // Negation as failure
+            for (EncodedAtom fact : candidates) {
+                if (literal.match(fact, frame)) {
+                    frame.undo(mark);
+                    return true;
+                }
+            }
+            return join(body, order, sources, idx + 1, time, delta, frame, sink);
+        }
+    }
+
+    /**
+     * Matches the literal at {@code idx} against each candidate and joins the rest.
+     */
+    private boolean joinEach(List<CompiledRule.CompiledLiteral> body, int[] order, Source[] sources, int idx,
+                             int time, FactIndex delta, Iterable<EncodedAtom> candidates, BindingFrame frame,
+                             Predicate<int[]> sink) {
+        CompiledRule.CompiledLiteral literal = body.get(order[idx]);
+        boolean skipDelta = sources[order[idx]] == Source.FULL_MINUS_DELTA;
+        int mark = frame.mark();
+        for (EncodedAtom fact : candidates) {
+            if (skipDelta && delta.contains(fact)) continue;
+            if (literal.match(fact, frame)) {
+                boolean more = join(body, order, sources, idx + 1, time, delta, frame, sink);
+                frame.undo(mark);
+                if (!more) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits the first literal's candidates into chunks joined as separate tasks.
+     * Every task has its own frame and result buffer, so nothing is shared while
+     * matching; the buffers are passed to the sink in chunk order afterwards.
+     */
+    private boolean joinSplit(List<CompiledRule.CompiledLiteral> body, int[] order, Source[] sources, int time,
+                              FactIndex delta, List<EncodedAtom> candidates, int slotCount, ForkJoinPool pool,
+                              Predicate<int[]> sink) {
+        int chunkSize = Math.max(PARALLEL_JOIN_THRESHOLD / 4, candidates.size() / (pool.getParallelism() * 4));
+        List<ForkJoinTask<List<int[]>>> tasks = new ArrayList<>();
+        for (int from = 0; from < candidates.size(); from += chunkSize) {
+            List<EncodedAtom> chunk = candidates.subList(from, Math.min(from + chunkSize, candidates.size()));
+            tasks.add(ForkJoinTask.adapt(() -> {
+                List<int[]> buffer = new ArrayList<>();
+                joinEach(body, order, sources, 0, time, delta, chunk, new BindingFrame(slotCount), buffer::add);
+                return buffer;
+            }));
+        }
+
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+        }
+        for (ForkJoinTask<List<int[]>> task : tasks) {
+            for (int[] binding : task.join()) {
+                if (!sink.test(binding)) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Picks the smallest candidate set for a literal under the current bindings.
+     *
+     * <p>Every argument that is a constant or an already-bound variable can be
+     * answered from a (predicate, position, value) index. For a rule like
+     * {@code atRisk(y) <- disrupted(x), supplies(x,y)} the second literal becomes a
+     * hash lookup on {@code supplies} position 0 instead of a scan over every
+     * {@code supplies} fact.</p>
+     *
+     * @param deltaIndex if non-null, candidates come from this index instead of the storage
+     */
+    private Set<EncodedAtom> candidatesFor(CompiledRule.CompiledLiteral literal, BindingFrame frame,
+                                           int time, FactIndex deltaIndex) {
+        int predicate = literal.getPredicate();
+        int bestPosition = -1;
+        int bestValue = SymbolTable.UNKNOWN;
+        int bestCount = Integer.MAX_VALUE;
+
+        for (int i = 0; i < literal.arity(); i++) {
+            int value = literal.constantAt(i);
+            if (value == SymbolTable.UNKNOWN) {
+                value = frame.get(literal.slotAt(i));
+            }
+            if (value == SymbolTable.UNKNOWN) continue;
+
+            int count = deltaIndex != null
+                ? deltaIndex.get(predicate, i, value).size()
+                : storage.countByArgument(predicate, i, value, time);
+            if (count < bestCount) {
+                bestPosition = i;
+                bestValue = value;
+                bestCount = count;
+                if (count == 0) break;
+            }
+        }
+
+        if (deltaIndex != null) {
+            return bestPosition >= 0
+                ? deltaIndex.get(predicate, bestPosition, bestValue)
+                : deltaIndex.get(predicate);
+        }
+        return bestPosition >= 0
+            ? storage.getByArgument(predicate, bestPosition, bestValue, time)
+            : storage.getByPredicate(predicate, time);
+    }
+}
@@ -0,0 +1,299 @@
+package com.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Orders rules for evaluation using the predicate dependency graph.
+ *
+ * <p>Within a timestep, a rule whose head can land at the same timestep (delay plus
+ * head offset of 0) adds an edge from each body predicate to its head predicate.
+ * The strongly connected components of that graph, in topological order, become
+ * the {@link Stratum strata}: a non-recursive stratum is evaluated once per
+ * timestep, and only a recursive one (a cycle, or a rule that reads its own head)
+ * is iterated to a fixpoint. Because every predicate a stratum reads is completed
+ * by earlier strata, {@code not p(x)} is only checked once {@code p} is fully
+ * derived at that timestep.</p>
+ *
+ * <p>Rules that only derive into later timesteps do not constrain the order within
+ * a timestep. They go into a final stratum that runs after everything else at the
+ * timestep is settled.</p>
+ *
+ * <p>{@link #acrossTime(List)} builds the schedule from every rule instead, for
+ * evaluators that derive all timesteps at once (see {@link IntervalRuleEvaluator}).
+ * Its strata are only exact if {@link #isStratified()} holds.</p>
+ *
+ * <p>If negation occurs inside a recursive component the program is not stratifiable.
+ * The scheduler still returns an order (the component is iterated like any other)
+ * and logs a warning, which matches the old evaluate-until-nothing-changes behavior.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * RuleScheduler schedule = new RuleScheduler(compiledRules);
+ * for (int t = 0; t <= timesteps; t++) {
+ *     for (RuleScheduler.Stratum stratum : schedule.getStrata()) {
+ *         // evaluate stratum.getRules() once, or to a fixpoint if stratum.isRecursive()
+ *     }
+ * }
+ * }</pre>
+ */
+public class RuleScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(RuleScheduler.class);
+
+    private final List<Stratum> strata;
+    private final boolean stratified;
+    private final boolean timeMonotone;
+    private final int minimumLag;
+
+    /**
+     * Builds the schedule for a set of rules.
+     *
+     * @param rules compiled rules, in insertion order
+     */
+    public RuleScheduler(List<CompiledRule> rules) {
+        this(rules, false);
+    }
+
+    /**
+     * Builds a schedule that ignores timing: every rule is placed by its predicates
+     * only, as if all timesteps were evaluated together. Unstratified negation is
+     * expected here (the caller falls back to per-timestep evaluation), so it is
+     * not logged as a warning.
+     *
+     * @param rules compiled rules, in insertion order
+     */
+    public static RuleScheduler acrossTime(List<CompiledRule> rules) {
+        return new RuleScheduler(rules, true);
+    }
+
+    private RuleScheduler(List<CompiledRule> rules, boolean ignoreTiming) {
+        List<CompiledRule> sameTime = new ArrayList<>();
+        List<CompiledRule> laterTime = new ArrayList<>();
+        boolean monotone = true;
+        int lag = Integer.MAX_VALUE;
+
+        for (CompiledRule cr : rules) {
+            Rule r = cr.getRule();
+            int earliest = r.getDelay() + r.getHeadStartOffset();
+            lag = Math.min(lag, earliest);
+            if (earliest < 0) {
+                monotone = false;  // derives into the past
+            }
+            if (ignoreTiming || earliest <= 0) {
+                sameTime.add(cr);
+            } else {
+                laterTime.add(cr);
+            }
+        }
+        this.timeMonotone = monotone;
+        this.minimumLag = rules.isEmpty() ? 0 : lag;
+
+        // Predicate graph: body predicate -> head predicate
+        Map<Integer, Set<Integer>> edges = new LinkedHashMap<>();
+        for (CompiledRule cr : sameTime) {
+            edges.computeIfAbsent(cr.getHeadPredicate(), k -> new LinkedHashSet<>());
+            for (CompiledRule.CompiledLiteral lit : cr.getBody()) {
+                edges.computeIfAbsent(lit.getPredicate(), k -> new LinkedHashSet<>()).add(cr.getHeadPredicate());
+            }
+        }
+
+        Map<Integer, Integer> componentOf = new HashMap<>();
+        List<List<Integer>> components = new Tarjan(edges).run(componentOf);
+
+        // Group rules by the component of their head, keeping insertion order within a component
+        Map<Integer, List<CompiledRule>> rulesByComponent = new HashMap<>();
+        for (CompiledRule cr : sameTime) {
+            rulesByComponent.computeIfAbsent(componentOf.get(cr.getHeadPredicate()), k -> new ArrayList<>()).add(cr);
+        }
+
+        List<Stratum> result = new ArrayList<>();
+        boolean allStratified = true;
+        for (int c = 0; c < components.size(); c++) {
+            List<CompiledRule> componentRules = rulesByComponent.get(c);
+            if (componentRules == null) continue;  // base predicates only
+
+            boolean recursive = components.get(c).size() > 1;
+            for (CompiledRule cr : componentRules) {
+                for (CompiledRule.CompiledLiteral lit : cr.getBody()) {
+                    if (componentOf.get(lit.getPredicate()) != c) continue;
+                    recursive = true;
+                    if (lit.isNegated()) {
+                        allStratified = false;
+                        if (ignoreTiming) continue;
+                        logger.warn("Rule {} negates a predicate in its own recursive component; "
+                                + "negation is not stratified and is evaluated against partial results", cr.getName());
+                    }
+                }
+            }
+            result.add(new Stratum(result.size(), componentRules, recursive));
+        }
+
+        if (!laterTime.isEmpty()) {
+            result.add(new Stratum(result.size(), laterTime, false));
+        }
+
+        this.strata = Collections.unmodifiableList(result);
+        this.stratified = allStratified;
+
+        if (!monotone) {
+            logger.debug("Some rules derive into earlier timesteps; a single forward sweep is not enough");
+        }
+    }
+
+    /**
+     * Gets the strata in evaluation order.
+     */
+    public List<Stratum> getStrata() {
+        return strata;
+    }
+
+    /**
+     * Checks whether negation is stratified (no negated literal inside a recursive component).
+     */
+    public boolean isStratified() {
+        return stratified;
+    }
+
+    /**
+     * Checks whether every rule derives at the same or a later timestep. If so, evaluating
+     * timesteps in increasing order reaches the fixpoint in one sweep.
+     */
+    public boolean isTimeMonotone() {
+        return timeMonotone;
+    }
+
+    /**
+     * Gets the smallest distance, over all rules, between the timestep a body is
+     * evaluated at and the earliest timestep its head lands on. With a lag of
+     * {@code k >= 1}, evaluations at timesteps {@code t .. t+k-1} only read facts
+     * derived by evaluations before {@code t}, so they can run concurrently.
+     */
+    public int getMinimumLag() {
+        return minimumLag;
+    }
+
+    @Override
+    public String toString() {
+        return "RuleScheduler{strata=" + strata + ", stratified=" + stratified
+                + ", timeMonotone=" + timeMonotone + '}';
+    }
+
+    /**
+     * A group of rules evaluated together.
+     */
+    public static final class Stratum {
+        private final int index;
+        private final List<CompiledRule> rules;
+        private final boolean recursive;
+
+        Stratum(int index, List<CompiledRule> rules, boolean recursive) {
+            this.index = index;
+            this.rules = Collections.unmodifiableList(rules);
+            this.recursive = recursive;
+        }
+
+        public int getIndex()                 { return index; }
+        public List<CompiledRule> getRules()  { return rules; }
+
+        /**
+         * Whether the rules read predicates they derive themselves and need a fixpoint.
+         */
+        public boolean isRecursive()          { return recursive; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("Stratum{").append(index).append(recursive ? ", recursive" : "");
+            for (CompiledRule cr : rules) {
+                sb.append(", ").append(cr.getName());
+            }
+            return sb.append('}').toString();
+        }
+    }
+
+    /**
+     * Tarjan's strongly connected components, iterative so deep rule chains cannot
+     * overflow the stack. Components are returned in topological order (a component
+     * comes before every component it has edges into).
+     */
+    private static final class Tarjan {
+        private final Map<Integer, Set<Integer>> edges;
+        private final Map<Integer, Integer> index = new HashMap<>();
+        private final Map<Integer, Integer> lowLink = new HashMap<>();
+        private final Deque<Integer> stack = new ArrayDeque<>();
+        private final Set<Integer> onStack = new HashSet<>();
+        private int counter = 0;
+
+        Tarjan(Map<Integer, Set<Integer>> edges) {
+            this.edges = edges;
+        }
+
+        List<List<Integer>> run(Map<Integer, Integer> componentOf) {
+            List<List<Integer>> reversed = new ArrayList<>();
+            for (Integer node : edges.keySet()) {
+                if (!index.containsKey(node)) {
+                    visit(node, reversed);
+                }
+            }
+
+            // Tarjan emits sinks first; reverse for topological order
+            Collections.reverse(reversed);
+            for (int c = 0; c < reversed.size(); c++) {
+                for (Integer node : reversed.get(c)) {
+                    componentOf.put(node, c);
+                }
+            }
+            return reversed;
+        }
+
+        private void visit(int root, List<List<Integer>> out) {
+            Deque<Iterator<Integer>> work = new ArrayDeque<>();
+            Deque<Integer> path = new ArrayDeque<>();
+            enter(root);
+            path.push(root);
+            work.push(edges.getOrDefault(root, Collections.emptySet()).iterator());
+
+            while (!path.isEmpty()) {
+                int node = path.peek();
+                Iterator<Integer> it = work.peek();
+                if (it.hasNext()) {
+                    int next = it.next();
+                    if (!index.containsKey(next)) {
+                        enter(next);
+                        path.push(next);
+                        work.push(edges.getOrDefault(next, Collections.emptySet()).iterator());
+                    } else if (onStack.contains(next)) {
+                        lowLink.put(node, Math.min(lowLink.get(node), index.get(next)));
+                    }
+                    continue;
+                }
+
+                path.pop();
+                work.pop();
+                if (!path.isEmpty()) {
+                    int parent = path.peek();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(node)));
+                }
+                if (lowLink.get(node).equals(index.get(node))) {
+                    List<Integer> component = new ArrayList<>();
+                    int member;
+                    do {
+                        member = stack.pop();
+                        onStack.remove(member);
+                        component.add(member);
+                    } while (member != node);
+                    out.add(component);
+                }
+            }
+        }
+
+        private void enter(int node) {
+            index.put(node, counter);
+            lowLink.put(node, counter);
+            counter++;
+            stack.push(node);
+            onStack.add(node);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs one of every {@code n} derivation events at INFO level.
+ *
+ * <p>Gives a running picture of a large reasoning run (which rules fire, how far in
+ * time it got) without writing millions of lines. Every event is counted, so the
+ * total is exact even though most events are not logged.</p>
+ */
+public class SampledLoggingDerivationListener implements DerivationListener {
+    private static final Logger logger = LoggerFactory.getLogger(SampledLoggingDerivationListener.class);
+
+    private final long sampleEvery;
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * @param sampleEvery log every n-th event (1 logs everything)
+     */
+    public SampledLoggingDerivationListener(long sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1, got " + sampleEvery);
+        }
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public void onDerivation(DerivationEvent event) {
+        long n = count.incrementAndGet();
+        if ((n - 1) % sampleEvery == 0) {
+            logger.info("Derivation #{}: {}", n, event);
+        }
+    }
+
+    /**
+     * Gets the number of events seen (logged or not).
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    @Override
+    public void close() {
+        logger.info("{} derivations in total", count.get());
+    }
+}
@@ -0,0 +1,285 @@
+package com.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Time-indexed fact storage that keeps static facts once instead of per timestep.
+ *
+ * <p>Facts true at every timestep live in a single static {@link FactIndex}; all
+ * other facts live in one index per timestep. Lookups return zero-copy layered
+ * views (static layer + timestep layer), so {@code contains} is two hash probes
+ * and iterating a predicate never builds a temporary set.</p>
+ *
+ * <p>Time and predicate views are live: they reflect facts added later. Argument
+ * views only see buckets that existed at lookup time. Callers that add facts while
+ * iterating a view should buffer the additions until the iteration is done.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * SparseFactStorage storage = new SparseFactStorage();
+ * storage.addStatic(symbols.encode(Atom.parse("supplies(Acme,Honda)")));
+ * storage.addDynamic(symbols.encode(Atom.parse("disrupted(Acme)")), 3);
+ * storage.contains(disrupted, 3);                 // true
+ * storage.getByPredicate(suppliesId, 3).size();   // 1
+ * }</pre>
+ */
+public class SparseFactStorage {
+    private final FactIndex staticFacts = new FactIndex();
+    private final Map<Integer, FactIndex> dynamicFacts = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a fact that holds at every timestep.
+     *
+     * @return true if the fact was not already static
+     */
+    public boolean addStatic(EncodedAtom atom) {
+        return staticFacts.add(atom);
+    }
+
+    /**
+     * Adds a fact at one timestep. Facts that are already static are not duplicated.
+     *
+     * @return true if the fact was not already true at this time
+     */
+    public boolean addDynamic(EncodedAtom atom, int time) {
+        if (staticFacts.contains(atom)) {
+            return false;
+        }
+        return dynamicIndex(time).add(atom);
+    }
+
+    /**
+     * Removes a fact from one timestep. A static fact is not touched (it holds at
+     * every timestep); call {@link #makeDynamic} first to remove it from some of them.
+     *
+     * @return true if the fact was stored at this time
+     */
+    public boolean removeDynamic(EncodedAtom atom, int time) {
+        FactIndex index = dynamicFacts.get(time);
+        return index != null && index.remove(atom);
+    }
+
+    /**
+     * Moves a static fact into the per-timestep layers for {@code from..to}
+     * (inclusive), so it can be removed from individual timesteps.
+     *
+     * @return true if the fact was static
+     */
+    public boolean makeDynamic(EncodedAtom atom, int from, int to) {
+        if (!staticFacts.contains(atom)) {
+            return false;
+        }
+        for (int t = from; t <= to; t++) {
+            dynamicIndex(t).add(atom);
+        }
+        staticFacts.remove(atom);
+        return true;
+    }
+
+    /**
+     * Checks whether a fact holds at a timestep.
+     */
+    public boolean contains(EncodedAtom atom, int time) {
+        if (staticFacts.contains(atom)) return true;
+        FactIndex index = dynamicFacts.get(time);
+        return index != null && index.contains(atom);
+    }
+
+    public boolean isStatic(EncodedAtom atom) {
+        return staticFacts.contains(atom);
+    }
+
+    /**
+     * Gets a view of every fact true at a timestep.
+     */
+    public Set<EncodedAtom> getAllAt(int time) {
+        return new LayeredView(staticFacts.asSet(), dynamicIndex(time).asSet());
+    }
+
+    /**
+     * Gets a view of the static facts.
+     */
+    public Set<EncodedAtom> getAllStatic() {
+        return Collections.unmodifiableSet(staticFacts.asSet());
+    }
+
+    /**
+     * Gets a view of the facts stored for one timestep only (excluding static facts).
+     */
+    public Set<EncodedAtom> getDynamicAt(int time) {
+        FactIndex index = dynamicFacts.get(time);
+        return index != null ? Collections.unmodifiableSet(index.asSet()) : Collections.emptySet();
+    }
+
+    /**
+     * Gets a view of the facts of one predicate at a timestep.
+     */
+    public Set<EncodedAtom> getByPredicate(int predicate, int time) {
+        return new LayeredView(staticFacts.bucket(predicate), dynamicIndex(time).bucket(predicate));
+    }
+
+    /**
+     * Gets a view of the facts of one predicate at a timestep whose argument at
+     * {@code position} is {@code value}.
+     */
+    public Set<EncodedAtom> getByArgument(int predicate, int position, int value, int time) {
+        FactIndex index = dynamicFacts.get(time);
+        return new LayeredView(staticFacts.get(predicate, position, value),
+                index != null ? index.get(predicate, position, value) : Collections.emptySet());
+    }
+
+    /**
+     * Counts the facts returned by {@link #getByArgument} without iterating them.
+     */
+    public int countByArgument(int predicate, int position, int value, int time) {
+        int count = staticFacts.get(predicate, position, value).size();
+        FactIndex index = dynamicFacts.get(time);
+        if (index != null) {
+            count += index.get(predicate, position, value).size();
+        }
+        return count;
+    }
+
+    /**
+     * Counts the facts of a predicate at a timestep without building a view.
+     * A fact stored both statically and at the timestep is counted twice, which
+     * is fine for cost estimates.
+     */
+    public int countByPredicate(int predicate, int time) {
+        int count = staticFacts.get(predicate).size();
+        FactIndex index = dynamicFacts.get(time);
+        if (index != null) {
+            count += index.get(predicate).size();
+        }
+        return count;
+    }
+
+    /**
+     * Estimates the number of distinct values at an argument position of a
+     * predicate at a timestep (the larger of the static and timestep layers).
+     */
+    public int distinctByArgument(int predicate, int position, int time) {
+        int distinct = staticFacts.get(predicate).isEmpty() ? 0 : staticFacts.distinctValues(predicate, position);
+        FactIndex index = dynamicFacts.get(time);
+        if (index != null && !index.get(predicate).isEmpty()) {
+            distinct = Math.max(distinct, index.distinctValues(predicate, position));
+        }
+        return distinct;
+    }
+
+    /**
+     * Checks whether a predicate has the same facts at two timesteps. Static facts
+     * are shared by every timestep, so only the per-timestep layers are compared.
+     */
+    public boolean samePredicateFacts(int predicate, int time, int otherTime) {
+        FactIndex index = dynamicFacts.get(time);
+        FactIndex other = dynamicFacts.get(otherTime);
+        if (index == null || other == null) {
+            FactIndex present = index != null ? index : other;
+            return present == null || present.get(predicate).isEmpty();
+        }
+        return index.samePredicateFacts(predicate, other);
+    }
+
+    /**
+     * Gets the number of static facts.
+     */
+    public int staticSize() {
+        return staticFacts.size();
+    }
+
+    /**
+     * Gets the number of stored (time, fact) entries outside the static layer.
+     */
+    public long dynamicSize() {
+        long size = 0;
+        for (FactIndex index : dynamicFacts.values()) {
+            size += index.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        staticFacts.clear();
+        dynamicFacts.clear();
+    }
+
+    private FactIndex dynamicIndex(int time) {
+        return dynamicFacts.computeIfAbsent(time, k -> new FactIndex());
+    }
+
+    /**
+     * Read-only union of a static layer and a per-timestep layer.
+     *
+     * <p>{@link #addDynamic} keeps the layers disjoint, but a fact can still be in
+     * both when it became static after being stored dynamically, so iteration
+     * skips overlay elements that the base layer already contains.</p>
+     */
+    private static final class LayeredView extends AbstractSet<EncodedAtom> {
+        private final Set<EncodedAtom> base;
+        private final Set<EncodedAtom> overlay;
+
+        LayeredView(Set<EncodedAtom> base, Set<EncodedAtom> overlay) {
+            this.base = base;
+            this.overlay = overlay;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return base.contains(o) || overlay.contains(o);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return base.isEmpty() && overlay.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            if (overlay.isEmpty()) return base.size();
+            int size = base.size();
+            for (EncodedAtom atom : overlay) {
+                if (!base.contains(atom)) size++;
+            }
+            return size;
+        }
+
+        @Override
+        public Iterator<EncodedAtom> iterator() {
+            if (overlay.isEmpty()) {
+                return Collections.unmodifiableSet(base).iterator();
+            }
+            Iterator<EncodedAtom> first = base.iterator();
+            Iterator<EncodedAtom> second = overlay.iterator();
+            return new Iterator<>() {
+                private EncodedAtom next;
+
+                @Override
+                public boolean hasNext() {
+                    if (next != null) return true;
+                    if (first.hasNext()) {
+                        next = first.next();
+                        return true;
+                    }
+                    while (second.hasNext()) {
+                        EncodedAtom candidate = second.next();
+                        if (!base.contains(candidate)) {
+                            next = candidate;
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+
+                @Override
+                public EncodedAtom next() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    EncodedAtom result = next;
+                    next = null;
+                    return result;
+                }
+            };
+        }
+    }
+}
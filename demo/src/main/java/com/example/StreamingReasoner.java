@@ -5,7 +5,10 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Streaming Reasoner for Real-Time Incremental Updates
@@ -18,9 +21,23 @@ import java.util.function.Consumer;
  *   <li><b>Incremental Updates:</b> Add facts without full re-reasoning</li>
  *   <li><b>Event Callbacks:</b> Get notified when new facts are derived</li>
  *   <li><b>Delta Tracking:</b> Track only new derivations since last update</li>
- *   <li><b>Thread-Safe:</b> Concurrent fact additions supported</li>
+ *   <li><b>Thread-Safe:</b> Any number of threads can add facts concurrently</li>
  * </ul>
  *
+ * <h2>Threading:</h2>
+ * <p>Every update (adding rules or facts, retracting) runs on a single writer
+ * thread owned by the reasoner, in the order it was submitted. {@link #submitFact}
+ * queues an update and returns a future of the facts that update derived, so
+ * producers such as several Kafka partitions never wait for each other;
+ * {@link #addFactIncremental} is the same call waiting for its result. Each update
+ * collects its own derivations, so concurrent callers never see each other's
+ * results. Callbacks run on the writer thread.</p>
+ *
+ * <p>{@link #query} and {@link #getAllFactsAt} read the concurrent storage without
+ * blocking and may see an update that is still in progress.
+ * {@link #getInterpretation()} is taken on the writer thread between updates, so it
+ * is consistent across timesteps. Call {@link #close()} to stop the writer.</p>
+ *
  * <h2>Example Usage:</h2>
  * <pre>{@code
  * StreamingReasoner reasoner = new StreamingReasoner(10);  // max 10 timesteps
@@ -39,6 +56,9 @@ import java.util.function.Consumer;
  *     reasoner.addFactIncremental(fact);
  *     // Fraud alerts fired automatically via callback
  * });
+ *
+ * // Or without waiting, e.g. from several consumer threads
+ * reasoner.submitFact(fact).thenAccept(derived -> metrics.record(derived.size()));
  * }</pre>
  *
  * <h2>Performance:</h2>
@@ -48,28 +68,39 @@ import java.util.function.Consumer;
  *   <li>Scales to millions of facts with constant-time updates</li>
  * </ul>
  */
-public class StreamingReasoner {
+public class StreamingReasoner implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(StreamingReasoner.class);
 
     private final int maxTimesteps;
-    private final List<Rule> rules = new ArrayList<>();
+    private final List<CompiledRule> rules = new CopyOnWriteArrayList<>();
     private final Provenance provenance = new Provenance();
+    private final SymbolTable symbols = new SymbolTable();
 
     // Sparse storage for facts (static + dynamic)
-    private final Map<String, Set<Atom>> staticFactsByPredicate = new ConcurrentHashMap<>();
-    private final Map<Integer, Map<String, Set<Atom>>> dynamicFactsByTime = new ConcurrentHashMap<>();
+    private final SparseFactStorage storage = new SparseFactStorage();
+    private final RuleEvaluator evaluator = new RuleEvaluator(storage);
+
+    // Rules by the predicates of their positive body literals: the rules a new fact can trigger
+    private final Map<Integer, List<CompiledRule>> rulesByBodyPredicate = new ConcurrentHashMap<>();
+
+    // Timesteps at which each atom was added as a base fact (needed to retract)
+    private final Map<EncodedAtom, IntervalSet> baseFacts = new ConcurrentHashMap<>();
 
-    // Track new derivations since last update
-    private final Set<Provenance.AtomTimeKey> newDerivations = ConcurrentHashMap.newKeySet();
+    // Derivations of the most recently completed update
+    private volatile List<Provenance.AtomTimeKey> lastDerivations = List.of();
 
     // Event callbacks
     private final Map<String, List<Consumer<Atom>>> predicateCallbacks = new ConcurrentHashMap<>();
     private final List<Consumer<Provenance.AtomTimeKey>> globalCallbacks = new CopyOnWriteArrayList<>();
 
+    // Single writer: every update runs on this thread
+    private final ExecutorService writer;
+    private volatile Thread writerThread;
+
     // Statistics
-    private long totalFactsAdded = 0;
-    private long totalDerivations = 0;
-    private long lastUpdateTimeMs = 0;
+    private final AtomicLong totalFactsAdded = new AtomicLong();
+    private final AtomicLong totalDerivations = new AtomicLong();
+    private volatile long lastUpdateTimeMs = 0;
 
     /**
      * Constructs a new StreamingReasoner.
@@ -78,11 +109,12 @@ public class StreamingReasoner {
      */
     public StreamingReasoner(int maxTimesteps) {
         this.maxTimesteps = maxTimesteps;
-
-        // Initialize dynamic facts storage
-        for (int t = 0; t <= maxTimesteps; t++) {
-            dynamicFactsByTime.put(t, new ConcurrentHashMap<>());
-        }
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "streaming-reasoner-writer");
+            thread.setDaemon(true);
+            writerThread = thread;
+            return thread;
+        });
 
         logger.info("StreamingReasoner initialized with maxTimesteps={}", maxTimesteps);
     }
@@ -93,46 +125,71 @@ public class StreamingReasoner {
      * @param rule the rule to add
      */
     public void addRule(Rule rule) {
-        rules.add(rule);
-        logger.debug("Added rule: {}", rule.getName());
+        await(onWriter(() -> {
+            CompiledRule cr = CompiledRule.compile(rule, symbols);
+            rules.add(cr);
+            for (CompiledRule.CompiledLiteral literal : cr.getBody()) {
+                if (!literal.isPositive()) continue;
+                List<CompiledRule> triggered = rulesByBodyPredicate.computeIfAbsent(literal.getPredicate(),
+                        k -> new CopyOnWriteArrayList<>());
+                if (!triggered.contains(cr)) {
+                    triggered.add(cr);
+                }
+            }
+            logger.debug("Added rule: {}", rule.getName());
+            return null;
+        }));
+    }
+
+    /**
+     * Sets how much provenance is recorded for derived facts (default: FULL).
+     */
+    public void setProvenanceLevel(ProvenanceLevel level) {
+        provenance.setLevel(level);
+    }
+
+    /**
+     * Records full provenance for facts accepted by {@code sampler} even when the
+     * level is lower, so they can still be explained (null to disable).
+     */
+    public void setProvenanceSampler(Predicate<Atom> sampler) {
+        provenance.setFullCaptureSampler(sampler);
     }
 
     /**
      * Adds a fact incrementally and re-reasons only affected parts.
      *
      * <p>This is the main API for streaming updates. Facts are added to the
-     * knowledge base and only rules that could be triggered by this fact are evaluated.</p>
+     * knowledge base and only rules that could be triggered by this fact are evaluated.
+     * Waits for updates submitted earlier by any thread.</p>
      *
      * @param fact the fact to add
      * @return list of newly derived facts
      */
     public List<Provenance.AtomTimeKey> addFactIncremental(TimedFact fact) {
-        long startTime = System.currentTimeMillis();
-
-        newDerivations.clear();
-        totalFactsAdded++;
-
-        // Add fact to storage
-        addToStorage(fact);
-
-        // Propagate derivations
-        Set<Provenance.AtomTimeKey> affected = new HashSet<>();
-        for (Interval iv : fact.getIntervals()) {
-            int start = Math.max(0, iv.getStart());
-            int end = Math.min(maxTimesteps, iv.getEnd());
-            for (int t = start; t <= end; t++) {
-                affected.add(new Provenance.AtomTimeKey(fact.getAtom(), t));
-            }
-        }
-
-        propagateFrom(affected);
-
-        lastUpdateTimeMs = System.currentTimeMillis() - startTime;
-
-        logger.debug("Added fact {} incrementally in {}ms, derived {} new facts",
-                fact.getAtom(), lastUpdateTimeMs, newDerivations.size());
+        return await(submitFact(fact));
+    }
 
-        return new ArrayList<>(newDerivations);
+    /**
+     * Queues a fact to be added on the writer thread and returns without waiting.
+     *
+     * @param fact the fact to add
+     * @return completes with the facts this addition derived
+     */
+    public CompletableFuture<List<Provenance.AtomTimeKey>> submitFact(TimedFact fact) {
+        return onWriter(() -> {
+            long startTime = System.currentTimeMillis();
+            List<Provenance.AtomTimeKey> derived = new ArrayList<>();
+            totalFactsAdded.incrementAndGet();
+
+            // Add fact to storage and propagate from the timesteps where it is new
+            propagateFrom(addToStorage(fact), null, derived);
+
+            finish(startTime, derived);
+            logger.debug("Added fact {} incrementally in {}ms, derived {} new facts",
+                    fact.getAtom(), lastUpdateTimeMs, derived.size());
+            return derived;
+        });
     }
 
     /**
@@ -144,34 +201,101 @@ public class StreamingReasoner {
      * @return list of newly derived facts
      */
     public List<Provenance.AtomTimeKey> addFactsBatch(List<TimedFact> facts) {
-        long startTime = System.currentTimeMillis();
+        return await(submitFacts(facts));
+    }
 
-        newDerivations.clear();
+    /**
+     * Queues a batch of facts to be added on the writer thread as one update.
+     *
+     * @param facts the facts to add
+     * @return completes with the facts this batch derived
+     */
+    public CompletableFuture<List<Provenance.AtomTimeKey>> submitFacts(List<TimedFact> facts) {
+        List<TimedFact> batch = new ArrayList<>(facts);
+        return onWriter(() -> {
+            long startTime = System.currentTimeMillis();
+            List<Provenance.AtomTimeKey> derived = new ArrayList<>();
+
+            // Add all facts to storage first
+            Deque<Trigger> added = new ArrayDeque<>();
+            for (TimedFact fact : batch) {
+                added.addAll(addToStorage(fact));
+                totalFactsAdded.incrementAndGet();
+            }
 
-        // Add all facts to storage first
-        Set<Provenance.AtomTimeKey> affected = new HashSet<>();
-        for (TimedFact fact : facts) {
-            addToStorage(fact);
-            totalFactsAdded++;
+            // Propagate all at once
+            propagateFrom(added, null, derived);
 
-            for (Interval iv : fact.getIntervals()) {
-                int start = Math.max(0, iv.getStart());
-                int end = Math.min(maxTimesteps, iv.getEnd());
-                for (int t = start; t <= end; t++) {
-                    affected.add(new Provenance.AtomTimeKey(fact.getAtom(), t));
-                }
-            }
-        }
+            finish(startTime, derived);
+            logger.info("Added {} facts in batch in {}ms, derived {} new facts",
+                    batch.size(), lastUpdateTimeMs, derived.size());
+            return derived;
+        });
+    }
 
-        // Propagate all at once
-        propagateFrom(affected);
+    /**
+     * Retracts a base fact and removes only the facts that depended on it.
+     *
+     * <p>The fact's timesteps stop being base facts. Derived facts are updated with
+     * {@link RetractionPropagator} (counting for non-recursive strata,
+     * delete-and-rederive for recursive ones). Facts that become true because a
+     * negated condition now holds fire the usual callbacks. If the rules negate a
+     * predicate they recursively depend on, the knowledge base is rebuilt from the
+     * remaining base facts instead.</p>
+     *
+     * @param fact the fact to retract
+     * @return facts that no longer hold
+     */
+    public List<Provenance.AtomTimeKey> retract(TimedFact fact) {
+        return await(submitRetract(fact));
+    }
 
-        lastUpdateTimeMs = System.currentTimeMillis() - startTime;
+    /**
+     * Queues a retraction on the writer thread and returns without waiting.
+     *
+     * @param fact the fact to retract
+     * @return completes with the facts that no longer hold
+     * @see #retract(TimedFact)
+     */
+    public CompletableFuture<List<Provenance.AtomTimeKey>> submitRetract(TimedFact fact) {
+        return onWriter(() -> {
+            long startTime = System.currentTimeMillis();
+            List<Provenance.AtomTimeKey> derived = new ArrayList<>();
+
+            EncodedAtom atom = symbols.encode(fact.getAtom());
+            IntervalSet base = baseFacts.get(atom);
+            IntervalSet removed = base == null ? new IntervalSet() : IntervalSet.of(fact.getIntervals()).intersect(base);
+            if (removed.isEmpty()) {
+                finish(startTime, derived);
+                return new ArrayList<>();
+            }
+            IntervalSet remaining = base.minus(removed);
+            if (remaining.isEmpty()) {
+                baseFacts.remove(atom);
+            } else {
+                baseFacts.put(atom, remaining);
+            }
 
-        logger.info("Added {} facts in batch in {}ms, derived {} new facts",
-                facts.size(), lastUpdateTimeMs, newDerivations.size());
+            RetractionPropagator propagator = new RetractionPropagator(rules, symbols, provenance, maxTimesteps);
+            List<Provenance.AtomTimeKey> gone;
+            if (propagator.isSupported()) {
+                RetractionPropagator.Result result = propagator.retract(Map.of(atom, removed),
+                        RetractionPropagator.FactStore.of(evaluator, maxTimesteps, baseFacts));
+                for (Provenance.AtomTimeKey added : result.getAdded()) {
+                    derived.add(added);
+                    totalDerivations.incrementAndGet();
+                    fireCallbacks(added.getAtom(), added.getTime());
+                }
+                gone = result.getRemoved();
+            } else {
+                gone = rebuild(derived);
+            }
 
-        return new ArrayList<>(newDerivations);
+            finish(startTime, derived);
+            logger.debug("Retracted fact {} in {}ms, {} facts no longer hold",
+                    fact.getAtom(), lastUpdateTimeMs, gone.size());
+            return gone;
+        });
     }
 
     /**
@@ -196,12 +320,13 @@ public class StreamingReasoner {
     }
 
     /**
-     * Gets all newly derived facts since last update.
+     * Gets the facts derived by the most recently completed update. Each update's own
+     * derivations are also returned by the call (or future) that made it.
      *
      * @return list of (atom, time) pairs
      */
     public List<Provenance.AtomTimeKey> getNewDerivations() {
-        return new ArrayList<>(newDerivations);
+        return new ArrayList<>(lastDerivations);
     }
 
     /**
@@ -212,18 +337,7 @@ public class StreamingReasoner {
      * @return set of matching atoms
      */
     public Set<Atom> query(String predicate, int time) {
-        Set<Atom> result = new HashSet<>();
-
-        // Add static facts
-        result.addAll(staticFactsByPredicate.getOrDefault(predicate, Collections.emptySet()));
-
-        // Add dynamic facts at this time
-        Map<String, Set<Atom>> factsAtTime = dynamicFactsByTime.get(time);
-        if (factsAtTime != null) {
-            result.addAll(factsAtTime.getOrDefault(predicate, Collections.emptySet()));
-        }
-
-        return result;
+        return symbols.decodeAll(storage.getByPredicate(symbols.idOf(predicate), time));
     }
 
     /**
@@ -233,22 +347,7 @@ public class StreamingReasoner {
      * @return set of all atoms at this time
      */
     public Set<Atom> getAllFactsAt(int time) {
-        Set<Atom> result = new HashSet<>();
-
-        // Add all static facts
-        for (Set<Atom> atoms : staticFactsByPredicate.values()) {
-            result.addAll(atoms);
-        }
-
-        // Add all dynamic facts at this time
-        Map<String, Set<Atom>> factsAtTime = dynamicFactsByTime.get(time);
-        if (factsAtTime != null) {
-            for (Set<Atom> atoms : factsAtTime.values()) {
-                result.addAll(atoms);
-            }
-        }
-
-        return result;
+        return symbols.decodeAll(storage.getAllAt(time));
     }
 
     /**
@@ -257,11 +356,13 @@ public class StreamingReasoner {
      * @return reasoning interpretation
      */
     public ReasoningInterpretation getInterpretation() {
-        List<Set<Atom>> factsAtTime = new ArrayList<>();
-        for (int t = 0; t <= maxTimesteps; t++) {
-            factsAtTime.add(getAllFactsAt(t));
-        }
-        return new ReasoningInterpretation(factsAtTime, provenance);
+        return await(onWriter(() -> {
+            List<Set<Atom>> factsAtTime = new ArrayList<>();
+            for (int t = 0; t <= maxTimesteps; t++) {
+                factsAtTime.add(getAllFactsAt(t));
+            }
+            return new ReasoningInterpretation(factsAtTime, provenance);
+        }));
     }
 
     /**
@@ -271,16 +372,12 @@ public class StreamingReasoner {
      */
     public Map<String, Object> getStatistics() {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalFactsAdded", totalFactsAdded);
-        stats.put("totalDerivations", totalDerivations);
+        stats.put("totalFactsAdded", totalFactsAdded.get());
+        stats.put("totalDerivations", totalDerivations.get());
         stats.put("lastUpdateTimeMs", lastUpdateTimeMs);
         stats.put("rulesCount", rules.size());
 
-        long totalFacts = staticFactsByPredicate.values().stream()
-                .mapToLong(Set::size).sum();
-        totalFacts += dynamicFactsByTime.values().stream()
-                .flatMap(m -> m.values().stream())
-                .mapToLong(Set::size).sum();
+        long totalFacts = storage.staticSize() + storage.dynamicSize();
         stats.put("totalFactsInKB", totalFacts);
 
         return stats;
@@ -294,98 +391,196 @@ public class StreamingReasoner {
         globalCallbacks.clear();
     }
 
+    /**
+     * Waits until every update submitted so far has been applied.
+     */
+    public void flush() {
+        await(onWriter(() -> null));
+    }
+
+    /**
+     * Applies the updates already submitted, then stops the writer thread. Later
+     * updates fail with {@link IllegalStateException}; reads keep working.
+     */
+    @Override
+    public void close() {
+        writer.shutdown();
+        if (Thread.currentThread() == writerThread) return;
+        try {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Pending updates did not finish within 30s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     // --- Internal Methods ---
 
-    private void addToStorage(TimedFact fact) {
-        Atom atom = fact.getAtom();
-        String predicate = atom.getPredicate();
+    /**
+     * Runs an update on the writer thread. An update made from the writer thread
+     * itself (e.g. by a callback) runs immediately instead of queueing behind the
+     * update that is calling it.
+     */
+    private <T> CompletableFuture<T> onWriter(Supplier<T> update) {
+        if (Thread.currentThread() == writerThread) {
+            try {
+                return CompletableFuture.completedFuture(update.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        try {
+            return CompletableFuture.supplyAsync(update, writer);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("StreamingReasoner is closed", e));
+        }
+    }
 
-        // Check if fact is static (spans all timesteps)
-        boolean isStatic = false;
-        for (Interval iv : fact.getIntervals()) {
-            if (iv.getStart() == 0 && iv.getEnd() >= maxTimesteps) {
-                isStatic = true;
-                break;
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    private void finish(long startTime, List<Provenance.AtomTimeKey> derived) {
+        lastUpdateTimeMs = System.currentTimeMillis() - startTime;
+        lastDerivations = List.copyOf(derived);
+    }
+
+    /**
+     * Stores a base fact.
+     *
+     * @return the timesteps at which the fact was not already true
+     */
+    private List<Trigger> addToStorage(TimedFact fact) {
+        EncodedAtom atom = symbols.encode(fact.getAtom());
+
+        // Coalesce overlapping/adjacent intervals before deciding how to store the fact
+        IntervalSet when = IntervalSet.of(fact.getIntervals()).clip(0, maxTimesteps);
+        baseFacts.computeIfAbsent(atom, k -> new IntervalSet()).addAll(when);
+
+        List<Trigger> added = new ArrayList<>();
+        for (int i = 0; i < when.runCount(); i++) {
+            for (int t = when.runStart(i); t <= when.runEnd(i); t++) {
+                if (!storage.contains(atom, t)) {
+                    added.add(new Trigger(atom, t));
+                }
             }
         }
 
-        if (isStatic) {
-            staticFactsByPredicate.computeIfAbsent(predicate, k -> ConcurrentHashMap.newKeySet()).add(atom);
+        // Check if fact is static (spans all timesteps)
+        if (when.cardinality() == maxTimesteps + 1) {
+            storage.addStatic(atom);
         } else {
-            for (Interval iv : fact.getIntervals()) {
-                int start = Math.max(0, iv.getStart());
-                int end = Math.min(maxTimesteps, iv.getEnd());
-                for (int t = start; t <= end; t++) {
-                    dynamicFactsByTime.get(t)
-                            .computeIfAbsent(predicate, k -> ConcurrentHashMap.newKeySet())
-                            .add(atom);
+            for (Trigger trigger : added) {
+                storage.addDynamic(atom, trigger.time);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Rebuilds storage from the base facts, for rule sets the incremental
+     * retraction cannot handle. Facts that are derived again do not fire callbacks.
+     * Readers may see the storage empty while it is rebuilt.
+     *
+     * @param derived receives facts that did not hold before
+     * @return facts that held before and no longer hold
+     */
+    private List<Provenance.AtomTimeKey> rebuild(List<Provenance.AtomTimeKey> derived) {
+        List<Set<EncodedAtom>> before = new ArrayList<>();
+        for (int t = 0; t <= maxTimesteps; t++) {
+            before.add(new HashSet<>(storage.getAllAt(t)));
+        }
+
+        storage.clear();
+        Deque<Trigger> added = new ArrayDeque<>();
+        for (Map.Entry<EncodedAtom, IntervalSet> e : baseFacts.entrySet()) {
+            added.addAll(addToStorage(new TimedFact(symbols.decode(e.getKey()), "base", e.getValue().toIntervals())));
+        }
+        propagateFrom(added, before, derived);
+
+        List<Provenance.AtomTimeKey> gone = new ArrayList<>();
+        for (int t = 0; t <= maxTimesteps; t++) {
+            for (EncodedAtom atom : before.get(t)) {
+                if (!storage.contains(atom, t)) {
+                    Atom decoded = symbols.decode(atom);
+                    provenance.forget(decoded, t);
+                    gone.add(new Provenance.AtomTimeKey(decoded, t));
                 }
             }
         }
+        return gone;
     }
 
-    private void propagateFrom(Set<Provenance.AtomTimeKey> affected) {
-        Queue<Provenance.AtomTimeKey> queue = new LinkedList<>(affected);
-        Set<Provenance.AtomTimeKey> processed = new HashSet<>();
+    /**
+     * Derives everything that follows from facts just added to storage.
+     *
+     * <p>Each fact taken from the work queue is joined only into the rules whose
+     * positive body mentions its predicate, with that literal pinned to the fact
+     * (a one-fact delta for {@link RuleEvaluator#evaluateDelta}); the other literals
+     * are answered from the storage indexes. New heads go back on the queue. Every
+     * fact enters the queue once, when it first becomes true.</p>
+     *
+     * @param added facts already in storage that have not been propagated
+     * @param known facts that already held before (not reported as new), or null
+     * @param derived receives the new facts of this update
+     */
+    private void propagateFrom(Collection<Trigger> added, List<Set<EncodedAtom>> known,
+                               List<Provenance.AtomTimeKey> derived) {
+        Deque<Trigger> queue = new ArrayDeque<>(added);
+        FactIndex delta = new FactIndex();
 
         while (!queue.isEmpty()) {
-            Provenance.AtomTimeKey current = queue.poll();
-            if (processed.contains(current)) continue;
-            processed.add(current);
+            Trigger current = queue.poll();
+            List<CompiledRule> triggered = rulesByBodyPredicate.get(current.atom.getPredicate());
+            if (triggered == null) continue;
 
-            int t = current.getTime();
+            int t = current.time;
+            delta.clear();
+            delta.add(current.atom);
 
-            // Try to apply each rule at this timestep
-            for (Rule rule : rules) {
+            for (CompiledRule cr : triggered) {
+                Rule rule = cr.getRule();
                 if (!rule.isActiveAt(t)) continue;
 
                 int baseTime = t + rule.getDelay();
                 if (baseTime > maxTimesteps) continue;
 
-                Set<Atom> factsAtT = getAllFactsAt(t);
-                List<Map<String, String>> substitutions = findAllSubstitutions(rule.getBodyLiterals(), factsAtT);
-
-                for (Map<String, String> theta : substitutions) {
-                    Atom headPattern = Atom.parse(rule.getHead());
-                    Atom headGrounded = applySubstitution(headPattern, theta);
+                for (int[] theta : evaluator.evaluateDelta(cr, t, delta)) {
+                    EncodedAtom headGrounded = cr.instantiateHead(theta);
 
-                    int startOffset = rule.getHeadStartOffset();
-                    int endOffset = rule.getHeadEndOffset();
-
-                    for (int dt = startOffset; dt <= endOffset; dt++) {
+                    for (int dt = rule.getHeadStartOffset(); dt <= rule.getHeadEndOffset(); dt++) {
                         int tt = baseTime + dt;
                         if (tt < 0 || tt > maxTimesteps) continue;
 
                         // Check if this is a NEW derivation
-                        Set<Atom> existingAtTt = getAllFactsAt(tt);
-                        if (!existingAtTt.contains(headGrounded)) {
-                            // Add to storage
-                            dynamicFactsByTime.get(tt)
-                                    .computeIfAbsent(headGrounded.getPredicate(), k -> ConcurrentHashMap.newKeySet())
-                                    .add(headGrounded);
-
-                            Provenance.AtomTimeKey newFact = new Provenance.AtomTimeKey(headGrounded, tt);
-                            newDerivations.add(newFact);
-                            totalDerivations++;
+                        if (storage.addDynamic(headGrounded, tt)) {
+                            Atom headAtom = symbols.decode(headGrounded);
 
                             // Record provenance
-                            List<Provenance.AtomTimeKey> sources = new ArrayList<>();
-                            for (Literal lit : rule.getBodyLiterals()) {
-                                if (lit.isPositive()) {
-                                    Atom bodyGrounded = applySubstitution(lit.getAtom(), theta);
-                                    sources.add(new Provenance.AtomTimeKey(bodyGrounded, t));
-                                }
+                            if (provenance.isRecording()) {
+                                provenance.record(headAtom, tt, rule.getName(), () -> new DerivationInfo(rule.getName(),
+                                        cr.groundSources(theta, t, symbols), cr.decodeBinding(theta, symbols)));
                             }
-                            DerivationInfo derivInfo = new DerivationInfo(rule.getName(), sources, theta);
-                            provenance.record(headGrounded, tt, derivInfo);
 
-                            // Fire callbacks
-                            fireCallbacks(headGrounded, tt);
+                            if (known == null || !known.get(tt).contains(headGrounded)) {
+                                derived.add(new Provenance.AtomTimeKey(headAtom, tt));
+                                totalDerivations.incrementAndGet();
+
+                                // Fire callbacks
+                                fireCallbacks(headAtom, tt);
+                            }
 
                             // Add to queue for further propagation
-                            queue.add(newFact);
+                            queue.add(new Trigger(headGrounded, tt));
 
-                            logger.debug("Derived: t={} {} via rule {}", tt, headGrounded, rule.getName());
+                            logger.debug("Derived: t={} {} via rule {}", tt, headAtom, rule.getName());
                         }
                     }
                 }
@@ -417,80 +612,16 @@ public class StreamingReasoner {
         }
     }
 
-    private List<Map<String, String>> findAllSubstitutions(List<Literal> bodyLiterals, Set<Atom> factsAtTime) {
-        List<Map<String, String>> results = new ArrayList<>();
-        backtrack(bodyLiterals, 0, factsAtTime, new HashMap<>(), results);
-        return results;
-    }
-
-    private void backtrack(List<Literal> body, int idx, Set<Atom> factsAtTime,
-                          Map<String, String> current, List<Map<String, String>> results) {
-        if (idx == body.size()) {
-            results.add(new HashMap<>(current));
-            return;
-        }
-
-        Literal literal = body.get(idx);
-        Atom pattern = applySubstitution(literal.getAtom(), current);
-
-        if (literal.isPositive()) {
-            for (Atom fact : factsAtTime) {
-                Map<String, String> newSubst = unify(pattern, fact, current);
-                if (newSubst != null) {
-                    backtrack(body, idx + 1, factsAtTime, newSubst, results);
-                }
-            }
-        } else {
-            // Negation as failure
-            boolean unifiesWithAny = false;
-            for (Atom fact : factsAtTime) {
-                if (unify(pattern, fact, current) != null) {
-                    unifiesWithAny = true;
-                    break;
-                }
-            }
-            if (!unifiesWithAny) {
-                backtrack(body, idx + 1, factsAtTime, current, results);
-            }
-        }
-    }
-
-    private Map<String, String> unify(Atom pattern, Atom fact, Map<String, String> subst) {
-        if (!pattern.getPredicate().equals(fact.getPredicate())) return null;
-        if (pattern.arity() != fact.arity()) return null;
-
-        Map<String, String> result = new HashMap<>(subst);
-        for (int i = 0; i < pattern.arity(); i++) {
-            String pArg = pattern.getArgs().get(i);
-            String fArg = fact.getArgs().get(i);
-
-            if (isVariable(pArg)) {
-                String existing = result.get(pArg);
-                if (existing == null) {
-                    result.put(pArg, fArg);
-                } else if (!existing.equals(fArg)) {
-                    return null;
-                }
-            } else {
-                if (!pArg.equals(fArg)) return null;
-            }
-        }
-        return result;
-    }
-
-    private boolean isVariable(String s) {
-        return s.length() > 0 && Character.isLowerCase(s.charAt(0));
-    }
+    /**
+     * A fact that became true at one timestep and still has to be propagated.
+     */
+    private static final class Trigger {
+        final EncodedAtom atom;
+        final int time;
 
-    private Atom applySubstitution(Atom atom, Map<String, String> subst) {
-        List<String> newArgs = new ArrayList<>();
-        for (String arg : atom.getArgs()) {
-            if (isVariable(arg) && subst.containsKey(arg)) {
-                newArgs.add(subst.get(arg));
-            } else {
-                newArgs.add(arg);
-            }
+        Trigger(EncodedAtom atom, int time) {
+            this.atom = atom;
+            this.time = time;
         }
-        return new Atom(atom.getPredicate(), newArgs);
     }
 }
@@ -0,0 +1,135 @@
+package com.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns predicate names and constants as dense integer ids.
+ *
+ * <p>The reasoners keep facts as {@link EncodedAtom}s whose predicate and arguments
+ * are ids from a SymbolTable. Strings are only looked up again when results leave
+ * the reasoner (e.g. when building a {@link ReasoningInterpretation}).</p>
+ *
+ * <p>Id {@code 0} is reserved and never assigned, so it can be used as "unknown"
+ * or "unbound". Interning is thread-safe; lookups never block.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * SymbolTable symbols = new SymbolTable();
+ * EncodedAtom enc = symbols.encode(Atom.parse("supplies(Acme,Honda)"));
+ * Atom atom = symbols.decode(enc);   // supplies(Acme,Honda)
+ * }</pre>
+ */
+public class SymbolTable {
+    /** Id returned by {@link #idOf(String)} for strings that were never interned. */
+    public static final int UNKNOWN = 0;
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[64];
+    private int nextId = 1;
+
+    /**
+     * Returns the id for a string, assigning a new one if necessary.
+     *
+     * @param symbol the predicate name or constant
+     * @return the id (always &gt; 0)
+     */
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(symbol);
+            if (id != null) {
+                return id;
+            }
+            int newId = nextId++;
+            String[] table = symbols;
+            if (newId >= table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            table[newId] = symbol;
+            symbols = table;
+            ids.put(symbol, newId);
+            return newId;
+        }
+    }
+
+    /**
+     * Returns the id for a string without interning it.
+     *
+     * @param symbol the string to look up
+     * @return the id, or {@link #UNKNOWN} if the string was never interned
+     */
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        return id != null ? id : UNKNOWN;
+    }
+
+    /**
+     * Returns the string for an id.
+     *
+     * @param id the id
+     * @return the interned string
+     * @throws IllegalArgumentException if the id was never assigned
+     */
+    public String symbol(int id) {
+        String[] table = symbols;
+        String s = (id > 0 && id < table.length) ? table[id] : null;
+        if (s == null) {
+            throw new IllegalArgumentException("Unknown symbol id: " + id);
+        }
+        return s;
+    }
+
+    /**
+     * Gets the number of interned strings.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Encodes an atom, interning its predicate and arguments.
+     *
+     * @param atom the atom to encode
+     * @return encoded atom
+     */
+    public EncodedAtom encode(Atom atom) {
+        List<String> args = atom.getArgs();
+        int[] encodedArgs = new int[args.size()];
+        for (int i = 0; i < encodedArgs.length; i++) {
+            encodedArgs[i] = intern(args.get(i));
+        }
+        return new EncodedAtom(intern(atom.getPredicate()), encodedArgs);
+    }
+
+    /**
+     * Decodes an atom back to its string form.
+     *
+     * @param atom the encoded atom
+     * @return the decoded atom
+     */
+    public Atom decode(EncodedAtom atom) {
+        String[] args = new String[atom.arity()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = symbol(atom.arg(i));
+        }
+        return new Atom(symbol(atom.getPredicate()), Arrays.asList(args));
+    }
+
+    /**
+     * Decodes a collection of atoms into a new mutable set.
+     *
+     * @param atoms encoded atoms
+     * @return decoded atoms
+     */
+    public Set<Atom> decodeAll(Collection<EncodedAtom> atoms) {
+        Set<Atom> result = new HashSet<>(Math.max(16, atoms.size() * 4 / 3 + 1));
+        for (EncodedAtom atom : atoms) {
+            result.add(decode(atom));
+        }
+        return result;
+    }
+}
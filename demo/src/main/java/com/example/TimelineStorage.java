@@ -0,0 +1,133 @@
+package com.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fact storage where each atom carries one {@link IntervalSet} of the timesteps it holds at.
+ *
+ * <p>{@link SparseFactStorage} stores a non-static fact once per timestep, so memory
+ * grows with facts x timesteps. Here a fact that holds over {@code [100, 9000]} costs
+ * one run no matter how long the horizon is. Atoms are indexed by predicate and
+ * argument through a {@link FactIndex} (time-independent); the timeline of each
+ * atom says when it holds.</p>
+ *
+ * <h2>Example:</h2>
+ * <pre>{@code
+ * TimelineStorage storage = new TimelineStorage();
+ * storage.add(disrupted, IntervalSet.of(3, 9000));
+ * storage.contains(disrupted, 42);        // true
+ * storage.timeline(disrupted);            // {[3,9000]}
+ * }</pre>
+ */
+public class TimelineStorage {
+    private final FactIndex atoms = new FactIndex();
+    private final Map<EncodedAtom, IntervalSet> timelines = new ConcurrentHashMap<>();
+
+    /**
+     * Adds timesteps at which a fact holds.
+     *
+     * @return the timesteps that were not already recorded (empty if nothing changed)
+     */
+    public IntervalSet add(EncodedAtom atom, IntervalSet when) {
+        if (when.isEmpty()) return new IntervalSet();
+        atoms.add(atom);
+        IntervalSet timeline = timelines.computeIfAbsent(atom, k -> new IntervalSet());
+        synchronized (timeline) {
+            return timeline.addAll(when);
+        }
+    }
+
+    /**
+     * Adds {@code start..end} (inclusive) to a fact's timeline.
+     *
+     * @return the timesteps that were not already recorded
+     */
+    public IntervalSet add(EncodedAtom atom, int start, int end) {
+        return add(atom, IntervalSet.of(start, end));
+    }
+
+    /**
+     * Gets the timeline of a fact. Do not modify it: the set is the storage's own.
+     * A fact that never holds gets a new empty set.
+     */
+    public IntervalSet timeline(EncodedAtom atom) {
+        IntervalSet timeline = timelines.get(atom);
+        return timeline != null ? timeline : new IntervalSet();
+    }
+
+    public boolean contains(EncodedAtom atom, int time) {
+        IntervalSet timeline = timelines.get(atom);
+        return timeline != null && timeline.contains(time);
+    }
+
+    /**
+     * Gets every atom of a predicate that holds at some timestep.
+     */
+    public Set<EncodedAtom> getByPredicate(int predicate) {
+        return atoms.get(predicate);
+    }
+
+    /**
+     * Gets atoms of a predicate whose argument at {@code position} is {@code value}.
+     */
+    public Set<EncodedAtom> getByArgument(int predicate, int position, int value) {
+        return atoms.get(predicate, position, value);
+    }
+
+    /**
+     * Gets every atom that holds at some timestep.
+     */
+    public Set<EncodedAtom> atoms() {
+        return Collections.unmodifiableSet(timelines.keySet());
+    }
+
+    /**
+     * Gets the facts that hold at one timestep. This scans every atom, so it is
+     * meant for producing results, not for rule evaluation.
+     */
+    public Set<EncodedAtom> getAllAt(int time) {
+        Set<EncodedAtom> result = new HashSet<>();
+        for (Map.Entry<EncodedAtom, IntervalSet> e : timelines.entrySet()) {
+            if (e.getValue().contains(time)) {
+                result.add(e.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of distinct atoms.
+     */
+    public int atomCount() {
+        return timelines.size();
+    }
+
+    /**
+     * Gets the total number of runs over all timelines (the storage cost).
+     */
+    public long runCount() {
+        long total = 0;
+        for (IntervalSet timeline : timelines.values()) {
+            total += timeline.runCount();
+        }
+        return total;
+    }
+
+    /**
+     * Gets the number of (fact, timestep) pairs represented, i.e. what a
+     * per-timestep storage would hold.
+     */
+    public long expandedSize() {
+        long total = 0;
+        for (IntervalSet timeline : timelines.values()) {
+            total += timeline.cardinality();
+        }
+        return total;
+    }
+
+    public void clear() {
+        atoms.clear();
+        timelines.clear();
+    }
+}
@@ -15,6 +15,17 @@ import java.util.concurrent.*;
  * <p>The master manages worker nodes, distributes facts/rules, coordinates reasoning,
  * and aggregates results from all workers.</p>
  *
+ * <p>Workers keep their knowledge base between calls to {@link #reason}. The master
+ * records each worker's {@linkplain WorkerService#getKnowledgeBaseVersion() version}
+ * after loading it and, while that is unchanged, only sends the rules and facts added
+ * since. A worker that was reset or restarted, or every worker if the partitions change,
+ * is reset and loaded in full. If nothing changed at all, the previous result is
+ * returned without asking the workers to reason.</p>
+ *
+ * <p>Workers report only the derived facts that changed since their previous result,
+ * so the master keeps a copy of each worker's derived facts and applies those changes
+ * to it. A worker that starts over sends a complete result, which replaces the copy.</p>
+ *
  * <h2>Example Usage:</h2>
  * <pre>{@code
  * // Create master
@@ -41,6 +52,12 @@ import java.util.concurrent.*;
 public class DistributedMaster {
     private static final Logger logger = LoggerFactory.getLogger(DistributedMaster.class);
 
+    /** Default number of facts per {@link FactBatch} sent to a worker. */
+    public static final int DEFAULT_FACT_BATCH_SIZE = 10_000;
+
+    /** Default limit on reasoning rounds when workers exchange derived facts. */
+    public static final int DEFAULT_MAX_ROUNDS = 100;
+
     private final Map<String, WorkerConnection> workers = new ConcurrentHashMap<>();
     private final List<TimedFact> facts = new ArrayList<>();
     private final List<Rule> rules = new ArrayList<>();
@@ -48,10 +65,27 @@ public class DistributedMaster {
     private PartitionStrategy partitionStrategy = new PartitionStrategy.PredicatePartitioner();
     private int workerTimeoutMs = 30000;  // 30 seconds
     private int maxRetries = 3;
+    private int factBatchSize = DEFAULT_FACT_BATCH_SIZE;
+    private int maxRounds = DEFAULT_MAX_ROUNDS;
 
     // Statistics
     private long totalReasoningTimeMs = 0;
     private int tasksDistributed = 0;
+    private List<RoundStats> lastRounds = Collections.emptyList();
+
+    // What every up-to-date worker holds: the first syncedRules rules and syncedFacts
+    // facts, partitioned according to syncedLayout
+    private List<Object> syncedLayout = null;
+    private int syncedRules = 0;
+    private int syncedFacts = 0;
+    private DistributedInterpretation lastResult = null;
+    private int lastTimesteps = -1;
+
+    // Each worker's derived facts, kept up to date from the changes it reports
+    private final Map<String, Map<Atom, IntervalSet>> derivedByWorker = new HashMap<>();
+    // Derived facts already routed to every worker that needs them; valid while no
+    // worker has started over
+    private final Map<Atom, IntervalSet> routed = new HashMap<>();
 
     /**
      * Adds a worker node to the cluster.
@@ -78,11 +112,23 @@ public class DistributedMaster {
         }
     }
 
+    /**
+     * Adds a worker that is already resolved, such as one running in this JVM.
+     *
+     * @param workerId unique worker identifier
+     * @param worker the worker, or an RMI stub for it
+     */
+    public void addWorker(String workerId, WorkerService worker) {
+        workers.put(workerId, new WorkerConnection(workerId, worker, null, -1));
+        logger.info("Added worker: {}", workerId);
+    }
+
     /**
      * Removes a worker from the cluster.
      */
     public void removeWorker(String workerId) {
         workers.remove(workerId);
+        derivedByWorker.remove(workerId);
         logger.info("Removed worker: {}", workerId);
     }
 
@@ -101,6 +147,31 @@ public class DistributedMaster {
         this.workerTimeoutMs = timeoutMs;
     }
 
+    /**
+     * Sets how many facts are sent to a worker per {@link WorkerService#addFacts} call.
+     */
+    public void setFactBatchSize(int factBatchSize) {
+        if (factBatchSize <= 0) {
+            throw new IllegalArgumentException("factBatchSize must be positive: " + factBatchSize);
+        }
+        this.factBatchSize = factBatchSize;
+    }
+
+    /**
+     * Sets the most reasoning rounds run when workers exchange derived facts.
+     *
+     * <p>Each round, every worker reasons to its local fixpoint and the facts it derived
+     * for other workers are routed to them. Reasoning stops once a round routes nothing;
+     * if that has not happened after {@code maxRounds} rounds, the result is incomplete
+     * and a warning is logged.</p>
+     */
+    public void setMaxRounds(int maxRounds) {
+        if (maxRounds <= 0) {
+            throw new IllegalArgumentException("maxRounds must be positive: " + maxRounds);
+        }
+        this.maxRounds = maxRounds;
+    }
+
     /**
      * Adds a fact (will be distributed during reasoning).
      */
@@ -132,22 +203,48 @@ public class DistributedMaster {
         long startMs = System.currentTimeMillis();
 
         try {
-            // Step 1: Partition facts and rules
+            // Step 1: Decide how facts are partitioned.
+            // Workers holding only their partition may need facts derived by others
             List<String> workerIds = new ArrayList<>(workers.keySet());
-            Map<String, List<TimedFact>> factPartitions = partitionStrategy.partitionFacts(facts, workerIds);
-            Map<String, List<Rule>> rulePartitions = partitionStrategy.partitionRules(rules, workerIds);
-
-            logger.info("Partitioned {} facts and {} rules across {} workers",
-                    facts.size(), rules.size(), workers.size());
-
-            // Step 2: Distribute facts and rules to workers
-            distributeData(factPartitions, rulePartitions);
+            boolean sharded = partitionStrategy.isJoinAware();
+            FactRouter router = sharded ? partitionStrategy.router(rules, facts) : null;
+            Map<String, Integer> strata = null;
+            if (router != null && router.needsExchange()) {
+                strata = predicateStrata();
+                if (strata == null) {
+                    logger.warn("Negation is not stratified, so derived facts cannot be exchanged "
+                            + "between rounds; sending all facts to all workers");
+                    sharded = false;
+                    router = null;
+                }
+            }
 
-            // Step 3: Execute reasoning on all workers in parallel
-            List<WorkResult> results = executeReasoning(timesteps);
+            // Step 2: Bring workers up to date with the facts and rules
+            boolean changed = synchronizeWorkers(workerIds, sharded, router);
+            if (!changed && lastResult != null && lastTimesteps == timesteps) {
+                logger.info("Knowledge base unchanged on every worker; reusing the last result");
+                return lastResult;
+            }
+            lastResult = null;
+            if (changed && strata != null && hasNegation()) {
+                // A new fact on one worker can defeat facts routed to any other
+                dropDerivedFacts(workerIds);
+            }
 
-            // Step 4: Aggregate results
-            DistributedInterpretation interpretation = aggregateResults(results, timesteps);
+            // Step 3: Execute reasoning on all workers in parallel, exchanging derived
+            // facts between rounds if needed
+            List<RoundStats> rounds = new ArrayList<>();
+            List<WorkResult> results = strata != null
+                    ? reasonToFixpoint(timesteps, router, strata, workerIds, rounds)
+                    : executeRound(timesteps, rounds);
+            lastRounds = rounds;
+
+            // Step 4: Aggregate each worker's derived facts
+            DistributedInterpretation interpretation = aggregateResults(results, workerIds, timesteps, rounds);
+            if (results.size() == workers.size() && results.stream().allMatch(WorkResult::isSuccess)) {
+                lastResult = interpretation;
+                lastTimesteps = timesteps;
+            }
 
             long executionTimeMs = System.currentTimeMillis() - startMs;
             totalReasoningTimeMs += executionTimeMs;
@@ -174,6 +271,9 @@ public class DistributedMaster {
         stats.put("totalReasoningTimeMs", totalReasoningTimeMs);
         stats.put("averageReasoningTimeMs",
                 tasksDistributed > 0 ? totalReasoningTimeMs / tasksDistributed : 0);
+        stats.put("rounds", lastRounds.size());
+        stats.put("factsExchanged", lastRounds.stream().mapToLong(RoundStats::getFactsExchanged).sum());
+        stats.put("roundStats", lastRounds);
 
         // Add worker stats
         Map<String, WorkerStats> workerStats = new HashMap<>();
@@ -195,36 +295,104 @@ public class DistributedMaster {
     public void shutdown() {
         logger.info("Shutting down distributed master");
         workers.clear();
+        derivedByWorker.clear();
+        routed.clear();
     }
 
     // --- Internal Methods ---
 
-    private void distributeData(Map<String, List<TimedFact>> factPartitions,
-                                Map<String, List<Rule>> rulePartitions) {
-        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+    /**
+     * Brings each worker's knowledge base up to date with the master's.
+     *
+     * <p>A worker still at the version recorded when it was last loaded receives only
+     * the rules and facts added since. Other workers, and every worker when the workers
+     * or the partitioning changed, are reset and loaded in full.</p>
+     *
+     * @return whether any worker was sent anything
+     */
+    private boolean synchronizeWorkers(List<String> workerIds, boolean sharded, FactRouter router) {
+        // New facts can only be partitioned consistently with earlier ones by a router
+        // for the same plan
+        List<Object> layout = Arrays.asList(workerIds, partitionStrategy, sharded, router);
+        List<Rule> newRules = new ArrayList<>(rules.subList(syncedRules, rules.size()));
+        List<TimedFact> newFacts = new ArrayList<>(facts.subList(syncedFacts, facts.size()));
+        boolean unchanged = newRules.isEmpty() && newFacts.isEmpty();
+        boolean relayout = !layout.equals(syncedLayout) || (sharded && router == null && !unchanged);
+
+        Set<String> reload = new HashSet<>();
+        for (String workerId : workerIds) {
+            if (relayout || !workers.get(workerId).isCurrent()) {
+                reload.add(workerId);
+            }
+        }
+        if (reload.isEmpty() && unchanged) {
+            logger.debug("All {} workers are up to date", workerIds.size());
+            return false;
+        }
+        logger.info("Synchronizing workers: {} reloaded in full, {} sent {} new facts and {} new rules",
+                reload.size(), workerIds.size() - reload.size(), newFacts.size(), newRules.size());
+
+        Map<String, List<TimedFact>> fullFacts = Collections.emptyMap();
+        Map<String, List<Rule>> fullRules = Collections.emptyMap();
+        if (!reload.isEmpty()) {
+            fullFacts = partitionStrategy.partitionFacts(facts, rules, workerIds);
+            fullRules = partitionStrategy.partitionRules(rules, workerIds);
+            logger.info("Partitioned {} facts and {} rules across {} workers",
+                    facts.size(), rules.size(), workers.size());
+        }
+        Map<String, List<TimedFact>> deltaFacts = new HashMap<>();
+        Map<String, List<Rule>> deltaRules = partitionStrategy.partitionRules(newRules, workerIds);
+        if (sharded && reload.size() < workerIds.size()) {
+            for (TimedFact fact : newFacts) {
+                for (String workerId : router.route(fact.getAtom(), workerIds)) {
+                    deltaFacts.computeIfAbsent(workerId, k -> new ArrayList<>()).add(fact);
+                }
+            }
+        }
+
+        // Unless partitions are join-aware, every worker receives the same facts,
+        // so encode each batch once and share it
+        List<FactBatch> sharedFull = sharded || reload.isEmpty() ? null : FactBatch.chunk(facts, factBatchSize);
+        List<FactBatch> sharedDelta = sharded ? null : FactBatch.chunk(newFacts, factBatchSize);
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerIds.size());
         List<Future<?>> futures = new ArrayList<>();
 
-        for (Map.Entry<String, WorkerConnection> entry : workers.entrySet()) {
-            String workerId = entry.getKey();
-            WorkerConnection connection = entry.getValue();
+        for (String workerId : workerIds) {
+            WorkerConnection connection = workers.get(workerId);
+            boolean full = reload.contains(workerId);
+            List<Rule> workerRules = full ? fullRules.get(workerId) : deltaRules.get(workerId);
+            Map<String, List<TimedFact>> partitions = full ? fullFacts : deltaFacts;
+            List<FactBatch> shared = full ? sharedFull : sharedDelta;
 
             Future<?> future = executor.submit(() -> {
                 try {
+                    // Until loading succeeds the worker's contents are unknown
+                    connection.knowledgeBaseVersion = null;
+                    if (full) {
+                        connection.worker.reset();
+                    }
+
                     // Send rules (all rules to all workers)
-                    for (Rule rule : rulePartitions.get(workerId)) {
-                        connection.worker.addRule(rule);
+                    if (!workerRules.isEmpty()) {
+                        connection.worker.addRules(new ArrayList<>(workerRules));
                     }
 
-                    // BUG FIX: Send ALL base facts to ALL workers
-                    // Multi-predicate rules require facts from multiple predicates to evaluate
+                    // Without join-aware partitions, send ALL base facts to ALL workers:
+                    // multi-predicate rules require facts from multiple predicates to evaluate
                     // Example: "atRisk(X) <-1 disrupted(Y), supplies(Y,X)" needs both predicates
-                    for (TimedFact fact : facts) {
-                        connection.worker.addFact(fact);
+                    List<TimedFact> workerFacts = sharded
+                            ? partitions.getOrDefault(workerId, Collections.emptyList())
+                            : full ? facts : newFacts;
+                    List<FactBatch> batches = sharded ? FactBatch.chunk(workerFacts, factBatchSize) : shared;
+                    for (FactBatch batch : batches) {
+                        connection.worker.addFacts(batch);
                     }
 
-                    logger.debug("Distributed data to worker {}: {} facts (all base facts), {} rules",
-                            workerId, facts.size(),
-                            rulePartitions.get(workerId).size());
+                    connection.knowledgeBaseVersion = connection.worker.getKnowledgeBaseVersion();
+                    logger.debug("{} worker {}: {} facts{} in {} batches, {} rules",
+                            full ? "Loaded" : "Updated", workerId, workerFacts.size(),
+                            sharded ? "" : " (all base facts)", batches.size(), workerRules.size());
 
                 } catch (Exception e) {
                     logger.error("Failed to distribute data to worker {}", workerId, e);
@@ -245,11 +413,243 @@ public class DistributedMaster {
         }
 
         executor.shutdown();
+
+        // Workers that failed have no recorded version, so they are reloaded next time
+        syncedLayout = layout;
+        syncedRules = rules.size();
+        syncedFacts = facts.size();
+        return true;
+    }
+
+    /**
+     * Runs a single reasoning round, for workers that hold every fact they need.
+     */
+    private List<WorkResult> executeRound(int timesteps, List<RoundStats> rounds) {
+        long startMs = System.currentTimeMillis();
+        List<WorkResult> results = executeReasoning(timesteps);
+        results.forEach(this::applyResult);
+        int derived = (int) results.stream()
+                .flatMap(r -> r.getDerivedFacts().stream())
+                .map(TimedFact::getAtom)
+                .distinct()
+                .count();
+        rounds.add(new RoundStats(1, derived, 0, System.currentTimeMillis() - startMs));
+        return results;
+    }
+
+    /**
+     * Bulk-synchronous fixpoint: every worker brings its session up to date with what
+     * it holds and reports the changes, then derived facts not yet routed are sent to
+     * the workers that need them.
+     *
+     * <p>Facts are exchanged one stratum at a time. A fact may rely on the absence of
+     * facts from lower strata, so it is only routed once a round has routed nothing from
+     * any lower stratum; until then it is held back in the master's copy of its worker's
+     * facts. A worker retracts a fact derived too early once the facts that defeat it
+     * arrive, so such a fact never leaves its worker. Reasoning stops when a round
+     * routes nothing from any stratum.</p>
+     *
+     * <p>What was routed is remembered across calls, since workers keep the facts they
+     * were sent. When a worker starts over, or the routed facts were dropped because
+     * the rules use negation and the knowledge base changed, everything is routed
+     * again.</p>
+     *
+     * @param strata stratum of each derived predicate
+     * @return the latest result of each worker
+     */
+    private List<WorkResult> reasonToFixpoint(int timesteps, FactRouter router, Map<String, Integer> strata,
+                                              List<String> workerIds, List<RoundStats> rounds) {
+        int topStratum = strata.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int stratum = 0;
+
+        Map<Atom, IntervalSet> known = null;
+        Map<String, WorkResult> latest = new LinkedHashMap<>();
+        for (int round = 1; ; round++) {
+            long startMs = System.currentTimeMillis();
+            List<WorkResult> results = executeReasoning(timesteps);
+
+            boolean restarted = false;
+            for (WorkResult result : results) {
+                restarted |= applyResult(result);
+                if (result.isSuccess()) {
+                    latest.put(result.getWorkerId(), result);
+                }
+            }
+            if (restarted) {
+                // A worker holds none of the facts routed before
+                routed.clear();
+            }
+            if (known == null || restarted) {
+                known = new HashMap<>();
+                for (TimedFact fact : facts) {
+                    known.computeIfAbsent(fact.getAtom(), k -> new IntervalSet())
+                            .addAll(IntervalSet.of(fact.getIntervals()));
+                }
+                for (Map.Entry<Atom, IntervalSet> e : routed.entrySet()) {
+                    known.computeIfAbsent(e.getKey(), k -> new IntervalSet()).addAll(e.getValue());
+                }
+            }
+
+            // Route each new fact, or new timesteps of a known fact, to every worker
+            // that needs it other than the one that derived it
+            Map<String, List<TimedFact>> outbound = new HashMap<>();
+            int newFacts = 0;
+            int exchanged = 0;
+            while (true) {
+                for (String workerId : workerIds) {
+                    Map<Atom, IntervalSet> derived = derivedByWorker.getOrDefault(workerId, Collections.emptyMap());
+                    for (Map.Entry<Atom, IntervalSet> fact : derived.entrySet()) {
+                        Atom atom = fact.getKey();
+                        if (strata.getOrDefault(atom.getPredicate(), 0) > stratum) {
+                            continue;
+                        }
+                        IntervalSet seen = known.computeIfAbsent(atom, k -> new IntervalSet());
+                        IntervalSet delta = fact.getValue().minus(seen);
+                        if (delta.isEmpty()) {
+                            continue;
+                        }
+                        seen.addAll(delta);
+                        routed.computeIfAbsent(atom, k -> new IntervalSet()).addAll(delta);
+                        newFacts++;
+
+                        TimedFact update = new TimedFact(atom, workerId, delta.toIntervals());
+                        for (String target : router.route(atom, workerIds)) {
+                            if (!target.equals(workerId)) {
+                                outbound.computeIfAbsent(target, k -> new ArrayList<>()).add(update);
+                                exchanged++;
+                            }
+                        }
+                    }
+                }
+                // Nothing left to route up to this stratum: it is complete on every worker
+                if (exchanged > 0 || stratum >= topStratum) {
+                    break;
+                }
+                stratum++;
+            }
+
+            if (exchanged > 0) {
+                sendDerivedFacts(outbound);
+            }
+            RoundStats stats = new RoundStats(round, newFacts, exchanged, System.currentTimeMillis() - startMs);
+            rounds.add(stats);
+            logger.info("Round {}: {}", round, stats);
+
+            if (exchanged == 0) {
+                logger.info("Distributed fixpoint reached after {} rounds", round);
+                break;
+            }
+            if (round == maxRounds) {
+                logger.warn("Stopped after {} rounds without reaching a fixpoint; results may be incomplete",
+                        maxRounds);
+                break;
+            }
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    /**
+     * Maps each derived predicate to its stratum, or returns {@code null} if negation
+     * is not stratified.
+     */
+    private Map<String, Integer> predicateStrata() {
+        SymbolTable symbols = new SymbolTable();
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (Rule rule : rules) {
+            compiled.add(CompiledRule.compile(rule, symbols));
+        }
+        RuleScheduler schedule = RuleScheduler.acrossTime(compiled);
+        if (!schedule.isStratified()) {
+            return null;
+        }
+
+        Map<String, Integer> strata = new HashMap<>();
+        for (RuleScheduler.Stratum stratum : schedule.getStrata()) {
+            for (CompiledRule rule : stratum.getRules()) {
+                strata.put(Atom.parse(rule.getRule().getHead()).getPredicate(), stratum.getIndex());
+            }
+        }
+        return strata;
+    }
+
+    private boolean hasNegation() {
+        for (Rule rule : rules) {
+            for (Literal literal : rule.getBodyLiterals()) {
+                if (literal.isNegated()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Has every worker drop the derived facts routed to it, so they are routed again
+     * from what the workers derive now.
+     */
+    private void dropDerivedFacts(List<String> workerIds) {
+        logger.info("Knowledge base changed and rules use negation; dropping routed facts on {} workers",
+                workerIds.size());
+        ExecutorService executor = Executors.newFixedThreadPool(workerIds.size());
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (String workerId : workerIds) {
+            WorkerConnection connection = workers.get(workerId);
+            futures.add(executor.submit(() -> {
+                try {
+                    connection.worker.dropDerivedFacts();
+                } catch (Exception e) {
+                    // The worker may still hold stale facts: reload it next time
+                    connection.knowledgeBaseVersion = null;
+                    logger.error("Failed to drop derived facts on worker {}", workerId, e);
+                    throw new RuntimeException("Failed to drop derived facts", e);
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get(workerTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                logger.error("Dropping derived facts timed out or failed", e);
+            }
+        }
+
+        executor.shutdown();
+        routed.clear();
+    }
+
+    private void sendDerivedFacts(Map<String, List<TimedFact>> outbound) {
+        ExecutorService executor = Executors.newFixedThreadPool(outbound.size());
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (Map.Entry<String, List<TimedFact>> entry : outbound.entrySet()) {
+            WorkerConnection connection = workers.get(entry.getKey());
+            futures.add(executor.submit(() -> {
+                try {
+                    connection.worker.addDerivedFacts(FactBatch.of(entry.getValue()));
+                    logger.debug("Sent {} derived facts to worker {}", entry.getValue().size(), entry.getKey());
+                } catch (Exception e) {
+                    logger.error("Failed to send derived facts to worker {}", entry.getKey(), e);
+                    throw new RuntimeException("Failed to send derived facts", e);
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get(workerTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                logger.error("Derived fact exchange timeout or failure", e);
+            }
+        }
+
+        executor.shutdown();
     }
 
     private List<WorkResult> executeReasoning(int timesteps) {
         ExecutorService executor = Executors.newFixedThreadPool(workers.size());
-        List<Future<WorkResult>> futures = new ArrayList<>();
+        Map<String, Future<WorkResult>> futures = new LinkedHashMap<>();
 
         // Submit reasoning tasks to all workers
         for (Map.Entry<String, WorkerConnection> entry : workers.entrySet()) {
@@ -260,14 +660,14 @@ public class DistributedMaster {
                 return executeWithRetry(connection, 0, timesteps);
             });
 
-            futures.add(future);
+            futures.put(workerId, future);
         }
 
         // Collect results
         List<WorkResult> results = new ArrayList<>();
-        for (Future<WorkResult> future : futures) {
+        for (Map.Entry<String, Future<WorkResult>> entry : futures.entrySet()) {
             try {
-                WorkResult result = future.get(workerTimeoutMs, TimeUnit.MILLISECONDS);
+                WorkResult result = entry.getValue().get(workerTimeoutMs, TimeUnit.MILLISECONDS);
                 results.add(result);
 
                 if (result.isSuccess()) {
@@ -277,8 +677,10 @@ public class DistributedMaster {
                 }
             } catch (TimeoutException e) {
                 logger.error("Worker timeout", e);
+                results.add(WorkResult.failure(entry.getKey(), "Timed out after " + workerTimeoutMs + "ms"));
             } catch (Exception e) {
                 logger.error("Worker execution failed", e);
+                results.add(WorkResult.failure(entry.getKey(), String.valueOf(e.getMessage())));
             }
         }
 
@@ -307,14 +709,54 @@ public class DistributedMaster {
         return WorkResult.failure(connection.workerId, "Unexpected retry loop exit");
     }
 
-    private DistributedInterpretation aggregateResults(List<WorkResult> results, int timesteps) {
+    /**
+     * Applies a worker's result to the master's copy of its derived facts.
+     *
+     * @return whether the worker started over, so the facts routed to it are gone
+     */
+    private boolean applyResult(WorkResult result) {
+        String workerId = result.getWorkerId();
+        if (!result.isSuccess()) {
+            // Whether the worker still matches the copy is unknown: drop the copy and
+            // reload the worker next time
+            derivedByWorker.remove(workerId);
+            WorkerConnection connection = workers.get(workerId);
+            if (connection != null) {
+                connection.knowledgeBaseVersion = null;
+            }
+            return false;
+        }
+
+        Map<Atom, IntervalSet> derived = result.isComplete()
+                ? new HashMap<>()
+                : derivedByWorker.computeIfAbsent(workerId, k -> new HashMap<>());
+        for (TimedFact fact : result.getRetractedFacts()) {
+            IntervalSet when = derived.get(fact.getAtom());
+            if (when != null) {
+                IntervalSet remaining = when.minus(IntervalSet.of(fact.getIntervals()));
+                if (remaining.isEmpty()) {
+                    derived.remove(fact.getAtom());
+                } else {
+                    derived.put(fact.getAtom(), remaining);
+                }
+            }
+        }
+        for (TimedFact fact : result.getDerivedFacts()) {
+            derived.computeIfAbsent(fact.getAtom(), k -> new IntervalSet()).addAll(IntervalSet.of(fact.getIntervals()));
+        }
+        derivedByWorker.put(workerId, derived);
+        return result.isComplete();
+    }
+
+    private DistributedInterpretation aggregateResults(List<WorkResult> results, List<String> workerIds,
+                                                       int timesteps, List<RoundStats> rounds) {
         logger.info("Aggregating results from {} workers", results.size());
 
         // Collect all derived facts
         List<TimedFact> allDerivedFacts = new ArrayList<>();
-        for (WorkResult result : results) {
-            if (result.isSuccess()) {
-                allDerivedFacts.addAll(result.getDerivedFacts());
+        for (String workerId : workerIds) {
+            for (Map.Entry<Atom, IntervalSet> e : derivedByWorker.getOrDefault(workerId, Collections.emptyMap()).entrySet()) {
+                allDerivedFacts.add(new TimedFact(e.getKey(), workerId, e.getValue().toIntervals()));
             }
         }
 
@@ -326,26 +768,26 @@ public class DistributedMaster {
 
         // Add base facts
         for (TimedFact fact : facts) {
-            for (int t = 0; t <= timesteps; t++) {
-                if (fact.isTrueAt(t)) {
-                    factsAtTime.get(t).add(fact.getAtom());
-                }
-            }
+            addOverIntervals(fact, factsAtTime, timesteps);
         }
 
         // Add derived facts
         for (TimedFact fact : allDerivedFacts) {
-            for (int t = 0; t <= timesteps; t++) {
-                if (fact.isTrueAt(t)) {
-                    factsAtTime.get(t).add(fact.getAtom());
-                }
-            }
+            addOverIntervals(fact, factsAtTime, timesteps);
         }
 
         logger.info("Aggregation complete: {} total facts across {} timesteps",
                 allDerivedFacts.size(), timesteps + 1);
 
-        return new DistributedInterpretation(factsAtTime, results);
+        return new DistributedInterpretation(factsAtTime, results, rounds);
+    }
+
+    private static void addOverIntervals(TimedFact fact, List<Set<Atom>> factsAtTime, int timesteps) {
+        for (Interval iv : fact.getIntervals()) {
+            for (int t = Math.max(0, iv.getStart()); t <= Math.min(timesteps, iv.getEnd()); t++) {
+                factsAtTime.get(t).add(fact.getAtom());
+            }
+        }
     }
 
     // --- Helper Classes ---
@@ -356,12 +798,77 @@ public class DistributedMaster {
         final String host;
         final int port;
 
+        // Version of the worker's knowledge base after it was last loaded; null if unknown
+        volatile Long knowledgeBaseVersion = null;
+
         WorkerConnection(String workerId, WorkerService worker, String host, int port) {
             this.workerId = workerId;
             this.worker = worker;
             this.host = host;
             this.port = port;
         }
+
+        /**
+         * Whether the worker still holds what it was last loaded with.
+         */
+        boolean isCurrent() {
+            Long expected = knowledgeBaseVersion;
+            if (expected == null) {
+                return false;
+            }
+            try {
+                return expected == worker.getKnowledgeBaseVersion();
+            } catch (Exception e) {
+                logger.warn("Failed to get knowledge base version from worker {}: {}", workerId, e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Metrics for one reasoning round across all workers.
+     */
+    public static class RoundStats {
+        private final int round;
+        private final int newFacts;
+        private final int factsExchanged;
+        private final long durationMs;
+
+        public RoundStats(int round, int newFacts, int factsExchanged, long durationMs) {
+            this.round = round;
+            this.newFacts = newFacts;
+            this.factsExchanged = factsExchanged;
+            this.durationMs = durationMs;
+        }
+
+        public int getRound() {
+            return round;
+        }
+
+        /**
+         * Facts derived for the first time in this round, counted once however many
+         * workers derived them.
+         */
+        public int getNewFacts() {
+            return newFacts;
+        }
+
+        /**
+         * Fact copies sent to other workers after this round.
+         */
+        public int getFactsExchanged() {
+            return factsExchanged;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("RoundStats{round=%d, new=%d, exchanged=%d, time=%dms}",
+                    round, newFacts, factsExchanged, durationMs);
+        }
     }
 
     /**
@@ -370,10 +877,17 @@ public class DistributedMaster {
     public static class DistributedInterpretation {
         private final List<Set<Atom>> factsAtTime;
         private final List<WorkResult> workerResults;
+        private final List<RoundStats> rounds;
 
         public DistributedInterpretation(List<Set<Atom>> factsAtTime, List<WorkResult> workerResults) {
+            this(factsAtTime, workerResults, Collections.emptyList());
+        }
+
+        public DistributedInterpretation(List<Set<Atom>> factsAtTime, List<WorkResult> workerResults,
+                                         List<RoundStats> rounds) {
             this.factsAtTime = factsAtTime;
             this.workerResults = workerResults;
+            this.rounds = rounds;
         }
 
         public Set<Atom> getFactsAt(int time) {
@@ -391,6 +905,13 @@ public class DistributedMaster {
             return Collections.unmodifiableList(workerResults);
         }
 
+        /**
+         * Per-round metrics, in order; a single entry unless workers exchanged facts.
+         */
+        public List<RoundStats> getRounds() {
+            return Collections.unmodifiableList(rounds);
+        }
+
         public int getTotalFacts() {
             return factsAtTime.stream().mapToInt(Set::size).sum();
         }
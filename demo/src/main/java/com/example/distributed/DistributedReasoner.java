@@ -52,6 +52,9 @@ public class DistributedReasoner {
         if (builder.workerTimeoutMs > 0) {
             master.setWorkerTimeout(builder.workerTimeoutMs);
         }
+        if (builder.maxRounds > 0) {
+            master.setMaxRounds(builder.maxRounds);
+        }
 
         // Add workers
         for (WorkerConfig config : builder.workers) {
@@ -118,6 +121,7 @@ public class DistributedReasoner {
         private final List<WorkerConfig> workers = new ArrayList<>();
         private PartitionStrategy partitionStrategy;
         private int workerTimeoutMs = 30000;
+        private int maxRounds = DistributedMaster.DEFAULT_MAX_ROUNDS;
 
         /**
          * Adds a worker node.
@@ -143,6 +147,14 @@ public class DistributedReasoner {
             return this;
         }
 
+        /**
+         * Sets the most reasoning rounds run when workers exchange derived facts.
+         */
+        public Builder maxRounds(int maxRounds) {
+            this.maxRounds = maxRounds;
+            return this;
+        }
+
         /**
          * Builds the distributed reasoner.
          */
@@ -219,6 +231,13 @@ public class DistributedReasoner {
             return interpretation.getWorkerResults();
         }
 
+        /**
+         * Gets per-round metrics.
+         */
+        public List<DistributedMaster.RoundStats> getRounds() {
+            return interpretation.getRounds();
+        }
+
         /**
          * Gets detailed statistics.
          */
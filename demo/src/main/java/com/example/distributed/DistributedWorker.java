@@ -9,6 +9,7 @@ import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Distributed worker node that performs reasoning tasks.
@@ -16,6 +17,21 @@ import java.util.*;
  * <p>Workers receive facts, rules, and reasoning tasks from the master coordinator
  * via Java RMI and return derived facts.</p>
  *
+ * <p>A worker keeps a session across reasoning tasks. Its materialized state lives in an
+ * {@link IncrementalReasoner}, so a task after new facts arrive only derives their
+ * consequences, and a task with nothing new returns without reasoning. Only a new rule
+ * or a different horizon re-reasons in full. Each result reports only the derived
+ * facts that changed since the previous one (see {@link WorkResult}); the first result
+ * of a session, and the first after the session is rebuilt, is complete. Facts are
+ * deduplicated on arrival: timesteps the worker already holds are dropped, so sending
+ * the same facts twice is harmless. {@link #getKnowledgeBaseVersion()} lets the master
+ * check that the session is the one it loaded before sending only what changed.</p>
+ *
+ * <p>Facts received from other workers are kept apart from base facts and are not
+ * reported back as derived. They were derived from the knowledge base as it was, so
+ * when rules use negation the master {@linkplain #dropDerivedFacts() drops} them on
+ * every worker after a change and exchanges them again.</p>
+ *
  * <h2>Example Usage:</h2>
  * <pre>{@code
  * // Start worker on port 5001
@@ -33,16 +49,34 @@ public class DistributedWorker extends UnicastRemoteObject implements WorkerServ
 
     private final String workerId;
     private final int port;
-    private final OptimizedReasoner reasoner;
-
-    // Track base facts to exclude them from derived facts
-    private final Set<String> baseFacts = new HashSet<>();
+    private IncrementalReasoner reasoner;
+
+    // Session: rules and base facts as added (deduplicated), and facts from other workers
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<TimedFact> baseFacts = new ArrayList<>();
+    private final Map<Atom, IntervalSet> baseTimesteps = new HashMap<>();
+    private final Map<Atom, IntervalSet> exchangedTimesteps = new HashMap<>();
+    private long knowledgeBaseVersion;
+
+    // Materialized state; null until the first task and after the rules change
+    private ReasoningInterpretation state = null;
+    private int horizon = -1;
+    private boolean pendingFacts = false;
+
+    // Derived facts as last reported to the master, which the next result is relative to
+    private Map<Atom, IntervalSet> reported = new HashMap<>();
+    private int reportedStart = -1;
+    private boolean reportComplete = true;
+    private int cachedTotalFacts = 0;
 
     // Statistics
     private int factsAdded = 0;
     private int rulesAdded = 0;
     private int tasksCompleted = 0;
     private int tasksFailed = 0;
+    private int fullReasonings = 0;
+    private int incrementalReasonings = 0;
+    private int cachedResults = 0;
     private long totalExecutionTimeMs = 0;
     private final long startTimeMs;
 
@@ -50,7 +84,8 @@ public class DistributedWorker extends UnicastRemoteObject implements WorkerServ
         super(port);
         this.workerId = workerId;
         this.port = port;
-        this.reasoner = new OptimizedReasoner();
+        this.reasoner = newReasoner();
+        this.knowledgeBaseVersion = newSession();
         this.startTimeMs = System.currentTimeMillis();
 
         logger.info("Worker {} created on port {}", workerId, port);
@@ -67,13 +102,12 @@ public class DistributedWorker extends UnicastRemoteObject implements WorkerServ
     }
 
     @Override
-    public void addFact(TimedFact fact) throws RemoteException {
+    public synchronized void addFact(TimedFact fact) throws RemoteException {
         try {
-            reasoner.addFact(fact);
-            factsAdded++;
-            // Track base facts so we can exclude them from derived facts
-            baseFacts.add(fact.getAtom().toString());
-            logger.debug("Worker {} added fact: {}", workerId, fact);
+            if (addBaseFact(fact)) {
+                factsAdded++;
+                logger.debug("Worker {} added fact: {}", workerId, fact);
+            }
         } catch (Exception e) {
             logger.error("Worker {} failed to add fact", workerId, e);
             throw new RemoteException("Failed to add fact", e);
@@ -81,10 +115,9 @@ public class DistributedWorker extends UnicastRemoteObject implements WorkerServ
     }
 
     @Override
-    public void addRule(Rule rule) throws RemoteException {
+    public synchronized void addRule(Rule rule) throws RemoteException {
         try {
-            reasoner.addRule(rule);
-            rulesAdded++;
+            addRuleToSession(rule);
             logger.debug("Worker {} added rule: {}", workerId, rule);
         } catch (Exception e) {
             logger.error("Worker {} failed to add rule", workerId, e);
@@ -93,17 +126,77 @@ public class DistributedWorker extends UnicastRemoteObject implements WorkerServ
     }
 
     @Override
-    public WorkResult reason(int startTime, int endTime) throws RemoteException {
+    public synchronized void addFacts(FactBatch batch) throws RemoteException {
+        try {
+            int added = 0;
+            for (TimedFact fact : batch.toFacts()) {
+                if (addBaseFact(fact)) {
+                    added++;
+                }
+            }
+            factsAdded += added;
+            logger.debug("Worker {} added {} of {} facts ({} bytes)",
+                    workerId, added, batch.size(), batch.byteSize());
+        } catch (Exception e) {
+            logger.error("Worker {} failed to add fact batch", workerId, e);
+            throw new RemoteException("Failed to add facts", e);
+        }
+    }
+
+    @Override
+    public synchronized void addRules(List<Rule> rules) throws RemoteException {
+        try {
+            for (Rule rule : rules) {
+                addRuleToSession(rule);
+            }
+            logger.debug("Worker {} added {} rules", workerId, rules.size());
+        } catch (Exception e) {
+            logger.error("Worker {} failed to add rules", workerId, e);
+            throw new RemoteException("Failed to add rules", e);
+        }
+    }
+
+    @Override
+    public synchronized WorkResult reason(int startTime, int endTime) throws RemoteException {
         logger.info("Worker {} reasoning from t={} to t={}", workerId, startTime, endTime);
 
         long startMs = System.currentTimeMillis();
 
         try {
-            // Perform reasoning
-            ReasoningInterpretation result = reasoner.reason(endTime);
+            // Bring the materialized state up to date, doing only as much as changed
+            boolean changed = true;
+            if (state == null || endTime != horizon) {
+                state = reasoner.reason(endTime);
+                horizon = endTime;
+                fullReasonings++;
+            } else if (pendingFacts) {
+                state = reasoner.incrementalReason();
+                incrementalReasonings++;
+            } else {
+                changed = false;
+            }
+            pendingFacts = false;
+
+            List<TimedFact> derived = Collections.emptyList();
+            List<TimedFact> retracted = Collections.emptyList();
+            if (!changed && !reportComplete && reportedStart == startTime) {
+                cachedResults++;
+            } else {
+                // Extract derived facts in the time range and compare with what was reported
+                Map<Atom, IntervalSet> current = extractDerivedFacts(state, startTime, endTime);
+                derived = toFacts(reportComplete ? current : minus(current, reported));
+                if (!reportComplete) {
+                    retracted = toFacts(minus(reported, current));
+                }
+                reported = current;
+                reportedStart = startTime;
 
-            // Extract derived facts in the time range
-            List<TimedFact> derivedFacts = extractDerivedFacts(result, startTime, endTime);
+                // Count total facts across all timesteps
+                cachedTotalFacts = 0;
+                for (int t = 0; t <= endTime; t++) {
+                    cachedTotalFacts += state.getFactsAt(t).size();
+                }
+            }
 
             long executionTimeMs = System.currentTimeMillis() - startMs;
 
@@ -111,38 +204,43 @@ public class DistributedWorker extends UnicastRemoteObject implements WorkerServ
             tasksCompleted++;
             totalExecutionTimeMs += executionTimeMs;
 
-            logger.info("Worker {} completed reasoning: derived {} facts in {}ms",
-                    workerId, derivedFacts.size(), executionTimeMs);
+            logger.info("Worker {} completed reasoning: {} new and {} retracted derived facts in {}ms",
+                    workerId, derived.size(), retracted.size(), executionTimeMs);
 
-            // Count total facts across all timesteps
-            int totalFacts = 0;
-            for (int t = 0; t <= endTime; t++) {
-                totalFacts += result.getFactsAt(t).size();
-            }
-
-            return WorkResult.success(
-                    workerId,
-                    derivedFacts,
-                    totalFacts,
-                    rulesAdded,
-                    executionTimeMs
-            );
+            WorkResult result = reportComplete
+                    ? WorkResult.success(workerId, derived, cachedTotalFacts, rulesAdded, executionTimeMs)
+                    : WorkResult.delta(workerId, derived, retracted, cachedTotalFacts, rulesAdded, executionTimeMs);
+            reportComplete = false;
+            return result;
 
         } catch (Exception e) {
             tasksFailed++;
+            // The reasoner may be part way through an update; start over next time
+            state = null;
+            reportComplete = true;
             logger.error("Worker {} failed reasoning task", workerId, e);
             return WorkResult.failure(workerId, e.getMessage());
         }
     }
 
     @Override
-    public void addDerivedFacts(List<TimedFact> facts) throws RemoteException {
+    public synchronized void addDerivedFacts(List<TimedFact> facts) throws RemoteException {
         try {
+            int added = 0;
             for (TimedFact fact : facts) {
-                reasoner.addFact(fact);
+                IntervalSet delta = IntervalSet.of(fact.getIntervals())
+                        .minus(baseTimesteps.getOrDefault(fact.getAtom(), new IntervalSet()))
+                        .minus(exchangedTimesteps.getOrDefault(fact.getAtom(), new IntervalSet()));
+                if (delta.isEmpty()) {
+                    continue;
+                }
+                exchangedTimesteps.computeIfAbsent(fact.getAtom(), k -> new IntervalSet()).addAll(delta);
+                reasoner.addFact(new TimedFact(fact.getAtom(), fact.getName(), delta.toIntervals()));
+                pendingFacts = true;
+                added++;
             }
-            logger.debug("Worker {} added {} derived facts from other workers",
-                    workerId, facts.size());
+            logger.debug("Worker {} added {} of {} derived facts from other workers",
+                    workerId, added, facts.size());
         } catch (Exception e) {
             logger.error("Worker {} failed to add derived facts", workerId, e);
             throw new RemoteException("Failed to add derived facts", e);
@@ -150,26 +248,60 @@ public class DistributedWorker extends UnicastRemoteObject implements WorkerServ
     }
 
     @Override
-    public void reset() throws RemoteException {
+    public void addDerivedFacts(FactBatch batch) throws RemoteException {
+        addDerivedFacts(batch.toFacts());
+    }
+
+    @Override
+    public synchronized void dropDerivedFacts() throws RemoteException {
+        try {
+            if (!exchangedTimesteps.isEmpty()) {
+                logger.info("Worker {} dropping {} derived facts from other workers",
+                        workerId, exchangedTimesteps.size());
+                rebuild();
+            }
+        } catch (Exception e) {
+            logger.error("Worker {} failed to drop derived facts", workerId, e);
+            throw new RemoteException("Failed to drop derived facts", e);
+        }
+    }
+
+    @Override
+    public synchronized void reset() throws RemoteException {
         try {
-            // Reset counters and base facts
+            reasoner = newReasoner();
+            rules.clear();
+            baseFacts.clear();
+            baseTimesteps.clear();
+            exchangedTimesteps.clear();
+            knowledgeBaseVersion = newSession();
+            state = null;
+            pendingFacts = false;
+            reported = new HashMap<>();
+            reportComplete = true;
+
+            // Reset counters
             factsAdded = 0;
             rulesAdded = 0;
-            baseFacts.clear();
-            logger.info("Worker {} reset (note: cannot clear OptimizedReasoner state)", workerId);
+            logger.info("Worker {} reset", workerId);
         } catch (Exception e) {
             logger.error("Worker {} failed to reset", workerId, e);
             throw new RemoteException("Failed to reset", e);
         }
     }
 
+    @Override
+    public synchronized long getKnowledgeBaseVersion() throws RemoteException {
+        return knowledgeBaseVersion;
+    }
+
     @Override
     public boolean isHealthy() throws RemoteException {
         return true;  // If we can respond, we're healthy
     }
 
     @Override
-    public WorkerStats getStats() throws RemoteException {
+    public synchronized WorkerStats getStats() throws RemoteException {
         long uptimeMs = System.currentTimeMillis() - startTimeMs;
 
         WorkerStats stats = new WorkerStats(
@@ -181,6 +313,10 @@ public class DistributedWorker extends UnicastRemoteObject implements WorkerServ
                 totalExecutionTimeMs,
                 uptimeMs
         );
+        stats.addCustomStat("knowledgeBaseVersion", knowledgeBaseVersion);
+        stats.addCustomStat("fullReasonings", fullReasonings);
+        stats.addCustomStat("incrementalReasonings", incrementalReasonings);
+        stats.addCustomStat("cachedResults", cachedResults);
 
         return stats;
     }
@@ -199,43 +335,123 @@ public class DistributedWorker extends UnicastRemoteObject implements WorkerServ
 
     // --- Helper Methods ---
 
-    private List<TimedFact> extractDerivedFacts(ReasoningInterpretation result,
-                                                 int startTime, int endTime) {
-        List<TimedFact> facts = new ArrayList<>();
-        Set<String> seenFactIds = new HashSet<>();
+    private static IncrementalReasoner newReasoner() {
+        IncrementalReasoner reasoner = new IncrementalReasoner();
+        // The master only collects facts, so derivations need not be recorded
+        reasoner.setProvenanceLevel(ProvenanceLevel.NONE);
+        return reasoner;
+    }
+
+    /**
+     * Starts a knowledge base version sequence that no earlier session of any worker
+     * is likely to have used, so a master cannot mistake a restarted worker for a
+     * loaded one.
+     */
+    private static long newSession() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Adds the timesteps of {@code fact} that are not yet base facts.
+     *
+     * @return whether anything was added
+     */
+    private boolean addBaseFact(TimedFact fact) {
+        IntervalSet delta = IntervalSet.of(fact.getIntervals())
+                .minus(baseTimesteps.getOrDefault(fact.getAtom(), new IntervalSet()));
+        if (delta.isEmpty()) {
+            return false;
+        }
+        baseTimesteps.computeIfAbsent(fact.getAtom(), k -> new IntervalSet()).addAll(delta);
+
+        TimedFact added = delta.equals(IntervalSet.of(fact.getIntervals()))
+                ? fact
+                : new TimedFact(fact.getAtom(), fact.getName(), delta.toIntervals());
+        baseFacts.add(added);
+        reasoner.addFact(added);
+        knowledgeBaseVersion++;
+        pendingFacts = true;
+        return true;
+    }
+
+    private void addRuleToSession(Rule rule) {
+        rules.add(rule);
+        reasoner.addRule(rule);
+        rulesAdded++;
+        knowledgeBaseVersion++;
+        // Existing derivations did not use the new rule
+        state = null;
+    }
+
+    /**
+     * Replaces the reasoner with one holding only the rules and base facts.
+     */
+    private void rebuild() {
+        reasoner = newReasoner();
+        rules.forEach(reasoner::addRule);
+        baseFacts.forEach(reasoner::addFact);
+        exchangedTimesteps.clear();
+        state = null;
+        // The master must route the dropped facts again, so it needs every derived fact
+        reportComplete = true;
+    }
 
+    /**
+     * Extracts the timesteps in {@code [startTime, endTime]} of each derived atom,
+     * leaving out base facts and the timesteps received from other workers.
+     */
+    private Map<Atom, IntervalSet> extractDerivedFacts(ReasoningInterpretation result,
+                                                        int startTime, int endTime) {
         logger.info("Worker {} extracting facts from t={} to t={}", workerId, startTime, endTime);
-        logger.info("Worker {} has {} base facts to filter out", workerId, baseFacts.size());
+        logger.info("Worker {} has {} base facts to filter out", workerId, baseTimesteps.size());
 
+        Map<Atom, IntervalSet> timelines = new LinkedHashMap<>();
         for (int t = startTime; t <= endTime; t++) {
             Set<Atom> atomsAtT = result.getFactsAt(t);
-            logger.info("Worker {} found {} atoms at t={}", workerId, atomsAtT.size(), t);
+            logger.debug("Worker {} found {} atoms at t={}", workerId, atomsAtT.size(), t);
 
             for (Atom atom : atomsAtT) {
                 // Skip base facts - only return derived facts
-                if (baseFacts.contains(atom.toString())) {
-                    logger.debug("Worker {} skipping base fact: {}", workerId, atom);
+                if (baseTimesteps.containsKey(atom)) {
                     continue;
                 }
+                // Routed here by the master, which already has it from the worker that derived it
+                IntervalSet exchanged = exchangedTimesteps.get(atom);
+                if (exchanged != null && exchanged.contains(t)) {
+                    continue;
+                }
+                timelines.computeIfAbsent(atom, k -> new IntervalSet()).add(t);
+            }
+        }
 
-                logger.info("Worker {} found derived fact: {} at t={}", workerId, atom, t);
-
-                // Create a unique ID for this fact
-                String factId = workerId + "_" + atom.toString() + "_" + t;
+        logger.info("Worker {} extracted {} derived facts total", workerId, timelines.size());
+        return timelines;
+    }
 
-                if (!seenFactIds.contains(factId)) {
-                    TimedFact fact = new TimedFact(
-                            atom,
-                            factId,
-                            List.of(new Interval(t, t))
-                    );
-                    facts.add(fact);
-                    seenFactIds.add(factId);
-                }
+    /**
+     * Returns the timesteps of each atom in {@code a} that are not in {@code b}.
+     */
+    private static Map<Atom, IntervalSet> minus(Map<Atom, IntervalSet> a, Map<Atom, IntervalSet> b) {
+        Map<Atom, IntervalSet> difference = new LinkedHashMap<>();
+        for (Map.Entry<Atom, IntervalSet> e : a.entrySet()) {
+            IntervalSet other = b.get(e.getKey());
+            IntervalSet delta = other == null ? e.getValue() : e.getValue().minus(other);
+            if (!delta.isEmpty()) {
+                difference.put(e.getKey(), delta);
             }
         }
+        return difference;
+    }
 
-        logger.info("Worker {} extracted {} derived facts total", workerId, facts.size());
+    /**
+     * One {@link TimedFact} per atom with its timesteps coalesced into intervals.
+     */
+    private List<TimedFact> toFacts(Map<Atom, IntervalSet> timelines) {
+        List<TimedFact> facts = new ArrayList<>(timelines.size());
+        for (Map.Entry<Atom, IntervalSet> e : timelines.entrySet()) {
+            // The atom identifies a derived fact; its name only records the worker
+            facts.add(new TimedFact(e.getKey(), workerId, e.getValue().toIntervals()));
+        }
         return facts;
     }
 
@@ -0,0 +1,74 @@
+package com.example.distributed;
+
+import com.example.TimedFact;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A chunk of facts in a compact, self-contained binary form for bulk transfer to workers.
+ *
+ * <p>The facts are held as one {@link FactCodec#PLAIN} payload: a symbol table of
+ * length-prefixed strings followed by length-prefixed varint records. Serializing a
+ * batch writes that byte array rather than an object graph per fact.</p>
+ *
+ * <p>A batch is immutable and can be sent to any number of workers once encoded.</p>
+ */
+public final class FactBatch implements Serializable {
+    private static final long serialVersionUID = 2L;
+
+    private final int size;
+    private final byte[] payload;
+
+    private FactBatch(int size, byte[] payload) {
+        this.size = size;
+        this.payload = payload;
+    }
+
+    /**
+     * Encodes the given facts as a single batch.
+     */
+    public static FactBatch of(List<TimedFact> facts) {
+        return new FactBatch(facts.size(), FactCodec.PLAIN.encode(facts));
+    }
+
+    /**
+     * Splits facts into consecutive batches of at most {@code batchSize} facts each.
+     */
+    public static List<FactBatch> chunk(List<TimedFact> facts, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        List<FactBatch> batches = new ArrayList<>((facts.size() + batchSize - 1) / batchSize);
+        for (int from = 0; from < facts.size(); from += batchSize) {
+            batches.add(of(facts.subList(from, Math.min(facts.size(), from + batchSize))));
+        }
+        return batches;
+    }
+
+    /**
+     * Decodes the batch back into facts, in the order they were encoded.
+     */
+    public List<TimedFact> toFacts() {
+        return FactCodec.decode(payload);
+    }
+
+    /**
+     * Number of facts in this batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Size of the encoded payload in bytes.
+     */
+    public int byteSize() {
+        return payload.length;
+    }
+
+    @Override
+    public String toString() {
+        return "FactBatch{facts=" + size + ", bytes=" + payload.length + "}";
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.distributed;
+
+import com.example.Atom;
+import com.example.Interval;
+import com.example.IntervalSet;
+import com.example.TimedFact;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary encoding for lists of facts sent between master and workers.
+ *
+ * <p>Default Java serialization of a {@code List<TimedFact>} writes an object graph per
+ * fact: the atom, its argument list, every argument string, the name and each interval.
+ * The codec instead writes:</p>
+ * <pre>
+ *   header:   version, flags
+ *   symbols:  count, then per symbol: byteLength, UTF-8 bytes
+ *   facts:    count, then per fact:   recordLength, record
+ *   record:   predicate, arity, argument..., name, intervalCount, (start, length)...
+ * </pre>
+ * <p>All integers after the header are unsigned varints. Predicates, arguments and names
+ * are indexes into the symbol table, so a constant shared by many facts is sent once.
+ * Interval starts are zigzag-encoded so negative timesteps survive. Each record is
+ * length-prefixed so a reader can skip facts it does not need without parsing them.</p>
+ *
+ * <p>Two options trade encoding time for size:</p>
+ * <ul>
+ *   <li><b>Coalescing:</b> facts with the same atom become one record. Their intervals
+ *       are merged, with overlapping and adjacent intervals joined; the first name is
+ *       kept. Use it for derived facts, where the atom is the identity.</li>
+ *   <li><b>Compression:</b> everything after the header is deflated. Worthwhile for
+ *       large batches with repetitive records.</li>
+ * </ul>
+ *
+ * <p>{@link #decode} reads both options from the header, so any codec decodes any
+ * payload. For socket channels, {@link #write} and {@link #read} frame a payload with
+ * its length.</p>
+ *
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * byte[] bytes = FactCodec.DERIVED.encode(derivedFacts);
+ * List<TimedFact> facts = FactCodec.decode(bytes);
+ *
+ * // Over a socket
+ * FactCodec.DERIVED.write(derivedFacts, socket.getOutputStream());
+ * List<TimedFact> received = FactCodec.read(socket.getInputStream());
+ * }</pre>
+ */
+public final class FactCodec {
+
+    /** Keeps every fact as it is; for base facts, whose names matter. */
+    public static final FactCodec PLAIN = new FactCodec(false, false);
+
+    /** Coalesces and compresses; for derived facts. */
+    public static final FactCodec DERIVED = new FactCodec(true, true);
+
+    private static final int VERSION = 1;
+    private static final int FLAG_COMPRESSED = 1;
+
+    private final boolean coalesce;
+    private final boolean compress;
+
+    /**
+     * @param coalesce merge facts with the same atom into one record
+     * @param compress deflate the encoded facts
+     */
+    public FactCodec(boolean coalesce, boolean compress) {
+        this.coalesce = coalesce;
+        this.compress = compress;
+    }
+
+    /**
+     * Encodes facts into a self-describing payload.
+     */
+    public byte[] encode(List<TimedFact> facts) {
+        if (coalesce) {
+            facts = coalesce(facts);
+        }
+
+        Map<String, Integer> symbols = new LinkedHashMap<>();
+        ByteArrayOutputStream records = new ByteArrayOutputStream(facts.size() * 8);
+        ByteArrayOutputStream record = new ByteArrayOutputStream(32);
+
+        for (TimedFact fact : facts) {
+            record.reset();
+            Atom atom = fact.getAtom();
+            writeVarint(record, symbol(symbols, atom.getPredicate()));
+            writeVarint(record, atom.arity());
+            for (String arg : atom.getArgs()) {
+                writeVarint(record, symbol(symbols, arg));
+            }
+            // 0 marks an unnamed fact, so named facts are shifted by one
+            writeVarint(record, fact.getName() == null ? 0 : symbol(symbols, fact.getName()) + 1);
+            writeVarint(record, fact.getIntervals().size());
+            for (Interval iv : fact.getIntervals()) {
+                writeVarint(record, (iv.getStart() << 1) ^ (iv.getStart() >> 31));
+                writeVarint(record, iv.getEnd() - iv.getStart());
+            }
+            writeVarint(records, record.size());
+            records.writeBytes(record.toByteArray());
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(records.size() + symbols.size() * 8 + 8);
+        writeVarint(body, symbols.size());
+        for (String s : symbols.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(body, bytes.length);
+            body.write(bytes, 0, bytes.length);
+        }
+        writeVarint(body, facts.size());
+        body.writeBytes(records.toByteArray());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.size() + 8);
+        out.write(VERSION);
+        out.write(compress ? FLAG_COMPRESSED : 0);
+        if (compress) {
+            writeVarint(out, body.size());
+            out.writeBytes(deflate(body.toByteArray()));
+        } else {
+            out.writeBytes(body.toByteArray());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a payload produced by any codec, in the order the facts were encoded.
+     *
+     * @throws IllegalArgumentException if the payload is not a fact payload
+     */
+    public static List<TimedFact> decode(byte[] payload) {
+        if (payload.length < 2 || payload[0] != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " fact payload");
+        }
+        int[] pos = {2};
+        byte[] body = payload;
+        if ((payload[1] & FLAG_COMPRESSED) != 0) {
+            int length = readVarint(payload, pos);
+            body = inflate(payload, pos[0], length);
+            pos[0] = 0;
+        }
+
+        String[] symbols = new String[readVarint(body, pos)];
+        for (int i = 0; i < symbols.length; i++) {
+            int length = readVarint(body, pos);
+            symbols[i] = new String(body, pos[0], length, StandardCharsets.UTF_8);
+            pos[0] += length;
+        }
+
+        int count = readVarint(body, pos);
+        List<TimedFact> facts = new ArrayList<>(count);
+        for (int f = 0; f < count; f++) {
+            int length = readVarint(body, pos);
+            int end = pos[0] + length;
+
+            String predicate = symbols[readVarint(body, pos)];
+            String[] args = new String[readVarint(body, pos)];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = symbols[readVarint(body, pos)];
+            }
+            int name = readVarint(body, pos);
+            Interval[] intervals = new Interval[readVarint(body, pos)];
+            for (int i = 0; i < intervals.length; i++) {
+                int zigzag = readVarint(body, pos);
+                int start = (zigzag >>> 1) ^ -(zigzag & 1);
+                intervals[i] = new Interval(start, start + readVarint(body, pos));
+            }
+            facts.add(new TimedFact(new Atom(predicate, List.of(args)),
+                                    name == 0 ? null : symbols[name - 1], List.of(intervals)));
+            pos[0] = end;
+        }
+        return facts;
+    }
+
+    /**
+     * Writes facts as one length-prefixed frame.
+     */
+    public void write(List<TimedFact> facts, OutputStream out) throws IOException {
+        byte[] payload = encode(facts);
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(payload.length);
+        data.write(payload);
+        data.flush();
+    }
+
+    /**
+     * Reads one frame written by {@link #write}.
+     *
+     * @throws EOFException if the stream ends before a whole frame was read
+     */
+    public static List<TimedFact> read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] payload = new byte[data.readInt()];
+        data.readFully(payload);
+        return decode(payload);
+    }
+
+    // --- Helpers ---
+
+    private static List<TimedFact> coalesce(List<TimedFact> facts) {
+        Map<Atom, IntervalSet> timelines = new LinkedHashMap<>();
+        Map<Atom, String> names = new HashMap<>();
+        for (TimedFact fact : facts) {
+            timelines.computeIfAbsent(fact.getAtom(), k -> new IntervalSet())
+                     .addAll(IntervalSet.of(fact.getIntervals()));
+            names.putIfAbsent(fact.getAtom(), fact.getName());
+        }
+
+        List<TimedFact> coalesced = new ArrayList<>(timelines.size());
+        for (Map.Entry<Atom, IntervalSet> e : timelines.entrySet()) {
+            coalesced.add(new TimedFact(e.getKey(), names.get(e.getKey()), e.getValue().toIntervals()));
+        }
+        return coalesced;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            byte[] out = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = inflater.inflate(out, read, length - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalArgumentException("Truncated fact payload");
+                }
+                read += n;
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt fact payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int symbol(Map<String, Integer> symbols, String s) {
+        Integer id = symbols.get(s);
+        if (id == null) {
+            id = symbols.size();
+            symbols.put(s, id);
+        }
+        return id;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] in, int[] pos) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.distributed;
+
+import com.example.Atom;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decides which workers hold a fact when each worker reasons over its own partition.
+ *
+ * <p>The master routes base facts with it before the first round, and derived facts
+ * between rounds.</p>
+ *
+ * @see PartitionStrategy#router
+ */
+public interface FactRouter {
+
+    /**
+     * Returns the workers that need {@code atom} to evaluate the rules over their partition.
+     *
+     * @param atom a base or derived fact
+     * @param workerIds list of available worker IDs
+     * @return target workers; empty if no rule uses the atom
+     */
+    Set<String> route(Atom atom, List<String> workerIds);
+
+    /**
+     * Whether facts derived on one worker can be needed by another, so reasoning must
+     * repeat with exchanged facts until no worker derives anything new.
+     */
+    boolean needsExchange();
+}
@@ -0,0 +1,345 @@
+package com.example.distributed;
+
+import com.example.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Partitions facts by hashing them on the join variables of the rule set.
+ *
+ * <p>Each rule gets a key variable that all of its partitioned body literals share, and
+ * each predicate gets the argument positions its key variables appear at. A fact is sent
+ * to the worker owning the value at each of its predicate's key positions. Facts that can
+ * join therefore meet on the same worker, and every rule can be evaluated on a worker's
+ * shard alone. A predicate used at only one key position is never duplicated.</p>
+ *
+ * <p>Relations with at most {@code broadcastThreshold} facts are replicated to every
+ * worker instead of partitioned. When the partitioned literals of a rule share no
+ * variable, the smallest of them is replicated as well, base relations first. Key
+ * variables are chosen greedily, in rule order, preferring positions already in use and
+ * variables that appear in the head.</p>
+ *
+ * <p>A derived fact is produced on the worker that owns its rule's key. If that is not
+ * where its consumers look for it, as in {@code reach(x,z) <- reach(x,y), link(y,z)}
+ * which joins on {@code y} but derives a fact needed on the owner of {@code z}, the plan
+ * {@linkplain JoinPlan#needsExchange() needs exchange}: the master then routes new
+ * derived facts between workers until a round routes nothing.</p>
+ *
+ * <h2>Example Usage:</h2>
+ * <pre>{@code
+ * DistributedMaster master = new DistributedMaster();
+ * master.setPartitionStrategy(new JoinKeyPartitioner(500));
+ * }</pre>
+ */
+public class JoinKeyPartitioner implements PartitionStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(JoinKeyPartitioner.class);
+
+    /** Default largest relation, in facts, that is replicated rather than partitioned. */
+    public static final int DEFAULT_BROADCAST_THRESHOLD = 1000;
+
+    private final int broadcastThreshold;
+
+    public JoinKeyPartitioner() {
+        this(DEFAULT_BROADCAST_THRESHOLD);
+    }
+
+    /**
+     * @param broadcastThreshold relations with at most this many facts go to every worker
+     */
+    public JoinKeyPartitioner(int broadcastThreshold) {
+        this.broadcastThreshold = broadcastThreshold;
+    }
+
+    @Override
+    public boolean isJoinAware() {
+        return true;
+    }
+
+    @Override
+    public FactRouter router(List<Rule> rules, List<TimedFact> facts) {
+        return plan(rules, facts);
+    }
+
+    @Override
+    public Map<String, List<TimedFact>> partitionFacts(List<TimedFact> facts, List<String> workerIds) {
+        return partitionFacts(facts, Collections.emptyList(), workerIds);
+    }
+
+    @Override
+    public Map<String, List<TimedFact>> partitionFacts(List<TimedFact> facts, List<Rule> rules,
+                                                       List<String> workerIds) {
+        Map<String, List<TimedFact>> partitions = new HashMap<>();
+        for (String workerId : workerIds) {
+            partitions.put(workerId, new ArrayList<>());
+        }
+
+        JoinPlan plan = plan(rules, facts);
+        int shipped = 0;
+        for (TimedFact fact : facts) {
+            Set<String> targets = plan.route(fact.getAtom(), workerIds);
+            for (String workerId : targets) {
+                partitions.get(workerId).add(fact);
+            }
+            shipped += targets.size();
+        }
+
+        logger.info("Join-aware partitioning: {} facts shipped as {} copies ({})", facts.size(), shipped, plan);
+        return partitions;
+    }
+
+    @Override
+    public Map<String, List<Rule>> partitionRules(List<Rule> rules, List<String> workerIds) {
+        // Every worker evaluates every rule over its own shard
+        Map<String, List<Rule>> partitions = new HashMap<>();
+        for (String workerId : workerIds) {
+            partitions.put(workerId, new ArrayList<>(rules));
+        }
+        return partitions;
+    }
+
+    @Override
+    public String getName() {
+        return "JoinKeyPartitioner";
+    }
+
+    /**
+     * Chooses key variables for the rules, key positions for the predicates, and the
+     * set of replicated relations.
+     *
+     * @param rules the rule set to co-locate joins for
+     * @param facts the base facts, used for relation sizes
+     * @return the partitioning plan
+     */
+    public JoinPlan plan(List<Rule> rules, List<TimedFact> facts) {
+        Map<String, Integer> sizes = new HashMap<>();
+        for (TimedFact fact : facts) {
+            sizes.merge(fact.getAtom().getPredicate(), 1, Integer::sum);
+        }
+
+        Set<String> derived = new HashSet<>();
+        Set<String> consumed = new HashSet<>();
+        for (Rule rule : rules) {
+            derived.add(Atom.parse(rule.getHead()).getPredicate());
+            for (Literal literal : rule.getBodyLiterals()) {
+                consumed.add(literal.getAtom().getPredicate());
+            }
+        }
+
+        Set<String> broadcast = new HashSet<>();
+        for (Map.Entry<String, Integer> e : sizes.entrySet()) {
+            if (!derived.contains(e.getKey()) && e.getValue() <= broadcastThreshold) {
+                broadcast.add(e.getKey());
+            }
+        }
+
+        // Each conflict replicates one more relation, so this terminates
+        while (true) {
+            Map<String, Set<Integer>> keys = new HashMap<>();
+            List<String> keyVariables = new ArrayList<>(rules.size());
+            String conflict = null;
+
+            for (Rule rule : rules) {
+                List<Atom> body = partitionedBody(rule, broadcast);
+                if (body.isEmpty()) {
+                    // Replicated inputs derive the same facts on every worker
+                    keyVariables.add(null);
+                    continue;
+                }
+
+                Atom head = Atom.parse(rule.getHead());
+                String var = chooseKeyVariable(body, consumed.contains(head.getPredicate()) ? head : null, keys);
+                if (var == null) {
+                    conflict = smallestRelation(body, derived, sizes);
+                    break;
+                }
+                for (Atom atom : body) {
+                    keys.computeIfAbsent(atom.getPredicate(), k -> new TreeSet<>()).add(atom.getArgs().indexOf(var));
+                }
+                keyVariables.add(var);
+            }
+
+            if (conflict == null) {
+                return new JoinPlan(keys, broadcast, consumed,
+                                    exchangeRules(rules, keyVariables, keys, broadcast, consumed));
+            }
+            logger.debug("Replicating {}: a rule's partitioned literals share no variable", conflict);
+            broadcast.add(conflict);
+        }
+    }
+
+    private static List<Atom> partitionedBody(Rule rule, Set<String> broadcast) {
+        List<Atom> body = new ArrayList<>();
+        for (Literal literal : rule.getBodyLiterals()) {
+            if (!broadcast.contains(literal.getAtom().getPredicate())) {
+                body.add(literal.getAtom());
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Picks a variable that occurs in every atom, or {@code null} if there is none.
+     * Variables whose positions are already keys score one point per atom, plus one if
+     * derived facts would land where the head's consumers look for them.
+     */
+    private static String chooseKeyVariable(List<Atom> body, Atom head, Map<String, Set<Integer>> keys) {
+        Set<String> candidates = new LinkedHashSet<>();
+        if (head != null) {
+            candidates.addAll(head.getArgs());
+        }
+        candidates.addAll(body.get(0).getArgs());
+
+        String best = null;
+        int bestScore = -1;
+        for (String var : candidates) {
+            if (!CompiledRule.isVariable(var)) {
+                continue;
+            }
+            int score = 0;
+            boolean common = true;
+            for (Atom atom : body) {
+                int position = atom.getArgs().indexOf(var);
+                if (position < 0) {
+                    common = false;
+                    break;
+                }
+                if (keys.getOrDefault(atom.getPredicate(), Set.of()).contains(position)) {
+                    score++;
+                }
+            }
+            if (!common) {
+                continue;
+            }
+            if (head != null && head.getArgs().contains(var)) {
+                Set<Integer> headKeys = keys.get(head.getPredicate());
+                if (headKeys == null || headKeys.contains(head.getArgs().indexOf(var))) {
+                    score++;
+                }
+            }
+            if (score > bestScore) {
+                best = var;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private static String smallestRelation(List<Atom> body, Set<String> derived, Map<String, Integer> sizes) {
+        String smallest = null;
+        for (Atom atom : body) {
+            String predicate = atom.getPredicate();
+            if (smallest == null) {
+                smallest = predicate;
+                continue;
+            }
+            boolean base = !derived.contains(predicate);
+            boolean smallestBase = !derived.contains(smallest);
+            if ((base && !smallestBase) || (base == smallestBase
+                    && sizes.getOrDefault(predicate, 0) < sizes.getOrDefault(smallest, 0))) {
+                smallest = predicate;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Rules whose derived facts are needed on workers other than the one deriving them.
+     */
+    private static List<Rule> exchangeRules(List<Rule> rules, List<String> keyVariables,
+                                            Map<String, Set<Integer>> keys, Set<String> broadcast,
+                                            Set<String> consumed) {
+        List<Rule> exchanged = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            String var = keyVariables.get(i);
+            Atom head = Atom.parse(rules.get(i).getHead());
+            if (var == null || !consumed.contains(head.getPredicate())) {
+                continue;
+            }
+            boolean local = !broadcast.contains(head.getPredicate())
+                    && Set.of(head.getArgs().indexOf(var)).equals(keys.get(head.getPredicate()));
+            if (!local) {
+                exchanged.add(rules.get(i));
+            }
+        }
+        return exchanged;
+    }
+
+    /**
+     * Key positions and replicated relations chosen for a rule set.
+     */
+    public static class JoinPlan implements FactRouter {
+        private final Map<String, Set<Integer>> keys;
+        private final Set<String> broadcast;
+        private final Set<String> consumed;
+        private final List<Rule> exchanged;
+
+        JoinPlan(Map<String, Set<Integer>> keys, Set<String> broadcast, Set<String> consumed,
+                 List<Rule> exchanged) {
+            this.keys = keys;
+            this.broadcast = broadcast;
+            this.consumed = consumed;
+            this.exchanged = exchanged;
+        }
+
+        @Override
+        public Set<String> route(Atom atom, List<String> workerIds) {
+            String predicate = atom.getPredicate();
+            if (!consumed.contains(predicate)) {
+                return Collections.emptySet();
+            }
+            if (broadcast.contains(predicate)) {
+                return new LinkedHashSet<>(workerIds);
+            }
+            Set<String> targets = new LinkedHashSet<>();
+            for (int position : keys.get(predicate)) {
+                String value = atom.getArgs().get(position);
+                targets.add(workerIds.get(Math.floorMod(value.hashCode(), workerIds.size())));
+            }
+            return targets;
+        }
+
+        @Override
+        public boolean needsExchange() {
+            return !exchanged.isEmpty();
+        }
+
+        /**
+         * Argument positions facts of {@code predicate} are hashed on; empty if none.
+         */
+        public Set<Integer> getKeyPositions(String predicate) {
+            return Collections.unmodifiableSet(keys.getOrDefault(predicate, Collections.emptySet()));
+        }
+
+        public boolean isReplicated(String predicate) {
+            return broadcast.contains(predicate);
+        }
+
+        /**
+         * Rules whose derived facts must be routed to other workers.
+         */
+        public List<Rule> getExchangeRules() {
+            return Collections.unmodifiableList(exchanged);
+        }
+
+        /**
+         * Plans are equal if they route every fact to the same workers.
+         */
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof JoinPlan other)) return false;
+            return keys.equals(other.keys) && broadcast.equals(other.broadcast) && consumed.equals(other.consumed);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(keys, broadcast, consumed);
+        }
+
+        @Override
+        public String toString() {
+            return "JoinPlan{keys=" + keys + ", replicated=" + broadcast + ", exchanged=" + exchanged.size() + "}";
+        }
+    }
+}
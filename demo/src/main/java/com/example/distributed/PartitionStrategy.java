@@ -14,6 +14,8 @@ import java.util.Map;
  *   <li><b>Predicate-based:</b> Keep related facts together (default)</li>
  *   <li><b>Temporal:</b> Partition by time range</li>
  *   <li><b>Hash-based:</b> Even distribution</li>
+ *   <li><b>Join-aware:</b> Co-locate facts that join, so each worker reasons over its shard only
+ *       ({@link JoinKeyPartitioner})</li>
  * </ul>
  */
 public interface PartitionStrategy {
@@ -27,6 +29,46 @@ public interface PartitionStrategy {
      */
     Map<String, List<TimedFact>> partitionFacts(List<TimedFact> facts, List<String> workerIds);
 
+    /**
+     * Partitions facts across workers, given the rules they will be reasoned with.
+     *
+     * <p>By default the rules are ignored.</p>
+     *
+     * @param facts list of facts to partition
+     * @param rules rules that will be evaluated over the partitions
+     * @param workerIds list of available worker IDs
+     * @return map of worker ID -> facts assigned to that worker
+     */
+    default Map<String, List<TimedFact>> partitionFacts(List<TimedFact> facts, List<Rule> rules,
+                                                        List<String> workerIds) {
+        return partitionFacts(facts, workerIds);
+    }
+
+    /**
+     * Whether each worker can reason over only its own partition.
+     *
+     * <p>If false, partitions are advisory and every worker is sent every fact, since
+     * a rule may join facts from different partitions.</p>
+     */
+    default boolean isJoinAware() {
+        return false;
+    }
+
+    /**
+     * Returns how facts are routed between workers for the given rules, or {@code null}
+     * if this strategy does not route facts.
+     *
+     * <p>Only consulted for {@linkplain #isJoinAware() join-aware} strategies. The master
+     * uses it to send facts derived on one worker to the workers that need them.</p>
+     *
+     * @param rules rules that will be evaluated over the partitions
+     * @param facts base facts being partitioned
+     * @return the router, or null
+     */
+    default FactRouter router(List<Rule> rules, List<TimedFact> facts) {
+        return null;
+    }
+
     /**
      * Partitions rules across workers.
      *
@@ -2,6 +2,9 @@ package com.example.distributed;
 
 import com.example.TimedFact;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.*;
 
@@ -9,12 +12,22 @@ import java.util.*;
  * Result of reasoning performed by a distributed worker.
  *
  * <p>Contains derived facts, statistics, and metadata about the work performed.</p>
+ *
+ * <p>A worker that keeps its session between tasks reports only what changed since
+ * its previous result: the derived timesteps that are new, and in
+ * {@link #getRetractedFacts()} those that no longer hold. A {@linkplain #isComplete()
+ * complete} result instead carries every derived fact and replaces earlier ones.</p>
+ *
+ * <p>Derived facts are serialized with {@link FactCodec#DERIVED} rather than as objects,
+ * so facts with the same atom arrive as one fact with merged intervals.</p>
  */
 public class WorkResult implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 3L;
 
     private final String workerId;
-    private final List<TimedFact> derivedFacts;
+    private transient List<TimedFact> derivedFacts;
+    private transient List<TimedFact> retractedFacts;
+    private final boolean complete;
     private final int factsProcessed;
     private final int rulesApplied;
     private final long executionTimeMs;
@@ -28,8 +41,23 @@ public class WorkResult implements Serializable {
                      long executionTimeMs,
                      boolean success,
                      String errorMessage) {
+        this(workerId, derivedFacts, Collections.emptyList(), true, factsProcessed, rulesApplied,
+             executionTimeMs, success, errorMessage);
+    }
+
+    private WorkResult(String workerId,
+                       List<TimedFact> derivedFacts,
+                       List<TimedFact> retractedFacts,
+                       boolean complete,
+                       int factsProcessed,
+                       int rulesApplied,
+                       long executionTimeMs,
+                       boolean success,
+                       String errorMessage) {
         this.workerId = workerId;
         this.derivedFacts = new ArrayList<>(derivedFacts);
+        this.retractedFacts = new ArrayList<>(retractedFacts);
+        this.complete = complete;
         this.factsProcessed = factsProcessed;
         this.rulesApplied = rulesApplied;
         this.executionTimeMs = executionTimeMs;
@@ -46,6 +74,22 @@ public class WorkResult implements Serializable {
                              executionTimeMs, true, null);
     }
 
+    /**
+     * A result holding only the changes since the worker's previous result.
+     *
+     * @param derivedFacts derived timesteps that are new since the previous result
+     * @param retractedFacts previously reported timesteps that no longer hold
+     */
+    public static WorkResult delta(String workerId,
+                                   List<TimedFact> derivedFacts,
+                                   List<TimedFact> retractedFacts,
+                                   int factsProcessed,
+                                   int rulesApplied,
+                                   long executionTimeMs) {
+        return new WorkResult(workerId, derivedFacts, retractedFacts, false, factsProcessed, rulesApplied,
+                             executionTimeMs, true, null);
+    }
+
     public static WorkResult failure(String workerId, String errorMessage) {
         return new WorkResult(workerId, Collections.emptyList(), 0, 0, 0, false, errorMessage);
     }
@@ -58,6 +102,22 @@ public class WorkResult implements Serializable {
         return Collections.unmodifiableList(derivedFacts);
     }
 
+    /**
+     * Previously reported derived timesteps that no longer hold; always empty for a
+     * complete result.
+     */
+    public List<TimedFact> getRetractedFacts() {
+        return Collections.unmodifiableList(retractedFacts);
+    }
+
+    /**
+     * Whether this result carries every derived fact rather than the changes since the
+     * previous result.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
     public int getFactsProcessed() {
         return factsProcessed;
     }
@@ -78,11 +138,32 @@ public class WorkResult implements Serializable {
         return errorMessage;
     }
 
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        for (List<TimedFact> facts : List.of(derivedFacts, retractedFacts)) {
+            byte[] encoded = FactCodec.DERIVED.encode(facts);
+            out.writeInt(encoded.length);
+            out.write(encoded);
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        derivedFacts = readFacts(in);
+        retractedFacts = readFacts(in);
+    }
+
+    private static List<TimedFact> readFacts(ObjectInputStream in) throws IOException {
+        byte[] encoded = new byte[in.readInt()];
+        in.readFully(encoded);
+        return FactCodec.decode(encoded);
+    }
+
     @Override
     public String toString() {
         if (success) {
-            return String.format("WorkResult{worker=%s, derived=%d, processed=%d, time=%dms}",
-                    workerId, derivedFacts.size(), factsProcessed, executionTimeMs);
+            return String.format("WorkResult{worker=%s, derived=%d, retracted=%d, complete=%b, processed=%d, time=%dms}",
+                    workerId, derivedFacts.size(), retractedFacts.size(), complete, factsProcessed, executionTimeMs);
         } else {
             return String.format("WorkResult{worker=%s, FAILED: %s}", workerId, errorMessage);
         }
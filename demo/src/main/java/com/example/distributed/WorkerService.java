@@ -31,12 +31,32 @@ public interface WorkerService extends Remote {
      */
     void addRule(Rule rule) throws RemoteException;
 
+    /**
+     * Adds a batch of facts to this worker's local knowledge base.
+     *
+     * <p>Prefer this over {@link #addFact} for loading: one call per batch instead of
+     * one round trip per fact.</p>
+     *
+     * @param batch the encoded facts to add
+     * @throws RemoteException if communication fails
+     */
+    void addFacts(FactBatch batch) throws RemoteException;
+
+    /**
+     * Adds rules to this worker's local knowledge base in a single call.
+     *
+     * @param rules the rules to add
+     * @throws RemoteException if communication fails
+     */
+    void addRules(List<Rule> rules) throws RemoteException;
+
     /**
      * Performs reasoning for a specific timestep range.
      *
      * @param startTime starting timestep
      * @param endTime ending timestep
-     * @return work result with derived facts
+     * @return work result with the derived facts, or only their changes since the
+     *         previous result unless it is {@linkplain WorkResult#isComplete() complete}
      * @throws RemoteException if communication fails
      */
     WorkResult reason(int startTime, int endTime) throws RemoteException;
@@ -49,6 +69,26 @@ public interface WorkerService extends Remote {
      */
     void addDerivedFacts(List<TimedFact> facts) throws RemoteException;
 
+    /**
+     * Adds an encoded batch of derived facts from other workers.
+     *
+     * @param batch derived facts from other workers
+     * @throws RemoteException if communication fails
+     */
+    void addDerivedFacts(FactBatch batch) throws RemoteException;
+
+    /**
+     * Drops the derived facts received from other workers through {@link #addDerivedFacts}.
+     *
+     * <p>They were derived from the knowledge base as it was. When rules use negation,
+     * new facts on any worker can defeat them, so the master drops them everywhere and
+     * routes them again. If the worker held any, its next result is
+     * {@linkplain WorkResult#isComplete() complete}.</p>
+     *
+     * @throws RemoteException if communication fails
+     */
+    void dropDerivedFacts() throws RemoteException;
+
     /**
      * Clears all facts and rules from this worker.
      *
@@ -56,6 +96,19 @@ public interface WorkerService extends Remote {
      */
     void reset() throws RemoteException;
 
+    /**
+     * Identifies the rules and base facts this worker currently holds.
+     *
+     * <p>The version changes whenever a rule or a new base fact is added and on
+     * {@link #reset}, and it is unique to each worker session. A master that recorded
+     * the version after loading a worker can therefore send only what it added since,
+     * as long as the version is unchanged.</p>
+     *
+     * @return the knowledge base version
+     * @throws RemoteException if communication fails
+     */
+    long getKnowledgeBaseVersion() throws RemoteException;
+
     /**
      * Gets worker health status.
      *
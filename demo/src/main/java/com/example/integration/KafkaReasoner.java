@@ -14,6 +14,7 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
@@ -72,7 +73,7 @@ public class KafkaReasoner {
     // Statistics
     private long messagesProcessed = 0;
     private long parseErrors = 0;
-    private long reasoningErrors = 0;
+    private final AtomicLong reasoningErrors = new AtomicLong();
 
     private KafkaReasoner(Builder builder) {
         this.reasoner = new StreamingReasoner(builder.maxTimesteps);
@@ -132,8 +133,9 @@ public class KafkaReasoner {
                         }
                     }
 
-                    // Commit offsets periodically
+                    // Commit offsets periodically, once the submitted facts have been reasoned over
                     if (messagesProcessed % 100 == 0 && messagesProcessed > 0) {
+                        reasoner.flush();
                         consumer.commitSync();
                         logger.debug("Committed offsets after {} messages", messagesProcessed);
                     }
@@ -169,6 +171,7 @@ public class KafkaReasoner {
             consumerThread.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        reasoner.flush();
 
         logger.info("Kafka consumer stopped. Processed {} messages ({} parse errors, {} reasoning errors)",
                 messagesProcessed, parseErrors, reasoningErrors);
@@ -188,7 +191,7 @@ public class KafkaReasoner {
         Map<String, Object> stats = new HashMap<>(reasoner.getStatistics());
         stats.put("messagesProcessed", messagesProcessed);
         stats.put("parseErrors", parseErrors);
-        stats.put("reasoningErrors", reasoningErrors);
+        stats.put("reasoningErrors", reasoningErrors.get());
         stats.put("running", running);
         return stats;
     }
@@ -203,17 +206,19 @@ public class KafkaReasoner {
     // --- Internal Methods ---
 
     private void processMessage(String message) {
-        try {
-            TimedFact fact = messageParser.apply(message);
-            if (fact != null) {
-                List<Provenance.AtomTimeKey> newDerivations = reasoner.addFactIncremental(fact);
-                logger.debug("Processed message, derived {} new facts", newDerivations.size());
-            } else {
-                logger.trace("Message parser returned null (message skipped): {}", message);
-            }
-        } catch (Exception e) {
-            reasoningErrors++;
-            throw e;
+        TimedFact fact = messageParser.apply(message);
+        if (fact != null) {
+            // Reasoning runs on the reasoner's writer thread; keep polling meanwhile
+            reasoner.submitFact(fact).whenComplete((newDerivations, error) -> {
+                if (error != null) {
+                    reasoningErrors.incrementAndGet();
+                    logger.error("Error reasoning over {}: {}", fact.getAtom(), error.getMessage(), error);
+                } else {
+                    logger.debug("Processed message, derived {} new facts", newDerivations.size());
+                }
+            });
+        } else {
+            logger.trace("Message parser returned null (message skipped): {}", message);
         }
     }
 
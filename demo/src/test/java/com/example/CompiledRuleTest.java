@@ -0,0 +1,70 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CompiledRule.
+ */
+class CompiledRuleTest {
+
+    @Test
+    void testSlotsAndHeadInstantiation() {
+        SymbolTable symbols = new SymbolTable();
+        CompiledRule cr = CompiledRule.compile(
+                new Rule("atRisk(y) <- 1 disrupted(x), supplies(x,y)", "r1"), symbols);
+
+        assertEquals(2, cr.slotCount());
+        assertEquals(0, cr.slotOf("x"));
+        assertEquals(1, cr.slotOf("y"));
+
+        List<CompiledRule.CompiledLiteral> body = cr.getBody();
+        BindingFrame frame = cr.newFrame();
+        assertTrue(body.get(0).match(symbols.encode(Atom.parse("disrupted(Acme)")), frame));
+        assertTrue(body.get(1).match(symbols.encode(Atom.parse("supplies(Acme,Honda)")), frame));
+
+        int[] binding = frame.snapshot();
+        assertEquals(Atom.parse("atRisk(Honda)"), symbols.decode(cr.instantiateHead(binding)));
+        assertEquals(Map.of("x", "Acme", "y", "Honda"), cr.decodeBinding(binding, symbols));
+        assertEquals(Map.of("x", "Acme", "y", "Honda"), frame.toMap(cr, symbols));
+    }
+
+    @Test
+    void testMatchRejectsConflictsAndLeavesFrameUntouched() {
+        SymbolTable symbols = new SymbolTable();
+        CompiledRule cr = CompiledRule.compile(new Rule("self(x) <- 1 link(x,x)", "r1"), symbols);
+        CompiledRule.CompiledLiteral lit = cr.getBody().get(0);
+
+        BindingFrame frame = cr.newFrame();
+        assertFalse(lit.match(symbols.encode(Atom.parse("link(A,B)")), frame));
+        assertFalse(frame.isBound(0), "failed match must not leave bindings behind");
+
+        int mark = frame.mark();
+        assertTrue(lit.match(symbols.encode(Atom.parse("link(A,A)")), frame));
+        assertTrue(frame.isBound(0));
+
+        frame.undo(mark);
+        assertFalse(frame.isBound(0));
+    }
+
+    @Test
+    void testConstantsAndUnboundHeadVariables() {
+        SymbolTable symbols = new SymbolTable();
+        CompiledRule cr = CompiledRule.compile(
+                new Rule("flagged(x,z) <- 1 owns(x,Car), not banned(x)", "r1"), symbols);
+
+        BindingFrame frame = cr.newFrame();
+        assertFalse(cr.getBody().get(0).match(symbols.encode(Atom.parse("owns(Bob,Boat)")), frame));
+        assertTrue(cr.getBody().get(0).match(symbols.encode(Atom.parse("owns(Bob,Car)")), frame));
+        int[] binding = frame.snapshot();
+
+        // z never appears in the body, so it stays a constant
+        assertEquals(Atom.parse("flagged(Bob,z)"), symbols.decode(cr.instantiateHead(binding)));
+        assertEquals(2, cr.groundSources(binding, 0, symbols).size());
+        assertEquals(1, cr.groundPositiveSources(binding, 0, symbols).size());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for derivation listeners.
+ */
+class DerivationListenerTest {
+
+    private static Reasoner supplyChain() {
+        Reasoner reasoner = new Reasoner();
+        reasoner.addRule(new Rule("atRisk(y) <- 1 disrupted(x), supplies(x,y)", "r1"));
+        reasoner.addFact(new TimedFact(Atom.parse("disrupted(Acme)"), "d", 0, 3));
+        reasoner.addFact(new TimedFact(Atom.parse("supplies(Acme,Honda)"), "s", 0, 3));
+        return reasoner;
+    }
+
+    @Test
+    void testEventsAreStructured() {
+        Reasoner reasoner = supplyChain();
+        List<DerivationEvent> events = new ArrayList<>();
+        reasoner.setDerivationListener(events::add);
+
+        reasoner.reason(3);
+
+        assertEquals(3, events.size());
+        DerivationEvent first = events.get(0);
+        assertEquals("r1", first.getRuleName());
+        assertEquals(Atom.parse("atRisk(Honda)"), first.getFact());
+        assertEquals(1, first.getTime());
+        assertEquals("t=1 inferred by r1: atRisk(Honda)", first.toString());
+    }
+
+    @Test
+    void testAsyncListenerDeliversEverythingInBatches() {
+        List<List<DerivationEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+        AsyncDerivationListener async = new AsyncDerivationListener(batches::add, 16, 4);
+        for (int i = 0; i < 100; i++) {
+            async.onDerivation(new DerivationEvent("r", Atom.parse("p(A" + i + ")"), i));
+        }
+        async.close();
+
+        int total = 0;
+        int expectedTime = 0;
+        for (List<DerivationEvent> batch : batches) {
+            assertTrue(batch.size() <= 4);
+            for (DerivationEvent event : batch) {
+                assertEquals(expectedTime++, event.getTime());
+            }
+            total += batch.size();
+        }
+        assertEquals(100, total);
+        assertThrows(IllegalStateException.class,
+                () -> async.onDerivation(new DerivationEvent("r", Atom.parse("p(B)"), 0)));
+    }
+
+    @Test
+    void testAsyncListenerKeepsEventWhenInterrupted() {
+        AtomicInteger delivered = new AtomicInteger();
+        AsyncDerivationListener async = new AsyncDerivationListener(batch -> delivered.addAndGet(batch.size()), 4, 4);
+
+        Thread.currentThread().interrupt();
+        async.onDerivation(new DerivationEvent("r", Atom.parse("p(A)"), 0));
+        assertTrue(Thread.interrupted());
+        async.close();
+
+        assertEquals(1, delivered.get());
+    }
+
+    @Test
+    void testAsyncListenerDeliversEventsAcceptedDuringClose() throws Exception {
+        for (int round = 0; round < 10; round++) {
+            AtomicInteger delivered = new AtomicInteger();
+            AtomicInteger accepted = new AtomicInteger();
+            AsyncDerivationListener async = new AsyncDerivationListener(batch -> delivered.addAndGet(batch.size()), 8, 4);
+
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                Thread producer = new Thread(() -> {
+                    try {
+                        while (true) {
+                            async.onDerivation(new DerivationEvent("r", Atom.parse("p(A)"), 0));
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException closed) {
+                        // Rejected after close
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            Thread.sleep(1);
+            async.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertEquals(accepted.get(), delivered.get(), "round " + round);
+        }
+    }
+
+    @Test
+    void testSampledListenerCountsEveryEvent() {
+        Reasoner reasoner = supplyChain();
+        SampledLoggingDerivationListener sampled = new SampledLoggingDerivationListener(2);
+        reasoner.setDerivationListener(sampled);
+
+        reasoner.reason(3);
+
+        assertEquals(3, sampled.getCount());
+        assertFalse(DerivationListener.noOp().isEnabled());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IncrementalReasoner.
+ */
+class IncrementalReasonerTest {
+
+    private static final int TIMESTEPS = 12;
+
+    private static final String[] RULES = {
+        "atRisk(y) <- 1 disrupted(x), supplies(x,y)",
+        "atRisk(z) <- 0 atRisk(y), supplies(y,z)",
+        "ok(x) <- 0 supplies(x,y), not atRisk(x)",
+        "alert(y) : [0,2] <- 1 atRisk(y), critical(y)"
+    };
+
+    private static List<TimedFact> facts() {
+        return List.of(
+            new TimedFact(Atom.parse("supplies(Acme,Bolt)"), "s1", 0, TIMESTEPS),
+            new TimedFact(Atom.parse("supplies(Bolt,Honda)"), "s2", 0, TIMESTEPS),
+            new TimedFact(Atom.parse("supplies(Gear,Honda)"), "s3", 0, TIMESTEPS),
+            new TimedFact(Atom.parse("critical(Honda)"), "c1", 0, TIMESTEPS),
+            new TimedFact(Atom.parse("disrupted(Acme)"), "d1", 2, 4),
+            new TimedFact(Atom.parse("supplies(Steel,Gear)"), "s4", 3, TIMESTEPS),
+            new TimedFact(Atom.parse("disrupted(Steel)"), "d2", 6, 8),
+            new TimedFact(Atom.parse("supplies(Honda,Dealer)"), "s5", 0, TIMESTEPS));
+    }
+
+    private static IncrementalReasoner newReasoner() {
+        IncrementalReasoner reasoner = new IncrementalReasoner();
+        for (int i = 0; i < RULES.length; i++) {
+            reasoner.addRule(new Rule(RULES[i], "r" + i));
+        }
+        return reasoner;
+    }
+
+    private static ReasoningInterpretation expected(List<TimedFact> facts) {
+        Reasoner reference = new Reasoner();
+        for (int i = 0; i < RULES.length; i++) {
+            reference.addRule(new Rule(RULES[i], "r" + i));
+        }
+        facts.forEach(reference::addFact);
+        return reference.reason(TIMESTEPS);
+    }
+
+    @Test
+    void testReasonMatchesReference() {
+        IncrementalReasoner reasoner = newReasoner();
+        facts().forEach(reasoner::addFact);
+
+        ReasoningInterpretation actual = reasoner.reason(TIMESTEPS);
+        ReasoningInterpretation expected = expected(facts());
+        for (int t = 0; t <= TIMESTEPS; t++) {
+            assertEquals(expected.getFactsAt(t), actual.getFactsAt(t), "facts differ at t=" + t);
+        }
+        assertTrue(actual.getProvenance().isDerived(Atom.parse("alert(Honda)"), 5));
+    }
+
+    @Test
+    void testEachAdditionMatchesReference() {
+        IncrementalReasoner reasoner = newReasoner();
+        reasoner.reason(TIMESTEPS);
+
+        List<TimedFact> added = new ArrayList<>();
+        for (TimedFact fact : facts()) {
+            reasoner.addFact(fact);
+            added.add(fact);
+            ReasoningInterpretation actual = reasoner.incrementalReason();
+            ReasoningInterpretation expected = expected(added);
+            for (int t = 0; t <= TIMESTEPS; t++) {
+                assertEquals(expected.getFactsAt(t), actual.getFactsAt(t),
+                             "after adding " + fact.getAtom() + ", facts differ at t=" + t);
+            }
+        }
+
+        // Steel's disruption puts Gear at risk, which removes ok(Gear) while it lasts
+        ReasoningInterpretation state = reasoner.getCurrentState();
+        assertFalse(state.getFactsAt(7).contains(Atom.parse("ok(Gear)")));
+        assertTrue(state.getFactsAt(10).contains(Atom.parse("ok(Gear)")));
+    }
+}
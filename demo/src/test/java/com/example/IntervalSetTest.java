@@ -0,0 +1,188 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for IntervalSet.
+ */
+class IntervalSetTest {
+
+    @Test
+    void testAddCoalescesRuns() {
+        IntervalSet set = new IntervalSet();
+        assertTrue(set.add(10, 12));
+        assertTrue(set.add(0, 4));
+        assertTrue(set.add(5, 6));
+        assertFalse(set.add(1, 3));
+
+        assertEquals("{[0,6], [10,12]}", set.toString());
+        assertEquals(2, set.runCount());
+        assertEquals(10, set.cardinality());
+
+        assertTrue(set.add(7, 9));
+        assertEquals(IntervalSet.of(0, 12), set);
+        assertTrue(set.contains(8));
+        assertFalse(set.contains(13));
+    }
+
+    @Test
+    void testSetOperations() {
+        IntervalSet a = IntervalSet.of(List.of(new Interval(0, 9), new Interval(20, 29)));
+        IntervalSet b = IntervalSet.of(5, 24);
+
+        assertEquals("{[5,9], [20,24]}", a.intersect(b).toString());
+        assertEquals("{[0,4], [25,29]}", a.minus(b).toString());
+        assertEquals("{[1,10], [21,30]}", a.shift(1).toString());
+        assertEquals("{[0,31]}", a.spread(0, 10).clip(0, 31).toString());
+
+        IntervalSet added = a.addAll(b);
+        assertEquals("{[10,19]}", added.toString());
+        assertEquals(IntervalSet.of(0, 29), a);
+    }
+
+    @Test
+    void testBoundariesDoNotOverflow() {
+        int max = Integer.MAX_VALUE;
+        int min = Integer.MIN_VALUE;
+
+        IntervalSet always = IntervalSet.of(0, 5);
+        assertTrue(always.add(0, max));
+        assertEquals(IntervalSet.of(0, max), always);
+        assertEquals((long) max + 1, always.cardinality());
+        assertFalse(always.add(0, max));
+
+        assertTrue(IntervalSet.of(0, max).minus(IntervalSet.of(0, max)).isEmpty());
+        assertEquals(IntervalSet.of(0, 9), IntervalSet.of(0, max).minus(IntervalSet.of(10, max)));
+        assertTrue(IntervalSet.of(0, max).addAll(IntervalSet.of(0, max)).isEmpty());
+
+        IntervalSet low = IntervalSet.of(min, min + 3);
+        assertTrue(low.add(min + 10, min + 12));
+        assertEquals(2, low.runCount());
+        assertTrue(IntervalSet.of(min, 0).minus(IntervalSet.of(min, 0)).isEmpty());
+        IntervalSet all = IntervalSet.of(min, -1);
+        assertTrue(all.add(0, max));
+        assertEquals(IntervalSet.of(min, max), all);
+        assertEquals(1, all.runCount());
+    }
+
+    @Test
+    void testTimelineModeMatchesReference() {
+        int timesteps = 30;
+        Reasoner reference = new Reasoner();
+        OptimizedReasoner optimized = new OptimizedReasoner();
+        optimized.setTimelineStorage(true);
+        String[] rules = {
+            "atRisk(y) <- 1 disrupted(x), supplies(x,y)",
+            "atRisk(z) <- 0 atRisk(y), supplies(y,z)",
+            "ok(x) <- 0 supplies(x,y), not atRisk(x)",
+            "alert(y) : [0,3] <- 2 atRisk(y)"
+        };
+        for (int i = 0; i < rules.length; i++) {
+            reference.addRule(new Rule(rules[i], "r" + i));
+            optimized.addRule(new Rule(rules[i], "r" + i));
+        }
+        List<TimedFact> facts = List.of(
+            new TimedFact(Atom.parse("supplies(Acme,Bolt)"), "s1", 0, timesteps),
+            new TimedFact(Atom.parse("supplies(Bolt,Honda)"), "s2", 0, timesteps),
+            new TimedFact(Atom.parse("supplies(Gear,Honda)"), "s3", 0, 15),
+            new TimedFact(Atom.parse("disrupted(Acme)"), "d1",
+                          List.of(new Interval(3, 5), new Interval(10, 20))));
+        for (TimedFact fact : facts) {
+            reference.addFact(fact);
+            optimized.addFact(fact);
+        }
+
+        ReasoningInterpretation expected = reference.reason(timesteps);
+        ReasoningInterpretation actual = optimized.reason(timesteps);
+        for (int t = 0; t <= timesteps; t++) {
+            assertEquals(expected.getFactsAt(t), actual.getFactsAt(t), "facts differ at t=" + t);
+        }
+        assertTrue(actual.getFactsAt(4).contains(Atom.parse("atRisk(Honda)")));
+        assertFalse(actual.getFactsAt(8).contains(Atom.parse("atRisk(Honda)")));
+        assertFalse(actual.getFactsAt(4).contains(Atom.parse("ok(Bolt)")));
+        assertTrue(actual.getFactsAt(8).contains(Atom.parse("ok(Bolt)")));
+    }
+
+    @Test
+    void testTimelineModeMatchesReferenceOnRecursiveStrata() {
+        // Recursive strata are joined against the previous pass's runs only
+        int timesteps = 40;
+        Reasoner reference = new Reasoner();
+        OptimizedReasoner optimized = new OptimizedReasoner();
+        optimized.setTimelineStorage(true);
+        String[] rules = {
+            "disrupted(x) <- 1 disrupted(x)",
+            "disrupted(y) <- 2 supplies(x,y), disrupted(x)",
+            "reach(x,y) <- 0 supplies(x,y)",
+            "reach(x,z) <- 0 reach(x,y), reach(y,z)",
+            "safe(x) <- 0 reach(x,y), not disrupted(y)"
+        };
+        for (int i = 0; i < rules.length; i++) {
+            reference.addRule(new Rule(rules[i], "r" + i));
+            optimized.addRule(new Rule(rules[i], "r" + i));
+        }
+        List<TimedFact> facts = List.of(
+            new TimedFact(Atom.parse("supplies(Acme,Bolt)"), "s1", 0, timesteps),
+            new TimedFact(Atom.parse("supplies(Bolt,Gear)"), "s2", 5, timesteps),
+            new TimedFact(Atom.parse("supplies(Gear,Honda)"), "s3", 0, 20),
+            new TimedFact(Atom.parse("supplies(Honda,Ford)"), "s4", 10, 30),
+            new TimedFact(Atom.parse("disrupted(Acme)"), "d1", 3, 3));
+        for (TimedFact fact : facts) {
+            reference.addFact(fact);
+            optimized.addFact(fact);
+        }
+
+        ReasoningInterpretation expected = reference.reason(timesteps);
+        ReasoningInterpretation actual = optimized.reason(timesteps);
+        for (int t = 0; t <= timesteps; t++) {
+            assertEquals(expected.getFactsAt(t), actual.getFactsAt(t), "facts differ at t=" + t);
+        }
+        assertTrue(actual.getFactsAt(timesteps).contains(Atom.parse("disrupted(Acme)")));
+        assertTrue(actual.getFactsAt(12).contains(Atom.parse("reach(Acme,Ford)")));
+        assertTrue(actual.getFactsAt(timesteps).contains(Atom.parse("disrupted(Gear)")));
+    }
+
+    @Test
+    void testTimelineModeMatchesPerTimestepModeWithNegationFirst() {
+        // x is existential in "not s(x)": no positive literal before it binds x
+        String[] rules = {
+            "q(x,y) <- 0 not s(x), p(x), s(y)",
+            "r(x) <- 0 not s(x), p(x)"
+        };
+        List<TimedFact> facts = List.of(
+            new TimedFact(Atom.parse("p(D)"), "p1", 0, 8),
+            new TimedFact(Atom.parse("s(A)"), "s1", 0, 4),
+            new TimedFact(Atom.parse("s(C)"), "s2", 2, 4));
+
+        ReasoningInterpretation[] results = new ReasoningInterpretation[2];
+        for (int mode = 0; mode < 2; mode++) {
+            OptimizedReasoner reasoner = new OptimizedReasoner();
+            reasoner.setTimelineStorage(mode == 1);
+            for (int i = 0; i < rules.length; i++) {
+                reasoner.addRule(new Rule(rules[i], "r" + i));
+            }
+            facts.forEach(reasoner::addFact);
+            results[mode] = reasoner.reason(8);
+        }
+
+        for (int t = 0; t <= 8; t++) {
+            assertEquals(results[0].getFactsAt(t), results[1].getFactsAt(t), "modes differ at t=" + t);
+        }
+        assertFalse(results[0].getFactsAt(0).contains(Atom.parse("q(D,A)")));
+        assertTrue(results[0].getFactsAt(6).contains(Atom.parse("r(D)")));
+    }
+
+    @Test
+    void testTimelineOfUnknownAtomIsNotShared() {
+        SymbolTable symbols = new SymbolTable();
+        TimelineStorage storage = new TimelineStorage();
+        storage.timeline(symbols.encode(Atom.parse("p(A)"))).add(0, 5);
+
+        assertTrue(storage.timeline(symbols.encode(Atom.parse("p(B)"))).isEmpty());
+        assertTrue(new TimelineStorage().timeline(symbols.encode(Atom.parse("p(A)"))).isEmpty());
+    }
+}
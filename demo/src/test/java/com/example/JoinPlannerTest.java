@@ -0,0 +1,93 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JoinPlanner.
+ */
+class JoinPlannerTest {
+
+    @Test
+    void testStartsFromSmallerRelation() {
+        SymbolTable symbols = new SymbolTable();
+        SparseFactStorage storage = new SparseFactStorage();
+        for (int i = 0; i < 50; i++) {
+            storage.addStatic(symbols.encode(Atom.parse("supplies(S" + i + ",P" + i + ")")));
+        }
+        storage.addStatic(symbols.encode(Atom.parse("disrupted(S3)")));
+
+        CompiledRule rule = CompiledRule.compile(
+                new Rule("atRisk(x) <- 0 supplies(y,x), disrupted(y), not exempt(x)", "r"), symbols);
+        JoinPlanner planner = new JoinPlanner(storage);
+
+        // disrupted first, then supplies by index, then the negation once x is bound
+        assertArrayEquals(new int[] {1, 0, 2}, planner.plan(rule, 0));
+
+        List<int[]> results = new RuleEvaluator(storage, planner).evaluate(rule, 0);
+        assertEquals(1, results.size());
+        assertEquals(Atom.parse("atRisk(P3)"), symbols.decode(rule.instantiateHead(results.get(0))));
+
+        // Provenance still lists the body in written order
+        List<Provenance.AtomTimeKey> sources = rule.groundSources(results.get(0), 0, symbols);
+        assertEquals(Atom.parse("supplies(S3,P3)"), sources.get(0).getAtom());
+        assertEquals(Atom.parse("disrupted(S3)"), sources.get(1).getAtom());
+    }
+
+    @Test
+    void testReplansWhenStatisticsDrift() {
+        SymbolTable symbols = new SymbolTable();
+        SparseFactStorage storage = new SparseFactStorage();
+        storage.addStatic(symbols.encode(Atom.parse("a(X1)")));
+        for (int i = 0; i < 20; i++) {
+            storage.addStatic(symbols.encode(Atom.parse("b(X" + i + ")")));
+        }
+
+        CompiledRule rule = CompiledRule.compile(new Rule("c(x) <- 0 b(x), a(x)", "r"), symbols);
+        JoinPlanner planner = new JoinPlanner(storage);
+
+        assertArrayEquals(new int[] {1, 0}, planner.plan(rule, 0));
+        assertArrayEquals(new int[] {1, 0}, planner.plan(rule, 0));
+        assertEquals(1, planner.getPlanCount());
+
+        for (int i = 0; i < 100; i++) {
+            storage.addDynamic(symbols.encode(Atom.parse("a(Y" + i + ")")), 0);
+        }
+        assertArrayEquals(new int[] {0, 1}, planner.plan(rule, 0));
+        assertEquals(2, planner.getPlanCount());
+    }
+
+    @Test
+    void testNegationWrittenFirstKeepsWrittenOrderMeaning() {
+        // x is existential in "not s(x)": no positive literal before it binds x
+        Rule rule = new Rule("q(x,y) <- 0 not s(x), p(x), s(y)", "r");
+        List<TimedFact> facts = List.of(
+                new TimedFact(Atom.parse("p(D)"), "p", 0, 4),
+                new TimedFact(Atom.parse("s(A)"), "a", 0, 4),
+                new TimedFact(Atom.parse("s(C)"), "c", 0, 4));
+
+        SymbolTable symbols = new SymbolTable();
+        SparseFactStorage storage = new SparseFactStorage();
+        facts.forEach(f -> storage.addStatic(symbols.encode(f.getAtom())));
+        int[] order = new JoinPlanner(storage).plan(CompiledRule.compile(rule, symbols), 0);
+        assertEquals(0, order[0], "the negation must be checked before p(x) binds x");
+
+        Reasoner reference = new Reasoner();
+        reference.addRule(rule);
+        facts.forEach(reference::addFact);
+        ReasoningInterpretation expected = reference.reason(4);
+
+        OptimizedReasoner optimized = new OptimizedReasoner();
+        optimized.addRule(rule);
+        facts.forEach(optimized::addFact);
+        ReasoningInterpretation actual = optimized.reason(4, true, true, true, false);
+
+        for (int t = 0; t <= 4; t++) {
+            assertEquals(expected.getFactsAt(t), actual.getFactsAt(t), "facts differ at t=" + t);
+            assertFalse(actual.getFactsAt(t).contains(Atom.parse("q(D,A)")));
+        }
+    }
+}
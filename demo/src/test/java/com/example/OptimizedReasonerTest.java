@@ -0,0 +1,168 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that the optimized evaluation paths agree with the reference Reasoner.
+ */
+class OptimizedReasonerTest {
+
+    private static final String[] RULES = {
+        "atRisk(y) <- 1 disrupted(x), supplies(x,y)",
+        "atRisk(z) <- 1 atRisk(y), supplies(y,z)",
+        "exposed(x) <- 1 supplies(x,Honda), not disrupted(x)"
+    };
+
+    private static final String[] FACTS = {
+        "disrupted(Acme)",
+        "supplies(Acme,Bolt)", "supplies(Bolt,Honda)", "supplies(Gear,Honda)",
+        "supplies(Nut,Gear)", "supplies(Acme,Nut)", "supplies(Acme,Honda)"
+    };
+
+    @Test
+    void testIndexedJoinMatchesReference() {
+        int timesteps = 5;
+        Reasoner reference = new Reasoner();
+        OptimizedReasoner optimized = new OptimizedReasoner();
+        for (int i = 0; i < RULES.length; i++) {
+            reference.addRule(new Rule(RULES[i], "r" + i));
+            optimized.addRule(new Rule(RULES[i], "r" + i));
+        }
+        for (int i = 0; i < FACTS.length; i++) {
+            TimedFact fact = new TimedFact(Atom.parse(FACTS[i]), "f" + i, 0, timesteps);
+            reference.addFact(fact);
+            optimized.addFact(fact);
+        }
+
+        ReasoningInterpretation expected = reference.reason(timesteps);
+        ReasoningInterpretation actual = optimized.reason(timesteps, true, true, true, false);
+
+        for (int t = 0; t <= timesteps; t++) {
+            assertEquals(expected.getFactsAt(t), actual.getFactsAt(t), "facts differ at t=" + t);
+        }
+        assertTrue(actual.getFactsAt(timesteps).contains(Atom.parse("atRisk(Honda)")));
+        assertTrue(actual.getFactsAt(1).contains(Atom.parse("exposed(Gear)")));
+        assertFalse(actual.getFactsAt(1).contains(Atom.parse("exposed(Acme)")));
+    }
+
+    @Test
+    void testRecursiveFixpointMatchesReference() {
+        // Transitive closure with delay 0 needs one semi-naive pass per hop
+        int timesteps = 2;
+        Reasoner reference = new Reasoner();
+        OptimizedReasoner optimized = new OptimizedReasoner();
+        reference.addRule(new Rule("reach(x,y) <- 0 edge(x,y)", "base"));
+        reference.addRule(new Rule("reach(x,z) <- 0 reach(x,y), edge(y,z)", "step"));
+        optimized.addRule(new Rule("reach(x,y) <- 0 edge(x,y)", "base"));
+        optimized.addRule(new Rule("reach(x,z) <- 0 reach(x,y), edge(y,z)", "step"));
+
+        String[] nodes = { "A", "B", "C", "D", "E", "F", "G", "H" };
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            TimedFact edge = new TimedFact(Atom.parse("edge(" + nodes[i] + "," + nodes[i + 1] + ")"), "e" + i, 0, timesteps);
+            reference.addFact(edge);
+            optimized.addFact(edge);
+        }
+        // A dynamic edge that only exists at t=1 closes a cycle there
+        TimedFact back = new TimedFact(Atom.parse("edge(H,A)"), "back", 1, 1);
+        reference.addFact(back);
+        optimized.addFact(back);
+
+        ReasoningInterpretation expected = reference.reason(timesteps);
+        ReasoningInterpretation actual = optimized.reason(timesteps, true, true, true, false);
+
+        for (int t = 0; t <= timesteps; t++) {
+            assertEquals(expected.getFactsAt(t), actual.getFactsAt(t), "facts differ at t=" + t);
+        }
+        assertTrue(actual.getFactsAt(0).contains(Atom.parse("reach(A,H)")));
+        assertFalse(actual.getFactsAt(0).contains(Atom.parse("reach(H,A)")));
+        assertTrue(actual.getFactsAt(1).contains(Atom.parse("reach(H,H)")));
+    }
+
+    @Test
+    void testParallelWindowsAndSplitJoinsMatchReference() {
+        // Every rule lands two timesteps ahead, so timesteps are evaluated in parallel windows;
+        // 3000 link facts push the first join over the split threshold
+        int timesteps = 6;
+        Reasoner reference = new Reasoner();
+        OptimizedReasoner optimized = new OptimizedReasoner();
+        String[] rules = { "hot(y) <- 2 hot(x), link(x,y)", "warm(x) <- 2 hot(x), not cold(x)",
+                           "back(y,x) <- 2 link(x,y), not cold(y)" };
+        for (int i = 0; i < rules.length; i++) {
+            reference.addRule(new Rule(rules[i], "r" + i));
+            optimized.addRule(new Rule(rules[i], "r" + i));
+        }
+        List<TimedFact> facts = new ArrayList<>();
+        facts.add(new TimedFact(Atom.parse("hot(N0)"), "seed", 0, 0));
+        facts.add(new TimedFact(Atom.parse("cold(N2)"), "cold", 0, timesteps));
+        for (int i = 0; i < 3000; i++) {
+            facts.add(new TimedFact(Atom.parse("link(N" + i + ",N" + (i + 1) + ")"), "l" + i, 0, timesteps));
+        }
+        for (TimedFact fact : facts) {
+            reference.addFact(fact);
+            optimized.addFact(fact);
+        }
+
+        optimized.setParallelism(4);
+        try {
+            ReasoningInterpretation expected = reference.reason(timesteps);
+            ReasoningInterpretation actual = optimized.reason(timesteps, true, true, true, true);
+            for (int t = 0; t <= timesteps; t++) {
+                assertEquals(expected.getFactsAt(t), actual.getFactsAt(t), "facts differ at t=" + t);
+            }
+            assertTrue(actual.getFactsAt(6).contains(Atom.parse("hot(N3)")));
+            assertFalse(actual.getFactsAt(6).contains(Atom.parse("warm(N2)")));
+            assertTrue(actual.getFactsAt(2).contains(Atom.parse("back(N3000,N2999)")));
+            assertFalse(actual.getFactsAt(2).contains(Atom.parse("back(N2,N1)")));
+        } finally {
+            optimized.cleanup();
+        }
+    }
+
+    @Test
+    void testCarriedForwardResultsMatchReference() {
+        // Static graph with one disruption window: most timesteps repeat the previous one
+        int timesteps = 12;
+        String[] rules = {
+            "atRisk(y) <- 1 disrupted(x), supplies(x,y)",
+            "exposed(x) <- 1 supplies(x,Honda), not disrupted(x)",
+            "linked(x,z) <- 0 supplies(x,y), supplies(y,z)"
+        };
+        TimedFact[] facts = {
+            new TimedFact(Atom.parse("supplies(Acme,Bolt)"), "s1", 0, timesteps),
+            new TimedFact(Atom.parse("supplies(Bolt,Honda)"), "s2", 0, timesteps),
+            new TimedFact(Atom.parse("supplies(Acme,Honda)"), "s3", 0, timesteps),
+            new TimedFact(Atom.parse("disrupted(Acme)"), "d1", 4, 6)
+        };
+
+        Reasoner reference = new Reasoner();
+        for (int i = 0; i < rules.length; i++) {
+            reference.addRule(new Rule(rules[i], "r" + i));
+        }
+        for (TimedFact fact : facts) {
+            reference.addFact(fact);
+        }
+        ReasoningInterpretation expected = reference.reason(timesteps);
+
+        for (boolean semiNaive : new boolean[] {true, false}) {
+            OptimizedReasoner optimized = new OptimizedReasoner();
+            for (int i = 0; i < rules.length; i++) {
+                optimized.addRule(new Rule(rules[i], "r" + i));
+            }
+            for (TimedFact fact : facts) {
+                optimized.addFact(fact);
+            }
+            ReasoningInterpretation actual = optimized.reason(timesteps, true, true, semiNaive, false);
+            for (int t = 0; t <= timesteps; t++) {
+                assertEquals(expected.getFactsAt(t), actual.getFactsAt(t), "facts differ at t=" + t);
+            }
+        }
+        assertTrue(expected.getFactsAt(3).contains(Atom.parse("exposed(Acme)")));
+        assertFalse(expected.getFactsAt(6).contains(Atom.parse("exposed(Acme)")));
+        assertTrue(expected.getFactsAt(8).contains(Atom.parse("exposed(Acme)")));
+    }
+}
@@ -0,0 +1,172 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the columnar Provenance store and capture levels.
+ */
+class ProvenanceTest {
+
+    private static Reasoner chain(ProvenanceLevel level) {
+        Reasoner reasoner = new Reasoner();
+        reasoner.setProvenanceLevel(level);
+        reasoner.addRule(new Rule("atRisk(y) <- 1 disrupted(x), supplies(x,y)", "r1"));
+        reasoner.addRule(new Rule("alert(y) <- 1 atRisk(y)", "r2"));
+        reasoner.addFact(new TimedFact(Atom.parse("disrupted(Acme)"), "d", 0, 3));
+        reasoner.addFact(new TimedFact(Atom.parse("supplies(Acme,Honda)"), "s", 0, 3));
+        return reasoner;
+    }
+
+    @Test
+    void testRecordRoundTrip() {
+        Provenance prov = new Provenance();
+        Atom head = Atom.parse("atRisk(Honda)");
+        List<Provenance.AtomTimeKey> sources = List.of(
+                new Provenance.AtomTimeKey(Atom.parse("disrupted(Acme)"), 0),
+                new Provenance.AtomTimeKey(Atom.parse("supplies(Acme,Honda)"), 0));
+        prov.record(head, 1, new DerivationInfo("r1", sources, Map.of("x", "Acme", "y", "Honda")));
+
+        DerivationInfo info = prov.getDerivation(head, 1);
+        assertEquals("r1", info.getRuleName());
+        assertEquals(sources, info.getSourceFacts());
+        assertEquals(Map.of("x", "Acme", "y", "Honda"), info.getSubstitution());
+        assertNull(prov.getDerivation(head, 2));
+        assertEquals(Map.of("r1", 1), prov.getDerivationStats());
+        assertEquals(1, prov.getFactsDeriveredByRule("r1").size());
+    }
+
+    @Test
+    void testCaptureLevels() {
+        Atom alert = Atom.parse("alert(Honda)");
+
+        ReasoningInterpretation full = chain(ProvenanceLevel.FULL).reason(3);
+        assertEquals(1, full.getProvenance().getDerivation(alert, 2).getSourceFacts().size());
+
+        ReasoningInterpretation ruleOnly = chain(ProvenanceLevel.RULE_ONLY).reason(3);
+        assertTrue(ruleOnly.isDerived(alert, 2));
+        assertEquals("r2", ruleOnly.getProvenance().getDerivation(alert, 2).getRuleName());
+        assertTrue(ruleOnly.getProvenance().getDerivation(alert, 2).getSourceFacts().isEmpty());
+        assertTrue(ruleOnly.explain(alert, 2).contains("sources not recorded"));
+
+        ReasoningInterpretation none = chain(ProvenanceLevel.NONE).reason(3);
+        assertTrue(none.getFactsAt(2).contains(alert));
+        assertFalse(none.isDerived(alert, 2));
+        assertEquals(0, none.getProvenance().size());
+    }
+
+    @Test
+    void testRecordingFlagFollowsLevelAndSampler() {
+        Provenance prov = new Provenance();
+        assertTrue(prov.isRecording());
+        prov.setLevel(ProvenanceLevel.NONE);
+        assertFalse(prov.isRecording());
+        prov.setFullCaptureSampler(atom -> true);
+        assertTrue(prov.isRecording());
+        prov.setFullCaptureSampler(null);
+        assertFalse(prov.isRecording());
+        prov.setLevel(ProvenanceLevel.RULE_ONLY);
+        assertTrue(prov.isRecording());
+    }
+
+    @Test
+    void testSampledFactsKeepFullProvenance() {
+        Reasoner reasoner = chain(ProvenanceLevel.NONE);
+        reasoner.setProvenanceSampler(atom -> atom.getPredicate().equals("alert"));
+
+        ReasoningInterpretation result = reasoner.reason(3);
+
+        Atom alert = Atom.parse("alert(Honda)");
+        assertTrue(result.getProvenance().hasDetails(alert, 2));
+        assertEquals(new Provenance.AtomTimeKey(Atom.parse("atRisk(Honda)"), 1),
+                result.getProvenance().getDerivation(alert, 2).getSourceFacts().get(0));
+        assertFalse(result.isDerived(Atom.parse("atRisk(Honda)"), 1));
+    }
+
+    @Test
+    void testDiamondChainSharesSubDerivations() {
+        // 20 hops where every hop derives a(i+1) from two facts that both depend on a(i):
+        // the expanded tree has about 2^20 leaves, the graph 3 nodes per hop
+        Provenance prov = new Provenance();
+        for (int i = 0; i < 20; i++) {
+            Atom a = Atom.parse("a(N" + i + ")");
+            Atom left = Atom.parse("left(N" + i + ")");
+            Atom right = Atom.parse("right(N" + i + ")");
+            prov.record(left, i + 1, new DerivationInfo("l", List.of(new Provenance.AtomTimeKey(a, i)), Map.of()));
+            prov.record(right, i + 1, new DerivationInfo("r", List.of(new Provenance.AtomTimeKey(a, i)), Map.of()));
+            prov.record(Atom.parse("a(N" + (i + 1) + ")"), i + 1, new DerivationInfo("join",
+                    List.of(new Provenance.AtomTimeKey(left, i + 1), new Provenance.AtomTimeKey(right, i + 1)),
+                    Map.of()));
+        }
+        Atom top = Atom.parse("a(N20)");
+
+        DerivationGraph graph = prov.getDerivationGraph(top, 20);
+        assertEquals(61, graph.size());
+        assertFalse(graph.isTruncated());
+        assertEquals(41, graph.getDepth());
+        assertEquals(Set.of(new Provenance.AtomTimeKey(Atom.parse("a(N0)"), 0)), graph.getBaseFacts());
+        assertTrue(graph.toTreeString().contains("(see above)"));
+
+        DerivationTree tree = prov.getDerivationTree(top, 20);
+        assertEquals(41, tree.getDepth());
+        assertEquals(1, tree.getBaseFacts().size());
+        assertTrue(tree.getChildren().get(0).getChildren().get(0)
+                   == tree.getChildren().get(1).getChildren().get(0));
+
+        String json = new ExplainabilityUI(prov).generateJSON(top, 20);
+        assertTrue(json.contains("\"id\": 60"));
+        assertTrue(json.contains("\"truncated\": false"));
+    }
+
+    @Test
+    void testDeepChainIsBuiltIterativelyWithinBudget() {
+        Provenance prov = new Provenance();
+        int hops = 20_000;
+        for (int i = 1; i <= hops; i++) {
+            prov.record(Atom.parse("p(X)"), i, new DerivationInfo("step",
+                    List.of(new Provenance.AtomTimeKey(Atom.parse("p(X)"), i - 1)), Map.of()));
+        }
+        Atom p = Atom.parse("p(X)");
+
+        DerivationGraph full = prov.getDerivationGraph(p, hops, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertEquals(hops + 1, full.size());
+        assertEquals(hops + 1, full.getDepth());
+        assertEquals(hops + 1, full.toTree().getDepth());
+
+        DerivationGraph limited = prov.getDerivationGraph(p, hops, 10, Integer.MAX_VALUE);
+        assertTrue(limited.isTruncated());
+        assertEquals(11, limited.size());
+        assertTrue(limited.getNodes().get(10).isTruncated());
+        assertTrue(limited.toTreeString().contains("..."));
+
+        assertEquals(5, prov.getDerivationGraph(p, hops, Integer.MAX_VALUE, 5).size());
+        assertTrue(prov.getDerivationTree(p, hops).getDepth() <= Provenance.DEFAULT_MAX_DEPTH + 1);
+    }
+
+    @Test
+    void testIncrementalProvenanceListsNegatedSources() {
+        Rule rule = new Rule("safe(y) <- 0 supplies(x,y), not disrupted(x)", "r1");
+        TimedFact supplies = new TimedFact(Atom.parse("supplies(Acme,Honda)"), "s", 0, 2);
+
+        Reasoner reference = new Reasoner();
+        reference.addRule(rule);
+        reference.addFact(supplies);
+        DerivationInfo expected = reference.reason(2).getProvenance()
+                .getDerivation(Atom.parse("safe(Honda)"), 1);
+
+        IncrementalReasoner incremental = new IncrementalReasoner();
+        incremental.addRule(rule);
+        incremental.reason(2);
+        incremental.addFact(supplies);
+        DerivationInfo actual = incremental.incrementalReason().getProvenance()
+                .getDerivation(Atom.parse("safe(Honda)"), 1);
+
+        assertEquals(expected.getSourceFacts(), actual.getSourceFacts());
+        assertEquals(2, actual.getSourceFacts().size());
+    }
+}
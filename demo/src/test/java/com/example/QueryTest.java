@@ -0,0 +1,140 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for indexed and conjunctive queries.
+ */
+class QueryTest {
+
+    private static ReasoningInterpretation supplyChain() {
+        List<Set<Atom>> factsByTime = new ArrayList<>();
+        for (int t = 0; t <= 3; t++) {
+            Set<Atom> facts = new HashSet<>();
+            for (int i = 0; i < 100; i++) {
+                facts.add(Atom.parse("supplies(S" + i + ",P" + (i % 10) + ")"));
+            }
+            facts.add(Atom.parse("atRisk(P" + t + ")"));
+            facts.add(Atom.parse("atRisk(P7)"));
+            factsByTime.add(facts);
+        }
+        return new ReasoningInterpretation(factsByTime);
+    }
+
+    @Test
+    void testIndexedLookupsMatchScan() {
+        ReasoningInterpretation result = supplyChain();
+
+        assertEquals(100, result.getFactsByPredicate(1, "supplies").size());
+        assertEquals(10, result.getFactsByArgument(1, "supplies", 1, "P3").size());
+        assertEquals(List.of(Atom.parse("supplies(S42,P2)")),
+                     result.getFactsByArgument(1, "supplies", 0, "S42"));
+        assertTrue(result.getFactsByArgument(1, "supplies", 5, "P3").isEmpty());
+        assertTrue(result.getFactsByPredicate(99, "supplies").isEmpty());
+
+        List<QueryResult> constant = Query.parse("supplies(x, P3)").atTime(2).execute(result);
+        assertEquals(10, constant.size());
+        assertTrue(constant.stream().allMatch(r -> r.getFact().getArgs().get(1).equals("P3")));
+
+        List<QueryResult> bound = Query.parse("supplies(x, y)")
+                .withVariable("x", "S13")
+                .inTimeRange(0, 10)
+                .execute(result);
+        assertEquals(4, bound.size());
+        assertEquals(Map.of("x", "S13", "y", "P3"), bound.get(0).getBindings());
+        assertEquals(400, Query.parse("supplies(x, y)").count(result));
+    }
+
+    @Test
+    void testConjunctiveQueryJoinsOnSharedVariables() {
+        ReasoningInterpretation result = supplyChain();
+
+        Query q = Query.parse("supplies(x, y), atRisk(y)").atTime(2);
+        List<QueryResult> results = q.execute(result);
+
+        // P2 and P7 are at risk at t=2, each supplied by 10 suppliers
+        assertEquals(20, results.size());
+        QueryResult first = results.get(0);
+        assertEquals(2, first.getFacts().size());
+        assertEquals("supplies", first.getFacts().get(0).getPredicate());
+        assertEquals(Atom.parse("atRisk(" + first.getBinding("y") + ")"), first.getFacts().get(1));
+
+        assertEquals(Set.of("P2", "P7"), q.uniqueBindings(result, "y"));
+        assertEquals(Map.of("P2", 10L, "P7", 10L), q.countBy(result, "y"));
+        assertEquals(0, Query.parse("atRisk(y), supplies(S1, y)").atTime(2).count(result));
+        assertEquals(1, Query.parse("atRisk(y), supplies(S1, y)").atTime(1).count(result));
+    }
+
+    @Test
+    void testStreamStopsEarly() {
+        ReasoningInterpretation result = supplyChain();
+        int[] examined = {0};
+        Query q = Query.parse("supplies(x, y)").withFilter(r -> {
+            examined[0]++;
+            return true;
+        });
+
+        List<QueryResult> firstFive = q.stream(result).limit(5).collect(Collectors.toList());
+        assertEquals(5, firstFive.size());
+        assertEquals(5, examined[0]);
+        assertEquals(q.execute(result).subList(0, 5), firstFive);
+    }
+
+    @Test
+    void testPagesCoverResultsOnce() {
+        ReasoningInterpretation result = supplyChain();
+        List<QueryResult> all = Query.parse("supplies(x, y), atRisk(y)").execute(result);
+
+        List<QueryResult> paged = new ArrayList<>();
+        QueryCursor cursor = null;
+        int pages = 0;
+        do {
+            QueryPage page = Query.parse("supplies(x, y), atRisk(y)").after(cursor).page(result, 7);
+            assertTrue(page.getResults().size() <= 7);
+            paged.addAll(page.getResults());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(all, paged);
+        assertEquals((all.size() + 6) / 7, pages);
+    }
+
+    @Test
+    void testResumeDoesNotReplayEarlierResults() {
+        int[] lookups = {0};
+        ReasoningInterpretation result = new ReasoningInterpretation(List.of(supplyChain().getFactsAt(2))) {
+            @Override
+            public List<Atom> getFactsByPredicate(int t, String predicate) {
+                lookups[0]++;
+                return super.getFactsByPredicate(t, predicate);
+            }
+
+            @Override
+            public List<Atom> getFactsByArgument(int t, String predicate, int position, String value) {
+                lookups[0]++;
+                return super.getFactsByArgument(t, predicate, position, value);
+            }
+        };
+        List<QueryResult> all = Query.parse("supplies(x, y), atRisk(y)").execute(result);
+        assertEquals(20, all.size());
+
+        QueryPage first = Query.parse("supplies(x, y), atRisk(y)").page(result, 15);
+        lookups[0] = 0;
+        QueryPage rest = Query.parse("supplies(x, y), atRisk(y)").after(first.getNextCursor()).page(result, 15);
+        assertEquals(all.subList(15, 20), rest.getResults());
+        assertNull(rest.getNextCursor());
+        // Replaying the join would probe atRisk once per supplies fact before the cursor
+        assertTrue(lookups[0] < 50, "lookups: " + lookups[0]);
+
+        // A cursor made from a result alone resumes at the same place
+        QueryCursor fromResult = QueryCursor.after(all.get(14));
+        assertEquals(all.subList(15, 20),
+                     Query.parse("supplies(x, y), atRisk(y)").after(fromResult).execute(result));
+    }
+}
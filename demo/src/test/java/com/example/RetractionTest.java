@@ -0,0 +1,202 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for incremental retraction (counting and delete-and-rederive).
+ */
+class RetractionTest {
+
+    private static final int TIMESTEPS = 10;
+
+    private static final String[] RULES = {
+        "atRisk(y) <- 1 disrupted(x), supplies(x,y)",
+        "atRisk(z) <- 0 atRisk(y), supplies(y,z)",
+        "ok(x) <- 0 supplies(x,y), not atRisk(x)",
+        "alert(y) <- 0 atRisk(y), critical(y)"
+    };
+
+    /**
+     * Disruptions come first so the streaming reasoner never derives {@code ok}
+     * before the {@code atRisk} fact that negates it.
+     */
+    private static List<TimedFact> facts() {
+        return List.of(
+            new TimedFact(Atom.parse("disrupted(Acme)"), "d1", 2, 6),
+            new TimedFact(Atom.parse("disrupted(Gear)"), "d2", 4, 8),
+            new TimedFact(Atom.parse("supplies(Acme,Bolt)"), "s1", 0, TIMESTEPS),
+            new TimedFact(Atom.parse("supplies(Bolt,Honda)"), "s2", 0, TIMESTEPS),
+            new TimedFact(Atom.parse("supplies(Gear,Honda)"), "s3", 0, TIMESTEPS),
+            new TimedFact(Atom.parse("supplies(Honda,Dealer)"), "s4", 0, TIMESTEPS),
+            new TimedFact(Atom.parse("critical(Honda)"), "c1", 0, TIMESTEPS));
+    }
+
+    /** Reasons from scratch over every fact except the retracted one. */
+    private static ReasoningInterpretation expectedWithout(TimedFact retracted) {
+        Reasoner reference = new Reasoner();
+        for (int i = 0; i < RULES.length; i++) {
+            reference.addRule(new Rule(RULES[i], "r" + i));
+        }
+        for (TimedFact fact : facts()) {
+            if (!fact.getAtom().equals(retracted.getAtom())) {
+                reference.addFact(fact);
+            }
+        }
+        return reference.reason(TIMESTEPS);
+    }
+
+    @Test
+    void testIncrementalRetractMatchesFullReasoning() {
+        for (TimedFact retracted : facts()) {
+            IncrementalReasoner reasoner = new IncrementalReasoner();
+            for (int i = 0; i < RULES.length; i++) {
+                reasoner.addRule(new Rule(RULES[i], "r" + i));
+            }
+            facts().forEach(reasoner::addFact);
+            reasoner.reason(TIMESTEPS);
+
+            ReasoningInterpretation actual = reasoner.retract(retracted);
+            ReasoningInterpretation expected = expectedWithout(retracted);
+            for (int t = 0; t <= TIMESTEPS; t++) {
+                assertEquals(expected.getFactsAt(t), actual.getFactsAt(t),
+                             "retracting " + retracted.getAtom() + ", facts differ at t=" + t);
+            }
+        }
+    }
+
+    @Test
+    void testStreamingRetractMatchesFullReasoning() {
+        for (TimedFact retracted : facts()) {
+            StreamingReasoner reasoner = new StreamingReasoner(TIMESTEPS);
+            for (int i = 0; i < RULES.length; i++) {
+                reasoner.addRule(new Rule(RULES[i], "r" + i));
+            }
+            facts().forEach(reasoner::addFactIncremental);
+
+            List<Provenance.AtomTimeKey> gone = reasoner.retract(retracted);
+            ReasoningInterpretation expected = expectedWithout(retracted);
+            for (int t = 0; t <= TIMESTEPS; t++) {
+                assertEquals(expected.getFactsAt(t), reasoner.getAllFactsAt(t),
+                             "retracting " + retracted.getAtom() + ", facts differ at t=" + t);
+            }
+            for (Provenance.AtomTimeKey key : gone) {
+                assertFalse(expected.getFactsAt(key.getTime()).contains(key.getAtom()));
+            }
+        }
+    }
+
+    @Test
+    void testRetractReportsFactsEnabledByNegation() {
+        StreamingReasoner reasoner = new StreamingReasoner(TIMESTEPS);
+        for (int i = 0; i < RULES.length; i++) {
+            reasoner.addRule(new Rule(RULES[i], "r" + i));
+        }
+        List<TimedFact> facts = facts();
+        facts.forEach(reasoner::addFactIncremental);
+        assertFalse(reasoner.query("ok", 5).contains(Atom.parse("ok(Honda)")));
+
+        List<Atom> enabled = new ArrayList<>();
+        reasoner.onNewFact("ok", enabled::add);
+        List<Provenance.AtomTimeKey> gone = reasoner.retract(facts.get(1));  // disrupted(Gear)
+
+        // Without Gear's disruption Honda is only at risk while Acme is disrupted (t=3..6)
+        assertTrue(gone.contains(new Provenance.AtomTimeKey(Atom.parse("atRisk(Honda)"), 8)));
+        assertTrue(gone.contains(new Provenance.AtomTimeKey(Atom.parse("alert(Honda)"), 8)));
+        assertTrue(reasoner.query("atRisk", 5).contains(Atom.parse("atRisk(Honda)")));
+        assertTrue(reasoner.query("ok", 8).contains(Atom.parse("ok(Honda)")));
+        assertTrue(enabled.contains(Atom.parse("ok(Honda)")));
+        assertTrue(reasoner.retract(facts.get(1)).isEmpty());
+    }
+
+    @Test
+    void testFactsEnabledByRetractionListNegatedSources() {
+        IncrementalReasoner reasoner = new IncrementalReasoner();
+        for (int i = 0; i < RULES.length; i++) {
+            reasoner.addRule(new Rule(RULES[i], "r" + i));
+        }
+        facts().forEach(reasoner::addFact);
+        reasoner.reason(TIMESTEPS);
+
+        TimedFact retracted = facts().get(1);  // disrupted(Gear)
+        Atom ok = Atom.parse("ok(Honda)");
+        DerivationInfo expected = expectedWithout(retracted).getProvenance().getDerivation(ok, 8);
+        DerivationInfo actual = reasoner.retract(retracted).getProvenance().getDerivation(ok, 8);
+
+        assertEquals(expected.getSourceFacts(), actual.getSourceFacts());
+        assertEquals(2, actual.getSourceFacts().size());
+    }
+
+    @Test
+    void testRetractingOneOfTwoDefeatersEnablesNothing() {
+        List<Rule> rules = List.of(new Rule("ok(x) <- 0 supplies(x,y), not flagged(x,z)", "r0"));
+        TimedFact first = new TimedFact(Atom.parse("flagged(Acme,Late)"), "f1", 0, 4);
+        List<TimedFact> facts = List.of(
+            new TimedFact(Atom.parse("supplies(Acme,Bolt)"), "s1", 0, 4),
+            new TimedFact(Atom.parse("supplies(Gear,Bolt)"), "s2", 0, 4),
+            first,
+            new TimedFact(Atom.parse("flagged(Acme,Short)"), "f2", 2, 4));
+
+        IncrementalReasoner reasoner = new IncrementalReasoner();
+        rules.forEach(reasoner::addRule);
+        facts.forEach(reasoner::addFact);
+        reasoner.reason(4);
+        ReasoningInterpretation result = reasoner.retract(first);
+
+        // Acme is still flagged from t=2, so it is only ok at t=0..1
+        assertSameFacts(reference(rules, List.of(facts.get(0), facts.get(1), facts.get(3))), result,
+                        "retract " + first);
+        assertTrue(result.getFactsAt(1).contains(Atom.parse("ok(Acme)")));
+        assertFalse(result.getFactsAt(3).contains(Atom.parse("ok(Acme)")));
+    }
+
+    @Test
+    void testNegationWrittenFirstMatchesFullReasoning() {
+        // Each negation comes before the literals that bind its variable, so the
+        // variable is existential there: any s (or p) fact at all defeats the rule
+        List<Rule> rules = List.of(
+            new Rule("q(x) <- 0 not s(x), p(x)", "r0"),
+            new Rule("w(y) <- 0 not p(z), s(z), s(y)", "r1"),
+            new Rule("v(x,y) <- 0 not s(x), p(x), p(y)", "r2"));
+        List<TimedFact> facts = List.of(
+            new TimedFact(Atom.parse("p(D)"), "p1", 0, 1),
+            new TimedFact(Atom.parse("p(B)"), "p2", 3, 3),
+            new TimedFact(Atom.parse("s(A)"), "s1", 1, 4),
+            new TimedFact(Atom.parse("s(C)"), "s2", 3, 4));
+
+        for (TimedFact changed : facts) {
+            List<TimedFact> others = new ArrayList<>(facts);
+            others.remove(changed);
+
+            IncrementalReasoner retracting = new IncrementalReasoner();
+            rules.forEach(retracting::addRule);
+            facts.forEach(retracting::addFact);
+            retracting.reason(4);
+            assertSameFacts(reference(rules, others), retracting.retract(changed), "retract " + changed);
+
+            IncrementalReasoner adding = new IncrementalReasoner();
+            rules.forEach(adding::addRule);
+            others.forEach(adding::addFact);
+            adding.reason(4);
+            adding.addFact(changed);
+            assertSameFacts(reference(rules, facts), adding.incrementalReason(), "add " + changed);
+        }
+    }
+
+    private static ReasoningInterpretation reference(List<Rule> rules, List<TimedFact> facts) {
+        Reasoner reference = new Reasoner();
+        rules.forEach(reference::addRule);
+        facts.forEach(reference::addFact);
+        return reference.reason(4);
+    }
+
+    private static void assertSameFacts(ReasoningInterpretation expected, ReasoningInterpretation actual,
+                                        String change) {
+        for (int t = 0; t <= 4; t++) {
+            assertEquals(expected.getFactsAt(t), actual.getFactsAt(t), change + ": facts differ at t=" + t);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RuleScheduler.
+ */
+class RuleSchedulerTest {
+
+    private static List<CompiledRule> compile(SymbolTable symbols, String... rules) {
+        List<CompiledRule> compiled = new ArrayList<>();
+        for (int i = 0; i < rules.length; i++) {
+            compiled.add(CompiledRule.compile(new Rule(rules[i], "r" + i), symbols));
+        }
+        return compiled;
+    }
+
+    @Test
+    void testStrataFollowDependencies() {
+        SymbolTable symbols = new SymbolTable();
+        // Inserted in reverse dependency order on purpose
+        RuleScheduler schedule = new RuleScheduler(compile(symbols,
+                "safe(x) <- 0 node(x), not risky(x)",
+                "risky(x) <- 0 reach(x,y), bad(y)",
+                "reach(x,z) <- 0 reach(x,y), edge(y,z)",
+                "reach(x,y) <- 0 edge(x,y)",
+                "alert(x) <- 1 risky(x)"));
+
+        List<RuleScheduler.Stratum> strata = schedule.getStrata();
+        assertEquals(4, strata.size());
+        assertEquals(List.of("r2", "r3"), names(strata.get(0)));
+        assertTrue(strata.get(0).isRecursive());
+        assertEquals(List.of("r1"), names(strata.get(1)));
+        assertFalse(strata.get(1).isRecursive());
+        assertEquals(List.of("r0"), names(strata.get(2)));
+        assertEquals(List.of("r4"), names(strata.get(3)));
+        assertTrue(schedule.isStratified());
+        assertTrue(schedule.isTimeMonotone());
+    }
+
+    @Test
+    void testNegationInsideCycleIsNotStratified() {
+        SymbolTable symbols = new SymbolTable();
+        RuleScheduler schedule = new RuleScheduler(compile(symbols,
+                "p(x) <- 0 q(x), not r(x)",
+                "r(x) <- 0 p(x)"));
+
+        assertFalse(schedule.isStratified());
+        assertEquals(1, schedule.getStrata().size());
+        assertTrue(schedule.getStrata().get(0).isRecursive());
+    }
+
+    @Test
+    void testNegationSeesCompletedPredicate() {
+        // The negated predicate is derived by a rule added after the rule that negates it
+        int timesteps = 1;
+        Reasoner reasoner = new Reasoner();
+        OptimizedReasoner optimized = new OptimizedReasoner();
+        String[] rules = { "safe(x) <- 0 node(x), not risky(x)", "risky(x) <- 0 bad(x)" };
+        for (int i = 0; i < rules.length; i++) {
+            reasoner.addRule(new Rule(rules[i], "r" + i));
+            optimized.addRule(new Rule(rules[i], "r" + i));
+        }
+        String[] facts = { "node(A)", "node(B)", "bad(B)" };
+        for (int i = 0; i < facts.length; i++) {
+            TimedFact fact = new TimedFact(Atom.parse(facts[i]), "f" + i, 0, timesteps);
+            reasoner.addFact(fact);
+            optimized.addFact(fact);
+        }
+
+        for (ReasoningInterpretation result : List.of(reasoner.reason(timesteps),
+                optimized.reason(timesteps, true, true, true, false))) {
+            assertTrue(result.getFactsAt(0).contains(Atom.parse("safe(A)")));
+            assertFalse(result.getFactsAt(0).contains(Atom.parse("safe(B)")));
+        }
+    }
+
+    private static List<String> names(RuleScheduler.Stratum stratum) {
+        List<String> names = new ArrayList<>();
+        for (CompiledRule cr : stratum.getRules()) {
+            names.add(cr.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,75 @@
+package com.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SparseFactStorage and its layered views.
+ */
+class SparseFactStorageTest {
+
+    private SymbolTable symbols;
+    private SparseFactStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        symbols = new SymbolTable();
+        storage = new SparseFactStorage();
+    }
+
+    private EncodedAtom atom(String s) {
+        return symbols.encode(Atom.parse(s));
+    }
+
+    @Test
+    void testLayeredViewCombinesStaticAndDynamic() {
+        storage.addStatic(atom("supplies(Acme,Honda)"));
+        storage.addDynamic(atom("disrupted(Acme)"), 2);
+
+        Set<EncodedAtom> atT2 = storage.getAllAt(2);
+        assertEquals(2, atT2.size());
+        assertTrue(atT2.contains(atom("disrupted(Acme)")));
+        assertEquals(1, storage.getAllAt(1).size());
+        assertFalse(storage.contains(atom("disrupted(Acme)"), 1));
+    }
+
+    @Test
+    void testViewsAreLive() {
+        Set<EncodedAtom> view = storage.getByPredicate(symbols.intern("supplies"), 0);
+        assertTrue(view.isEmpty());
+
+        storage.addDynamic(atom("supplies(Acme,Honda)"), 0);
+        assertTrue(view.contains(atom("supplies(Acme,Honda)")));
+    }
+
+    @Test
+    void testStaticFactsAreNotDuplicated() {
+        storage.addDynamic(atom("supplies(Acme,Honda)"), 1);
+        storage.addStatic(atom("supplies(Acme,Honda)"));
+        assertFalse(storage.addDynamic(atom("supplies(Acme,Honda)"), 2));
+
+        // Overlap from before the fact became static is hidden from iteration
+        assertEquals(1, new HashSet<>(storage.getAllAt(1)).size());
+        assertEquals(1, storage.getAllAt(1).size());
+    }
+
+    @Test
+    void testArgumentIndex() {
+        int supplies = symbols.intern("supplies");
+        storage.addStatic(atom("supplies(Acme,Honda)"));
+        storage.addStatic(atom("supplies(Bolt,Honda)"));
+        storage.addDynamic(atom("supplies(Acme,Toyota)"), 3);
+
+        assertEquals(2, storage.getByArgument(supplies, 1, symbols.idOf("Honda"), 3).size());
+        assertEquals(2, storage.countByArgument(supplies, 0, symbols.idOf("Acme"), 3));
+
+        // Index is maintained after it has been built
+        storage.addStatic(atom("supplies(Acme,Mazda)"));
+        assertEquals(3, storage.countByArgument(supplies, 0, symbols.idOf("Acme"), 3));
+    }
+}
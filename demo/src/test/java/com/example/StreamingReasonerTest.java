@@ -0,0 +1,140 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StreamingReasoner.
+ */
+class StreamingReasonerTest {
+
+    private static final int TIMESTEPS = 8;
+
+    private static final String[] RULES = {
+        "reach(x,y) <- 0 link(x,y)",
+        "reach(x,z) <- 0 reach(x,y), link(y,z)",
+        "alert(y) : [0,1] <- 1 reach(x,y), down(x)",
+        "isolated(x) <- 0 node(x), not link(x,y)"
+    };
+
+    private static List<TimedFact> facts() {
+        List<TimedFact> facts = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            facts.add(new TimedFact(Atom.parse("node(N" + i + ")"), "n" + i, 0, TIMESTEPS));
+        }
+        for (int i = 0; i < 10; i++) {
+            facts.add(new TimedFact(Atom.parse("link(N" + i + ",N" + (i + 1) + ")"), "l" + i, i % 3, TIMESTEPS));
+        }
+        facts.add(new TimedFact(Atom.parse("down(N2)"), "d1", 3, 4));
+        return facts;
+    }
+
+    @Test
+    void testFactByFactMatchesReference() {
+        Reasoner reference = new Reasoner();
+        StreamingReasoner streaming = new StreamingReasoner(TIMESTEPS);
+        for (int i = 0; i < RULES.length; i++) {
+            reference.addRule(new Rule(RULES[i], "r" + i));
+            streaming.addRule(new Rule(RULES[i], "r" + i));
+        }
+        facts().forEach(reference::addFact);
+        facts().forEach(streaming::addFactIncremental);
+
+        ReasoningInterpretation expected = reference.reason(TIMESTEPS);
+        for (int t = 0; t <= TIMESTEPS; t++) {
+            Set<Atom> actual = streaming.getAllFactsAt(t);
+            // Negation is only evaluated when a rule is triggered, so isolated() may be stale
+            actual.removeIf(a -> a.getPredicate().equals("isolated"));
+            Set<Atom> wanted = new HashSet<>(expected.getFactsAt(t));
+            wanted.removeIf(a -> a.getPredicate().equals("isolated"));
+            assertEquals(wanted, actual, "facts differ at t=" + t);
+        }
+        assertTrue(streaming.query("isolated", 0).contains(Atom.parse("isolated(N11)")));
+    }
+
+    @Test
+    void testProvenanceListsNegatedSources() {
+        Reasoner reference = new Reasoner();
+        StreamingReasoner streaming = new StreamingReasoner(TIMESTEPS);
+        for (int i = 0; i < RULES.length; i++) {
+            reference.addRule(new Rule(RULES[i], "r" + i));
+            streaming.addRule(new Rule(RULES[i], "r" + i));
+        }
+        facts().forEach(reference::addFact);
+        facts().forEach(streaming::addFactIncremental);
+
+        Atom isolated = Atom.parse("isolated(N11)");
+        DerivationInfo expected = reference.reason(TIMESTEPS).getProvenance().getDerivation(isolated, 0);
+        DerivationInfo actual = streaming.getInterpretation().getProvenance().getDerivation(isolated, 0);
+        assertEquals(expected.getSourceFacts(), actual.getSourceFacts());
+        assertEquals(2, actual.getSourceFacts().size());
+    }
+
+    @Test
+    void testAdditionReportsOnlyItsConsequences() {
+        StreamingReasoner streaming = new StreamingReasoner(TIMESTEPS);
+        for (int i = 0; i < RULES.length; i++) {
+            streaming.addRule(new Rule(RULES[i], "r" + i));
+        }
+        facts().forEach(streaming::addFactIncremental);
+
+        List<Provenance.AtomTimeKey> seen = new ArrayList<>();
+        streaming.onAnyNewFact(seen::add);
+        List<Provenance.AtomTimeKey> derived =
+            streaming.addFactIncremental(new TimedFact(Atom.parse("link(N10,N11)"), "l10", 5, 5));
+
+        // N0..N10 now reach N11 at t=5, and nothing else changes
+        assertEquals(11, derived.size());
+        assertEquals(new HashSet<>(derived), new HashSet<>(seen));
+        assertTrue(derived.contains(new Provenance.AtomTimeKey(Atom.parse("reach(N0,N11)"), 5)));
+        assertTrue(derived.stream().allMatch(k -> k.getTime() == 5));
+        assertTrue(streaming.addFactIncremental(new TimedFact(Atom.parse("link(N10,N11)"), "l10", 5, 5)).isEmpty());
+    }
+
+    @Test
+    void testConcurrentProducersGetIsolatedResults() throws Exception {
+        try (StreamingReasoner streaming = new StreamingReasoner(TIMESTEPS)) {
+            for (int i = 0; i < 2; i++) {
+                streaming.addRule(new Rule(RULES[i], "r" + i));
+            }
+
+            // Four producers add links of disjoint chains at the same time
+            ExecutorService producers = Executors.newFixedThreadPool(4);
+            List<Future<List<Provenance.AtomTimeKey>>> calls = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                int chain = p;
+                calls.add(producers.submit(() -> {
+                    List<Provenance.AtomTimeKey> derived = new ArrayList<>();
+                    for (int i = 0; i < 20; i++) {
+                        TimedFact link = new TimedFact(
+                            Atom.parse("link(C" + chain + "N" + i + ",C" + chain + "N" + (i + 1) + ")"),
+                            "l", 0, TIMESTEPS);
+                        derived.addAll(streaming.submitFact(link).get());
+                    }
+                    return derived;
+                }));
+            }
+
+            Set<Provenance.AtomTimeKey> all = new HashSet<>();
+            for (int p = 0; p < 4; p++) {
+                List<Provenance.AtomTimeKey> derived = calls.get(p).get();
+                String prefix = "C" + p + "N";
+                assertTrue(derived.stream().allMatch(k -> k.getAtom().getArgs().get(0).startsWith(prefix)));
+                for (Provenance.AtomTimeKey key : derived) {
+                    assertTrue(all.add(key), "reported twice: " + key);
+                }
+            }
+            producers.shutdown();
+
+            // 20 links per chain: 20 * 21 / 2 reach facts per chain and timestep
+            assertEquals(4 * 210 * (TIMESTEPS + 1), all.size());
+            assertEquals((long) all.size(), streaming.getStatistics().get("totalDerivations"));
+            assertEquals(4 * 210, streaming.getInterpretation().getFactsAt(3).stream()
+                .filter(a -> a.getPredicate().equals("reach")).count());
+        }
+    }
+}
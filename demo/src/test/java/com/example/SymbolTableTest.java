@@ -0,0 +1,59 @@
+package com.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SymbolTable and EncodedAtom.
+ */
+class SymbolTableTest {
+
+    @Test
+    void testInternIsStable() {
+        SymbolTable symbols = new SymbolTable();
+        int a = symbols.intern("Alice");
+        int b = symbols.intern("Bob");
+
+        assertNotEquals(a, b);
+        assertEquals(a, symbols.intern("Alice"));
+        assertEquals("Bob", symbols.symbol(b));
+        assertEquals(SymbolTable.UNKNOWN, symbols.idOf("Carol"));
+        assertEquals(2, symbols.size());
+    }
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        SymbolTable symbols = new SymbolTable();
+        Atom atom = Atom.parse("supplies(Acme,Honda)");
+
+        EncodedAtom encoded = symbols.encode(atom);
+
+        assertEquals(2, encoded.arity());
+        assertEquals(atom, symbols.decode(encoded));
+        assertEquals(encoded, symbols.encode(Atom.parse("supplies(Acme,Honda)")));
+        assertEquals(encoded.hashCode(), symbols.encode(atom).hashCode());
+        assertNotEquals(encoded, symbols.encode(Atom.parse("supplies(Honda,Acme)")));
+    }
+
+    @Test
+    void testDecodeAll() {
+        SymbolTable symbols = new SymbolTable();
+        EncodedAtom a = symbols.encode(Atom.parse("popular(Alice)"));
+        EncodedAtom b = symbols.encode(Atom.parse("popular(Bob)"));
+
+        Set<Atom> decoded = symbols.decodeAll(List.of(a, b));
+
+        assertEquals(2, decoded.size());
+        assertTrue(decoded.contains(Atom.parse("popular(Alice)")));
+    }
+
+    @Test
+    void testUnknownIdRejected() {
+        SymbolTable symbols = new SymbolTable();
+        assertThrows(IllegalArgumentException.class, () -> symbols.symbol(42));
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.distributed;
+
+import com.example.Atom;
+import com.example.TimedFact;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks for loading facts into workers.
+ *
+ * <p>Workers run in-process but are called through their RMI stubs, so every call pays
+ * for serialization and a loopback round trip just as a remote worker would.</p>
+ */
+class DistributedLoadBenchmark {
+
+    private final List<DistributedWorker> workers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        workers.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        workers.forEach(DistributedWorker::shutdown);
+    }
+
+    @Test
+    void benchmarkPayloadSize() throws Exception {
+        List<TimedFact> facts = generateFacts(10000);
+
+        int javaBytes = serializedSize(new ArrayList<>(facts));
+        int batchBytes = serializedSize(FactBatch.of(facts));
+
+        System.out.println("\nPayload Size (10K facts):");
+        System.out.println("  List<TimedFact>: " + String.format("%,d", javaBytes) + " bytes");
+        System.out.println("  FactBatch:       " + String.format("%,d", batchBytes) + " bytes");
+        System.out.println("  Ratio:           " + String.format("%.1fx", javaBytes / (double) batchBytes));
+    }
+
+    @Test
+    void benchmarkResultPayloadSize() throws Exception {
+        // One fact per atom and timestep, as workers used to report them
+        List<TimedFact> derived = new ArrayList<>();
+        for (int t = 0; t <= 100; t++) {
+            for (int i = 0; i < 100; i++) {
+                Atom atom = Atom.parse("atRisk(Company" + i + ")");
+                derived.add(new TimedFact(atom, "worker1_" + atom + "_" + t, t, t));
+            }
+        }
+
+        int javaBytes = serializedSize(new ArrayList<>(derived));
+        int resultBytes = serializedSize(WorkResult.success("worker1", derived, derived.size(), 1, 0));
+
+        System.out.println("\nResult Payload Size (" + String.format("%,d", derived.size()) + " derived facts):");
+        System.out.println("  List<TimedFact>: " + String.format("%,d", javaBytes) + " bytes");
+        System.out.println("  WorkResult:      " + String.format("%,d", resultBytes) + " bytes");
+        System.out.println("  Ratio:           " + String.format("%.1fx", javaBytes / (double) resultBytes));
+    }
+
+    @Test
+    void benchmarkLoadThroughput() throws Exception {
+        int[] sizes = {1000, 10000};
+
+        System.out.println("\nWorker Load Throughput (loopback RMI):");
+        System.out.println("-".repeat(80));
+        System.out.printf("%-10s %-20s %-15s %-20s%n", "Facts", "Method", "Time (ms)", "Throughput (facts/s)");
+        System.out.println("-".repeat(80));
+
+        for (int size : sizes) {
+            List<TimedFact> facts = generateFacts(size);
+
+            WorkerService single = startWorker("single-" + size);
+            long start = System.nanoTime();
+            for (TimedFact fact : facts) {
+                single.addFact(fact);
+            }
+            printRow(size, "addFact", System.nanoTime() - start);
+
+            WorkerService batched = startWorker("batched-" + size);
+            start = System.nanoTime();
+            for (FactBatch batch : FactBatch.chunk(facts, DistributedMaster.DEFAULT_FACT_BATCH_SIZE)) {
+                batched.addFacts(batch);
+            }
+            printRow(size, "addFacts", System.nanoTime() - start);
+        }
+    }
+
+    private WorkerService startWorker(String workerId) throws Exception {
+        DistributedWorker worker = new DistributedWorker(workerId, 0);
+        workers.add(worker);
+        return (WorkerService) UnicastRemoteObject.toStub(worker);
+    }
+
+    private static void printRow(int size, String method, long elapsedNs) {
+        System.out.printf("%-10s %-20s %-15s %-20s%n",
+            String.format("%,d", size),
+            method,
+            String.format("%.2f", elapsedNs / 1_000_000.0),
+            String.format("%,.0f", size / (elapsedNs / 1_000_000_000.0)));
+    }
+
+    private static int serializedSize(Object value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.size();
+    }
+
+    /**
+     * Generates a supply graph over a few hundred companies, as in the distributed examples.
+     */
+    private static List<TimedFact> generateFacts(int count) {
+        List<TimedFact> facts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Atom atom = Atom.parse("supplies(Company" + (i % 500) + ",Company" + ((i * 7 + 1) % 500) + ")");
+            facts.add(new TimedFact(atom, "f" + i, i % 10, 100));
+        }
+        return facts;
+    }
+}
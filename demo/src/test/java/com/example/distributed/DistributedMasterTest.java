@@ -0,0 +1,194 @@
+package com.example.distributed;
+
+import com.example.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DistributedMaster, with workers running in-process.
+ */
+class DistributedMasterTest {
+
+    private static final int TIMESTEPS = 4;
+
+    private final List<DistributedWorker> workers = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        workers.forEach(DistributedWorker::shutdown);
+    }
+
+    private DistributedMaster newMaster(int workerCount) throws Exception {
+        DistributedMaster master = new DistributedMaster();
+        for (int i = 0; i < workerCount; i++) {
+            DistributedWorker worker = new DistributedWorker("w" + i, 0);
+            workers.add(worker);
+            master.addWorker("w" + i, worker);
+        }
+        return master;
+    }
+
+    @Test
+    void testRecursiveRulesReachFixpointAcrossShards() throws Exception {
+        List<Rule> rules = List.of(
+            new Rule("reach(x,y) <- 0 link(x,y)", "r0"),
+            new Rule("reach(x,z) <- 0 reach(x,y), link(y,z)", "r1"),
+            new Rule("cutEdge(x,y) <- 0 link(x,y), not reach(N0,x)", "r2"),
+            new Rule("downstream(y) <- 0 cutEdge(x,y), node(y)", "r3"));
+        List<TimedFact> facts = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            facts.add(new TimedFact(Atom.parse("link(N" + i + ",N" + (i + 1) + ")"), "l" + i, 0, TIMESTEPS));
+            facts.add(new TimedFact(Atom.parse("node(N" + i + ")"), "n" + i, 0, TIMESTEPS));
+        }
+        facts.add(new TimedFact(Atom.parse("node(M0)"), "m0", 0, TIMESTEPS));
+
+        DistributedMaster master = newMaster(3);
+        master.setPartitionStrategy(new JoinKeyPartitioner(5));
+        rules.forEach(master::addRule);
+        facts.forEach(master::addFact);
+        DistributedMaster.DistributedInterpretation result = master.reason(TIMESTEPS);
+
+        Reasoner reference = new Reasoner();
+        rules.forEach(reference::addRule);
+        facts.forEach(reference::addFact);
+        ReasoningInterpretation expected = reference.reason(TIMESTEPS);
+        for (int t = 0; t <= TIMESTEPS; t++) {
+            assertEquals(expected.getFactsAt(t), result.getFactsAt(t), "facts differ at t=" + t);
+        }
+
+        // cutEdge is only exchanged once reach is complete, so early guesses never spread
+        assertEquals(Set.of(Atom.parse("downstream(N1)")), result.getFactsAt(2).stream()
+            .filter(a -> a.getPredicate().equals("downstream")).collect(java.util.stream.Collectors.toSet()));
+
+        // Paths of length n need about n rounds; the last round exchanges nothing
+        List<DistributedMaster.RoundStats> rounds = result.getRounds();
+        assertTrue(rounds.size() > 2);
+        assertEquals(0, rounds.get(rounds.size() - 1).getFactsExchanged());
+        assertTrue(rounds.get(0).getFactsExchanged() > 0);
+        assertEquals(rounds.size(), master.getStatistics().get("rounds"));
+    }
+
+    @Test
+    void testRepeatedQueriesOnlySendWhatChanged() throws Exception {
+        List<Rule> rules = List.of(
+            new Rule("reach(x,y) <- 0 link(x,y)", "r0"),
+            new Rule("reach(x,z) <- 0 reach(x,y), link(y,z)", "r1"),
+            new Rule("cutEdge(x,y) <- 0 link(x,y), not reach(N0,x)", "r2"),
+            new Rule("downstream(y) <- 0 cutEdge(x,y), node(y)", "r3"));
+        List<TimedFact> facts = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            facts.add(new TimedFact(Atom.parse("link(N" + i + ",N" + (i + 1) + ")"), "l" + i, 0, TIMESTEPS));
+            facts.add(new TimedFact(Atom.parse("node(N" + i + ")"), "n" + i, 0, TIMESTEPS));
+        }
+        facts.add(new TimedFact(Atom.parse("link(M0,M1)"), "m0", 0, TIMESTEPS));
+        facts.add(new TimedFact(Atom.parse("node(M1)"), "m1", 0, TIMESTEPS));
+
+        DistributedMaster master = newMaster(3);
+        master.setPartitionStrategy(new JoinKeyPartitioner(5));
+        rules.forEach(master::addRule);
+        facts.forEach(master::addFact);
+        master.reason(TIMESTEPS);
+        List<Long> versions = new ArrayList<>();
+        for (DistributedWorker worker : workers) {
+            versions.add(worker.getKnowledgeBaseVersion());
+        }
+        int tasks = totalTasks();
+
+        // Nothing changed: the workers are neither reloaded nor asked to reason
+        DistributedMaster.DistributedInterpretation again = master.reason(TIMESTEPS);
+        for (int i = 0; i < workers.size(); i++) {
+            assertEquals((long) versions.get(i), workers.get(i).getKnowledgeBaseVersion());
+        }
+        assertEquals(tasks, totalTasks());
+        assertReference(rules, facts, again, "repeated query");
+
+        // A new fact is sent on its own and workers are not reset
+        int loaded = totalFactsLoaded();
+        TimedFact bridge = new TimedFact(Atom.parse("link(N6,M0)"), "bridge", 0, TIMESTEPS);
+        master.addFact(bridge);
+        facts.add(bridge);
+        DistributedMaster.DistributedInterpretation updated = master.reason(TIMESTEPS);
+        assertReference(rules, facts, updated, "after the bridge");
+        // cutEdge(M0,M1) was exchanged before the bridge made M0 reachable
+        assertFalse(updated.getFactsAt(0).contains(Atom.parse("downstream(M1)")));
+        int sent = totalFactsLoaded() - loaded;
+        assertTrue(sent >= 1 && sent <= workers.size(), "sent " + sent + " facts");
+        // Workers only reported changes; the master's copies of their facts fill in the rest
+        assertTrue(updated.getWorkerResults().stream().noneMatch(WorkResult::isComplete));
+
+        // A worker that lost its session is reloaded in full
+        workers.get(0).reset();
+        assertReference(rules, facts, master.reason(TIMESTEPS), "after a worker reset");
+    }
+
+    @Test
+    void testNewFactsRetractExchangedFactsOnEveryLayout() throws Exception {
+        List<Rule> rules = List.of(
+            new Rule("reach(x,y) <- 0 link(x,y)", "r0"),
+            new Rule("reach(x,z) <- 0 reach(x,y), link(y,z)", "r1"),
+            new Rule("cutEdge(x,y) <- 0 link(x,y), not reach(N0,x)", "r2"),
+            new Rule("downstream(y) <- 0 cutEdge(x,y), node(y)", "r3"));
+
+        // The bridge makes the whole M chain reachable, defeating every cutEdge on it,
+        // whichever workers the chain's facts and their consequences were routed to
+        for (int workerCount = 2; workerCount <= 6; workerCount++) {
+            for (int chain = 1; chain <= 6; chain++) {
+                String layout = workerCount + " workers, chain of " + chain;
+                List<TimedFact> facts = new ArrayList<>();
+                for (int i = 0; i < 6; i++) {
+                    facts.add(new TimedFact(Atom.parse("link(N" + i + ",N" + (i + 1) + ")"), "l" + i, 0, TIMESTEPS));
+                    facts.add(new TimedFact(Atom.parse("node(N" + i + ")"), "n" + i, 0, TIMESTEPS));
+                }
+                for (int i = 0; i < chain; i++) {
+                    facts.add(new TimedFact(Atom.parse("link(M" + i + ",M" + (i + 1) + ")"), "m" + i, 0, TIMESTEPS));
+                    facts.add(new TimedFact(Atom.parse("node(M" + (i + 1) + ")"), "k" + i, 0, TIMESTEPS));
+                }
+
+                DistributedMaster master = newMaster(workerCount);
+                master.setPartitionStrategy(new JoinKeyPartitioner(5));
+                rules.forEach(master::addRule);
+                facts.forEach(master::addFact);
+                assertReference(rules, facts, master.reason(TIMESTEPS), layout);
+
+                TimedFact bridge = new TimedFact(Atom.parse("link(N6,M0)"), "bridge", 0, TIMESTEPS);
+                master.addFact(bridge);
+                facts.add(bridge);
+                assertReference(rules, facts, master.reason(TIMESTEPS), layout + ", after the bridge");
+
+                workers.forEach(DistributedWorker::shutdown);
+                workers.clear();
+            }
+        }
+    }
+
+    private int totalFactsLoaded() throws Exception {
+        int loaded = 0;
+        for (DistributedWorker worker : workers) {
+            loaded += worker.getStats().getTotalFacts();
+        }
+        return loaded;
+    }
+
+    private int totalTasks() throws Exception {
+        int tasks = 0;
+        for (DistributedWorker worker : workers) {
+            tasks += worker.getStats().getTasksCompleted();
+        }
+        return tasks;
+    }
+
+    private static void assertReference(List<Rule> rules, List<TimedFact> facts,
+                                        DistributedMaster.DistributedInterpretation result, String message) {
+        Reasoner reference = new Reasoner();
+        rules.forEach(reference::addRule);
+        facts.forEach(reference::addFact);
+        ReasoningInterpretation expected = reference.reason(TIMESTEPS);
+        for (int t = 0; t <= TIMESTEPS; t++) {
+            assertEquals(expected.getFactsAt(t), result.getFactsAt(t), message + ": facts differ at t=" + t);
+        }
+    }
+}
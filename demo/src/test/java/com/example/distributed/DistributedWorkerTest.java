@@ -0,0 +1,171 @@
+package com.example.distributed;
+
+import com.example.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DistributedWorker sessions.
+ */
+class DistributedWorkerTest {
+
+    private static final int TIMESTEPS = 5;
+
+    private DistributedWorker worker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        worker = new DistributedWorker("w0", 0);
+        worker.addRules(List.of(
+            new Rule("reach(x,y) <- 0 link(x,y)", "r0"),
+            new Rule("reach(x,z) <- 0 reach(x,y), link(y,z)", "r1"),
+            new Rule("isolated(x) <- 0 node(x), not reach(N0,x)", "r2")));
+        worker.addFacts(FactBatch.of(List.of(
+            link("N0", "N1"), link("N1", "N2"), node("N1"), node("N2"), node("N3"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void testRepeatedTaskReusesMaterializedState() throws Exception {
+        WorkResult first = worker.reason(0, TIMESTEPS);
+        long version = worker.getKnowledgeBaseVersion();
+
+        WorkResult second = worker.reason(0, TIMESTEPS);
+
+        assertTrue(second.isSuccess());
+        assertTrue(first.isComplete());
+        assertFalse(first.getDerivedFacts().isEmpty());
+        // Nothing changed, so nothing is sent again
+        assertFalse(second.isComplete());
+        assertTrue(second.getDerivedFacts().isEmpty());
+        assertTrue(second.getRetractedFacts().isEmpty());
+        assertEquals(version, worker.getKnowledgeBaseVersion());
+        Map<String, Object> stats = worker.getStats().getCustomStats();
+        assertEquals(1, stats.get("fullReasonings"));
+        assertEquals(1, stats.get("cachedResults"));
+    }
+
+    @Test
+    void testDuplicateFactsAreIgnored() throws Exception {
+        long version = worker.getKnowledgeBaseVersion();
+
+        worker.addFacts(FactBatch.of(List.of(link("N0", "N1"), node("N3"))));
+        worker.addFact(link("N1", "N2"));
+
+        assertEquals(version, worker.getKnowledgeBaseVersion());
+        assertEquals(5, worker.getStats().getTotalFacts());
+
+        // Static facts run to Integer.MAX_VALUE; sending one again is still a duplicate
+        TimedFact always = new TimedFact(Atom.parse("node(N9)"), "n_N9", 0, Integer.MAX_VALUE);
+        worker.addFact(always);
+        long afterStatic = worker.getKnowledgeBaseVersion();
+        worker.addFacts(FactBatch.of(List.of(always)));
+        assertEquals(afterStatic, worker.getKnowledgeBaseVersion());
+        assertEquals(6, worker.getStats().getTotalFacts());
+    }
+
+    @Test
+    void testNewFactsAreReasonedIncrementally() throws Exception {
+        WorkResult first = worker.reason(0, TIMESTEPS);
+        long version = worker.getKnowledgeBaseVersion();
+
+        worker.addFact(link("N2", "N3"));
+        WorkResult result = worker.reason(0, TIMESTEPS);
+
+        assertNotEquals(version, worker.getKnowledgeBaseVersion());
+        assertEquals(1, worker.getStats().getCustomStats().get("incrementalReasonings"));
+
+        Reasoner reference = new Reasoner();
+        reference.addRule(new Rule("reach(x,y) <- 0 link(x,y)", "r0"));
+        reference.addRule(new Rule("reach(x,z) <- 0 reach(x,y), link(y,z)", "r1"));
+        reference.addRule(new Rule("isolated(x) <- 0 node(x), not reach(N0,x)", "r2"));
+        for (TimedFact fact : List.of(link("N0", "N1"), link("N1", "N2"), link("N2", "N3"),
+                                      node("N1"), node("N2"), node("N3"))) {
+            reference.addFact(fact);
+        }
+        ReasoningInterpretation expected = reference.reason(TIMESTEPS);
+
+        // Only the changes are reported; applied to the first result they give the full set
+        assertFalse(result.isComplete());
+        assertFalse(timelines(result.getDerivedFacts()).containsKey(Atom.parse("reach(N0,N1)")));
+        assertEquals(Set.of(Atom.parse("isolated(N3)")), timelines(result.getRetractedFacts()).keySet());
+        Map<Atom, IntervalSet> derived = timelines(first.getDerivedFacts());
+        timelines(result.getRetractedFacts()).forEach((atom, when) -> derived.computeIfPresent(atom,
+                (k, v) -> v.minus(when).isEmpty() ? null : v.minus(when)));
+        timelines(result.getDerivedFacts()).forEach((atom, when) ->
+                derived.computeIfAbsent(atom, k -> new IntervalSet()).addAll(when));
+        for (int t = 0; t <= TIMESTEPS; t++) {
+            Set<Atom> atT = new HashSet<>();
+            for (Map.Entry<Atom, IntervalSet> e : derived.entrySet()) {
+                if (e.getValue().contains(t)) {
+                    atT.add(e.getKey());
+                }
+            }
+            Set<Atom> expectedDerived = new HashSet<>(expected.getFactsAt(t));
+            expectedDerived.removeIf(a -> a.getPredicate().equals("link") || a.getPredicate().equals("node"));
+            assertEquals(expectedDerived, atT, "derived facts differ at t=" + t);
+        }
+        assertFalse(derived.containsKey(Atom.parse("isolated(N3)")));
+    }
+
+    @Test
+    void testRoutedFactsAreNotReportedAndCanBeDropped() throws Exception {
+        worker.reason(0, TIMESTEPS);
+        TimedFact routed = new TimedFact(Atom.parse("reach(N0,N3)"), "w1", 0, TIMESTEPS);
+
+        worker.addDerivedFacts(List.of(routed));
+        WorkResult withRouted = worker.reason(0, TIMESTEPS);
+
+        // The routed fact defeats isolated(N3) but is not reported back as derived
+        assertFalse(withRouted.isComplete());
+        assertTrue(withRouted.getDerivedFacts().isEmpty());
+        assertEquals(Set.of(Atom.parse("isolated(N3)")), timelines(withRouted.getRetractedFacts()).keySet());
+
+        worker.dropDerivedFacts();
+        WorkResult dropped = worker.reason(0, TIMESTEPS);
+
+        assertTrue(dropped.isComplete());
+        Map<Atom, IntervalSet> derived = timelines(dropped.getDerivedFacts());
+        assertTrue(derived.containsKey(Atom.parse("isolated(N3)")));
+        assertFalse(derived.containsKey(Atom.parse("reach(N0,N3)")));
+    }
+
+    @Test
+    void testResetClearsSession() throws Exception {
+        worker.reason(0, TIMESTEPS);
+        long version = worker.getKnowledgeBaseVersion();
+
+        worker.reset();
+
+        assertNotEquals(version, worker.getKnowledgeBaseVersion());
+        WorkResult result = worker.reason(0, TIMESTEPS);
+        assertTrue(result.isSuccess());
+        assertTrue(result.getDerivedFacts().isEmpty());
+        assertEquals(0, worker.getStats().getTotalRules());
+    }
+
+    private static TimedFact link(String from, String to) {
+        return new TimedFact(Atom.parse("link(" + from + "," + to + ")"), "l_" + from + to, 0, TIMESTEPS);
+    }
+
+    private static TimedFact node(String name) {
+        return new TimedFact(Atom.parse("node(" + name + ")"), "n_" + name, 0, TIMESTEPS);
+    }
+
+    private static Map<Atom, IntervalSet> timelines(List<TimedFact> facts) {
+        Map<Atom, IntervalSet> timelines = new HashMap<>();
+        for (TimedFact fact : facts) {
+            timelines.computeIfAbsent(fact.getAtom(), k -> new IntervalSet()).addAll(IntervalSet.of(fact.getIntervals()));
+        }
+        return timelines;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.distributed;
+
+import com.example.Atom;
+import com.example.Interval;
+import com.example.TimedFact;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FactBatch encoding.
+ */
+class FactBatchTest {
+
+    @Test
+    void testRoundTripPreservesFacts() {
+        List<TimedFact> facts = new ArrayList<>();
+        facts.add(new TimedFact(Atom.parse("supplies(Acme,Bolt)"), "s1", 0, 100));
+        facts.add(new TimedFact(Atom.parse("disrupted(Acme)"), null,
+                                List.of(new Interval(-3, 2), new Interval(40, 40))));
+        facts.add(new TimedFact(Atom.parse("critical(Zürich)"), "c1", 5, 5));
+        facts.add(new TimedFact(new Atom("tick", List.of()), "t", 1_000_000, 2_000_000));
+
+        List<TimedFact> decoded = FactBatch.of(facts).toFacts();
+
+        assertEquals(facts.size(), decoded.size());
+        for (int i = 0; i < facts.size(); i++) {
+            TimedFact expected = facts.get(i);
+            TimedFact actual = decoded.get(i);
+            assertEquals(expected.getAtom(), actual.getAtom());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getIntervals().toString(), actual.getIntervals().toString());
+        }
+    }
+
+    @Test
+    void testChunksCoverAllFactsInOrder() {
+        List<TimedFact> facts = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            facts.add(new TimedFact(Atom.parse("supplies(S" + i + ",P" + (i % 3) + ")"), "f" + i, 0, 10));
+        }
+
+        List<FactBatch> batches = FactBatch.chunk(facts, 10);
+        assertEquals(List.of(10, 10, 5), batches.stream().map(FactBatch::size).toList());
+
+        List<TimedFact> decoded = new ArrayList<>();
+        batches.forEach(b -> decoded.addAll(b.toFacts()));
+        assertEquals(facts.stream().map(TimedFact::getAtom).toList(),
+                     decoded.stream().map(TimedFact::getAtom).toList());
+        assertThrows(IllegalArgumentException.class, () -> FactBatch.chunk(facts, 0));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.distributed;
+
+import com.example.Atom;
+import com.example.Interval;
+import com.example.TimedFact;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FactCodec.
+ */
+class FactCodecTest {
+
+    private static List<TimedFact> derived() {
+        List<TimedFact> facts = new ArrayList<>();
+        for (int t = 0; t < 50; t++) {
+            for (int i = 0; i < 20; i++) {
+                facts.add(new TimedFact(Atom.parse("atRisk(Part" + i + ")"), "w1", t, t));
+            }
+        }
+        facts.add(new TimedFact(Atom.parse("atRisk(Part3)"), "w1", 80, 90));
+        return facts;
+    }
+
+    @Test
+    void testCoalescesAndCompresses() {
+        List<TimedFact> facts = derived();
+        byte[] plain = FactCodec.PLAIN.encode(facts);
+        byte[] compact = FactCodec.DERIVED.encode(facts);
+
+        assertEquals(facts.size(), FactCodec.decode(plain).size());
+        List<TimedFact> decoded = FactCodec.decode(compact);
+        assertEquals(20, decoded.size());
+        assertEquals("atRisk(Part3)", decoded.get(3).getAtom().toString());
+        assertEquals("[[0,49], [80,90]]", decoded.get(3).getIntervals().toString());
+        assertTrue(compact.length * 10 < plain.length, compact.length + " vs " + plain.length);
+
+        // Compression alone round-trips every fact
+        List<TimedFact> compressed = FactCodec.decode(new FactCodec(false, true).encode(facts));
+        assertEquals(facts.size(), compressed.size());
+        assertEquals(facts.get(facts.size() - 1).getIntervals().toString(),
+                     compressed.get(compressed.size() - 1).getIntervals().toString());
+        assertThrows(IllegalArgumentException.class, () -> FactCodec.decode(new byte[] {42, 0}));
+    }
+
+    @Test
+    void testFramesOverStream() throws Exception {
+        ByteArrayOutputStream channel = new ByteArrayOutputStream();
+        FactCodec.DERIVED.write(derived(), channel);
+        FactCodec.PLAIN.write(List.of(new TimedFact(Atom.parse("down(N1)"), null,
+                                                    List.of(new Interval(-2, 3)))), channel);
+
+        InputStream in = new ByteArrayInputStream(channel.toByteArray());
+        assertEquals(20, FactCodec.read(in).size());
+        TimedFact down = FactCodec.read(in).get(0);
+        assertEquals(Atom.parse("down(N1)"), down.getAtom());
+        assertNull(down.getName());
+        assertEquals(-2, down.getIntervals().get(0).getStart());
+        assertThrows(EOFException.class, () -> FactCodec.read(in));
+    }
+
+    @Test
+    void testWorkResultSerializesFactsCompactly() throws Exception {
+        WorkResult result = WorkResult.success("w1", derived(), 1000, 4, 12);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(result);
+        }
+        WorkResult copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (WorkResult) in.readObject();
+        }
+
+        assertEquals("w1", copy.getWorkerId());
+        assertEquals(1000, copy.getFactsProcessed());
+        assertTrue(copy.isSuccess());
+        assertEquals(20, copy.getDerivedFacts().size());
+        assertTrue(bytes.size() < 1000, "serialized to " + bytes.size() + " bytes");
+    }
+
+    @Test
+    void testStaticFactsCoalesceAtTheBoundary() {
+        List<TimedFact> facts = List.of(
+            new TimedFact(Atom.parse("node(N1)"), "n", 0, 5),
+            new TimedFact(Atom.parse("node(N1)"), "n", 0, Integer.MAX_VALUE),
+            new TimedFact(Atom.parse("node(N2)"), "n", Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+        List<TimedFact> decoded = FactCodec.decode(FactCodec.DERIVED.encode(facts));
+
+        assertEquals(2, decoded.size());
+        for (TimedFact fact : decoded) {
+            assertEquals(1, fact.getIntervals().size());
+            assertEquals(Integer.MAX_VALUE, fact.getIntervals().get(0).getEnd());
+        }
+        assertEquals(Integer.MIN_VALUE, decoded.get(1).getIntervals().get(0).getStart());
+    }
+
+    @Test
+    void testDeltaWorkResultKeepsRetractions() throws Exception {
+        List<TimedFact> retracted = List.of(new TimedFact(Atom.parse("atRisk(P1)"), "w1", 2, 3));
+        WorkResult result = WorkResult.delta("w1", derived(), retracted, 1000, 4, 12);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(result);
+        }
+        WorkResult copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (WorkResult) in.readObject();
+        }
+
+        assertFalse(copy.isComplete());
+        assertEquals(20, copy.getDerivedFacts().size());
+        assertEquals(1, copy.getRetractedFacts().size());
+        assertEquals(Atom.parse("atRisk(P1)"), copy.getRetractedFacts().get(0).getAtom());
+        Interval when = copy.getRetractedFacts().get(0).getIntervals().get(0);
+        assertEquals(2, when.getStart());
+        assertEquals(3, when.getEnd());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.distributed;
+
+import com.example.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JoinKeyPartitioner.
+ */
+class JoinKeyPartitionerTest {
+
+    private static final int TIMESTEPS = 5;
+    private static final List<String> WORKERS = List.of("w1", "w2", "w3", "w4");
+
+    private static final List<Rule> RULES = List.of(
+        new Rule("exposed(y) <- 0 owns(x,y), bills(y,z), sanctioned(z)", "r0"),
+        new Rule("frozen(y) <- 1 exposed(y), held(y,b)", "r1"),
+        new Rule("active(y) <- 0 bills(y,z), not frozen(y)", "r2"));
+
+    private static List<TimedFact> facts() {
+        List<TimedFact> facts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            facts.add(new TimedFact(Atom.parse("owns(P" + i + ",A" + (i % 50) + ")"), "o" + i, 0, TIMESTEPS));
+            facts.add(new TimedFact(Atom.parse("bills(A" + (i % 50) + ",V" + (i % 7) + ")"), "b" + i, 1, TIMESTEPS));
+            if (i % 3 == 0) {
+                facts.add(new TimedFact(Atom.parse("held(A" + (i % 50) + ",B" + i + ")"), "h" + i, 0, TIMESTEPS));
+            }
+        }
+        facts.add(new TimedFact(Atom.parse("sanctioned(V3)"), "s1", 2, TIMESTEPS));
+        return facts;
+    }
+
+    @Test
+    void testShardsReasonIndependentlyToFullResult() {
+        JoinKeyPartitioner partitioner = new JoinKeyPartitioner(10);
+        JoinKeyPartitioner.JoinPlan plan = partitioner.plan(RULES, facts());
+
+        // Everything joins on the account; sanctioned is small enough to replicate
+        assertFalse(plan.needsExchange());
+        assertEquals(Set.of(1), plan.getKeyPositions("owns"));
+        assertEquals(Set.of(0), plan.getKeyPositions("bills"));
+        assertEquals(Set.of(0), plan.getKeyPositions("frozen"));
+        assertTrue(plan.isReplicated("sanctioned"));
+
+        Map<String, List<TimedFact>> shards = partitioner.partitionFacts(facts(), RULES, WORKERS);
+        int shipped = shards.values().stream().mapToInt(List::size).sum();
+        assertTrue(shipped < 2 * facts().size(), "most facts must be sent to one worker only");
+
+        Set<Atom> union = new HashSet<>();
+        for (List<TimedFact> shard : shards.values()) {
+            Reasoner worker = new Reasoner();
+            RULES.forEach(worker::addRule);
+            shard.forEach(worker::addFact);
+            union.addAll(worker.reason(TIMESTEPS).getFactsAt(TIMESTEPS));
+        }
+
+        Reasoner reference = new Reasoner();
+        RULES.forEach(reference::addRule);
+        facts().forEach(reference::addFact);
+        Set<Atom> expected = reference.reason(TIMESTEPS).getFactsAt(TIMESTEPS);
+        assertTrue(expected.stream().anyMatch(a -> a.getPredicate().equals("frozen")));
+        assertEquals(expected, union);
+    }
+
+    @Test
+    void testRecursiveRulesNeedExchange() {
+        List<Rule> rules = List.of(
+            new Rule("reach(x,y) <- 0 link(x,y)", "r0"),
+            new Rule("reach(x,z) <- 0 reach(x,y), link(y,z)", "r1"));
+        List<TimedFact> links = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            links.add(new TimedFact(Atom.parse("link(N" + i + ",N" + (i + 1) + ")"), "l" + i, 0, TIMESTEPS));
+        }
+
+        // reach joins link on y but derives a fact keyed on z
+        JoinKeyPartitioner.JoinPlan plan = new JoinKeyPartitioner(5).plan(rules, links);
+        assertTrue(plan.needsExchange());
+        assertEquals(Set.of(0), plan.getKeyPositions("link"));
+        assertEquals(Set.of(1), plan.getKeyPositions("reach"));
+        assertEquals(1, plan.route(Atom.parse("link(N3,N4)"), WORKERS).size());
+
+        // Doubling the path length joins reach with itself on different positions
+        List<Rule> nonlinear = List.of(
+            new Rule("reach(x,y) <- 0 link(x,y)", "r0"),
+            new Rule("reach(x,z) <- 0 reach(x,y), reach(y,z)", "r1"));
+        assertEquals(Set.of(0, 1), new JoinKeyPartitioner(5).plan(nonlinear, links).getKeyPositions("reach"));
+
+        // A small link relation is replicated instead
+        assertTrue(new JoinKeyPartitioner(100).plan(rules, links).isReplicated("link"));
+    }
+}